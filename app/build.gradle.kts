@@ -25,6 +25,18 @@ android {
             )
         }
     }
+    testOptions {
+        // android.os.Trace and friends are no-ops in local unit tests
+        unitTests.isReturnDefaultValues = true
+        // Robolectric tests (TaskPerfRegressionTest) need the merged resources and room for 100k-task corpora
+        unitTests.isIncludeAndroidResources = true
+        unitTests.all {
+            it.maxHeapSize = "2g"
+            // The time budgets in perf/baselines.properties are only checked with -Pperf.timeScale,
+            // e.g. 1 on a quiet machine or 2 on a slow one; allocation budgets always are
+            project.findProperty("perf.timeScale")?.let { scale -> it.systemProperty("perf.timeScale", scale) }
+        }
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -37,9 +49,10 @@ dependencies {
     implementation(libs.material)
     implementation(libs.activity)
     implementation(libs.constraintlayout)
+    implementation(libs.recyclerview)
     testImplementation(libs.junit)
+    testImplementation(libs.robolectric)
     androidTestImplementation(libs.ext.junit)
     androidTestImplementation(libs.espresso.core)
-    implementation("com.google.code.gson:gson:2.10.1")
-// Use the latest stable version
+    implementation(libs.gson)
 }
\ No newline at end of file
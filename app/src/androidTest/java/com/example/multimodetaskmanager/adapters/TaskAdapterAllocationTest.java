@@ -0,0 +1,82 @@
+package com.example.multimodetaskmanager.adapters;
+
+import android.content.Context;
+import android.os.Debug;
+import android.view.ContextThemeWrapper;
+
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that binding an already-warm ViewHolder does not allocate on the main thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TaskAdapterAllocationTest {
+    private static final int TASK_COUNT = 20;
+    private static final int BIND_ROUNDS = 50;
+
+    @Test
+    @SuppressWarnings("deprecation") // Debug alloc counting is deprecated but still reports ART thread allocations
+    public void steadyStateBind_allocatesNothing() throws Exception {
+        Context context = new ContextThemeWrapper(
+                InstrumentationRegistry.getInstrumentation().getTargetContext(), R.style.Theme_MultiModeTaskManager);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TASK_COUNT; i++) {
+            Task task = new Task("Task " + i, "", i % 2 == 0 ? "High" : "Low", 0L);
+            task.setDone(i % 3 == 0);
+            tasks.add(task);
+        }
+        TaskAdapter adapter = new TaskAdapter(tasks, new NoOpListener());
+        TaskAdapter.TaskViewHolder[] holders = new TaskAdapter.TaskViewHolder[TASK_COUNT];
+
+        // Warm up: create holders, bind once, and let the title layouts be precomputed
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            RecyclerView parent = new RecyclerView(context);
+            parent.setLayoutManager(new LinearLayoutManager(context));
+            for (int i = 0; i < TASK_COUNT; i++) {
+                holders[i] = adapter.onCreateViewHolder(parent, 0);
+                adapter.onBindViewHolder(holders[i], i);
+            }
+        });
+        Thread.sleep(500); // Background precompute, then its main-thread posts
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            for (int i = 0; i < TASK_COUNT; i++) adapter.onBindViewHolder(holders[i], i);
+        });
+
+        int[] allocations = new int[1];
+        InstrumentationRegistry.getInstrumentation().runOnMainSync(() -> {
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+            for (int round = 0; round < BIND_ROUNDS; round++) {
+                for (int i = 0; i < TASK_COUNT; i++) adapter.onBindViewHolder(holders[i], i);
+            }
+            Debug.stopAllocCounting();
+            allocations[0] = Debug.getThreadAllocCount();
+        });
+
+        assertEquals("Objects allocated over " + BIND_ROUNDS * TASK_COUNT + " steady-state binds",
+                0, allocations[0]);
+    }
+
+    private static class NoOpListener implements TaskAdapter.OnTaskActionListener {
+        @Override public void onEdit(Task task) { }
+        @Override public void onDelete(Task task) { }
+        @Override public void onMarkDone(Task task) { }
+        @Override public void onTaskClick(Task task) { }
+        @Override public void onAddSubtask(Task parent) { }
+    }
+}
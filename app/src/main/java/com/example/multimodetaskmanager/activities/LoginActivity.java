@@ -10,8 +10,10 @@ import android.widget.Button;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.viewmodel.AccountViewModel;
 import com.google.android.material.textfield.TextInputEditText;
 
 public class LoginActivity extends AppCompatActivity {
@@ -20,13 +22,15 @@ public class LoginActivity extends AppCompatActivity {
     public static final String KEY_LOGGED_IN = "isLoggedIn";
     // ADD THESE TWO NEW CONSTANTS:
     public static final String KEY_EMAIL = "email";
-    public static final String KEY_PASSWORD = "password";
+    public static final String KEY_PASSWORD = "password"; // Plain text; only read to migrate old accounts
+    public static final String KEY_PASSWORD_HASH = "password_hash"; // See PasswordHasher
 
 
     private TextInputEditText emailEditText;
     private TextInputEditText passwordEditText;
     private Button loginButton;
     private Button goToSignupButton;
+    private AccountViewModel account;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -48,34 +52,32 @@ public class LoginActivity extends AppCompatActivity {
         passwordEditText = findViewById(R.id.edit_text_password_login);
         loginButton = findViewById(R.id.button_login);
         goToSignupButton = findViewById(R.id.button_go_to_signup);
+        account = new ViewModelProvider(this).get(AccountViewModel.class);
 
         // Set OnClickListener for the Login button
         if (loginButton != null) {
+            // Also picks up a check started before a rotation recreated this activity
+            account.getStatus().observe(this, this::onStatus);
             loginButton.setOnClickListener(new View.OnClickListener() {
                 @Override
                 public void onClick(View v) {
                     String email = emailEditText.getText().toString().trim();
                     String password = passwordEditText.getText().toString().trim();
 
-                    // Retrieve stored email and password for validation
+                    // Retrieve stored email and password hash for validation; the hash is checked by the ViewModel
                     String storedEmail = prefs.getString(KEY_EMAIL, null);
-                    String storedPassword = prefs.getString(KEY_PASSWORD, null);
+                    String storedHash = prefs.getString(KEY_PASSWORD_HASH, null);
+                    String legacyPassword = prefs.getString(KEY_PASSWORD, null); // Plain text, from before hashing
 
 
                     if (email.isEmpty() || password.isEmpty()) {
                         Toast.makeText(LoginActivity.this, "Please enter email and password", Toast.LENGTH_SHORT).show();
-                    } else if (storedEmail != null && storedPassword != null &&
-                            email.equals(storedEmail) && password.equals(storedPassword)) {
-                        // Login successful - save login state
-                        SharedPreferences.Editor editor = prefs.edit();
-                        editor.putBoolean(KEY_LOGGED_IN, true);
-                        editor.apply();
-
-                        Intent intent = new Intent(LoginActivity.this, MainActivity.class);
-                        startActivity(intent);
-                        finish(); // Close LoginActivity
-                    } else {
+                    } else if (storedEmail == null || !email.equals(storedEmail) || (storedHash == null && legacyPassword == null)) {
                         Toast.makeText(LoginActivity.this, "Invalid credentials or account not registered.", Toast.LENGTH_LONG).show();
+                    } else {
+                        // Hashing takes a noticeable fraction of a second; the ViewModel keeps it
+                        // off the main thread and hands the outcome to whichever activity is showing
+                        account.logIn(email, password);
                     }
                 }
             });
@@ -99,4 +101,18 @@ public class LoginActivity extends AppCompatActivity {
             Toast.makeText(this, "Internal error: Sign Up button not found!", Toast.LENGTH_LONG).show();
         }
     }
-}
\ No newline at end of file
+
+    private void onStatus(AccountViewModel.Status status) {
+        loginButton.setEnabled(status != AccountViewModel.Status.CHECKING);
+        if (status == AccountViewModel.Status.INVALID) {
+            account.acknowledge();
+            Toast.makeText(LoginActivity.this, "Invalid credentials or account not registered.", Toast.LENGTH_LONG).show();
+        } else if (status == AccountViewModel.Status.LOGGED_IN) {
+            // Login successful; the ViewModel saved the login state and switched to this account's tasks
+            account.acknowledge();
+            Intent intent = new Intent(LoginActivity.this, MainActivity.class);
+            startActivity(intent);
+            finish(); // Close LoginActivity
+        }
+    }
+}
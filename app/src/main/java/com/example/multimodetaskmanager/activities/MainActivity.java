@@ -1,24 +1,72 @@
 package com.example.multimodetaskmanager.activities;
 
+import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences;
+import android.content.pm.ApplicationInfo;
+import android.content.pm.PackageManager;
+import android.content.res.Configuration;
+import android.os.Build;
 import android.os.Bundle;
+import android.util.TypedValue;
 import android.view.Menu;
 import android.view.MenuItem;
+import android.view.View;
 import android.widget.Toast;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.app.AppCompatDelegate;
 import androidx.appcompat.widget.Toolbar;
+import androidx.fragment.app.Fragment;
+import androidx.recyclerview.widget.RecyclerView;
 
 import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.fragments.ArchiveDialogFragment;
+import com.example.multimodetaskmanager.fragments.StatsDialogFragment;
+import com.example.multimodetaskmanager.fragments.TagFilterDialogFragment;
 import com.example.multimodetaskmanager.fragments.TaskListFragment;
+import com.example.multimodetaskmanager.memory.CacheManager;
+import com.example.multimodetaskmanager.perf.FileMetricsExporter;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.perf.MetricsReporter;
+import com.example.multimodetaskmanager.perf.TaskListPerf;
+import com.example.multimodetaskmanager.perf.ThemeSwitchTimer;
+import com.example.multimodetaskmanager.repository.TaskStores;
 
-public class MainActivity extends AppCompatActivity {
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+public class MainActivity extends AppCompatActivity implements TaskListFragment.TaskViewPoolHost {
 
     private static final String PREF_THEME_MODE = "theme_mode";
+    private static final int REQUEST_NOTIFICATIONS = 1;
+
+    private static final long METRICS_REPORT_PERIOD_SECONDS = 30;
+    private static final int ROW_BYTES = 8 * 1024; // Rough heap of one inflated item_task row
+    // Process-wide, so reporting survives activity recreation
+    private static MetricsReporter metricsReporter;
+
+    // Task row views shared by every task list hosted in this activity
+    private RecyclerView.RecycledViewPool taskViewPool;
+    // Off-screen rows are the first thing to give back under memory pressure; rows are
+    // inflated again when the list needs more than it has on screen
+    private final CacheManager.Cache taskViewPoolCache = new CacheManager.Cache() {
+        @Override
+        public long sizeInBytes() {
+            return taskViewPool != null ? (long) taskViewPool.getRecycledViewCount(0) * ROW_BYTES : 0L;
+        }
+
+        @Override
+        public long trim() {
+            long bytes = sizeInBytes();
+            if (taskViewPool != null) taskViewPool.clear();
+            return bytes;
+        }
+    };
+    private int appliedNightMode; // Configuration.UI_MODE_NIGHT_* the views are currently styled for
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -31,6 +79,10 @@ public class MainActivity extends AppCompatActivity {
 
         // Set content view ONLY ONCE
         setContentView(R.layout.activity_main);
+        CacheManager.get(this).register("task row pool", CacheManager.Tier.DROPPABLE, taskViewPoolCache);
+        appliedNightMode = getResources().getConfiguration().uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        // Finishes the measurement if this is the recreate fallback of a theme switch
+        ThemeSwitchTimer.onApplied(getWindow().getDecorView(), false);
 
         Toolbar toolbar = findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
@@ -45,12 +97,105 @@ public class MainActivity extends AppCompatActivity {
             getSupportFragmentManager().beginTransaction()
                     .replace(R.id.fragment_container_list, new TaskListFragment())
                     .commit();
+            requestNotificationPermission();
+        }
+    }
+
+    // Due date reminders are notifications, which need a runtime permission from Android 13 on
+    private void requestNotificationPermission() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU
+                && checkSelfPermission(Manifest.permission.POST_NOTIFICATIONS) != PackageManager.PERMISSION_GRANTED) {
+            requestPermissions(new String[]{Manifest.permission.POST_NOTIFICATIONS}, REQUEST_NOTIFICATIONS);
         }
     }
 
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        super.onConfigurationChanged(newConfig);
+        int nightMode = newConfig.uiMode & Configuration.UI_MODE_NIGHT_MASK;
+        if (nightMode == appliedNightMode) return;
+        appliedNightMode = nightMode;
+        if (!ThemeSwitchTimer.isPending()) ThemeSwitchTimer.start(); // Switched by the system, not the menu
+        if (canApplyThemeInPlace()) {
+            applyThemeInPlace();
+        } else {
+            recreate();
+        }
+    }
+
+    // In-place recoloring covers the toolbar and the task list; anything else on screen
+    // (a detail pane, an open dialog) is recreated the old way
+    private boolean canApplyThemeInPlace() {
+        for (Fragment fragment : getSupportFragmentManager().getFragments()) {
+            if (!(fragment instanceof TaskListFragment)) return false;
+        }
+        return true;
+    }
+
+    // Re-resolves theme colors on the existing views. AppCompat has already re-applied the
+    // activity theme for the new uiMode, so attributes now resolve to the new values.
+    private void applyThemeInPlace() {
+        TypedValue value = new TypedValue();
+        if (getTheme().resolveAttribute(android.R.attr.windowBackground, value, true) && value.resourceId != 0) {
+            getWindow().setBackgroundDrawableResource(value.resourceId);
+        }
+        if (getTheme().resolveAttribute(android.R.attr.statusBarColor, value, true)) {
+            getWindow().setStatusBarColor(value.data);
+        }
+
+        Toolbar toolbar = findViewById(R.id.toolbar);
+        View appBar = (View) toolbar.getParent();
+        if (getTheme().resolveAttribute(androidx.appcompat.R.attr.colorPrimary, value, true)) {
+            appBar.setBackgroundColor(value.data);
+        }
+        if (getTheme().resolveAttribute(androidx.appcompat.R.attr.popupTheme, value, true)) {
+            toolbar.setPopupTheme(value.resourceId);
+        }
+
+        Fragment listFragment = getSupportFragmentManager().findFragmentById(R.id.fragment_container_list);
+        if (listFragment instanceof TaskListFragment) {
+            ((TaskListFragment) listFragment).applyTheme();
+        }
+        invalidateOptionsMenu();
+        ThemeSwitchTimer.onApplied(getWindow().getDecorView(), true);
+    }
+
+    // Writes metric snapshots to <external files>/perf/metrics.log while recording is on
+    private void updateMetricsReporting(boolean record) {
+        if (record && metricsReporter == null) {
+            File dir = getExternalFilesDir(null) != null ? getExternalFilesDir(null) : getFilesDir();
+            metricsReporter = new MetricsReporter(MetricsRegistry.global(),
+                    new FileMetricsExporter(new File(new File(dir, "perf"), "metrics.log")));
+            metricsReporter.start(METRICS_REPORT_PERIOD_SECONDS, TimeUnit.SECONDS);
+        } else if (!record && metricsReporter != null) {
+            metricsReporter.stop();
+            metricsReporter = null;
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        CacheManager.get(this).unregister(taskViewPoolCache);
+        super.onDestroy();
+    }
+
+    @Override
+    public RecyclerView.RecycledViewPool getTaskViewPool() {
+        if (taskViewPool == null) {
+            // Sized per layout: the sw600dp two-pane layout keeps more rows on screen
+            taskViewPool = new RecyclerView.RecycledViewPool();
+            taskViewPool.setMaxRecycledViews(0, getResources().getInteger(R.integer.task_row_pool_size));
+        }
+        return taskViewPool;
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.options_menu, menu);
+        // Performance tools are for debug builds only
+        boolean debuggable = (getApplicationInfo().flags & ApplicationInfo.FLAG_DEBUGGABLE) != 0;
+        menu.findItem(R.id.menu_perf).setVisible(debuggable);
+        menu.findItem(R.id.menu_perf_record).setChecked(TaskListPerf.isEnabled());
         return true;
     }
 
@@ -72,6 +217,47 @@ public class MainActivity extends AppCompatActivity {
             Toast.makeText(this, "Sort by Name selected", Toast.LENGTH_SHORT).show();
             return true;
         }
+        // Answered from the tag bitmaps (see TagIndex)
+        else if (id == R.id.menu_tag_filter) {
+            new TagFilterDialogFragment().show(getSupportFragmentManager(), "tag_filter");
+            return true;
+        }
+        // Completed tasks moved out of the list (see TaskStores)
+        else if (id == R.id.menu_archive) {
+            new ArchiveDialogFragment().show(getSupportFragmentManager(), "archive");
+            return true;
+        }
+        // Counts kept up to date as tasks change (see TaskStats)
+        else if (id == R.id.menu_stats) {
+            new StatsDialogFragment().show(getSupportFragmentManager(), "stats");
+            return true;
+        }
+        // Handle performance tools
+        else if (id == R.id.menu_perf_record) {
+            boolean record = !item.isChecked();
+            TaskListPerf.setEnabled(record);
+            MetricsRegistry.global().setEnabled(record);
+            updateMetricsReporting(record);
+            item.setChecked(record);
+            Fragment listFragment = getSupportFragmentManager().findFragmentById(R.id.fragment_container_list);
+            if (listFragment instanceof TaskListFragment) {
+                ((TaskListFragment) listFragment).updateFrameRecording();
+            }
+            return true;
+        } else if (id == R.id.menu_perf_dump) {
+            TaskListPerf.dumpToLog();
+            try {
+                File dir = getExternalFilesDir(null) != null ? getExternalFilesDir(null) : getFilesDir();
+                File file = TaskListPerf.dumpToFile(new File(dir, "perf"));
+                Toast.makeText(this, "Stats written to " + file.getAbsolutePath(), Toast.LENGTH_LONG).show();
+            } catch (IOException e) {
+                Toast.makeText(this, "Stats logged; file write failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+            }
+            return true;
+        } else if (id == R.id.menu_perf_reset) {
+            TaskListPerf.reset();
+            return true;
+        }
         // Handle theme options
         else if (id == R.id.menu_theme_light) {
             newThemeMode = AppCompatDelegate.MODE_NIGHT_NO; // Light theme
@@ -85,13 +271,17 @@ public class MainActivity extends AppCompatActivity {
         }
 
         if (newThemeMode != -1) {
-            // Apply the new theme mode
-            AppCompatDelegate.setDefaultNightMode(newThemeMode);
             // Save the preference
             editor.putInt(PREF_THEME_MODE, newThemeMode);
             editor.apply();
-            // Recreate the activity for the theme to take effect immediately
-            recreate();
+            ThemeSwitchTimer.start();
+            int previousNightMode = appliedNightMode;
+            // Apply the new theme mode. This activity handles uiMode itself, so AppCompat
+            // delivers the change to onConfigurationChanged instead of recreating it.
+            AppCompatDelegate.setDefaultNightMode(newThemeMode);
+            if (appliedNightMode == previousNightMode) {
+                ThemeSwitchTimer.cancel(); // Already showing that mode; no frame to measure
+            }
             return true;
         }
 
@@ -102,6 +292,7 @@ public class MainActivity extends AppCompatActivity {
             SharedPreferences.Editor loginEditor = loginPrefs.edit();
             loginEditor.putBoolean(LoginActivity.KEY_LOGGED_IN, false);
             loginEditor.apply();
+            TaskStores.get(this).logout(); // Drops every account's tasks from memory
 
             Intent intent = new Intent(MainActivity.this, LoginActivity.class);
             intent.setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TASK);
@@ -1,8 +1,6 @@
 package com.example.multimodetaskmanager.activities;
 
-import android.content.Context;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.TextUtils;
 import android.view.View;
@@ -10,8 +8,10 @@ import android.widget.Button;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.lifecycle.ViewModelProvider;
 
 import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.viewmodel.AccountViewModel;
 import com.google.android.material.textfield.TextInputEditText;
 
 import java.util.regex.Matcher;
@@ -24,6 +24,7 @@ public class SignUpActivity extends AppCompatActivity {
     private TextInputEditText confirmPasswordEditText;
     private Button signupButton;
     private Button goToLoginButton;
+    private AccountViewModel account;
 
     // Regex for email validation
     private static final String EMAIL_REGEX = "^[a-zA-Z0-9._%+-]+@[a-zA-Z0-9.-]+\\.[a-zA-Z]{2,6}$";
@@ -53,6 +54,9 @@ public class SignUpActivity extends AppCompatActivity {
         confirmPasswordEditText = findViewById(R.id.edit_text_confirm_password_signup);
         signupButton = findViewById(R.id.button_signup);
         goToLoginButton = findViewById(R.id.button_go_to_login);
+        account = new ViewModelProvider(this).get(AccountViewModel.class);
+        // Also picks up a sign-up started before a rotation recreated this activity
+        account.getStatus().observe(this, this::onStatus);
 
         // Set up Sign Up button click listener
         signupButton.setOnClickListener(new View.OnClickListener() {
@@ -127,23 +131,22 @@ public class SignUpActivity extends AppCompatActivity {
                 focusView.requestFocus();
             }
         } else {
-            // Attempt to save credentials locally
-            SharedPreferences prefs = getSharedPreferences(LoginActivity.PREFS_NAME, Context.MODE_PRIVATE);
-
-            // In a real app, you'd check if email already exists before saving.
-            // For this local example, we'll just overwrite/save.
-            SharedPreferences.Editor editor = prefs.edit();
-            editor.putString(LoginActivity.KEY_EMAIL, email);
-            editor.putString(LoginActivity.KEY_PASSWORD, password);
-            editor.putBoolean(LoginActivity.KEY_LOGGED_IN, true); // Log in automatically after signup
-            editor.apply();
-
-            Toast.makeText(SignUpActivity.this, "Account created successfully!", Toast.LENGTH_SHORT).show();
-
-            // Navigate to MainActivity after successful signup
-            Intent intent = new Intent(SignUpActivity.this, MainActivity.class);
-            startActivity(intent);
-            finish(); // Close SignUpActivity
+            // Hashing takes a noticeable fraction of a second; the ViewModel keeps it off the
+            // main thread and hands the outcome to whichever activity is showing
+            account.signUp(email, password);
         }
     }
-}
\ No newline at end of file
+
+    private void onStatus(AccountViewModel.Status status) {
+        signupButton.setEnabled(status != AccountViewModel.Status.CHECKING);
+        if (status != AccountViewModel.Status.SIGNED_UP) return;
+        // The ViewModel saved the account and switched to its tasks
+        account.acknowledge();
+        Toast.makeText(SignUpActivity.this, "Account created successfully!", Toast.LENGTH_SHORT).show();
+
+        // Navigate to MainActivity after successful signup
+        Intent intent = new Intent(SignUpActivity.this, MainActivity.class);
+        startActivity(intent);
+        finish(); // Close SignUpActivity
+    }
+}
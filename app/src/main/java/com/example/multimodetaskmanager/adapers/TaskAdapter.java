@@ -1,7 +1,14 @@
 package com.example.multimodetaskmanager.adapters;
 
+import android.content.Context;
+import android.content.res.ColorStateList;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.LruCache;
+import android.util.SparseArray;
+import android.util.TypedValue;
 import android.view.ContextMenu;
 import android.view.LayoutInflater;
 import android.view.MenuItem;
@@ -11,149 +18,442 @@ import android.widget.ImageButton;
 import android.widget.PopupMenu;
 import android.widget.TextView;
 import androidx.annotation.NonNull;
+import androidx.core.text.PrecomputedTextCompat;
+import androidx.core.widget.TextViewCompat;
 import androidx.recyclerview.widget.RecyclerView;
 import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.memory.CacheManager;
+import com.example.multimodetaskmanager.models.Priority;
 import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.TaskListPerf;
 import com.example.multimodetaskmanager.fragments.TaskListFragment; // <--- This import is necessary for context menu setup
+import com.example.multimodetaskmanager.utils.TaskTree;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
 
-public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder> {
+public class TaskAdapter extends RecyclerView.Adapter<TaskAdapter.TaskViewHolder>
+        implements TaskTree.Listener, CacheManager.Cache {
     // Interface to define actions that the hosting fragment/activity can perform on a task
     public interface OnTaskActionListener {
         void onEdit(Task task);
         void onDelete(Task task);
         void onMarkDone(Task task);
         void onTaskClick(Task task); // For regular item click (e.g., to open detail view)
+        void onAddSubtask(Task parent);
     }
 
-    private List<Task> taskList;
+    // "Priority: High" etc. built once per Priority value instead of concatenated on every bind.
+    // Not for NONE: those tasks show their own label (e.g. "Urgent!"), see Task#getPriority
+    private static final String PRIORITY_PREFIX = "Priority: ";
+    private static final String[] PRIORITY_LABELS = new String[Priority.values().length];
+    static {
+        for (Priority p : Priority.values()) {
+            if (p != Priority.NONE) PRIORITY_LABELS[p.ordinal()] = PRIORITY_PREFIX + p.getLabel();
+        }
+    }
+
+    private static final ColorStateList DONE_TEXT_COLOR = ColorStateList.valueOf(Color.GRAY);
+    private static final int TITLE_CACHE_SIZE = 256; // Precomputed titles kept per done state
+    private static final int WARM_UP_COUNT = 16; // Titles precomputed ahead of the first binds
+    private static final int TITLE_BYTES = 1024; // Rough heap of one precomputed title: text, glyph widths, line info
+    private static final Object PAYLOAD_THEME = new Object(); // Marks rebinds that only pick up new theme colors
+
+    // Title layouts are measured on this thread instead of during bind on the main thread
+    private static final Executor TEXT_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "TaskTitlePrecompute");
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // The rows: tasks under their parents, with expanded subtrees flattened in (see TaskTree)
+    private final TaskTree tree = new TaskTree(this);
     private final OnTaskActionListener listener; // The listener (usually TaskListFragment)
 
+    // Precomputed title layouts, one cache per done state because the strikethrough flag is
+    // part of the text metrics a PrecomputedText is checked against
+    private final LruCache<String, PrecomputedTextCompat> pendingTitles = new LruCache<>(TITLE_CACHE_SIZE);
+    private final LruCache<String, PrecomputedTextCompat> doneTitles = new LruCache<>(TITLE_CACHE_SIZE);
+    private final PrecomputedTextCompat.Params[] titleParams = new PrecomputedTextCompat.Params[2];
+    private final Set<String> titlesInFlight = new HashSet<>(); // Main thread only
+    // R.plurals.task_subtasks_done per subtask count, so binding does not look it up again
+    private final SparseArray<CharSequence> subtaskTexts = new SparseArray<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+    // Theme colors for rows, replaced by applyTheme(); holders styled for an older
+    // generation are restyled on their next bind
+    private int themeGeneration;
+    private ColorStateList titleColors;
+    private ColorStateList priorityColors;
+    private int rowBackgroundRes;
+    private int optionsBackgroundRes;
+    private int subtaskIndent = -1; // Pixels per level; read with the first holder
+
     public TaskAdapter(List<Task> taskList, OnTaskActionListener listener) {
-        this.taskList = taskList;
+        tree.setTasks(taskList);
         this.listener = listener;
+        // Rows keep their identity across full-list changes (setTasks, re-sorts), so RecyclerView
+        // can reuse the views already bound to them instead of rebinding or re-inflating
+        setHasStableIds(true);
     }
 
-    // Method to update the list, typically called after DiffUtil calculations
+    // Method to update the list, typically called after DiffUtil calculations.
+    // Rebuilds the rows; diff getTaskList() from before and after to dispatch the changes.
     public void setTaskList(List<Task> newTaskList) {
-        this.taskList = newTaskList;
+        tree.setTasks(newTaskList);
+        // Start measuring the titles that are likely to be bound first
+        int count = Math.min(WARM_UP_COUNT, tree.getRowCount());
+        for (int i = 0; i < count; i++) {
+            requestPrecomputedTitle(tree.getTask(i).getTitle(), tree.isComplete(i));
+        }
     }
 
-    // Getter for the current list of tasks, used by DiffUtil
+    // Getter for the tasks of the current rows, used by DiffUtil
     public List<Task> getTaskList() {
-        return taskList;
+        return tree.getRowTasks();
+    }
+
+    // For changes that keep the rows (see TaskTree#update) and for expanding and collapsing
+    public TaskTree getTree() {
+        return tree;
+    }
+
+    // --- TaskTree.Listener: changes made in place go straight to RecyclerView as ranges ---
+
+    @Override
+    public void onRowsInserted(int position, int count) {
+        notifyItemRangeInserted(position, count);
+    }
+
+    @Override
+    public void onRowsRemoved(int position, int count) {
+        notifyItemRangeRemoved(position, count);
+    }
+
+    @Override
+    public void onRowChanged(int position) {
+        notifyItemChanged(position);
+    }
+
+    // --- CacheManager.Cache: precomputed titles only save bind time, so they go first ---
+
+    @Override
+    public long sizeInBytes() {
+        return (long) (pendingTitles.size() + doneTitles.size()) * TITLE_BYTES;
+    }
+
+    @Override
+    public long trim() {
+        long bytes = sizeInBytes();
+        pendingTitles.evictAll(); // Titles bound after this are measured on the main thread again
+        doneTitles.evictAll();
+        return bytes;
     }
 
     @NonNull
     @Override
     public TaskViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+        long start = TaskListPerf.begin();
         // Inflates the layout for a single task item (item_task.xml)
         View view = LayoutInflater.from(parent.getContext())
                 .inflate(R.layout.item_task, parent, false);
-        return new TaskViewHolder(view);
+        TaskViewHolder holder = new TaskViewHolder(view);
+        // The text metrics only depend on the item style, so the first holder provides them for all
+        if (titleParams[0] == null) {
+            titleParams[0] = TextViewCompat.getTextMetricsParams(holder.title);
+            holder.title.setPaintFlags(holder.title.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
+            titleParams[1] = TextViewCompat.getTextMetricsParams(holder.title);
+            holder.title.setPaintFlags(holder.title.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
+        }
+        if (subtaskIndent < 0) {
+            subtaskIndent = parent.getResources().getDimensionPixelSize(R.dimen.subtask_indent);
+        }
+        TaskListPerf.end(TaskListPerf.CREATE_VIEW_HOLDER, start);
+        return holder;
     }
 
-    @Override
-    public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
-        Task task = taskList.get(position);
-        holder.title.setText(task.getTitle());
-        holder.priority.setText("Priority: " + task.getPriority());
+    /**
+     * Restyles the rows for the theme of {@code themedContext} without inflating new ones.
+     * Visible rows are rebound in place (the payload lets RecyclerView keep the same holders);
+     * cached and pooled rows are restyled when they are next bound.
+     */
+    public void applyTheme(Context themedContext, ViewGroup parent) {
+        // One throwaway row shows which colors the new theme gives item_task
+        View sample = LayoutInflater.from(themedContext).inflate(R.layout.item_task, parent, false);
+        titleColors = ((TextView) sample.findViewById(R.id.task_title)).getTextColors();
+        priorityColors = ((TextView) sample.findViewById(R.id.task_priority)).getTextColors();
+        rowBackgroundRes = resolveResource(themedContext, androidx.appcompat.R.attr.selectableItemBackground);
+        optionsBackgroundRes = resolveResource(themedContext, androidx.appcompat.R.attr.selectableItemBackgroundBorderless);
+        themeGeneration++;
+        notifyItemRangeChanged(0, getItemCount(), PAYLOAD_THEME);
+    }
 
-        // Apply strikethrough effect and change color for tasks marked as done
-        if (task.isDone()) {
-            holder.title.setPaintFlags(holder.title.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
-            holder.priority.setPaintFlags(holder.priority.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
-            holder.title.setTextColor(Color.GRAY);
-            holder.priority.setTextColor(Color.GRAY);
-        } else {
-            // Remove strikethrough and restore original colors for pending tasks
-            holder.title.setPaintFlags(holder.title.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
-            holder.priority.setPaintFlags(holder.priority.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
-            holder.title.setTextColor(holder.initialTitleColor);
-            holder.priority.setTextColor(holder.initialPriorityColor);
+    private static int resolveResource(Context context, int attr) {
+        TypedValue value = new TypedValue();
+        return context.getTheme().resolveAttribute(attr, value, true) ? value.resourceId : 0;
+    }
+
+    // Applies the current theme generation's colors to a holder styled for an older one
+    private void restyle(TaskViewHolder holder) {
+        holder.themeGeneration = themeGeneration;
+        holder.initialTitleColors = titleColors;
+        holder.initialPriorityColors = priorityColors;
+        if (rowBackgroundRes != 0) holder.itemView.setBackgroundResource(rowBackgroundRes);
+        if (optionsBackgroundRes != 0) {
+            holder.options.setBackgroundResource(optionsBackgroundRes);
+            holder.expand.setBackgroundResource(optionsBackgroundRes);
         }
+        holder.optionsMenu = null; // Recreated with the new theme on next use
+        holder.boundDone = -1; // Forces the colors to be applied below
+    }
 
-        // --- Popup Menu on ImageButton Click (for options like edit, delete, mark done) ---
-        holder.options.setOnClickListener(v -> {
-            PopupMenu menu = new PopupMenu(v.getContext(), v);
-            menu.inflate(R.menu.context_menu); // Inflates the context menu XML for the popup
+    @Override
+    public void onBindViewHolder(@NonNull TaskViewHolder holder, int position) {
+        // Listeners were installed once in the ViewHolder; binding only pushes data into views.
+        long start = TaskListPerf.begin();
+        Task task = tree.getTask(position);
+        boolean done = tree.isComplete(position); // A task whose subtasks are all done shows as done
+        if (holder.themeGeneration != themeGeneration) {
+            restyle(holder);
+        }
 
-            // Dynamically change "Mark as Done" to "Mark as Pending" if the task is already done
-            MenuItem markDoneItem = menu.getMenu().findItem(R.id.menu_done);
-            if (markDoneItem != null) {
-                if (task.isDone()) {
-                    markDoneItem.setTitle("Mark as Pending");
-                } else {
-                    markDoneItem.setTitle("Mark as Done");
-                }
+        // Apply strikethrough effect and change color for tasks marked as done.
+        // Paint flags and colors are only touched when the holder's done state actually changes.
+        if (holder.boundDone != (done ? 1 : 0)) {
+            holder.boundDone = done ? 1 : 0;
+            if (done) {
+                holder.title.setPaintFlags(holder.title.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
+                holder.priority.setPaintFlags(holder.priority.getPaintFlags() | Paint.STRIKE_THRU_TEXT_FLAG);
+                holder.title.setTextColor(DONE_TEXT_COLOR);
+                holder.priority.setTextColor(DONE_TEXT_COLOR);
+            } else {
+                // Remove strikethrough and restore original colors for pending tasks
+                holder.title.setPaintFlags(holder.title.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
+                holder.priority.setPaintFlags(holder.priority.getPaintFlags() & (~Paint.STRIKE_THRU_TEXT_FLAG));
+                holder.title.setTextColor(holder.initialTitleColors);
+                holder.priority.setTextColor(holder.initialPriorityColors);
             }
+        }
 
-            // Set a listener for menu item clicks within the popup
-            menu.setOnMenuItemClickListener(item -> {
-                int id = item.getItemId();
-                if (id == R.id.menu_edit) {
-                    listener.onEdit(task);
-                    return true;
-                } else if (id == R.id.menu_delete) {
-                    listener.onDelete(task);
-                    return true;
-                } else if (id == R.id.menu_done) {
-                    listener.onMarkDone(task);
-                    return true;
-                }
-                return false;
-            });
-            menu.show(); // Display the popup menu
-        });
+        // Title: use the layout measured off the main thread when it is ready
+        String title = task.getTitle();
+        PrecomputedTextCompat precomputed = title != null ? titleCache(done).get(title) : null;
+        if (precomputed != null) {
+            TextViewCompat.setPrecomputedText(holder.title, precomputed);
+        } else {
+            holder.title.setText(title);
+            requestPrecomputedTitle(title, done);
+        }
 
-        // --- Handle overall item click (for navigating to detail view) ---
-        holder.itemView.setOnClickListener(v -> listener.onTaskClick(task));
+        // Subtasks: indentation, expand indicator and done count, each set only when it changes
+        int depth = tree.getDepth(position);
+        if (holder.boundDepth != depth) {
+            holder.boundDepth = depth;
+            holder.itemView.setPaddingRelative(holder.basePaddingStart + depth * subtaskIndent,
+                    holder.itemView.getPaddingTop(), holder.itemView.getPaddingEnd(), holder.itemView.getPaddingBottom());
+        }
+        int subtasks = tree.getSubtaskCount(position);
+        int expandState = subtasks == 0 ? 0 : tree.isExpanded(position) ? 2 : 1;
+        if (holder.boundExpand != expandState) {
+            holder.boundExpand = expandState;
+            holder.expand.setVisibility(expandState == 0 ? View.INVISIBLE : View.VISIBLE);
+            holder.expand.setImageResource(expandState == 2 ? android.R.drawable.arrow_up_float : android.R.drawable.arrow_down_float);
+            holder.expand.setContentDescription(holder.expand.getResources()
+                    .getString(expandState == 2 ? R.string.hide_subtasks : R.string.show_subtasks));
+        }
+        String label = PRIORITY_LABELS[task.getPriorityLevel().ordinal()]; // null for a custom one
+        if (label != null && subtasks == 0 && task.getTags().isEmpty()) {
+            holder.priority.setText(label); // The common case, without building a string
+        } else {
+            // Into the holder's own buffers, which TextView keeps instead of copying
+            CharSequence subtaskText = subtasks > 0 ? subtaskText(holder, subtasks) : null;
+            if (label != null) {
+                holder.priorityLine.build(label, subtaskText, tree.getDoneSubtaskCount(position), subtasks, task.getTags());
+            } else {
+                holder.priorityLine.build(PRIORITY_PREFIX, task.getPriority(), subtaskText,
+                        tree.getDoneSubtaskCount(position), subtasks, task.getTags());
+            }
+            holder.priority.setText(holder.priorityLine.chars(), 0, holder.priorityLine.length());
+        }
+        TaskListPerf.end(TaskListPerf.BIND_VIEW_HOLDER, start);
+    }
 
-        // --- Setup for Context Menu (Long Press on entire item) ---
-        // This makes the itemView respond to long-press by triggering onCreateContextMenu in the fragment.
-        // We cast the listener to TaskListFragment to directly set its fields for context menu handling.
-        holder.itemView.setOnLongClickListener(v -> {
-            ((TaskListFragment) listener).selectedTaskForContextMenu = task; // Store the clicked task
-            ((TaskListFragment) listener).selectedTaskPositionForContextMenu = holder.getAdapterPosition(); // Store its position
-            v.showContextMenu(); // Show the context menu
-            return true; // Indicate that the long click was consumed
-        });
+    // Stable 64-bit ID derived from the task's UUID halves
+    @Override
+    public long getItemId(int position) {
+        Task task = tree.getTask(position);
+        return task.getIdMostSigBits() ^ task.getIdLeastSigBits();
     }
 
     @Override
     public int getItemCount() {
-        return taskList.size(); // Returns the total number of tasks in the list
+        return tree.getRowCount(); // Rows shown: collapsed subtasks are not counted
     }
 
-    // ViewHolder class to hold references to the views for each task item
-    static class TaskViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener {
+    // Resolves the task currently bound to a holder, or null if the holder is being removed
+    Task getTaskAt(int position) {
+        if (position == RecyclerView.NO_POSITION || position >= tree.getRowCount()) return null;
+        return tree.getTask(position);
+    }
+
+    private CharSequence subtaskText(TaskViewHolder holder, int subtasks) {
+        CharSequence text = subtaskTexts.get(subtasks);
+        if (text == null) {
+            text = holder.itemView.getResources().getQuantityText(R.plurals.task_subtasks_done, subtasks);
+            subtaskTexts.put(subtasks, text);
+        }
+        return text;
+    }
+
+    private LruCache<String, PrecomputedTextCompat> titleCache(boolean done) {
+        return done ? doneTitles : pendingTitles;
+    }
+
+    // Measures a title on the background executor and caches it for the next bind
+    private void requestPrecomputedTitle(String title, boolean done) {
+        PrecomputedTextCompat.Params params = titleParams[done ? 1 : 0];
+        if (title == null || params == null || titleCache(done).get(title) != null) return;
+        String key = done ? "\u0001" + title : title; // Distinguishes the two states in titlesInFlight
+        if (!titlesInFlight.add(key)) return;
+        TEXT_EXECUTOR.execute(() -> {
+            PrecomputedTextCompat text = PrecomputedTextCompat.create(title, params);
+            mainHandler.post(() -> {
+                titlesInFlight.remove(key);
+                titleCache(done).put(title, text);
+            });
+        });
+    }
+
+    // ViewHolder class to hold references to the views for each task item.
+    // Click listeners are created once here and look up the bound task by adapter position.
+    // Holders come from a RecycledViewPool shared by every task list, so they ask for the adapter
+    // they are bound to now rather than keeping the one that created them.
+    static class TaskViewHolder extends RecyclerView.ViewHolder implements View.OnCreateContextMenuListener,
+            View.OnClickListener, View.OnLongClickListener, PopupMenu.OnMenuItemClickListener {
         TextView title, priority;
-        ImageButton options;
-        int initialTitleColor; // To store and restore original text colors
-        int initialPriorityColor;
+        ImageButton options, expand;
+        ColorStateList initialTitleColors; // To store and restore original text colors
+        ColorStateList initialPriorityColors;
+        int boundDone = -1; // Done state the views are styled for: -1 unknown, 0 pending, 1 done
+        int themeGeneration; // TaskAdapter.themeGeneration the colors below belong to
+        int boundDepth; // Indentation level the padding is set for
+        int boundExpand = -1; // Expand indicator: -1 unknown, 0 no subtasks, 1 collapsed, 2 expanded
+        final int basePaddingStart;
+        final TaskRowText priorityLine = new TaskRowText(); // For rows with subtasks, tags or a custom priority
+
+        private PopupMenu optionsMenu; // Created on first tap and reused afterwards
+        private Task menuTask; // The task the options menu was opened for
 
         TaskViewHolder(View itemView) {
             super(itemView);
             title = itemView.findViewById(R.id.task_title);
             priority = itemView.findViewById(R.id.task_priority);
             options = itemView.findViewById(R.id.task_options);
+            expand = itemView.findViewById(R.id.task_expand);
+            basePaddingStart = itemView.getPaddingStart();
 
             // Store the initial text colors when the ViewHolder is created
-            initialTitleColor = title.getCurrentTextColor();
-            initialPriorityColor = priority.getCurrentTextColor();
+            initialTitleColors = title.getTextColors();
+            initialPriorityColors = priority.getTextColors();
+
+            // --- Handle overall item click (for navigating to detail view) ---
+            itemView.setOnClickListener(this);
+            // --- Setup for Context Menu (Long Press on entire item) ---
+            itemView.setOnLongClickListener(this);
+            // --- Popup Menu on ImageButton Click (for options like edit, delete, mark done) ---
+            options.setOnClickListener(this);
+            // --- Expand/collapse subtasks: one range of rows in or out, see TaskTree ---
+            expand.setOnClickListener(this);
 
             // Register the entire item view for context menu.
             // This tells Android that long-pressing this view should trigger a context menu.
             itemView.setOnCreateContextMenuListener(this);
         }
 
+        // Null while the holder is unbound, e.g. in the pool or animating out
+        private TaskAdapter adapter() {
+            RecyclerView.Adapter<?> bound = getBindingAdapter();
+            return bound instanceof TaskAdapter ? (TaskAdapter) bound : null;
+        }
+
+        private Task boundTask(TaskAdapter adapter) {
+            return adapter != null ? adapter.getTaskAt(getBindingAdapterPosition()) : null;
+        }
+
+        @Override
+        public void onClick(View v) {
+            TaskAdapter adapter = adapter();
+            Task task = boundTask(adapter);
+            if (task == null) return;
+            if (v == options) {
+                showOptionsMenu(v, task);
+            } else if (v == expand) {
+                adapter.tree.toggle(getBindingAdapterPosition());
+            } else {
+                adapter.listener.onTaskClick(task);
+            }
+        }
+
+        // This makes the itemView respond to long-press by triggering onCreateContextMenu in the fragment.
+        // We cast the listener to TaskListFragment to directly set its fields for context menu handling.
+        @Override
+        public boolean onLongClick(View v) {
+            TaskAdapter adapter = adapter();
+            Task task = boundTask(adapter);
+            if (task == null) return false;
+            ((TaskListFragment) adapter.listener).selectedTaskForContextMenu = task; // Store the clicked task
+            ((TaskListFragment) adapter.listener).selectedTaskPositionForContextMenu = getBindingAdapterPosition(); // Store its position
+            v.showContextMenu(); // Show the context menu
+            return true; // Indicate that the long click was consumed
+        }
+
+        private void showOptionsMenu(View anchor, Task task) {
+            if (optionsMenu == null) {
+                optionsMenu = new PopupMenu(anchor.getContext(), anchor);
+                optionsMenu.inflate(R.menu.context_menu); // Inflates the context menu XML for the popup
+                optionsMenu.setOnMenuItemClickListener(this);
+            }
+            menuTask = task;
+            // Dynamically change "Mark as Done" to "Mark as Pending" if the task is already done
+            MenuItem markDoneItem = optionsMenu.getMenu().findItem(R.id.menu_done);
+            if (markDoneItem != null) {
+                markDoneItem.setTitle(task.isDone() ? "Mark as Pending" : "Mark as Done");
+            }
+            optionsMenu.show(); // Display the popup menu
+        }
+
+        // Handles clicks on the options popup menu items
+        @Override
+        public boolean onMenuItemClick(MenuItem item) {
+            Task task = menuTask;
+            TaskAdapter adapter = adapter();
+            if (task == null || adapter == null) return false;
+            int id = item.getItemId();
+            if (id == R.id.menu_edit) {
+                adapter.listener.onEdit(task);
+                return true;
+            } else if (id == R.id.menu_delete) {
+                adapter.listener.onDelete(task);
+                return true;
+            } else if (id == R.id.menu_done) {
+                adapter.listener.onMarkDone(task);
+                return true;
+            } else if (id == R.id.menu_add_subtask) {
+                adapter.listener.onAddSubtask(task);
+                return true;
+            }
+            return false;
+        }
+
         @Override
         public void onCreateContextMenu(ContextMenu menu, View v, ContextMenu.ContextMenuInfo menuInfo) {
             // This method in ViewHolder is less commonly used for RecyclerView item context menus directly
             // because context menu creation often needs data from the adapter.
-            // The approach in onBindViewHolder where we set an OnLongClickListener and
-            // then set properties on the fragment and call showContextMenu() is more common for RecyclerViews
-            // for passing specific item data to the fragment's context menu handler.
+            // The OnLongClickListener above sets properties on the fragment and calls showContextMenu(),
+            // which is more common for RecyclerViews for passing specific item data to the fragment's
+            // context menu handler.
         }
     }
-}
\ No newline at end of file
+}
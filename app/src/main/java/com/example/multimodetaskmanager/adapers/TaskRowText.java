@@ -0,0 +1,76 @@
+package com.example.multimodetaskmanager.adapters;
+
+import java.util.List;
+
+/**
+ * The second line of a task row: the priority, then how many subtasks are done and the tags,
+ * built into buffers the row keeps so that binding a row with subtasks or tags allocates
+ * nothing. Pass {@link #chars()} and {@link #length()} to TextView.setText(char[], int, int),
+ * which keeps the array instead of copying it into a new String.
+ *
+ * The subtask count is a plural resource whose text has %1$d for the done subtasks and %2$d
+ * for all of them. String.format would allocate the result and its arguments on every bind,
+ * so the two numbers are put in here instead. No Android classes, so the allocation tests run
+ * it on the JVM.
+ */
+public final class TaskRowText {
+    private static final String SEPARATOR = " · ";
+
+    private final StringBuilder line = new StringBuilder(64);
+    private char[] chars = new char[64];
+
+    /**
+     * @param subtaskText The plural text for {@code total}; unused when there are no subtasks.
+     */
+    public void build(String priorityLabel, CharSequence subtaskText, int done, int total, List<String> tags) {
+        build(priorityLabel, "", subtaskText, done, total, tags);
+    }
+
+    /**
+     * Like {@link #build(String, CharSequence, int, int, List)}, with the priority given as a
+     * prefix and a label of the task's own (a custom one, see Task#setPriority), so that label
+     * is not concatenated into a new String first.
+     */
+    public void build(String prefix, String priority, CharSequence subtaskText, int done, int total, List<String> tags) {
+        line.setLength(0);
+        line.append(prefix).append(priority);
+        if (total > 0) {
+            line.append(SEPARATOR);
+            appendCount(subtaskText, done, total);
+        }
+        for (int i = 0; i < tags.size(); i++) line.append("  #").append(tags.get(i)); // No iterator
+        if (chars.length < line.length()) chars = new char[Math.max(line.length(), 2 * chars.length)];
+        line.getChars(0, line.length(), chars, 0);
+    }
+
+    public char[] chars() {
+        return chars;
+    }
+
+    public int length() {
+        return line.length();
+    }
+
+    @Override
+    public String toString() {
+        return line.toString();
+    }
+
+    // The text with %1$d and %2$d replaced and %% unescaped, like String.format would
+    private void appendCount(CharSequence text, int done, int total) {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == '%' && i + 1 < length && text.charAt(i + 1) == '%') {
+                line.append('%');
+                i++;
+            } else if (c == '%' && i + 3 < length && text.charAt(i + 2) == '$' && text.charAt(i + 3) == 'd'
+                    && (text.charAt(i + 1) == '1' || text.charAt(i + 1) == '2')) {
+                line.append(text.charAt(i + 1) == '1' ? done : total);
+                i += 3;
+            } else {
+                line.append(c);
+            }
+        }
+    }
+}
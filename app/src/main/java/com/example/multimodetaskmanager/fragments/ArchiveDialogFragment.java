@@ -0,0 +1,138 @@
+package com.example.multimodetaskmanager.fragments;
+
+import android.app.Dialog;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.view.KeyEvent;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.inputmethod.EditorInfo;
+import android.widget.ArrayAdapter;
+import android.widget.Button;
+import android.widget.EditText;
+import android.widget.ListView;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
+import androidx.fragment.app.DialogFragment;
+
+import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TaskArchive;
+import com.example.multimodetaskmanager.repository.TaskStores;
+
+import java.io.IOException;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Browses and searches the active account's archive of completed tasks, one page at a time.
+ * Pages are read on a background thread; nothing is read until the dialog is opened.
+ */
+public class ArchiveDialogFragment extends DialogFragment {
+    private static final int PAGE_SIZE = 50;
+
+    private final ExecutorService reader = Executors.newSingleThreadExecutor();
+    private final Handler main = new Handler(Looper.getMainLooper());
+    private final List<String> rows = new ArrayList<>();
+    private ArrayAdapter<String> adapter;
+    private TextView tvStatus;
+    private Button btnMore;
+    private TaskArchive archive; // null while logged out
+    private String query = "";   // Empty: browse everything
+    private int generation;      // Bumped per new search, so late pages of an old one are dropped
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(@Nullable Bundle savedInstanceState) {
+        View view = LayoutInflater.from(requireContext()).inflate(R.layout.dialog_archive, null);
+        EditText etSearch = view.findViewById(R.id.edit_text_archive_search);
+        ListView list = view.findViewById(R.id.list_view_archive);
+        tvStatus = view.findViewById(R.id.text_view_archive_status);
+        btnMore = view.findViewById(R.id.button_archive_more);
+
+        adapter = new ArrayAdapter<>(requireContext(), android.R.layout.simple_list_item_1, rows);
+        list.setAdapter(adapter);
+        archive = TaskStores.get(requireContext()).archive();
+
+        etSearch.setOnEditorActionListener((v, actionId, event) -> {
+            boolean enter = event != null && event.getKeyCode() == KeyEvent.KEYCODE_ENTER && event.getAction() == KeyEvent.ACTION_DOWN;
+            if (actionId != EditorInfo.IME_ACTION_SEARCH && !enter) return false;
+            query = v.getText().toString().trim();
+            rows.clear();
+            adapter.notifyDataSetChanged();
+            generation++;
+            loadPage();
+            return true;
+        });
+        btnMore.setOnClickListener(v -> loadPage());
+        loadPage();
+
+        return new AlertDialog.Builder(requireActivity())
+                .setTitle("Completed Tasks")
+                .setView(view)
+                .setPositiveButton("Close", null)
+                .create();
+    }
+
+    @Override
+    public void onDestroy() {
+        super.onDestroy();
+        reader.shutdownNow();
+    }
+
+    private void loadPage() {
+        if (archive == null) {
+            tvStatus.setText("Not logged in");
+            btnMore.setVisibility(View.GONE);
+            return;
+        }
+        btnMore.setEnabled(false);
+        tvStatus.setText("Loading…");
+        int offset = rows.size();
+        String text = query;
+        int requested = generation;
+        reader.execute(() -> {
+            List<String> page = new ArrayList<>();
+            String error = null;
+            int total = 0;
+            try {
+                List<Task> tasks = text.isEmpty() ? archive.page(offset, PAGE_SIZE) : archive.search(text, offset, PAGE_SIZE);
+                for (Task task : tasks) page.add(describe(task));
+                total = archive.size();
+            } catch (IOException e) {
+                error = "Could not read the archive: " + e.getMessage();
+            }
+            String failure = error;
+            int archived = total;
+            main.post(() -> showPage(requested, page, archived, failure));
+        });
+    }
+
+    private void showPage(int requested, List<String> page, int archived, String error) {
+        if (requested != generation || !isAdded()) return;
+        rows.addAll(page);
+        adapter.notifyDataSetChanged();
+        btnMore.setEnabled(true);
+        btnMore.setVisibility(page.size() == PAGE_SIZE ? View.VISIBLE : View.GONE);
+        if (error != null) {
+            tvStatus.setText(error);
+        } else if (query.isEmpty()) {
+            tvStatus.setText(rows.size() + " of " + archived + " completed tasks");
+        } else {
+            tvStatus.setText(rows.isEmpty() ? "No matches" : rows.size() + " matches so far");
+        }
+    }
+
+    private static String describe(Task task) {
+        if (task.getCompletedAt() == 0L) return task.getTitle();
+        return task.getTitle() + " — done " + DateFormat.getDateInstance(DateFormat.MEDIUM).format(new Date(task.getCompletedAt()));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.multimodetaskmanager.fragments;
+
+import android.app.Dialog;
+import android.os.Bundle;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
+import androidx.fragment.app.DialogFragment;
+
+import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.stats.TaskStats;
+import com.example.multimodetaskmanager.stats.TaskStatsTracker;
+
+import java.text.DateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Shows the active account's task statistics. Reads only the counters {@link TaskStats} keeps
+ * up to date, never the task list, so opening it costs the same for any number of tasks.
+ */
+public class StatsDialogFragment extends DialogFragment {
+    private static final int CHART_DAYS = 14;
+    private static final int BAR_WIDTH = 20; // Characters for the busiest day
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(@Nullable Bundle savedInstanceState) {
+        View view = LayoutInflater.from(requireContext()).inflate(R.layout.dialog_stats, null);
+        TextView text = view.findViewById(R.id.text_view_stats);
+        TaskStats stats = TaskStatsTracker.start(requireContext()).current();
+        text.setText(stats != null ? describe(stats.summary(System.currentTimeMillis())) : "Not logged in");
+
+        return new AlertDialog.Builder(requireActivity())
+                .setTitle("Statistics")
+                .setView(view)
+                .setPositiveButton("Close", null)
+                .create();
+    }
+
+    private static String describe(TaskStats.Summary summary) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("Tasks: ").append(summary.total)
+                .append("  (").append(summary.done).append(" done, ").append(summary.pending()).append(" pending)\n");
+        sb.append(String.format(Locale.getDefault(), "Completion rate: %.0f%%%n", summary.completionRate() * 100f));
+        sb.append("Overdue: ").append(summary.overdue).append("\n\n");
+
+        sb.append("By priority (pending / done)\n");
+        for (Priority priority : Priority.values()) {
+            String label = priority.getLabel() != null ? priority.getLabel() : "None";
+            sb.append(String.format(Locale.getDefault(), "  %-8s %4d / %d%n", label, summary.pending(priority), summary.done(priority)));
+        }
+
+        sb.append("\nCompleted: ").append(summary.completedInLast(7)).append(" in 7 days, ")
+                .append(summary.completedInLast(30)).append(" in 30 days\n");
+        int busiest = 1;
+        for (int i = 0; i < CHART_DAYS; i++) busiest = Math.max(busiest, summary.completedOn(i));
+        DateFormat format = DateFormat.getDateInstance(DateFormat.SHORT);
+        long now = System.currentTimeMillis();
+        for (int i = CHART_DAYS - 1; i >= 0; i--) {
+            int count = summary.completedOn(i);
+            sb.append(String.format(Locale.getDefault(), "%-10s %3d ", format.format(new Date(now - i * DAY_MILLIS)), count));
+            for (int bar = count * BAR_WIDTH / busiest; bar > 0; bar--) sb.append('█');
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.multimodetaskmanager.fragments;
+
+import android.app.Dialog;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AlertDialog;
+import androidx.fragment.app.DialogFragment;
+
+import com.example.multimodetaskmanager.models.TagFilter;
+import com.example.multimodetaskmanager.repository.TaskSnapshot;
+import com.example.multimodetaskmanager.repository.TaskStore;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the tags to filter the list by, matching tasks with any or all of them. The store
+ * answers the filter from its tag bitmaps (see {@link TaskStore#setTagFilter}).
+ */
+public class TagFilterDialogFragment extends DialogFragment {
+
+    @NonNull
+    @Override
+    public Dialog onCreateDialog(@Nullable Bundle savedInstanceState) {
+        TaskStore store = TaskStore.get(requireContext());
+        TaskSnapshot snapshot = store.snapshot();
+        List<String> tags = snapshot.getTags();
+        AlertDialog.Builder builder = new AlertDialog.Builder(requireActivity()).setTitle("Filter by Tags");
+        if (tags.isEmpty()) {
+            return builder.setMessage("No task has tags yet. Add some when editing a task.")
+                    .setPositiveButton("Close", null)
+                    .create();
+        }
+
+        // Start from the filter in effect
+        String[] items = tags.toArray(new String[0]);
+        boolean[] checked = new boolean[items.length];
+        TagFilter current = snapshot.getTagFilter();
+        if (current != null) {
+            for (int i = 0; i < items.length; i++) checked[i] = current.getTags().contains(items[i]);
+        }
+
+        return builder
+                .setMultiChoiceItems(items, checked, (dialog, which, isChecked) -> checked[which] = isChecked)
+                .setPositiveButton("Any of These", (dialog, which) -> store.setTagFilter(TagFilter.anyOf(selected(items, checked))))
+                .setNeutralButton("All of These", (dialog, which) -> store.setTagFilter(TagFilter.allOf(selected(items, checked))))
+                .setNegativeButton("Show All Tasks", (dialog, which) -> store.setTagFilter(null))
+                .create();
+    }
+
+    private static List<String> selected(String[] items, boolean[] checked) {
+        List<String> tags = new ArrayList<>();
+        for (int i = 0; i < items.length; i++) {
+            if (checked[i]) tags.add(items[i]);
+        }
+        return tags;
+    }
+}
@@ -23,10 +23,13 @@ import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment; // Import Fragment
 
 import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.models.Recurrence;
 import com.example.multimodetaskmanager.models.Task;
 
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Locale;
 
 public class TaskDialogFragment extends DialogFragment {
@@ -39,9 +42,11 @@ public class TaskDialogFragment extends DialogFragment {
 
     private OnTaskDialogListener listener; // Reference to the listener
     private Task currentTask; // The task being edited (null if adding a new task)
+    private Task parentTask; // The task a new subtask goes under (null for a top-level task)
 
-    private EditText etTitle, etDescription;
+    private EditText etTitle, etDescription, etTags;
     private Spinner spPriority;
+    private Spinner spRepeat; // Positions of R.array.repeat_options: never, daily, weekly, monthly
     private TextView tvDueDate;
     private ImageButton btnSelectDate;
     private Calendar selectedCalendar; // Stores the selected due date
@@ -63,6 +68,15 @@ public class TaskDialogFragment extends DialogFragment {
         return fragment;
     }
 
+    /**
+     * Creates the dialog for adding a subtask of the given task.
+     */
+    public static TaskDialogFragment newSubtask(Task parent) {
+        TaskDialogFragment fragment = newInstance(null);
+        fragment.getArguments().putSerializable("parent", parent);
+        return fragment;
+    }
+
     @Override
     public void onAttach(@NonNull Context context) {
         super.onAttach(context);
@@ -91,6 +105,7 @@ public class TaskDialogFragment extends DialogFragment {
         // Retrieve the task object if it was passed as an argument (for editing)
         if (getArguments() != null) {
             currentTask = (Task) getArguments().getSerializable("task");
+            parentTask = (Task) getArguments().getSerializable("parent");
         }
     }
 
@@ -105,7 +120,9 @@ public class TaskDialogFragment extends DialogFragment {
         // Initialize UI components from the dialog's layout
         etTitle = view.findViewById(R.id.edit_text_task_title);
         etDescription = view.findViewById(R.id.edit_text_task_description);
+        etTags = view.findViewById(R.id.edit_text_task_tags);
         spPriority = view.findViewById(R.id.spinner_task_priority);
+        spRepeat = view.findViewById(R.id.spinner_task_repeat);
         tvDueDate = view.findViewById(R.id.text_view_due_date);
         btnSelectDate = view.findViewById(R.id.button_select_date);
         Button btnSave = view.findViewById(R.id.button_save);
@@ -127,6 +144,7 @@ public class TaskDialogFragment extends DialogFragment {
             builder.setTitle("Edit Task"); // Change dialog title for editing
             etTitle.setText(currentTask.getTitle());
             etDescription.setText(currentTask.getDescription());
+            etTags.setText(TextUtils.join(", ", currentTask.getTags()));
             // Set spinner selection based on task's priority
             String[] priorities = getResources().getStringArray(R.array.priority_options);
             for (int i = 0; i < priorities.length; i++) {
@@ -142,9 +160,16 @@ public class TaskDialogFragment extends DialogFragment {
             } else {
                 tvDueDate.setText("No due date selected");
             }
+            if (currentTask.getOccurrence() != null) {
+                // One occurrence of a series; the rule is edited on the series itself
+                view.findViewById(R.id.label_task_repeat).setVisibility(View.GONE);
+                spRepeat.setVisibility(View.GONE);
+            } else if (currentTask.isRecurring()) {
+                spRepeat.setSelection(currentTask.getRecurrence().getFrequency().ordinal() + 1);
+            }
             btnSave.setText("Update"); // Change button text to "Update"
         } else {
-            builder.setTitle("Add New Task"); // Default title for adding
+            builder.setTitle(parentTask != null ? "Add Subtask to '" + parentTask.getTitle() + "'" : "Add New Task"); // Default title for adding
             tvDueDate.setText("No due date selected");
             btnSave.setText("Add"); // Default button text to "Add"
         }
@@ -185,6 +210,7 @@ public class TaskDialogFragment extends DialogFragment {
         String title = etTitle.getText().toString().trim();
         String description = etDescription.getText().toString().trim();
         String priority = spPriority.getSelectedItem().toString();
+        List<String> tags = Arrays.asList(etTags.getText().toString().split(",")); // Cleaned up by Task.setTags
         // Determine due date: 0L if no date selected, otherwise the selected time in milliseconds
         long dueDate = (tvDueDate.getText().toString().equals("No due date selected") || TextUtils.isEmpty(tvDueDate.getText())) ? 0L : selectedCalendar.getTimeInMillis();
 
@@ -193,20 +219,33 @@ public class TaskDialogFragment extends DialogFragment {
             Toast.makeText(getContext(), "Task title cannot be empty", Toast.LENGTH_SHORT).show();
             return; // Stop if title is empty
         }
+        int repeat = spRepeat.getSelectedItemPosition();
+        if (repeat > 0 && dueDate == 0L) {
+            Toast.makeText(getContext(), "A repeating task needs a due date", Toast.LENGTH_SHORT).show();
+            return; // The due date is the first occurrence
+        }
 
         // Call the appropriate listener method (add or update)
         if (listener != null) {
             if (currentTask == null) {
                 // Add new task
                 Task newTask = new Task(title, description, priority, dueDate);
+                newTask.setRecurrence(recurrenceFor(repeat, null));
+                newTask.setParent(parentTask); // null for a top-level task
+                newTask.setTags(tags);
                 listener.onTaskAdded(newTask);
             } else {
                 // Update existing task
-                currentTask.setTitle(title);
-                currentTask.setDescription(description);
-                currentTask.setPriority(priority);
-                currentTask.setDueDate(dueDate);
-                listener.onTaskUpdated(currentTask);
+                Task updatedTask = new Task(currentTask); // The original may be the one the list shows
+                updatedTask.setTitle(title);
+                updatedTask.setDescription(description);
+                updatedTask.setPriority(priority);
+                updatedTask.setDueDate(dueDate);
+                updatedTask.setTags(tags);
+                if (currentTask.getOccurrence() == null) {
+                    updatedTask.setRecurrence(recurrenceFor(repeat, currentTask.getRecurrence()));
+                }
+                listener.onTaskUpdated(updatedTask);
             }
         } else {
             // Inform user if listener is not set (should ideally not happen with proper setup)
@@ -214,4 +253,16 @@ public class TaskDialogFragment extends DialogFragment {
         }
         dismiss(); // Close the dialog after saving/updating
     }
+
+    // The rule for the selected repeat option, keeping the current one (and its skipped
+    // occurrences) if the option did not change
+    @Nullable
+    private Recurrence recurrenceFor(int repeat, @Nullable Recurrence current) {
+        if (repeat == 0) return null;
+        if (current != null && current.getFrequency().ordinal() + 1 == repeat) return current;
+        if (repeat == 1) return Recurrence.daily(1);
+        if (repeat == 2) return Recurrence.weekly(1); // On the due date's weekday
+        int week = selectedCalendar.get(Calendar.DAY_OF_WEEK_IN_MONTH);
+        return Recurrence.monthlyOnWeekday(1, week > 4 ? -1 : week, selectedCalendar.get(Calendar.DAY_OF_WEEK));
+    }
 }
\ No newline at end of file
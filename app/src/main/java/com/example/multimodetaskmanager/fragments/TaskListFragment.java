@@ -2,6 +2,7 @@
 package com.example.multimodetaskmanager.fragments;
 
 import android.content.Intent;
+import android.content.res.ColorStateList;
 import android.os.Bundle;
 import android.view.ContextMenu;
 import android.view.LayoutInflater;
@@ -17,15 +18,26 @@ import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.DiffUtil;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
+import androidx.recyclerview.widget.SimpleItemAnimator;
 import androidx.recyclerview.widget.ItemTouchHelper;
 
 import com.example.multimodetaskmanager.R;
 import com.example.multimodetaskmanager.activities.TaskDetailActivity;
 import com.example.multimodetaskmanager.adapters.TaskAdapter;
+import com.example.multimodetaskmanager.memory.CacheManager;
 import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.FrameTimeRecorder;
+import com.example.multimodetaskmanager.perf.Gauge;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.perf.SizedTimer;
+import com.example.multimodetaskmanager.perf.StartupTimer;
+import com.example.multimodetaskmanager.perf.TaskListPerf;
+import com.example.multimodetaskmanager.perf.TraceSpan;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.utils.FrameCoalescer;
 import com.example.multimodetaskmanager.utils.TaskDiffUtil;
-import com.example.multimodetaskmanager.utils.TaskStorage;
 import com.example.multimodetaskmanager.viewmodel.TaskViewModel;
+import com.google.android.material.color.MaterialColors;
 import com.google.android.material.floatingactionbutton.FloatingActionButton;
 
 import java.util.ArrayList;
@@ -39,6 +51,10 @@ public class TaskListFragment extends Fragment implements
     private TaskAdapter adapter;
     private TaskViewModel taskViewModel;
     private RecyclerView recyclerView;
+    private FloatingActionButton fab;
+    private View loadError; // Shown instead of the list while the stored tasks cannot be read
+    private FrameCoalescer<List<Task>> listUpdates; // Between the LiveData and the adapter
+    private final FrameTimeRecorder frameTimeRecorder = new FrameTimeRecorder(); // Active only while recording is on
 
     // These fields are used to pass data to the context menu (long press) handler
     public Task selectedTaskForContextMenu;
@@ -48,6 +64,17 @@ public class TaskListFragment extends Fragment implements
     private static final int ADD_TASK_REQUEST = 1;
     private static final int EDIT_TASK_REQUEST = 2;
 
+    // Hot-path metrics for list updates
+    private static final SizedTimer DIFF_TIMER = MetricsRegistry.global().sizedTimer("diff.calculate");
+    private static final SizedTimer DISPATCH_TIMER = MetricsRegistry.global().sizedTimer("diff.dispatch");
+    private static final Gauge TASK_COUNT = MetricsRegistry.global().gauge("tasks.count");
+
+    // Implemented by activities that share one pool of task row views between list instances,
+    // so a recreated or second list does not have to inflate item_task again
+    public interface TaskViewPoolHost {
+        RecyclerView.RecycledViewPool getTaskViewPool();
+    }
+
     // Setter for the two-pane mode, called from MainActivity
     public void setTwoPane(boolean twoPane) {
         isTwoPane = twoPane;
@@ -62,11 +89,27 @@ public class TaskListFragment extends Fragment implements
 
         // Initialize RecyclerView and set its layout manager
         recyclerView = view.findViewById(R.id.recyclerView);
-        recyclerView.setLayoutManager(new LinearLayoutManager(getContext()));
+        LinearLayoutManager layoutManager = new LinearLayoutManager(getContext());
+        layoutManager.setRecycleChildrenOnDetach(true); // Hand rows back to the shared pool when the view goes away
+        recyclerView.setLayoutManager(layoutManager);
+        recyclerView.setHasFixedSize(true); // Content changes never resize the RecyclerView itself
+        recyclerView.setItemViewCacheSize(getResources().getInteger(R.integer.task_row_cache_size));
+        if (getActivity() instanceof TaskViewPoolHost) {
+            recyclerView.setRecycledViewPool(((TaskViewPoolHost) getActivity()).getTaskViewPool());
+        }
+        // Rebind changed rows in place; change animations would create a second ViewHolder per change
+        RecyclerView.ItemAnimator animator = recyclerView.getItemAnimator();
+        if (animator instanceof SimpleItemAnimator) {
+            ((SimpleItemAnimator) animator).setSupportsChangeAnimations(false);
+        }
 
         // Setup Floating Action Button for adding new tasks
-        FloatingActionButton fab = view.findViewById(R.id.fab_add_task);
+        fab = view.findViewById(R.id.fab_add_task);
         fab.setOnClickListener(v -> showAddTaskDialog());
+        fab.setEnabled(false); // Until the tasks are shown; the ViewModel takes no changes before that
+
+        loadError = view.findViewById(R.id.load_error);
+        view.findViewById(R.id.retry_load).setOnClickListener(v -> taskViewModel.retryLoad());
 
         // Initialize adapter with an empty list and set it to the RecyclerView
         adapter = new TaskAdapter(new ArrayList<>(), this); // 'this' refers to TaskListFragment implementing OnTaskActionListener
@@ -84,10 +127,15 @@ public class TaskListFragment extends Fragment implements
 
             @Override
             public void onSwiped(@NonNull RecyclerView.ViewHolder viewHolder, int direction) {
-                int position = viewHolder.getAdapterPosition();
-                if (taskViewModel.getTasks().getValue() != null && position < taskViewModel.getTasks().getValue().size()) {
-                    Task taskToDelete = taskViewModel.getTasks().getValue().get(position);
-                    taskViewModel.removeTask(position); // Remove task from ViewModel
+                // The position is in the list the adapter shows, which can be a frame behind the LiveData
+                int position = viewHolder.getBindingAdapterPosition();
+                if (position != RecyclerView.NO_POSITION && position < adapter.getTaskList().size()) {
+                    Task taskToDelete = adapter.getTaskList().get(position);
+                    if (!taskViewModel.removeTask(taskToDelete)) { // Remove task from ViewModel
+                        adapter.notifyItemChanged(position); // Swipe the row back in
+                        showNotChanged();
+                        return;
+                    }
                     Toast.makeText(getContext(), "Task '" + taskToDelete.getTitle() + "' deleted.", Toast.LENGTH_SHORT).show();
                 }
             }
@@ -106,25 +154,113 @@ public class TaskListFragment extends Fragment implements
 
         // CRITICAL: Observe changes in the task list LiveData from the ViewModel
         // This observer ensures the RecyclerView updates efficiently when tasks are added, updated, or removed.
-        taskViewModel.getTasks().observe(getViewLifecycleOwner(), newTasks -> {
-            List<Task> oldList = adapter.getTaskList();
-            TaskDiffUtil diffCallback = new TaskDiffUtil(oldList, newTasks);
-            DiffUtil.DiffResult diffResult = DiffUtil.calculateDiff(diffCallback);
+        // Versions arriving within one frame are merged, so there is at most one diff per frame.
+        listUpdates = new FrameCoalescer<>(this::showTasks);
+        taskViewModel.getTasks().observe(getViewLifecycleOwner(), tasks -> {
+            fab.setEnabled(true);
+            listUpdates.submit(tasks);
+        });
+        // If the stored tasks cannot be read, say so and take no changes until a retry works
+        taskViewModel.getLoadFailed().observe(getViewLifecycleOwner(), failed -> {
+            loadError.setVisibility(failed ? View.VISIBLE : View.GONE);
+            recyclerView.setVisibility(failed ? View.GONE : View.VISIBLE);
+        });
+        CacheManager.get(requireContext()).register("precomputed titles", CacheManager.Tier.DROPPABLE, adapter);
+
+        // Show the shared task store; once per ViewModel (not on rotation), add the welcome tasks
+        // if there are no tasks at all. The stored tasks started loading at process start
+        // (see TaskManagerApp) and are usually in memory by now.
+        TaskStore store = TaskStore.get(requireContext());
+        if (taskViewModel.attach(store)) {
+            store.addAllIfEmpty(welcomeTasks());
+        }
+    }
+
+    @Override
+    public void onDestroyView() {
+        listUpdates.cancel(); // Nothing left to show it in
+        CacheManager.get(requireContext()).unregister(adapter);
+        super.onDestroyView();
+    }
+
+    // Diffs the last shown rows against the newest ones and dispatches the changes; runs at the
+    // start of a frame (see FrameCoalescer)
+    private void showTasks(List<Task> newTasks) {
+        long start = TaskListPerf.begin();
+        // Same tasks in the same order (edits, mark done): the tree rebinds the changed rows and
+        // their ancestors itself, no diff needed
+        if (adapter.getTree().update(newTasks)) {
+            TaskListPerf.end(TaskListPerf.DIFF_DISPATCH, start);
+            return;
+        }
+        List<Task> oldRows = adapter.getTaskList();
+        adapter.setTaskList(newTasks); // Rebuild the rows (tasks under their parents) from the new data
+        List<Task> newRows = adapter.getTaskList();
+        TaskDiffUtil diffCallback = new TaskDiffUtil(oldRows, newRows);
+        long diffStart = TraceSpan.begin("diff.calculate");
+        DiffUtil.DiffResult diffResult;
+        try {
+            diffResult = DiffUtil.calculateDiff(diffCallback);
+        } finally {
+            TraceSpan.end(DIFF_TIMER, newRows.size(), diffStart);
+        }
 
-            adapter.setTaskList(newTasks); // Update the adapter's internal list with the new data
+        long dispatchStart = TraceSpan.begin("diff.dispatch");
+        try {
             diffResult.dispatchUpdatesTo(adapter); // Apply the calculated differences to the RecyclerView
-            TaskStorage.saveTasks(getContext(), newTasks); // Save tasks to storage after any update
-        });
+            adapter.getTree().notifyRollupChanges(); // Parents whose subtasks changed, which the diff cannot see
+        } finally {
+            TraceSpan.end(DISPATCH_TIMER, newRows.size(), dispatchStart);
+        }
+        TaskListPerf.end(TaskListPerf.DIFF_DISPATCH, start);
+        TASK_COUNT.set(newTasks.size());
+        if (!newTasks.isEmpty()) {
+            StartupTimer.onFirstRows(requireActivity(), recyclerView); // Cold-start time to first row, once per process
+        }
+    }
 
-        // Load initial tasks only when the fragment is first created (not on rotation)
-        if (savedInstanceState == null) {
-            List<Task> initialTasks = TaskStorage.loadTasks(getContext());
-            // If no tasks are loaded, add some default welcome tasks
-            if (initialTasks.isEmpty()) {
-                initialTasks.add(new Task("Welcome Task", "This is your first task! Long-press or tap the options icon.", "High", System.currentTimeMillis() + 86400000L * 2)); // Due in 2 days
-                initialTasks.add(new Task("Explore App", "Try adding a new task using the plus button.", "Medium", 0L)); // No due date
-            }
-            taskViewModel.setTasks(initialTasks); // Set initial tasks, which will trigger the observer
+    // Default tasks for an empty list
+    private static List<Task> welcomeTasks() {
+        List<Task> tasks = new ArrayList<>();
+        tasks.add(new Task("Welcome Task", "This is your first task! Long-press or tap the options icon.", "High", System.currentTimeMillis() + 86400000L * 2)); // Due in 2 days
+        tasks.add(new Task("Explore App", "Try adding a new task using the plus button.", "Medium", 0L)); // No due date
+        return tasks;
+    }
+
+    @Override
+    public void onResume() {
+        super.onResume();
+        updateFrameRecording(); // Record frame times only while the list is visible
+        taskViewModel.showOccurrencesFrom(System.currentTimeMillis()); // Moves on if the day changed
+    }
+
+    @Override
+    public void onPause() {
+        frameTimeRecorder.stop();
+        super.onPause();
+    }
+
+    /**
+     * Re-applies theme colors to the existing list after a night mode change, keeping the
+     * adapter, view pool and scroll position. Called by the host instead of recreating it.
+     */
+    public void applyTheme() {
+        View view = getView();
+        if (view == null) return;
+        fab.setBackgroundTintList(ColorStateList.valueOf(
+                MaterialColors.getColor(fab, com.google.android.material.R.attr.colorSecondary)));
+        adapter.applyTheme(requireContext(), recyclerView);
+    }
+
+    /**
+     * Starts or stops frame time recording to match {@link TaskListPerf#isEnabled()}.
+     * Called by the host when recording is switched on or off while the list is showing.
+     */
+    public void updateFrameRecording() {
+        if (TaskListPerf.isEnabled() && isResumed()) {
+            frameTimeRecorder.start(requireActivity());
+        } else {
+            frameTimeRecorder.stop();
         }
     }
 
@@ -144,8 +280,11 @@ public class TaskListFragment extends Fragment implements
         if (currentTasks != null) {
             // Find the task by ID and remove it from the ViewModel
             for (int i = 0; i < currentTasks.size(); i++) {
-                if (currentTasks.get(i).getId().equals(task.getId())) {
-                    taskViewModel.removeTask(i);
+                if (currentTasks.get(i).hasSameId(task)) {
+                    if (!taskViewModel.removeTask(currentTasks.get(i))) {
+                        showNotChanged();
+                        return;
+                    }
                     Toast.makeText(getContext(), "Task '" + task.getTitle() + "' deleted.", Toast.LENGTH_SHORT).show();
                     return;
                 }
@@ -159,10 +298,13 @@ public class TaskListFragment extends Fragment implements
         if (currentTasks != null) {
             // Find the task by ID and toggle its 'done' status
             for (int i = 0; i < currentTasks.size(); i++) {
-                if (currentTasks.get(i).getId().equals(task.getId())) {
-                    Task updatedTask = currentTasks.get(i);
+                if (currentTasks.get(i).hasSameId(task)) {
+                    Task updatedTask = new Task(currentTasks.get(i)); // Shown tasks are shared snapshots; edit a copy
                     updatedTask.setDone(!updatedTask.isDone()); // Toggle done status
-                    taskViewModel.updateTask(updatedTask); // Update task in ViewModel
+                    if (!taskViewModel.updateTask(updatedTask)) { // Update task in ViewModel
+                        showNotChanged();
+                        return;
+                    }
                     Toast.makeText(getContext(), "'" + task.getTitle() + "' marked as " + (updatedTask.isDone() ? "Done" : "Pending"), Toast.LENGTH_SHORT).show();
                     return;
                 }
@@ -170,6 +312,18 @@ public class TaskListFragment extends Fragment implements
         }
     }
 
+    @Override
+    public void onAddSubtask(Task parent) {
+        if (parent.isRecurring() || parent.getOccurrence() != null) {
+            // The list shows occurrences, which are generated fresh and have no subtasks of their own
+            Toast.makeText(getContext(), "Repeating tasks cannot have subtasks", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        TaskDialogFragment dialog = TaskDialogFragment.newSubtask(parent);
+        dialog.setTargetFragment(TaskListFragment.this, ADD_TASK_REQUEST);
+        dialog.show(getParentFragmentManager(), "TaskDialogFragment");
+    }
+
     @Override
     public void onTaskClick(Task task) {
         // Handle clicking on a task item (e.g., open a detail view)
@@ -191,16 +345,30 @@ public class TaskListFragment extends Fragment implements
 
     @Override
     public void onTaskAdded(Task task) {
-        taskViewModel.addTask(task); // Add the new task via ViewModel
+        if (task.hasParent()) {
+            adapter.getTree().expandParentOf(task); // Show the new subtask where it was added
+        }
+        if (!taskViewModel.addTask(task)) { // Add the new task via ViewModel
+            showNotChanged();
+            return;
+        }
         Toast.makeText(getContext(), "Task '" + task.getTitle() + "' added.", Toast.LENGTH_SHORT).show();
     }
 
     @Override
     public void onTaskUpdated(Task task) {
-        taskViewModel.updateTask(task); // Update the existing task via ViewModel
+        if (!taskViewModel.updateTask(task)) { // Update the existing task via ViewModel
+            showNotChanged();
+            return;
+        }
         Toast.makeText(getContext(), "Task '" + task.getTitle() + "' updated.", Toast.LENGTH_SHORT).show();
     }
 
+    // A change the ViewModel refused because the stored tasks are not shown (e.g. they could not be read)
+    private void showNotChanged() {
+        Toast.makeText(getContext(), "Tasks could not be loaded; nothing was changed.", Toast.LENGTH_SHORT).show();
+    }
+
     // --- Context Menu (Long Press) Handling ---
 
     @Override
@@ -234,6 +402,9 @@ public class TaskListFragment extends Fragment implements
             } else if (id == R.id.menu_done) {
                 onMarkDone(selectedTaskForContextMenu);
                 return true;
+            } else if (id == R.id.menu_add_subtask) {
+                onAddSubtask(selectedTaskForContextMenu);
+                return true;
             }
         }
         return super.onContextItemSelected(item);
@@ -0,0 +1,163 @@
+package com.example.multimodetaskmanager.memory;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Sheds the app's caches when the system runs low on memory, cheapest to lose first.
+ *
+ * Caches register with a {@link Tier}. On {@link #onTrimMemory} the droppable ones go as soon
+ * as memory runs low or the UI is hidden; the rebuildable ones only when memory is critical or
+ * the process is in the background list, where the next step is being killed. Critical entries
+ * are never dropped, only counted in {@link #sizeInBytes(Tier)}. A trimmed cache rebuilds
+ * itself the next time it is used, so nothing has to be restored when the pressure is over.
+ *
+ * Callbacks arrive on the main thread; a cache whose data lives on another thread (e.g. the
+ * task store's writer) queues its trim there and returns straight away.
+ */
+public final class CacheManager implements ComponentCallbacks2 {
+    private static final String TAG = "CacheManager";
+    private static final Counter TRIMMED_BYTES = MetricsRegistry.global().counter("memory.trimmedBytes");
+
+    private static CacheManager instance;
+
+    public enum Tier {
+        CRITICAL,    // Needed to show anything; never dropped
+        REBUILDABLE, // Derived data that costs real work to rebuild (indexes, other accounts' tasks)
+        DROPPABLE    // Cheap to rebuild or only speeds things up (measured text, recycled rows)
+    }
+
+    /**
+     * Something holding memory that can be given back. Both methods may be called from the main
+     * thread while the cache is in use elsewhere, so they must be thread-safe.
+     */
+    public interface Cache {
+        // Approximate heap bytes held now
+        long sizeInBytes();
+
+        /**
+         * Drops what the cache holds; it is rebuilt lazily on next use.
+         *
+         * @return Approximate heap bytes given back.
+         */
+        long trim();
+    }
+
+    private static final class Entry {
+        final String name;
+        final Tier tier;
+        final Cache cache;
+
+        Entry(String name, Tier tier, Cache cache) {
+            this.name = name;
+            this.tier = tier;
+            this.cache = cache;
+        }
+    }
+
+    private final List<Entry> entries = new CopyOnWriteArrayList<>();
+
+    CacheManager() {
+    }
+
+    public static synchronized CacheManager get(Context context) {
+        if (instance == null) {
+            instance = new CacheManager();
+            context.getApplicationContext().registerComponentCallbacks(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * Adds a cache to shed under pressure. Within a tier, caches are trimmed in the order they
+     * were registered.
+     */
+    public void register(String name, Tier tier, Cache cache) {
+        entries.add(new Entry(name, tier, cache));
+    }
+
+    public void unregister(Cache cache) {
+        for (Entry entry : entries) {
+            if (entry.cache == cache) entries.remove(entry);
+        }
+    }
+
+    /**
+     * Trims every tier the level calls for, droppable before rebuildable.
+     *
+     * @param level One of the ComponentCallbacks2.TRIM_MEMORY_* levels.
+     * @return Approximate heap bytes given back.
+     */
+    public long trim(int level) {
+        long released = 0;
+        if (sheds(Tier.DROPPABLE, level)) released += trimTier(Tier.DROPPABLE);
+        if (sheds(Tier.REBUILDABLE, level)) released += trimTier(Tier.REBUILDABLE);
+        if (released > 0) {
+            TRIMMED_BYTES.add(released);
+            Log.i(TAG, "Trim level " + level + ": released ~" + released / 1024 + " KB");
+        }
+        return released;
+    }
+
+    /**
+     * Approximate heap bytes held by the registered caches of the tier.
+     */
+    public long sizeInBytes(Tier tier) {
+        long bytes = 0;
+        for (Entry entry : entries) {
+            if (entry.tier == tier) bytes += entry.cache.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    // Whether a tier's caches go at this level. RUNNING_CRITICAL (15) is below UI_HIDDEN (20) but
+    // more urgent: the app is in the foreground and the system is about to kill background work.
+    static boolean sheds(Tier tier, int level) {
+        switch (tier) {
+            case DROPPABLE:
+                return level >= TRIM_MEMORY_RUNNING_LOW;
+            case REBUILDABLE:
+                return level == TRIM_MEMORY_RUNNING_CRITICAL || level >= TRIM_MEMORY_BACKGROUND;
+            default:
+                return false;
+        }
+    }
+
+    private long trimTier(Tier tier) {
+        long released = 0;
+        for (Entry entry : entries) {
+            if (entry.tier != tier) continue;
+            long bytes = entry.cache.trim();
+            if (bytes > 0) Log.d(TAG, "Trimmed " + entry.name + ": ~" + bytes / 1024 + " KB");
+            released += bytes;
+        }
+        return released;
+    }
+
+    // --- ComponentCallbacks2 ---
+
+    @Override
+    public void onTrimMemory(int level) {
+        trim(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        trim(TRIM_MEMORY_COMPLETE); // The whole system is low; treated like the worst level
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        // Nothing cached depends on the configuration
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.multimodetaskmanager.models;
+
+import java.io.Serializable;
+
+/**
+ * Ties one occurrence of a recurring task to its template: the template's ID and the time the
+ * occurrence was scheduled for (its due date may have been edited since). Immutable.
+ */
+public final class Occurrence implements Serializable {
+    private final long seriesMostSigBits;
+    private final long seriesLeastSigBits;
+    private final long scheduledTime;
+
+    public Occurrence(long seriesMostSigBits, long seriesLeastSigBits, long scheduledTime) {
+        this.seriesMostSigBits = seriesMostSigBits;
+        this.seriesLeastSigBits = seriesLeastSigBits;
+        this.scheduledTime = scheduledTime;
+    }
+
+    public long getSeriesMostSigBits() { return seriesMostSigBits; }
+    public long getSeriesLeastSigBits() { return seriesLeastSigBits; }
+    public long getScheduledTime() { return scheduledTime; }
+
+    public boolean isOf(Task template) {
+        return template.getIdMostSigBits() == seriesMostSigBits && template.getIdLeastSigBits() == seriesLeastSigBits;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Occurrence)) return false;
+        Occurrence other = (Occurrence) o;
+        return seriesMostSigBits == other.seriesMostSigBits && seriesLeastSigBits == other.seriesLeastSigBits
+                && scheduledTime == other.scheduledTime;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = Long.hashCode(seriesMostSigBits);
+        result = 31 * result + Long.hashCode(seriesLeastSigBits);
+        result = 31 * result + Long.hashCode(scheduledTime);
+        return result;
+    }
+}
@@ -0,0 +1,41 @@
+// MultiModeTaskManager/app/src/main/java/com/example/multimodetaskmanager/models/Priority.java
+package com.example.multimodetaskmanager.models;
+
+/**
+ * Compact representation of a task's priority.
+ * Tasks hold a reference to one of these shared constants instead of their own
+ * "High"/"Medium"/"Low" String, and the comparators can use {@link #rank()} directly.
+ */
+public enum Priority {
+    HIGH("High", 1),
+    MEDIUM("Medium", 2),
+    LOW("Low", 3),
+    NONE(null, Integer.MAX_VALUE); // Null or unrecognized priorities go last
+
+    private final String label; // The label shown in the UI and stored in JSON
+    private final int rank;     // Lower value means higher priority
+
+    Priority(String label, int rank) {
+        this.label = label;
+        this.rank = rank;
+    }
+
+    public String getLabel() { return label; }
+    public int rank() { return rank; }
+
+    /**
+     * Maps a priority label (as stored in JSON or picked in the spinner) to its constant.
+     * Matching is case-insensitive and does not allocate.
+     *
+     * @param label The priority label, e.g. "High".
+     * @return The matching Priority, or {@link #NONE} if the label is null or unknown; a
+     *         {@link Task} keeps an unknown label itself (see {@link Task#setPriority}).
+     */
+    public static Priority fromLabel(String label) {
+        if (label == null) return NONE;
+        if (label.equalsIgnoreCase("high")) return HIGH;
+        if (label.equalsIgnoreCase("medium")) return MEDIUM;
+        if (label.equalsIgnoreCase("low")) return LOW;
+        return NONE;
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.multimodetaskmanager.models;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * How a task repeats: every N days, on some weekdays every N weeks, or on the Nth weekday of
+ * every N months (e.g. the 2nd Tuesday, or the last Friday).
+ *
+ * A recurring task is stored once, as a template whose due date is the first occurrence;
+ * occurrences are computed on demand (see
+ * {@link com.example.multimodetaskmanager.utils.Occurrences}). Occurrences that were edited,
+ * completed or deleted are listed as exclusions so they are not generated again.
+ *
+ * Immutable. Dates are computed in local calendar terms, so a daily 9:00 task stays at 9:00
+ * across daylight saving changes. Stored as an RRULE-like string, see {@link #toRule()}.
+ */
+public final class Recurrence implements Serializable {
+    public static final long NONE = 0L; // No (further) occurrence; 0 is also "no due date" on Task
+
+    public enum Frequency { DAILY, WEEKLY, MONTHLY }
+
+    private static final String[] DAY_CODES = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"}; // Calendar.SUNDAY = 1
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final int MAX_STEPS = 10_000; // Gives up on rules that never match (e.g. everything excluded)
+
+    private final Frequency frequency;
+    private final int interval;     // Every N days, weeks or months
+    private final int weekdays;     // Bit (1 << Calendar.DAY_OF_WEEK); WEEKLY: 0 = the first occurrence's weekday
+    private final int weekOfMonth;  // MONTHLY: 1..4, or -1 for the last
+    private final long until;       // Last allowed occurrence time, or NONE for no end
+    private final long[] exclusions; // Sorted occurrence times that are not generated
+
+    private Recurrence(Frequency frequency, int interval, int weekdays, int weekOfMonth, long until, long[] exclusions) {
+        if (interval < 1) throw new IllegalArgumentException("interval must be at least 1: " + interval);
+        this.frequency = frequency;
+        this.interval = interval;
+        this.weekdays = weekdays;
+        this.weekOfMonth = weekOfMonth;
+        this.until = until;
+        this.exclusions = exclusions;
+    }
+
+    public static Recurrence daily(int interval) {
+        return new Recurrence(Frequency.DAILY, interval, 0, 0, NONE, new long[0]);
+    }
+
+    /**
+     * @param days Calendar.MONDAY etc.; none means the weekday of the first occurrence.
+     */
+    public static Recurrence weekly(int interval, int... days) {
+        int mask = 0;
+        for (int day : days) mask |= 1 << checkDay(day);
+        return new Recurrence(Frequency.WEEKLY, interval, mask, 0, NONE, new long[0]);
+    }
+
+    /**
+     * @param weekOfMonth 1 to 4, or -1 for the last such weekday of the month.
+     * @param day         Calendar.MONDAY etc.
+     */
+    public static Recurrence monthlyOnWeekday(int interval, int weekOfMonth, int day) {
+        if (weekOfMonth == 0 || weekOfMonth < -1 || weekOfMonth > 4) {
+            throw new IllegalArgumentException("week of month must be 1..4 or -1: " + weekOfMonth);
+        }
+        return new Recurrence(Frequency.MONTHLY, interval, 1 << checkDay(day), weekOfMonth, NONE, new long[0]);
+    }
+
+    public Recurrence withUntil(long lastTime) {
+        return new Recurrence(frequency, interval, weekdays, weekOfMonth, lastTime, exclusions);
+    }
+
+    // A copy that skips the occurrence at this time
+    public Recurrence withExclusion(long time) {
+        int index = Arrays.binarySearch(exclusions, time);
+        if (index >= 0) return this;
+        int insert = -index - 1;
+        long[] copy = new long[exclusions.length + 1];
+        System.arraycopy(exclusions, 0, copy, 0, insert);
+        copy[insert] = time;
+        System.arraycopy(exclusions, insert, copy, insert + 1, exclusions.length - insert);
+        return new Recurrence(frequency, interval, weekdays, weekOfMonth, until, copy);
+    }
+
+    public Frequency getFrequency() { return frequency; }
+    public int getInterval() { return interval; }
+    public long getUntil() { return until; }
+    public int getExclusionCount() { return exclusions.length; }
+    public boolean isExcluded(long time) { return Arrays.binarySearch(exclusions, time) >= 0; }
+
+    /**
+     * The first occurrence strictly after {@code after}.
+     *
+     * @param first The template's due date: the first occurrence, and the time of day of all of them.
+     * @return The occurrence time, or {@link #NONE} if the series has ended.
+     */
+    public long next(long first, long after, TimeZone zone) {
+        switch (frequency) {
+            case DAILY: return nextDaily(first, after, zone);
+            case WEEKLY: return nextWeekly(first, after, zone);
+            default: return nextMonthly(first, after, zone);
+        }
+    }
+
+    private long nextDaily(long first, long after, TimeZone zone) {
+        Calendar day = calendarAt(first, zone);
+        // Jump close to 'after' instead of stepping through every past occurrence
+        long periods = after > first ? (after - first) / DAY_MILLIS / interval - 1 : 0;
+        if (periods > 0) day.add(Calendar.DAY_OF_MONTH, (int) Math.min(periods * interval, Integer.MAX_VALUE));
+        for (int step = 0; step < MAX_STEPS; step++, day.add(Calendar.DAY_OF_MONTH, interval)) {
+            long time = day.getTimeInMillis();
+            if (isPastUntil(time)) return NONE;
+            if (time > after && !isExcluded(time)) return time;
+        }
+        return NONE;
+    }
+
+    private long nextWeekly(long first, long after, TimeZone zone) {
+        Calendar week = calendarAt(first, zone);
+        int mask = weekdays != 0 ? weekdays : 1 << week.get(Calendar.DAY_OF_WEEK);
+        week.add(Calendar.DAY_OF_MONTH, -((week.get(Calendar.DAY_OF_WEEK) + 5) % 7)); // Back to Monday
+        long periods = after > first ? (after - first) / (7 * DAY_MILLIS) / interval - 1 : 0;
+        if (periods > 0) week.add(Calendar.DAY_OF_MONTH, (int) Math.min(periods * interval * 7, Integer.MAX_VALUE));
+        for (int step = 0; step < MAX_STEPS; step++, week.add(Calendar.DAY_OF_MONTH, 7 * interval)) {
+            Calendar day = (Calendar) week.clone();
+            for (int i = 0; i < 7; i++, day.add(Calendar.DAY_OF_MONTH, 1)) {
+                if ((mask & (1 << day.get(Calendar.DAY_OF_WEEK))) == 0) continue;
+                long time = day.getTimeInMillis();
+                if (time < first) continue;
+                if (isPastUntil(time)) return NONE;
+                if (time > after && !isExcluded(time)) return time;
+            }
+        }
+        return NONE;
+    }
+
+    private long nextMonthly(long first, long after, TimeZone zone) {
+        Calendar anchor = calendarAt(first, zone);
+        Calendar month = calendarAt(first, zone);
+        month.set(Calendar.DAY_OF_MONTH, 1);
+        long periods = after > first ? (after - first) / (31 * DAY_MILLIS) / interval - 1 : 0;
+        if (periods > 0) month.add(Calendar.MONTH, (int) Math.min(periods * interval, Integer.MAX_VALUE));
+        int day = Integer.numberOfTrailingZeros(weekdays);
+        for (int step = 0; step < MAX_STEPS; step++, month.add(Calendar.MONTH, interval)) {
+            Calendar date = (Calendar) month.clone();
+            date.set(Calendar.DAY_OF_WEEK, day);
+            date.set(Calendar.DAY_OF_WEEK_IN_MONTH, weekOfMonth);
+            date.set(Calendar.HOUR_OF_DAY, anchor.get(Calendar.HOUR_OF_DAY));
+            date.set(Calendar.MINUTE, anchor.get(Calendar.MINUTE));
+            long time = date.getTimeInMillis();
+            if (time < first) continue;
+            if (isPastUntil(time)) return NONE;
+            if (time > after && !isExcluded(time)) return time;
+        }
+        return NONE;
+    }
+
+    private boolean isPastUntil(long time) {
+        return until != NONE && time > until;
+    }
+
+    private static Calendar calendarAt(long time, TimeZone zone) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(time);
+        return calendar;
+    }
+
+    private static int checkDay(int day) {
+        if (day < Calendar.SUNDAY || day > Calendar.SATURDAY) throw new IllegalArgumentException("not a weekday: " + day);
+        return day;
+    }
+
+    // --- Stored form ---
+
+    /**
+     * E.g. {@code FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE} or {@code FREQ=MONTHLY;INTERVAL=1;BYDAY=-1FR}.
+     * Unlike RFC 5545, UNTIL and EXDATE hold epoch milliseconds.
+     */
+    public String toRule() {
+        StringBuilder sb = new StringBuilder("FREQ=").append(frequency.name()).append(";INTERVAL=").append(interval);
+        if (weekdays != 0) {
+            sb.append(";BYDAY=");
+            if (frequency == Frequency.MONTHLY) sb.append(weekOfMonth);
+            String separator = "";
+            for (int day = Calendar.SUNDAY; day <= Calendar.SATURDAY; day++) {
+                if ((weekdays & (1 << day)) == 0) continue;
+                sb.append(separator).append(DAY_CODES[day - 1]);
+                separator = ",";
+            }
+        }
+        if (until != NONE) sb.append(";UNTIL=").append(until);
+        if (exclusions.length > 0) {
+            sb.append(";EXDATE=");
+            for (int i = 0; i < exclusions.length; i++) {
+                if (i > 0) sb.append(',');
+                sb.append(exclusions[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a rule written by {@link #toRule()}.
+     *
+     * @throws IllegalArgumentException if the rule is malformed.
+     */
+    public static Recurrence parse(String rule) {
+        Frequency frequency = null;
+        int interval = 1;
+        int weekdays = 0;
+        int weekOfMonth = 0;
+        long until = NONE;
+        long[] exclusions = new long[0];
+        try {
+            for (String part : rule.split(";")) {
+                int equals = part.indexOf('=');
+                String key = part.substring(0, equals);
+                String value = part.substring(equals + 1);
+                switch (key) {
+                    case "FREQ":
+                        frequency = Frequency.valueOf(value);
+                        break;
+                    case "INTERVAL":
+                        interval = Integer.parseInt(value);
+                        break;
+                    case "BYDAY":
+                        for (String code : value.split(",")) {
+                            int letters = code.length() - 2;
+                            if (letters > 0) weekOfMonth = Integer.parseInt(code.substring(0, letters));
+                            weekdays |= 1 << (Arrays.asList(DAY_CODES).indexOf(code.substring(letters)) + 1);
+                        }
+                        break;
+                    case "UNTIL":
+                        until = Long.parseLong(value);
+                        break;
+                    case "EXDATE":
+                        String[] times = value.split(",");
+                        exclusions = new long[times.length];
+                        for (int i = 0; i < times.length; i++) exclusions[i] = Long.parseLong(times[i]);
+                        Arrays.sort(exclusions);
+                        break;
+                    default:
+                        break; // Ignore parts this version does not know about
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed recurrence rule: " + rule, e);
+        }
+        if (frequency == null || (frequency == Frequency.MONTHLY && Integer.bitCount(weekdays) != 1)
+                || (weekdays & 1) != 0) { // Bit 0 is set by an unknown day code
+            throw new IllegalArgumentException("Malformed recurrence rule: " + rule);
+        }
+        return new Recurrence(frequency, interval, weekdays, weekOfMonth, until, exclusions);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Recurrence)) return false;
+        Recurrence other = (Recurrence) o;
+        return frequency == other.frequency && interval == other.interval && weekdays == other.weekdays
+                && weekOfMonth == other.weekOfMonth && until == other.until
+                && Arrays.equals(exclusions, other.exclusions);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = frequency.hashCode();
+        result = 31 * result + interval;
+        result = 31 * result + weekdays;
+        result = 31 * result + weekOfMonth;
+        result = 31 * result + Long.hashCode(until);
+        result = 31 * result + Arrays.hashCode(exclusions);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return toRule();
+    }
+}
@@ -0,0 +1,7 @@
+// MultiModeTaskManager/app/src/main/java/com/example/multimodetaskmanager/models/SortOrder.java
+package com.example.multimodetaskmanager.models;
+
+// Enum to define different sorting options for tasks
+public enum SortOrder {
+    PRIORITY, DUE_DATE, NAME
+}
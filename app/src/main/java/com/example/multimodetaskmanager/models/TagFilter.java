@@ -0,0 +1,57 @@
+package com.example.multimodetaskmanager.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Which tags a task must have to be listed: any one of them, or all of them. Immutable.
+ */
+public final class TagFilter {
+    private final List<String> tags; // Sorted, unique
+    private final boolean matchAll;
+
+    private TagFilter(Collection<String> tags, boolean matchAll) {
+        this.tags = Collections.unmodifiableList(new ArrayList<>(new TreeSet<>(tags)));
+        this.matchAll = matchAll;
+    }
+
+    // Tasks with at least one of the tags
+    public static TagFilter anyOf(Collection<String> tags) {
+        return new TagFilter(tags, false);
+    }
+
+    // Tasks with every one of the tags
+    public static TagFilter allOf(Collection<String> tags) {
+        return new TagFilter(tags, true);
+    }
+
+    public List<String> getTags() { return tags; }
+    public boolean isMatchAll() { return matchAll; }
+
+    /**
+     * Checks one task, e.g. one that is not in an index.
+     */
+    public boolean matches(Task task) {
+        for (String tag : tags) {
+            boolean has = task.hasTag(tag);
+            if (has != matchAll) return has; // A hit decides "any", a miss decides "all"
+        }
+        return matchAll;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TagFilter)) return false;
+        TagFilter other = (TagFilter) o;
+        return matchAll == other.matchAll && tags.equals(other.tags);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * tags.hashCode() + Boolean.hashCode(matchAll);
+    }
+}
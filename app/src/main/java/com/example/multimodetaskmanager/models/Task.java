@@ -2,24 +2,43 @@
 package com.example.multimodetaskmanager.models;
 
 import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects; // Import Objects for utility methods
+import java.util.TreeSet;
 import java.util.UUID; // For generating unique IDs
 
 public class Task implements Serializable {
 
-    private String id; // Unique identifier for each task
+    // The unique identifier is kept as the two halves of a UUID instead of a 36-char String.
+    // getId() still returns the usual string form, which is what the JSON storage uses.
+    private long idMostSigBits;
+    private long idLeastSigBits;
     private String title;
     private String description;
-    private String priority; // e.g., "High", "Medium", "Low"
+    private Priority priority; // Shared enum constant instead of a "High"/"Medium"/"Low" String
+    private String customPriority; // A label Priority has no constant for, kept as written; null for the usual ones
     private boolean isDone; // Status of the task
     private long dueDate; // Due date in milliseconds since epoch
+    private Recurrence recurrence; // Set on the template of a repeating task; dueDate is its first occurrence
+    private Occurrence occurrence; // Set on one occurrence of a repeating task
+    private long completedAt; // When it was marked done, set by TaskStore; 0 if not done or done before this was kept
+    // ID of the task this one is a subtask of, as UUID halves like the task's own; both 0 for a top-level task
+    private long parentMostSigBits;
+    private long parentLeastSigBits;
+    private List<String> tags = Collections.emptyList(); // Sorted, unique and never changed in place, so copies share it
 
     // PRIMARY CONSTRUCTOR (4 arguments)
     public Task(String title, String description, String priority, long dueDate) {
-        this.id = UUID.randomUUID().toString(); // Generates a unique ID for each new task
+        UUID uuid = UUID.randomUUID(); // Generates a unique ID for each new task
+        this.idMostSigBits = uuid.getMostSignificantBits();
+        this.idLeastSigBits = uuid.getLeastSignificantBits();
         this.title = title;
         this.description = description;
-        this.priority = priority;
+        setPriority(priority);
         this.isDone = false; // New tasks are initially not done
         this.dueDate = dueDate;
     }
@@ -29,21 +48,128 @@ public class Task implements Serializable {
         this(title, "", priority, 0L); // Calls the 4-argument constructor with empty description and no due date
     }
 
+    // NO-ARGUMENT CONSTRUCTOR (used when decoding stored tasks; the ID is read from storage
+    // instead of paying for a random UUID that would be overwritten straight away)
+    public Task() {
+        this.priority = Priority.NONE;
+    }
+
+    // COPY CONSTRUCTOR (same ID and fields; edit the copy instead of a task other threads can see)
+    public Task(Task other) {
+        this.idMostSigBits = other.idMostSigBits;
+        this.idLeastSigBits = other.idLeastSigBits;
+        this.title = other.title;
+        this.description = other.description;
+        this.priority = other.priority;
+        this.customPriority = other.customPriority;
+        this.isDone = other.isDone;
+        this.dueDate = other.dueDate;
+        this.recurrence = other.recurrence;
+        this.occurrence = other.occurrence;
+        this.completedAt = other.completedAt;
+        this.parentMostSigBits = other.parentMostSigBits;
+        this.parentLeastSigBits = other.parentLeastSigBits;
+        this.tags = other.tags;
+    }
+
     // --- Getters ---
-    public String getId() { return id; }
+    public String getId() { return new UUID(idMostSigBits, idLeastSigBits).toString(); } // Built on demand, not stored
+    public long getIdMostSigBits() { return idMostSigBits; }
+    public long getIdLeastSigBits() { return idLeastSigBits; }
     public String getTitle() { return title; }
     public String getDescription() { return description; }
-    public String getPriority() { return priority; }
+    public String getPriority() { return customPriority != null ? customPriority : priority.getLabel(); }
+    public Priority getPriorityLevel() { return priority; }
     public boolean isDone() { return isDone; }
     public long getDueDate() { return dueDate; }
+    public Recurrence getRecurrence() { return recurrence; }
+    public Occurrence getOccurrence() { return occurrence; }
+    public boolean isRecurring() { return recurrence != null; }
+    public long getCompletedAt() { return completedAt; }
+    public long getParentMostSigBits() { return parentMostSigBits; }
+    public long getParentLeastSigBits() { return parentLeastSigBits; }
+    public boolean hasParent() { return parentMostSigBits != 0L || parentLeastSigBits != 0L; }
+    public List<String> getTags() { return tags; } // Unmodifiable
+    public boolean hasTag(String tag) { return Collections.binarySearch(tags, tag) >= 0; }
+
+    // Whether this task is a direct subtask of the other one
+    public boolean isChildOf(Task parent) {
+        return parent != null && parentMostSigBits == parent.idMostSigBits && parentLeastSigBits == parent.idLeastSigBits;
+    }
+
+    /**
+     * Checks whether this task and another one share the same ID, without building ID strings.
+     * Prefer this over {@code getId().equals(other.getId())} in loops and DiffUtil callbacks.
+     */
+    public boolean hasSameId(Task other) {
+        return other != null && idMostSigBits == other.idMostSigBits && idLeastSigBits == other.idLeastSigBits;
+    }
 
     // --- Setters ---
-    public void setId(String id) { this.id = id; }
+    /**
+     * Sets the ID from its string form. IDs are normally UUID strings; anything else is mapped
+     * to a name-based UUID so that the same string always produces the same ID. Null gives the
+     * task a new random ID, as for a task stored without one.
+     */
+    public void setId(String id) {
+        UUID uuid;
+        if (id == null) {
+            uuid = UUID.randomUUID();
+        } else {
+            try {
+                uuid = UUID.fromString(id);
+            } catch (IllegalArgumentException e) {
+                uuid = UUID.nameUUIDFromBytes(id.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        setId(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+    public void setId(long mostSigBits, long leastSigBits) {
+        this.idMostSigBits = mostSigBits;
+        this.idLeastSigBits = leastSigBits;
+    }
     public void setTitle(String title) { this.title = title; }
     public void setDescription(String description) { this.description = description; } // Corrected: public void
-    public void setPriority(String priority) { this.priority = priority; }
+    // Any label: one Priority knows becomes its constant, anything else is kept as it is and sorts last
+    public void setPriority(String priority) {
+        this.priority = Priority.fromLabel(priority);
+        this.customPriority = this.priority == Priority.NONE ? priority : null;
+    }
+    public void setPriorityLevel(Priority priority) {
+        this.priority = priority != null ? priority : Priority.NONE;
+        this.customPriority = null;
+    }
     public void setDone(boolean done) { isDone = done; }
     public void setDueDate(long dueDate) { this.dueDate = dueDate; }
+    public void setRecurrence(Recurrence recurrence) { this.recurrence = recurrence; }
+    public void setOccurrence(Occurrence occurrence) { this.occurrence = occurrence; }
+    public void setCompletedAt(long completedAt) { this.completedAt = completedAt; }
+    public void setParentId(long mostSigBits, long leastSigBits) {
+        this.parentMostSigBits = mostSigBits;
+        this.parentLeastSigBits = leastSigBits;
+    }
+    /**
+     * Sets the task's labels. Each is trimmed, with line breaks turned into spaces; empty ones
+     * and duplicates are dropped, and the rest kept sorted.
+     */
+    public void setTags(Collection<String> labels) {
+        if (labels == null || labels.isEmpty()) {
+            tags = Collections.emptyList();
+            return;
+        }
+        TreeSet<String> cleaned = new TreeSet<>();
+        for (String label : labels) {
+            if (label == null) continue;
+            String tag = label.replace('\n', ' ').replace('\r', ' ').trim();
+            if (!tag.isEmpty()) cleaned.add(tag);
+        }
+        tags = cleaned.isEmpty() ? Collections.<String>emptyList() : Collections.unmodifiableList(new ArrayList<>(cleaned));
+    }
+    // Makes this a subtask of the given task, or a top-level task for null
+    public void setParent(Task parent) {
+        if (parent == null) setParentId(0L, 0L);
+        else setParentId(parent.idMostSigBits, parent.idLeastSigBits);
+    }
 
     // --- CRITICAL: Override equals() and hashCode() for DiffUtil and proper object comparison ---
     // These methods are essential for RecyclerView.Adapter's DiffUtil to correctly
@@ -56,21 +182,41 @@ public class Task implements Serializable {
         if (o == null || getClass() != o.getClass()) return false;
         // Cast the object to Task
         Task task = (Task) o;
-        // Compare all relevant fields for equality.
+        // Compare all relevant fields for equality. completedAt is left out: it is bookkeeping
+        // that follows isDone, and differs between devices that synced the same change.
         // Use Objects.equals for String fields to handle nulls safely.
-        // Use direct comparison for primitive types.
+        // Use direct comparison for primitive types and the Priority enum.
         return isDone == task.isDone &&
                 dueDate == task.dueDate &&
-                Objects.equals(id, task.id) && // Use ID for primary equality check (two tasks are the same if they have the same ID)
+                hasSameId(task) && // Use ID for primary equality check (two tasks are the same if they have the same ID)
+                parentMostSigBits == task.parentMostSigBits &&
+                parentLeastSigBits == task.parentLeastSigBits &&
+                priority == task.priority &&
+                Objects.equals(customPriority, task.customPriority) &&
                 Objects.equals(title, task.title) &&
                 Objects.equals(description, task.description) &&
-                Objects.equals(priority, task.priority);
+                Objects.equals(recurrence, task.recurrence) &&
+                Objects.equals(occurrence, task.occurrence) &&
+                tags.equals(task.tags);
     }
 
     @Override
     public int hashCode() {
         // Generate a hash code based on all fields used in equals().
-        // Objects.hash() is a convenient way to do this.
-        return Objects.hash(id, title, description, priority, isDone, dueDate);
+        // Combined by hand: Objects.hash() boxes every field into a new varargs array on each call.
+        int result = Long.hashCode(idMostSigBits);
+        result = 31 * result + Long.hashCode(idLeastSigBits);
+        result = 31 * result + Objects.hashCode(title);
+        result = 31 * result + Objects.hashCode(description);
+        result = 31 * result + priority.hashCode();
+        result = 31 * result + Objects.hashCode(customPriority);
+        result = 31 * result + Boolean.hashCode(isDone);
+        result = 31 * result + Long.hashCode(dueDate);
+        result = 31 * result + Objects.hashCode(recurrence);
+        result = 31 * result + Objects.hashCode(occurrence);
+        result = 31 * result + Long.hashCode(parentMostSigBits);
+        result = 31 * result + Long.hashCode(parentLeastSigBits);
+        result = 31 * result + tags.hashCode();
+        return result;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,479 @@
+// MultiModeTaskManager/app/src/main/java/com/example/multimodetaskmanager/models/TaskTable.java
+package com.example.multimodetaskmanager.models;
+
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+
+/**
+ * An optional columnar (struct-of-arrays) copy of a task list.
+ *
+ * Each field lives in its own growable primitive array, so scans, counts and key-only
+ * sorts walk contiguous memory instead of chasing pointers across Task objects, and they
+ * do not allocate. Titles and descriptions are stored once in a string table and referenced
+ * by index. The fields nothing scans (parent, tags, recurrence, occurrence, completedAt and
+ * custom priority labels) are kept as well, so a row reads back as an equal Task. Task objects
+ * are only created when a row is read through {@link #materialize(int)} or one of the
+ * {@link #view} lists; TaskProvider's cursors read the columns directly and never do.
+ *
+ * The provider is the only user. The task list on screen does not read from a table: the
+ * store's snapshots already share the Task objects it holds, so a table behind the adapter
+ * would be a second copy, rebuilt on every change, that saves no Task from being created.
+ *
+ * Not thread-safe; build it and read it from the same thread.
+ */
+public class TaskTable {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final Priority[] PRIORITIES = Priority.values(); // Cached, values() copies every call
+
+    private int size;
+    private long[] idMostSigBits;
+    private long[] idLeastSigBits;
+    private long[] dueDate;
+    private byte[] priority;   // Priority.ordinal()
+    private long[] doneBits;   // One bit per row
+    private int[] titleRef;    // Index into strings
+    private int[] descriptionRef;
+    private int[] customPriorityRef; // Index into strings, or -1 for a label Priority knows
+    private long[] parentMostSigBits;
+    private long[] parentLeastSigBits;
+    private long[] completedAt;
+    // Immutable values, shared with the tasks
+    private Recurrence[] recurrence;
+    private Occurrence[] occurrence;
+    private List<?>[] tags;
+
+    // String table shared by titles, descriptions and custom priority labels
+    private String[] strings = new String[DEFAULT_CAPACITY];
+    private int stringCount;
+    private final Map<String, Integer> stringIndex = new HashMap<>();
+    private int[] titleRank;   // Case-insensitive rank of each string, built lazily for NAME sorts
+
+    public TaskTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TaskTable(int initialCapacity) {
+        int capacity = Math.max(DEFAULT_CAPACITY, initialCapacity);
+        idMostSigBits = new long[capacity];
+        idLeastSigBits = new long[capacity];
+        dueDate = new long[capacity];
+        priority = new byte[capacity];
+        doneBits = new long[(capacity + 63) >>> 6];
+        titleRef = new int[capacity];
+        descriptionRef = new int[capacity];
+        customPriorityRef = new int[capacity];
+        parentMostSigBits = new long[capacity];
+        parentLeastSigBits = new long[capacity];
+        completedAt = new long[capacity];
+        recurrence = new Recurrence[capacity];
+        occurrence = new Occurrence[capacity];
+        tags = new List<?>[capacity];
+    }
+
+    /**
+     * Builds a table holding the given tasks, in list order.
+     */
+    public static TaskTable from(List<Task> tasks) {
+        TaskTable table = new TaskTable(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            table.add(tasks.get(i));
+        }
+        return table;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap bytes held by the columns and the string table's slots; the strings
+     * themselves are shared with the tasks.
+     */
+    public long sizeInBytes() {
+        long bytes = 8L * (idMostSigBits.length + idLeastSigBits.length + dueDate.length + doneBits.length
+                        + parentMostSigBits.length + parentLeastSigBits.length + completedAt.length)
+                + priority.length
+                + 4L * (titleRef.length + descriptionRef.length + customPriorityRef.length + strings.length
+                        + recurrence.length + occurrence.length + tags.length)
+                + 48L * stringIndex.size(); // A HashMap entry and its boxed Integer
+        if (titleRank != null) bytes += 4L * titleRank.length;
+        return bytes;
+    }
+
+    /**
+     * Removes every row and empties the string table, so a cleared table holds no references
+     * to the strings or values of the tasks it held.
+     */
+    public void clear() {
+        Arrays.fill(recurrence, 0, size, null);
+        Arrays.fill(occurrence, 0, size, null);
+        Arrays.fill(tags, 0, size, null);
+        size = 0;
+        Arrays.fill(doneBits, 0L);
+        Arrays.fill(strings, 0, stringCount, null);
+        stringCount = 0;
+        stringIndex.clear();
+        titleRank = null;
+    }
+
+    /**
+     * Appends a task as a new row.
+     *
+     * @return The index of the new row.
+     */
+    public int add(Task task) {
+        ensureCapacity(size + 1);
+        set(size++, task);
+        return size - 1;
+    }
+
+    /**
+     * Overwrites an existing row with the given task's fields.
+     */
+    public void set(int row, Task task) {
+        checkRow(row);
+        idMostSigBits[row] = task.getIdMostSigBits();
+        idLeastSigBits[row] = task.getIdLeastSigBits();
+        dueDate[row] = task.getDueDate();
+        priority[row] = (byte) task.getPriorityLevel().ordinal();
+        setDone(row, task.isDone());
+        titleRef[row] = stringRef(task.getTitle());
+        descriptionRef[row] = stringRef(task.getDescription());
+        // getPriority() is the custom label itself when the level is NONE for want of a constant
+        String label = task.getPriority();
+        customPriorityRef[row] = task.getPriorityLevel() == Priority.NONE && label != null ? stringRef(label) : -1;
+        parentMostSigBits[row] = task.getParentMostSigBits();
+        parentLeastSigBits[row] = task.getParentLeastSigBits();
+        completedAt[row] = task.getCompletedAt();
+        recurrence[row] = task.getRecurrence();
+        occurrence[row] = task.getOccurrence();
+        tags[row] = task.getTags();
+    }
+
+    // --- Column accessors ---
+    public long getIdMostSigBits(int row) { checkRow(row); return idMostSigBits[row]; }
+    public long getIdLeastSigBits(int row) { checkRow(row); return idLeastSigBits[row]; }
+    public long getDueDate(int row) { checkRow(row); return dueDate[row]; }
+    public Priority getPriority(int row) { checkRow(row); return PRIORITIES[priority[row]]; }
+    public boolean isDone(int row) { checkRow(row); return (doneBits[row >>> 6] & (1L << row)) != 0; }
+    public String getTitle(int row) { checkRow(row); return strings[titleRef[row]]; }
+    public String getDescription(int row) { checkRow(row); return strings[descriptionRef[row]]; }
+    // The label Task.getPriority() gives, custom ones included
+    public String getPriorityLabel(int row) {
+        checkRow(row);
+        int ref = customPriorityRef[row];
+        return ref >= 0 ? strings[ref] : PRIORITIES[priority[row]].getLabel();
+    }
+    public long getParentMostSigBits(int row) { checkRow(row); return parentMostSigBits[row]; }
+    public long getParentLeastSigBits(int row) { checkRow(row); return parentLeastSigBits[row]; }
+    public long getCompletedAt(int row) { checkRow(row); return completedAt[row]; }
+    public Recurrence getRecurrence(int row) { checkRow(row); return recurrence[row]; }
+    public Occurrence getOccurrence(int row) { checkRow(row); return occurrence[row]; }
+    @SuppressWarnings("unchecked")
+    public List<String> getTags(int row) { checkRow(row); return (List<String>) tags[row]; }
+
+    public void setDone(int row, boolean done) {
+        if (done) {
+            doneBits[row >>> 6] |= 1L << row;
+        } else {
+            doneBits[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    /**
+     * Finds the row holding the task with the given ID.
+     *
+     * @return The row index, or -1 if no row has that ID.
+     */
+    public int indexOf(long idMostSig, long idLeastSig) {
+        for (int i = 0; i < size; i++) {
+            if (idMostSigBits[i] == idMostSig && idLeastSigBits[i] == idLeastSig) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Creates a Task object from a row, equal to the task the row was set from. This is the
+     * only place the table allocates tasks.
+     */
+    public Task materialize(int row) {
+        checkRow(row);
+        Task task = new Task();
+        task.setId(idMostSigBits[row], idLeastSigBits[row]);
+        task.setTitle(strings[titleRef[row]]);
+        task.setDescription(strings[descriptionRef[row]]);
+        if (customPriorityRef[row] >= 0) {
+            task.setPriority(strings[customPriorityRef[row]]);
+        } else {
+            task.setPriorityLevel(PRIORITIES[priority[row]]);
+        }
+        task.setDone(isDone(row));
+        task.setDueDate(dueDate[row]);
+        task.setParentId(parentMostSigBits[row], parentLeastSigBits[row]);
+        task.setCompletedAt(completedAt[row]);
+        task.setRecurrence(recurrence[row]);
+        task.setOccurrence(occurrence[row]);
+        task.setTags(getTags(row));
+        return task;
+    }
+
+    // --- Counts (allocation-free) ---
+
+    public int countDone() {
+        int count = 0;
+        int fullWords = size >>> 6;
+        for (int i = 0; i < fullWords; i++) {
+            count += Long.bitCount(doneBits[i]);
+        }
+        int rest = size & 63;
+        if (rest != 0) {
+            count += Long.bitCount(doneBits[fullWords] & ((1L << rest) - 1));
+        }
+        return count;
+    }
+
+    public int countPending() {
+        return size - countDone();
+    }
+
+    public int countByPriority(Priority p) {
+        byte value = (byte) p.ordinal();
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            if (priority[i] == value) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Counts pending tasks that have a due date before the given time.
+     */
+    public int countOverdue(long now) {
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            long due = dueDate[i];
+            if (due != 0L && due < now && (doneBits[i >>> 6] & (1L << i)) == 0) count++;
+        }
+        return count;
+    }
+
+    // --- Scans (allocation-free; results go into a caller-supplied row buffer) ---
+
+    /**
+     * Writes the indices of rows whose done flag matches into {@code out}.
+     *
+     * @param out A buffer with room for at least {@link #size()} rows.
+     * @return The number of rows written.
+     */
+    public int selectDone(boolean done, int[] out) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (((doneBits[i >>> 6] & (1L << i)) != 0) == done) out[n++] = i;
+        }
+        return n;
+    }
+
+    public int selectByPriority(Priority p, int[] out) {
+        byte value = (byte) p.ordinal();
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (priority[i] == value) out[n++] = i;
+        }
+        return n;
+    }
+
+    /**
+     * Selects rows with a due date in [from, to). Rows without a due date are never selected.
+     */
+    public int selectDueBetween(long from, long to, int[] out) {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            long due = dueDate[i];
+            if (due != 0L && due >= from && due < to) out[n++] = i;
+        }
+        return n;
+    }
+
+    // Fills out with 0..size-1; the usual starting point for sortRows over the whole table
+    public int selectAll(int[] out) {
+        for (int i = 0; i < size; i++) {
+            out[i] = i;
+        }
+        return size;
+    }
+
+    // --- Key-only sort ---
+
+    /**
+     * Sorts the first {@code count} row indices in {@code rows} by the given order, comparing
+     * only column values. Ties keep ascending row order, so sorting the output of a scan
+     * gives the same order as Collections.sort with {@link TaskComparators} on the list.
+     * Apart from building the title ranks once for NAME, this does not allocate.
+     */
+    public void sortRows(int[] rows, int count, SortOrder order) {
+        if (order == SortOrder.NAME) {
+            ensureTitleRanks();
+        }
+        quickSort(rows, 0, count - 1, order);
+    }
+
+    /**
+     * Returns a read-only list over the given rows that materializes each Task only when it
+     * is read, for callers that need whole tasks for a few rows of a scan.
+     * The view reads the table live, so it reflects later changes to those rows.
+     */
+    public List<Task> view(int[] rows, int count) {
+        return new RowView(rows, count);
+    }
+
+    // A view over every row in table order
+    public List<Task> view() {
+        int[] rows = new int[size];
+        return new RowView(rows, selectAll(rows));
+    }
+
+    private final class RowView extends AbstractList<Task> implements RandomAccess {
+        private final int[] rows;
+        private final int count;
+
+        RowView(int[] rows, int count) {
+            this.rows = rows;
+            this.count = count;
+        }
+
+        @Override
+        public Task get(int index) {
+            if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+            return materialize(rows[index]);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    // --- Internals ---
+
+    private int compareRows(int a, int b, SortOrder order) {
+        int result;
+        switch (order) {
+            case PRIORITY:
+                result = Integer.compare(PRIORITIES[priority[a]].rank(), PRIORITIES[priority[b]].rank());
+                break;
+            case DUE_DATE:
+                result = TaskComparators.compareDueDates(dueDate[a], dueDate[b]);
+                break;
+            case NAME:
+            default:
+                result = Integer.compare(titleRank[titleRef[a]], titleRank[titleRef[b]]);
+                break;
+        }
+        return result != 0 ? result : Integer.compare(a, b); // Row order breaks ties (stable)
+    }
+
+    private void quickSort(int[] rows, int lo, int hi, SortOrder order) {
+        while (hi - lo > 16) {
+            // Median-of-three pivot
+            int mid = (lo + hi) >>> 1;
+            if (compareRows(rows[mid], rows[lo], order) < 0) swap(rows, mid, lo);
+            if (compareRows(rows[hi], rows[lo], order) < 0) swap(rows, hi, lo);
+            if (compareRows(rows[hi], rows[mid], order) < 0) swap(rows, hi, mid);
+            int pivot = rows[mid];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (compareRows(rows[i], pivot, order) < 0) i++;
+                while (compareRows(rows[j], pivot, order) > 0) j--;
+                if (i <= j) swap(rows, i++, j--);
+            }
+            // Recurse into the smaller half to keep the stack shallow
+            if (j - lo < hi - i) {
+                quickSort(rows, lo, j, order);
+                lo = i;
+            } else {
+                quickSort(rows, i, hi, order);
+                hi = j;
+            }
+        }
+        // Insertion sort for small ranges
+        for (int i = lo + 1; i <= hi; i++) {
+            int row = rows[i];
+            int j = i - 1;
+            while (j >= lo && compareRows(rows[j], row, order) > 0) {
+                rows[j + 1] = rows[j];
+                j--;
+            }
+            rows[j + 1] = row;
+        }
+    }
+
+    private static void swap(int[] rows, int i, int j) {
+        int tmp = rows[i];
+        rows[i] = rows[j];
+        rows[j] = tmp;
+    }
+
+    private int stringRef(String value) {
+        Integer ref = stringIndex.get(value);
+        if (ref != null) return ref;
+        if (stringCount == strings.length) {
+            strings = Arrays.copyOf(strings, stringCount * 2);
+        }
+        strings[stringCount] = value;
+        stringIndex.put(value, stringCount);
+        titleRank = null; // New string, ranks must be rebuilt
+        return stringCount++;
+    }
+
+    // Assigns every string its case-insensitive rank so NAME sorts compare ints
+    private void ensureTitleRanks() {
+        if (titleRank != null) return;
+        Integer[] order = new Integer[stringCount];
+        for (int i = 0; i < stringCount; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> compareTitles(strings[a], strings[b]));
+        int[] ranks = new int[stringCount];
+        int rank = 0;
+        for (int i = 0; i < stringCount; i++) {
+            if (i > 0 && compareTitles(strings[order[i - 1]], strings[order[i]]) != 0) rank++;
+            ranks[order[i]] = rank;
+        }
+        titleRank = ranks;
+    }
+
+    private static int compareTitles(String a, String b) {
+        if (a == null || b == null) return a == null ? (b == null ? 0 : 1) : -1; // Null titles go last
+        return a.compareToIgnoreCase(b);
+    }
+
+    private void ensureCapacity(int required) {
+        int capacity = dueDate.length;
+        if (required <= capacity) return;
+        int newCapacity = Math.max(required, capacity + (capacity >> 1));
+        idMostSigBits = Arrays.copyOf(idMostSigBits, newCapacity);
+        idLeastSigBits = Arrays.copyOf(idLeastSigBits, newCapacity);
+        dueDate = Arrays.copyOf(dueDate, newCapacity);
+        priority = Arrays.copyOf(priority, newCapacity);
+        doneBits = Arrays.copyOf(doneBits, (newCapacity + 63) >>> 6);
+        titleRef = Arrays.copyOf(titleRef, newCapacity);
+        descriptionRef = Arrays.copyOf(descriptionRef, newCapacity);
+        customPriorityRef = Arrays.copyOf(customPriorityRef, newCapacity);
+        parentMostSigBits = Arrays.copyOf(parentMostSigBits, newCapacity);
+        parentLeastSigBits = Arrays.copyOf(parentLeastSigBits, newCapacity);
+        completedAt = Arrays.copyOf(completedAt, newCapacity);
+        recurrence = Arrays.copyOf(recurrence, newCapacity);
+        occurrence = Arrays.copyOf(occurrence, newCapacity);
+        tags = Arrays.copyOf(tags, newCapacity);
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("Row: " + row + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.multimodetaskmanager.perf;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+
+/**
+ * Appends each snapshot to a local text file, one "timestamp name value" line per metric.
+ * The file is rotated to {@code <name>.1} once it grows past the size limit, so collecting
+ * field data on test devices never needs a network service or unbounded storage.
+ */
+public class FileMetricsExporter implements MetricsExporter {
+    private static final long DEFAULT_MAX_BYTES = 1024 * 1024;
+
+    private final File file;
+    private final long maxBytes;
+
+    public FileMetricsExporter(File file) {
+        this(file, DEFAULT_MAX_BYTES);
+    }
+
+    public FileMetricsExporter(File file, long maxBytes) {
+        this.file = file;
+        this.maxBytes = maxBytes;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    public void export(long timestampMillis, Map<String, String> snapshot) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        if (file.length() > maxBytes) {
+            File rotated = new File(file.getPath() + ".1");
+            if (rotated.exists() && !rotated.delete() || !file.renameTo(rotated)) {
+                throw new IOException("Cannot rotate " + file);
+            }
+        }
+        try (Writer writer = new FileWriter(file, true)) {
+            for (Map.Entry<String, String> entry : snapshot.entrySet()) {
+                writer.write(timestampMillis + " " + entry.getKey() + " " + entry.getValue() + "\n");
+            }
+        }
+    }
+}
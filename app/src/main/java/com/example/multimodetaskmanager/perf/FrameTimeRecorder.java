@@ -0,0 +1,73 @@
+package com.example.multimodetaskmanager.perf;
+
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.view.Display;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+/**
+ * Feeds per-frame durations of an activity window into {@link TaskListPerf#FRAMES}.
+ *
+ * Uses the platform FrameMetrics API, which reports each frame's total duration on a
+ * background thread. The listener is only attached while recording is on, so a disabled
+ * recorder costs nothing per frame.
+ */
+public class FrameTimeRecorder implements Window.OnFrameMetricsAvailableListener {
+    private static HandlerThread metricsThread; // Shared by all recorders
+
+    private Window window;
+
+    /**
+     * Starts recording frames for the activity's window if recording is enabled.
+     */
+    public void start(Activity activity) {
+        if (window != null || !TaskListPerf.isEnabled()) return;
+        Display display = displayOf(activity);
+        float refreshRate = display != null ? display.getRefreshRate() : 0f;
+        if (refreshRate > 0) {
+            TaskListPerf.setFrameBudgetNanos((long) (1_000_000_000L / refreshRate));
+        }
+        window = activity.getWindow();
+        window.addOnFrameMetricsAvailableListener(this, metricsHandler());
+    }
+
+    // The display the activity is shown on; getDefaultDisplay() is deprecated from API 30
+    @SuppressWarnings("deprecation")
+    private static Display displayOf(Activity activity) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return activity.getDisplay();
+        }
+        return activity.getWindowManager().getDefaultDisplay();
+    }
+
+    public void stop() {
+        if (window == null) return;
+        try {
+            window.removeOnFrameMetricsAvailableListener(this);
+        } catch (IllegalArgumentException e) {
+            // Already removed together with the window
+        }
+        window = null;
+    }
+
+    public boolean isRecording() {
+        return window != null;
+    }
+
+    @Override
+    public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics, int dropCountSinceLastInvocation) {
+        if (frameMetrics.getMetric(FrameMetrics.FIRST_DRAW_FRAME) == 1) return; // Window's first frame includes setup
+        TaskListPerf.FRAMES.record(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION));
+    }
+
+    private static synchronized Handler metricsHandler() {
+        if (metricsThread == null) {
+            metricsThread = new HandlerThread("FrameMetrics");
+            metricsThread.start();
+        }
+        return new Handler(metricsThread.getLooper());
+    }
+}
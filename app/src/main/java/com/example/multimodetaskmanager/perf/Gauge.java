@@ -0,0 +1,27 @@
+package com.example.multimodetaskmanager.perf;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The latest value of something, e.g. the current number of tasks.
+ */
+public class Gauge {
+    private final String name;
+    private final AtomicLong value = new AtomicLong();
+
+    Gauge(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void set(long newValue) {
+        value.set(newValue);
+    }
+
+    public long get() {
+        return value.get();
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.multimodetaskmanager.perf;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Receives periodic metric snapshots from {@link MetricsReporter}.
+ * Implementations decide where the data goes (a local file, logcat, ...).
+ */
+public interface MetricsExporter {
+    /**
+     * @param timestampMillis Wall-clock time of the snapshot.
+     * @param snapshot        Metric name -> value text, as produced by {@link MetricsRegistry#snapshot()}.
+     */
+    void export(long timestampMillis, Map<String, String> snapshot) throws IOException;
+}
@@ -0,0 +1,91 @@
+package com.example.multimodetaskmanager.perf;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A lightweight, lock-free registry of counters, gauges and timers for hot paths.
+ *
+ * Metrics are looked up by name once (typically into a static final field) and then updated
+ * with atomic operations only. Timers are {@link LatencyHistogram}s; {@link SizedTimer}s add a
+ * list-size tag. This class has no Android dependencies; {@link TraceSpan} pairs a timer with
+ * a system trace section, and {@link MetricsReporter} exports periodic snapshots.
+ *
+ * Timing through {@link TraceSpan} is off until {@link #setEnabled(boolean)} is called.
+ */
+public class MetricsRegistry {
+    private static final MetricsRegistry GLOBAL = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Gauge> gauges = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LatencyHistogram> timers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SizedTimer> sizedTimers = new ConcurrentHashMap<>();
+    private volatile boolean enabled;
+
+    // The app-wide registry
+    public static MetricsRegistry global() {
+        return GLOBAL;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    public Counter counter(String name) {
+        Counter counter = counters.get(name);
+        return counter != null ? counter : counters.computeIfAbsent(name, Counter::new);
+    }
+
+    public Gauge gauge(String name) {
+        Gauge gauge = gauges.get(name);
+        return gauge != null ? gauge : gauges.computeIfAbsent(name, Gauge::new);
+    }
+
+    public LatencyHistogram timer(String name) {
+        LatencyHistogram timer = timers.get(name);
+        return timer != null ? timer : timers.computeIfAbsent(name, LatencyHistogram::new);
+    }
+
+    public SizedTimer sizedTimer(String name) {
+        SizedTimer timer = sizedTimers.get(name);
+        return timer != null ? timer : sizedTimers.computeIfAbsent(name, n -> new SizedTimer(n, this));
+    }
+
+    /**
+     * Clears every counter and timer. Gauges keep their last value.
+     */
+    public void reset() {
+        for (Counter counter : counters.values()) counter.reset();
+        for (LatencyHistogram timer : timers.values()) timer.reset();
+    }
+
+    /**
+     * Captures the current values as name -> text, sorted by name. Timers that have not
+     * recorded anything are left out.
+     */
+    public Map<String, String> snapshot() {
+        Map<String, String> snapshot = new TreeMap<>();
+        for (Counter counter : counters.values()) {
+            snapshot.put(counter.getName(), Long.toString(counter.get()));
+        }
+        for (Gauge gauge : gauges.values()) {
+            snapshot.put(gauge.getName(), Long.toString(gauge.get()));
+        }
+        for (LatencyHistogram timer : timers.values()) {
+            if (timer.getCount() == 0) continue;
+            snapshot.put(timer.getName(), String.format(Locale.US,
+                    "count=%d mean=%.3fms p50=%.3fms p99=%.3fms max=%.3fms",
+                    timer.getCount(), timer.getMeanNanos() / 1e6,
+                    timer.getValueAtPercentile(50) / 1e6, timer.getValueAtPercentile(99) / 1e6,
+                    timer.getMaxNanos() / 1e6));
+        }
+        return snapshot;
+    }
+}
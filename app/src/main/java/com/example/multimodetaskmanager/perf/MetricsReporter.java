@@ -0,0 +1,61 @@
+package com.example.multimodetaskmanager.perf;
+
+import android.util.Log;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically hands snapshots of a {@link MetricsRegistry} to a {@link MetricsExporter}
+ * on a background daemon thread.
+ */
+public class MetricsReporter {
+    private static final String TAG = "MetricsReporter";
+
+    private final MetricsRegistry registry;
+    private final MetricsExporter exporter;
+    private ScheduledExecutorService executor;
+    private ScheduledFuture<?> task;
+
+    public MetricsReporter(MetricsRegistry registry, MetricsExporter exporter) {
+        this.registry = registry;
+        this.exporter = exporter;
+    }
+
+    public synchronized void start(long period, TimeUnit unit) {
+        if (task != null) return;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "MetricsReporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        task = executor.scheduleAtFixedRate(this::report, period, period, unit);
+    }
+
+    /**
+     * Stops the schedule and writes one final snapshot.
+     */
+    public synchronized void stop() {
+        if (task == null) return;
+        task.cancel(false);
+        executor.execute(this::report);
+        executor.shutdown();
+        task = null;
+        executor = null;
+    }
+
+    public synchronized boolean isRunning() {
+        return task != null;
+    }
+
+    // Exports one snapshot now, on the calling thread
+    public void report() {
+        try {
+            exporter.export(System.currentTimeMillis(), registry.snapshot());
+        } catch (Exception e) {
+            Log.w(TAG, "Metrics export failed", e); // Keep the schedule alive
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.multimodetaskmanager.perf;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A timer tagged with the size of the list it worked on.
+ *
+ * Durations are kept in one {@link LatencyHistogram} per power-of-ten size bucket, named like
+ * {@code storage.save{size<=1k}}, so a slow save of 50k tasks is not averaged away by many
+ * fast saves of 20. Bucket histograms are created on first use and then reused, so recording
+ * does not allocate.
+ */
+public class SizedTimer {
+    private static final int[] BUCKET_LIMITS = {10, 100, 1_000, 10_000, 100_000};
+    private static final String[] BUCKET_TAGS = {"<=10", "<=100", "<=1k", "<=10k", "<=100k", ">100k"};
+
+    private final String name;
+    private final MetricsRegistry registry;
+    private final AtomicReferenceArray<LatencyHistogram> buckets = new AtomicReferenceArray<>(BUCKET_TAGS.length);
+
+    SizedTimer(String name, MetricsRegistry registry) {
+        this.name = name;
+        this.registry = registry;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void record(int size, long nanos) {
+        histogramFor(size).record(nanos);
+    }
+
+    /**
+     * Returns the histogram that durations for lists of the given size go into.
+     */
+    public LatencyHistogram histogramFor(int size) {
+        int bucket = bucketOf(size);
+        LatencyHistogram histogram = buckets.get(bucket);
+        if (histogram == null) {
+            histogram = registry.timer(name + "{size" + BUCKET_TAGS[bucket] + "}");
+            buckets.compareAndSet(bucket, null, histogram);
+            histogram = buckets.get(bucket);
+        }
+        return histogram;
+    }
+
+    static int bucketOf(int size) {
+        for (int i = 0; i < BUCKET_LIMITS.length; i++) {
+            if (size <= BUCKET_LIMITS[i]) return i;
+        }
+        return BUCKET_LIMITS.length;
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.multimodetaskmanager.perf;
+
+import android.app.Activity;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Measures cold-start time to the first drawn task row: from process start to the first frame
+ * in which the task list has rows. The value goes into the "startup.timeToFirstRowMillis"
+ * gauge and logcat, and is reported to the system with {@link Activity#reportFullyDrawn()}
+ * so it also shows up as "Fully drawn" in ActivityManager's log and in macrobenchmarks.
+ *
+ * Only meaningful when the login screen was skipped (already logged in); otherwise the value
+ * includes however long the user took to log in.
+ */
+public final class StartupTimer {
+    private static final String TAG = "StartupTimer";
+    public static final Gauge TIME_TO_FIRST_ROW = MetricsRegistry.global().gauge("startup.timeToFirstRowMillis");
+
+    private static boolean reported; // Main thread only; once per process
+
+    private StartupTimer() {
+    }
+
+    /**
+     * Call when rows have been handed to the list for the first time. Records on the next
+     * pre-draw pass of {@code list}, after the rows have been laid out.
+     */
+    public static void onFirstRows(Activity activity, View list) {
+        if (reported) return;
+        reported = true;
+        list.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                list.getViewTreeObserver().removeOnPreDrawListener(this);
+                long millis = SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+                TIME_TO_FIRST_ROW.set(millis);
+                Log.i(TAG, "Time to first task row: " + millis + " ms");
+                activity.reportFullyDrawn();
+                return true;
+            }
+        });
+    }
+}
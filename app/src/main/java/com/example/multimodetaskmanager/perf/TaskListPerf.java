@@ -0,0 +1,123 @@
+package com.example.multimodetaskmanager.perf;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Built-in performance instrumentation for the task list.
+ *
+ * Holds latency histograms for frame durations (fed by {@link FrameTimeRecorder}) and for the
+ * adapter's onCreateViewHolder / onBindViewHolder and the list diff + dispatch. Recording is
+ * off by default; while it is off, {@link #begin()} is a single volatile read and returns 0,
+ * which makes the matching {@link #end} a no-op.
+ *
+ * Usage on a hot path:
+ * <pre>
+ *     long start = TaskListPerf.begin();
+ *     ... work ...
+ *     TaskListPerf.end(TaskListPerf.BIND_VIEW_HOLDER, start);
+ * </pre>
+ */
+public final class TaskListPerf {
+    private static final String TAG = "TaskListPerf";
+    private static final long DEFAULT_FRAME_BUDGET_NANOS = 16_666_667L; // 60 Hz
+
+    // Registered in the global MetricsRegistry so exported snapshots include them
+    public static final LatencyHistogram FRAMES = MetricsRegistry.global().timer("list.frame");
+    public static final LatencyHistogram CREATE_VIEW_HOLDER = MetricsRegistry.global().timer("list.onCreateViewHolder");
+    public static final LatencyHistogram BIND_VIEW_HOLDER = MetricsRegistry.global().timer("list.onBindViewHolder");
+    public static final LatencyHistogram DIFF_DISPATCH = MetricsRegistry.global().timer("list.diffDispatch");
+    private static final LatencyHistogram[] ALL = {FRAMES, CREATE_VIEW_HOLDER, BIND_VIEW_HOLDER, DIFF_DISPATCH};
+
+    private static volatile boolean enabled;
+    private static volatile long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    private TaskListPerf() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enable) {
+        enabled = enable;
+    }
+
+    // Frames longer than this count as janky; set from the display refresh rate
+    public static void setFrameBudgetNanos(long nanos) {
+        frameBudgetNanos = nanos > 0 ? nanos : DEFAULT_FRAME_BUDGET_NANOS;
+    }
+
+    /**
+     * Starts timing a section.
+     *
+     * @return The start time, or 0 when recording is off.
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Records the time since {@code start} into the histogram, unless start is 0.
+     */
+    public static void end(LatencyHistogram histogram, long start) {
+        if (start != 0L) {
+            histogram.record(System.nanoTime() - start);
+        }
+    }
+
+    public static void reset() {
+        for (LatencyHistogram histogram : ALL) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * Builds a human-readable report of every histogram plus the jank rate.
+     */
+    public static String dump() {
+        StringBuilder sb = new StringBuilder();
+        long frames = FRAMES.getCount();
+        long janky = FRAMES.countAbove(frameBudgetNanos);
+        sb.append(String.format(Locale.US, "Task list performance (recording %s)%n", enabled ? "on" : "off"));
+        sb.append(String.format(Locale.US, "janky frames: %d of %d (%.1f%%), budget %.2fms%n",
+                janky, frames, frames == 0 ? 0.0 : 100.0 * janky / frames, frameBudgetNanos / 1e6));
+        for (LatencyHistogram histogram : ALL) {
+            sb.append(histogram.summary()).append('\n');
+        }
+        // Everything else in the registry (storage, sort, diff, ...)
+        for (Map.Entry<String, String> entry : MetricsRegistry.global().snapshot().entrySet()) {
+            sb.append(entry.getKey()).append(' ').append(entry.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    // Writes the report to logcat, one line per entry
+    public static void dumpToLog() {
+        for (String line : dump().split("\n")) {
+            Log.i(TAG, line);
+        }
+    }
+
+    /**
+     * Writes the report to a timestamped file in the given directory.
+     *
+     * @return The file that was written.
+     */
+    public static File dumpToFile(File directory) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = new File(directory, "task-list-perf-" + System.currentTimeMillis() + ".txt");
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(dump());
+        }
+        return file;
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.multimodetaskmanager.perf;
+
+import android.util.Log;
+import android.view.View;
+import android.view.ViewTreeObserver;
+
+/**
+ * Measures time-to-recolored-frame for theme switches: from the moment the user picks a theme
+ * (or the system switches night mode) until the first frame drawn in the new colors.
+ *
+ * In-place recolors go into "theme.recoloredFrame"; switches that fall back to recreating the
+ * activity go into "theme.recreatedFrame", so the two paths can be compared.
+ */
+public final class ThemeSwitchTimer {
+    private static final String TAG = "ThemeSwitchTimer";
+    public static final LatencyHistogram RECOLORED_FRAME = MetricsRegistry.global().timer("theme.recoloredFrame");
+    public static final LatencyHistogram RECREATED_FRAME = MetricsRegistry.global().timer("theme.recreatedFrame");
+
+    // Main thread only; static so a pending measurement survives activity recreation
+    private static long pendingStart;
+
+    private ThemeSwitchTimer() {
+    }
+
+    public static boolean isPending() {
+        return pendingStart != 0L;
+    }
+
+    /** Call when a theme switch starts. */
+    public static void start() {
+        pendingStart = System.nanoTime();
+    }
+
+    public static void cancel() {
+        pendingStart = 0L;
+    }
+
+    /**
+     * Call once the views show (or are about to show) the new theme. Records on the next
+     * pre-draw pass of {@code root}. Does nothing if no switch is pending.
+     *
+     * @param inPlace true for an in-place recolor, false after recreating the activity.
+     */
+    public static void onApplied(View root, boolean inPlace) {
+        if (pendingStart == 0L) return;
+        long start = pendingStart;
+        pendingStart = 0L;
+        root.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                root.getViewTreeObserver().removeOnPreDrawListener(this);
+                long nanos = System.nanoTime() - start;
+                (inPlace ? RECOLORED_FRAME : RECREATED_FRAME).record(nanos);
+                Log.i(TAG, (inPlace ? "Recolored" : "Recreated") + " frame after " + nanos / 1_000_000 + " ms");
+                return true;
+            }
+        });
+        root.invalidate(); // Make sure a frame follows even if nothing else changed
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.multimodetaskmanager.perf;
+
+import android.os.Trace;
+
+/**
+ * Times a section of code and marks it as a system trace section with the same name, so the
+ * spans recorded by {@link MetricsRegistry} also show up in Perfetto/systrace captures.
+ *
+ * <pre>
+ *     long start = TraceSpan.begin("storage.save");
+ *     try {
+ *         ... work ...
+ *     } finally {
+ *         TraceSpan.end(SAVE_TIMER, tasks.size(), start);
+ *     }
+ * </pre>
+ * begin and end must be called on the same thread. When the global registry is disabled
+ * only the (cheap) trace markers remain.
+ */
+public final class TraceSpan {
+    private TraceSpan() {
+    }
+
+    /**
+     * Opens a trace section.
+     *
+     * @return The start time, or 0 when metrics are disabled.
+     */
+    public static long begin(String sectionName) {
+        Trace.beginSection(sectionName);
+        return MetricsRegistry.global().isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    // Closes the trace section and records the duration into the timer
+    public static void end(LatencyHistogram timer, long start) {
+        Trace.endSection();
+        if (start != 0L) {
+            timer.record(System.nanoTime() - start);
+        }
+    }
+
+    // Closes the trace section and records the duration tagged with the list size
+    public static void end(SizedTimer timer, int size, long start) {
+        Trace.endSection();
+        if (start != 0L) {
+            timer.record(size, System.nanoTime() - start);
+        }
+    }
+}
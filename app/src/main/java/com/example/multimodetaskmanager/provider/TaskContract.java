@@ -0,0 +1,47 @@
+package com.example.multimodetaskmanager.provider;
+
+import android.net.Uri;
+
+/**
+ * What other apps (launchers, widgets, automation tools) can read through {@link TaskProvider}.
+ *
+ * <pre>
+ *     content://com.example.multimodetaskmanager.tasks/tasks          all tasks
+ *     content://com.example.multimodetaskmanager.tasks/tasks/&lt;uuid&gt;   one task
+ * </pre>
+ * Selection supports {@link #DONE} and {@link #PRIORITY} with =, and {@link #DUE} with =, &lt;,
+ * &lt;=, &gt; and &gt;=, joined by AND, e.g. {@code "done = ? AND due < ?"}. The sort order is
+ * {@link #PRIORITY}, {@link #DUE} or {@link #TITLE} (ascending, as in the app's list), and
+ * {@link #PARAM_LIMIT} / {@link #PARAM_OFFSET} query parameters pick a page of the result.
+ *
+ * Observers of {@link #CONTENT_URI} with notifyForDescendants are told about every change;
+ * observers of one task's URI only about changes to that task.
+ */
+public final class TaskContract {
+    public static final String AUTHORITY = "com.example.multimodetaskmanager.tasks";
+    public static final Uri CONTENT_URI = Uri.parse("content://" + AUTHORITY + "/tasks");
+
+    public static final String CONTENT_TYPE = "vnd.android.cursor.dir/vnd." + AUTHORITY + ".task";
+    public static final String CONTENT_ITEM_TYPE = "vnd.android.cursor.item/vnd." + AUTHORITY + ".task";
+
+    // --- Columns ---
+    public static final String _ID = "_id";                 // long, derived from the UUID, for CursorAdapter
+    public static final String UUID = "uuid";               // String; the last segment of the task's URI
+    public static final String TITLE = "title";             // String
+    public static final String DESCRIPTION = "description"; // String
+    public static final String PRIORITY = "priority";       // "High", "Medium", "Low" or null
+    public static final String DONE = "done";               // int, 1 or 0; the only column that can be updated
+    public static final String DUE = "due";                 // long, epoch millis; 0 when there is none
+
+    static final String[] ALL_COLUMNS = {_ID, UUID, TITLE, DESCRIPTION, PRIORITY, DONE, DUE};
+
+    // --- Query parameters ---
+    public static final String PARAM_LIMIT = "limit";
+    public static final String PARAM_OFFSET = "offset";
+
+    private TaskContract() {}
+
+    public static Uri taskUri(String uuid) {
+        return Uri.withAppendedPath(CONTENT_URI, uuid);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.multimodetaskmanager.provider;
+
+import android.database.AbstractCursor;
+
+import com.example.multimodetaskmanager.models.TaskTable;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * A page of {@link TaskQuery} rows, read column by column from the {@link TaskTable} of one
+ * snapshot. Only the cells that are asked for are read, and across processes AbstractCursor
+ * fills the CursorWindow from the requested position on, so a consumer scrolling a long
+ * result only ever copies the rows it looks at.
+ *
+ * The table belongs to one snapshot and is never changed, so the cursor keeps showing that
+ * snapshot; the notification URI tells the consumer when to query again.
+ */
+final class TaskCursor extends AbstractCursor {
+    private static final int ID = 0, UUID_COLUMN = 1, TITLE = 2, DESCRIPTION = 3, PRIORITY = 4, DONE = 5, DUE = 6;
+
+    private final TaskTable table;
+    private final int[] rows;
+    private final String[] names;
+    private final int[] columns; // Index into TaskContract.ALL_COLUMNS, per projected column
+
+    /**
+     * @throws IllegalArgumentException If the projection names a column that does not exist.
+     */
+    TaskCursor(TaskTable table, int[] rows, String[] projection) {
+        this.table = table;
+        this.rows = rows;
+        this.names = projection != null ? projection.clone() : TaskContract.ALL_COLUMNS.clone();
+        this.columns = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            columns[i] = Arrays.asList(TaskContract.ALL_COLUMNS).indexOf(names[i]);
+            if (columns[i] < 0) throw new IllegalArgumentException("Unknown column: " + names[i]);
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return rows.length;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return names;
+    }
+
+    @Override
+    public int getType(int column) {
+        switch (columns[column]) {
+            case ID:
+            case DONE:
+            case DUE:
+                return FIELD_TYPE_INTEGER;
+            default:
+                return isNull(column) ? FIELD_TYPE_NULL : FIELD_TYPE_STRING;
+        }
+    }
+
+    @Override
+    public String getString(int column) {
+        int row = row();
+        switch (columns[column]) {
+            case UUID_COLUMN: return new UUID(table.getIdMostSigBits(row), table.getIdLeastSigBits(row)).toString();
+            case TITLE: return table.getTitle(row);
+            case DESCRIPTION: return table.getDescription(row);
+            case PRIORITY: return table.getPriorityLabel(row);
+            default: return Long.toString(getLong(column));
+        }
+    }
+
+    @Override
+    public long getLong(int column) {
+        int row = row();
+        switch (columns[column]) {
+            case ID: return table.getIdMostSigBits(row) ^ table.getIdLeastSigBits(row);
+            case DONE: return table.isDone(row) ? 1L : 0L;
+            case DUE: return table.getDueDate(row);
+            default: throw new NumberFormatException("Not a number column: " + names[column]);
+        }
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        return getLong(column);
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return getString(column) == null;
+    }
+
+    private int row() {
+        checkPosition(); // CursorIndexOutOfBoundsException before the first or after the last row
+        return rows[getPosition()];
+    }
+}
@@ -0,0 +1,265 @@
+package com.example.multimodetaskmanager.provider;
+
+import android.content.ContentProvider;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.UriMatcher;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.multimodetaskmanager.memory.CacheManager;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.models.TaskTable;
+import com.example.multimodetaskmanager.repository.TaskSnapshot;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.repository.TaskStores;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The signed-in account's tasks for other apps, read-mostly: queries, and marking a task done
+ * (see {@link TaskContract}). Nothing is visible while nobody is logged in.
+ *
+ * Queries run against a columnar {@link TaskTable} copy of the store's latest snapshot, built
+ * once per snapshot version and shared by every query until the next change. Filtering and
+ * sorting only touch columns, and {@link TaskCursor} reads the page's rows from the table, so
+ * a widget asking for the next 5 due tasks never builds the other thousands.
+ *
+ * Changes are announced per task URI once the snapshot holding them is published, so a
+ * consumer querying again sees them. Bursts (imports, sync, a changed recurring task) and
+ * changes to the whole list (account switch, sort, occurrence window) notify
+ * {@link TaskContract#CONTENT_URI} once instead.
+ *
+ * Under memory pressure the table is dropped (see {@link CacheManager}); the next query builds
+ * it again.
+ */
+public class TaskProvider extends ContentProvider implements TaskStores.ActiveStoreListener, CacheManager.Cache {
+    private static final int MAX_TASK_URIS = 32; // More changes at once notify the whole list
+    private static final int TASKS = 1;
+    private static final int TASK = 2;
+
+    private static final UriMatcher MATCHER = new UriMatcher(UriMatcher.NO_MATCH);
+    static {
+        MATCHER.addURI(TaskContract.AUTHORITY, "tasks", TASKS);
+        MATCHER.addURI(TaskContract.AUTHORITY, "tasks/*", TASK);
+    }
+
+    private TaskStore followed;        // null while logged out
+    private StoreObserver observer;
+    private TaskTable table;           // Of tableVersion's snapshot of tableStore
+    private TaskStore tableStore;
+    private long tableVersion;
+
+    @Override
+    public boolean onCreate() {
+        // Cheap: nothing is loaded until an account is active (TaskManagerApp or login)
+        TaskStores.get(getContext()).addActiveStoreListener(this);
+        CacheManager.get(getContext()).register("provider table", CacheManager.Tier.REBUILDABLE, this);
+        return true;
+    }
+
+    @Override
+    public String getType(Uri uri) {
+        switch (MATCHER.match(uri)) {
+            case TASKS: return TaskContract.CONTENT_TYPE;
+            case TASK: return TaskContract.CONTENT_ITEM_TYPE;
+            default: return null;
+        }
+    }
+
+    /**
+     * Runs on a binder thread, so it waits for the stored tasks if they are still loading.
+     *
+     * @throws IllegalArgumentException For URIs, columns, selections or sort orders that
+     *                                  {@link TaskContract} does not describe.
+     */
+    @Override
+    public Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        int match = MATCHER.match(uri);
+        if (match == UriMatcher.NO_MATCH) throw new IllegalArgumentException("Unknown URI: " + uri);
+        TaskQuery query = TaskQuery.parse(selection, selectionArgs, sortOrder)
+                .page(intParameter(uri, TaskContract.PARAM_LIMIT, -1), intParameter(uri, TaskContract.PARAM_OFFSET, 0));
+        if (match == TASK) {
+            UUID id = parseId(uri);
+            query.withId(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+
+        TaskStore store = followed();
+        TaskTable rows = store != null ? tableOf(store, snapshotOf(store)) : new TaskTable(0);
+        int[] page;
+        synchronized (rows) { // A NAME sort builds the table's title ranks on first use
+            page = new int[rows.size()];
+            page = Arrays.copyOf(page, query.select(rows, page));
+        }
+        TaskCursor cursor = new TaskCursor(rows, page, projection);
+        cursor.setNotificationUri(getContext().getContentResolver(), uri);
+        return cursor;
+    }
+
+    /**
+     * Sets {@link TaskContract#DONE} of one task; nothing else can be changed from outside.
+     *
+     * @return 1, or 0 if there is no such task (anymore).
+     */
+    @Override
+    public int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        if (MATCHER.match(uri) != TASK) throw new IllegalArgumentException("Only single tasks can be updated: " + uri);
+        if (values == null || values.size() != 1 || !values.containsKey(TaskContract.DONE)) {
+            throw new IllegalArgumentException("Only " + TaskContract.DONE + " can be updated");
+        }
+        TaskStore store = followed();
+        if (store == null) return 0;
+        UUID id = parseId(uri);
+        try {
+            for (Task task : snapshotOf(store).getTasks()) {
+                if (task.getIdMostSigBits() != id.getMostSignificantBits() || task.getIdLeastSigBits() != id.getLeastSignificantBits()) continue;
+                Task updated = new Task(task);
+                updated.setDone(Boolean.TRUE.equals(values.getAsBoolean(TaskContract.DONE)));
+                store.update(updated).join(); // Published, and observers told, before this returns
+                return 1;
+            }
+        } catch (CompletionException e) {
+            // Released (logout, memory pressure) since it was looked up: nothing was changed
+            if (e.getCause() instanceof RejectedExecutionException) return 0;
+            throw e;
+        }
+        return 0;
+    }
+
+    @Override
+    public Uri insert(Uri uri, ContentValues values) {
+        throw new UnsupportedOperationException("Tasks can only be added in the app");
+    }
+
+    @Override
+    public int delete(Uri uri, String selection, String[] selectionArgs) {
+        throw new UnsupportedOperationException("Tasks can only be deleted in the app");
+    }
+
+    // --- TaskStores.ActiveStoreListener ---
+
+    @Override
+    public synchronized void onActiveStoreChanged(TaskStore store, String partition) {
+        if (followed != null) {
+            followed.removeListener(observer);
+            followed.removeChangeListener(observer);
+        }
+        followed = store;
+        observer = null;
+        table = null; // Not kept around for an account that is no longer active
+        tableStore = null;
+        if (store != null) {
+            observer = new StoreObserver();
+            store.addListener(observer);
+            store.addChangeListener(observer); // Its onTasksLoaded notifies the whole list
+        } else {
+            notifyChange(TaskContract.CONTENT_URI); // Logged out; everything is gone
+        }
+    }
+
+    // --- CacheManager.Cache ---
+
+    @Override
+    public synchronized long sizeInBytes() {
+        return table != null ? table.sizeInBytes() : 0L;
+    }
+
+    @Override
+    public synchronized long trim() {
+        long bytes = sizeInBytes();
+        table = null; // Queries still reading it keep their own reference
+        tableStore = null;
+        return bytes;
+    }
+
+    // --- Internals ---
+
+    private synchronized TaskStore followed() {
+        return followed;
+    }
+
+    // The latest snapshot, once the stored tasks are in it. If they cannot be read (released,
+    // or no key), the empty one: a query never throws into the caller, and the next one retries
+    private static TaskSnapshot snapshotOf(TaskStore store) {
+        TaskSnapshot snapshot = store.snapshot();
+        if (snapshot.isLoaded()) return snapshot;
+        try {
+            return store.load().join();
+        } catch (CompletionException e) {
+            return snapshot;
+        }
+    }
+
+    // Versions only count up within one store, so the table is rebuilt for another account's
+    private synchronized TaskTable tableOf(TaskStore store, TaskSnapshot snapshot) {
+        if (table == null || tableStore != store || tableVersion != snapshot.getVersion()) {
+            table = TaskTable.from(snapshot.getTasks());
+            tableStore = store;
+            tableVersion = snapshot.getVersion();
+        }
+        return table;
+    }
+
+    private void notifyChange(Uri uri) {
+        ContentResolver resolver = getContext().getContentResolver();
+        resolver.notifyChange(uri, null, false);
+    }
+
+    private static UUID parseId(Uri uri) {
+        try {
+            return UUID.fromString(uri.getLastPathSegment());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Not a task URI: " + uri, e);
+        }
+    }
+
+    private static int intParameter(Uri uri, String name, int absent) {
+        String value = uri.getQueryParameter(name);
+        if (value == null) return absent;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + name + ": " + value, e);
+        }
+    }
+
+    // Collects one store's task changes and announces them once the snapshot is out; writer thread only
+    private final class StoreObserver implements TaskStore.Listener, TaskStore.ChangeListener {
+        private final Set<Uri> changed = new LinkedHashSet<>();
+        private boolean wholeList;
+
+        @Override
+        public void onTasksLoaded(List<Task> tasks) {
+            notifyChange(TaskContract.CONTENT_URI); // A different account's tasks, or the first load
+        }
+
+        @Override
+        public void onTaskChanged(Task task) {
+            // A template change moves all its occurrences, which have IDs of their own
+            if (task.isRecurring()) wholeList = true;
+            changed.add(TaskContract.taskUri(task.getId()));
+        }
+
+        @Override
+        public void onTaskRemoved(Task task) {
+            onTaskChanged(task);
+        }
+
+        @Override
+        public void onSnapshot(TaskSnapshot snapshot) {
+            if (wholeList || changed.isEmpty() || changed.size() > MAX_TASK_URIS) {
+                notifyChange(TaskContract.CONTENT_URI); // No task changed: the order or the occurrence window did
+            } else {
+                for (Uri uri : changed) notifyChange(uri);
+            }
+            changed.clear();
+            wholeList = false;
+        }
+    }
+}
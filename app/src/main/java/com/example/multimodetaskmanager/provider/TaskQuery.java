@@ -0,0 +1,182 @@
+package com.example.multimodetaskmanager.provider;
+
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.TaskTable;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One {@link TaskProvider} query: the filters from the selection, the sort order and the page,
+ * run as column scans and a key-only sort over a {@link TaskTable}. No Task is created; the
+ * cursor reads the page's rows straight from the table.
+ *
+ * Plain Java, so the selection grammar (see {@link TaskContract}) is tested without Android.
+ */
+final class TaskQuery {
+    private static final Pattern AND = Pattern.compile("\\s+AND\\s+", Pattern.CASE_INSENSITIVE);
+    // column, operator, then ? or a literal: a number or a 'quoted' string
+    private static final Pattern CLAUSE = Pattern.compile("\\s*(\\w+)\\s*(=|<=|>=|<|>)\\s*(\\?|-?\\d+|'[^']*')\\s*");
+
+    private Boolean done;       // null: either
+    private Priority priority;  // null: any
+    private boolean dueRange;   // Only tasks with a due date in [dueFrom, dueTo)
+    private long dueFrom = Long.MIN_VALUE;
+    private long dueTo = Long.MAX_VALUE;
+    private boolean byId;
+    private long idMostSigBits;
+    private long idLeastSigBits;
+    private SortOrder order;    // null: the order the app's list has
+    private int limit = -1;     // -1: no limit
+    private int offset;
+
+    /**
+     * @throws IllegalArgumentException If the selection or sort order uses anything
+     *                                  {@link TaskContract} does not describe.
+     */
+    static TaskQuery parse(String selection, String[] selectionArgs, String sortOrder) {
+        TaskQuery query = new TaskQuery();
+        if (selection != null && !selection.trim().isEmpty()) {
+            int nextArg = 0;
+            for (String clause : AND.split(selection.trim())) {
+                Matcher m = CLAUSE.matcher(clause);
+                if (!m.matches()) throw new IllegalArgumentException("Unsupported selection: " + clause);
+                String value = m.group(3);
+                if (value.equals("?")) {
+                    if (selectionArgs == null || nextArg >= selectionArgs.length) {
+                        throw new IllegalArgumentException("Missing selection argument for: " + clause);
+                    }
+                    value = selectionArgs[nextArg++];
+                } else if (value.startsWith("'")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                query.where(m.group(1).toLowerCase(Locale.ROOT), m.group(2), value);
+            }
+        }
+        query.order = parseOrder(sortOrder);
+        return query;
+    }
+
+    TaskQuery page(int limit, int offset) {
+        if (limit < -1 || offset < 0) throw new IllegalArgumentException("Invalid page: limit " + limit + ", offset " + offset);
+        this.limit = limit;
+        this.offset = offset;
+        return this;
+    }
+
+    TaskQuery withId(long mostSigBits, long leastSigBits) {
+        byId = true;
+        idMostSigBits = mostSigBits;
+        idLeastSigBits = leastSigBits;
+        return this;
+    }
+
+    /**
+     * Writes the page's rows, in order, to the start of {@code rows}.
+     *
+     * @param rows A buffer with room for at least {@link TaskTable#size()} rows.
+     * @return The number of rows in the page.
+     */
+    int select(TaskTable table, int[] rows) {
+        int count;
+        if (byId) {
+            int row = table.indexOf(idMostSigBits, idLeastSigBits);
+            count = 0;
+            if (row >= 0) rows[count++] = row;
+        } else if (done != null) {
+            count = table.selectDone(done, rows); // One scan for the most common filter, the rest below
+        } else {
+            count = table.selectAll(rows);
+        }
+        count = filter(table, rows, count);
+        if (order != null) table.sortRows(rows, count, order);
+
+        int from = Math.min(offset, count);
+        int size = limit < 0 ? count - from : Math.min(limit, count - from);
+        System.arraycopy(rows, from, rows, 0, size);
+        return size;
+    }
+
+    // Keeps the rows that pass every filter, in place and in order
+    private int filter(TaskTable table, int[] rows, int count) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            if (done != null && table.isDone(row) != done) continue;
+            if (priority != null && table.getPriority(row) != priority) continue;
+            if (dueRange) {
+                long due = table.getDueDate(row);
+                if (due == 0L || due < dueFrom || due >= dueTo) continue; // No due date never matches a range
+            }
+            rows[kept++] = row;
+        }
+        return kept;
+    }
+
+    private void where(String column, String op, String value) {
+        switch (column) {
+            case TaskContract.DONE:
+                requireEquals(column, op);
+                if (value.equals("1") || value.equalsIgnoreCase("true")) {
+                    done = true;
+                } else if (value.equals("0") || value.equalsIgnoreCase("false")) {
+                    done = false;
+                } else {
+                    throw new IllegalArgumentException("done must be 1 or 0: " + value);
+                }
+                break;
+            case TaskContract.PRIORITY:
+                requireEquals(column, op);
+                priority = Priority.fromLabel(value);
+                if (priority == Priority.NONE) throw new IllegalArgumentException("Unknown priority: " + value);
+                break;
+            case TaskContract.DUE:
+                long time = parseTime(value);
+                dueRange = true;
+                switch (op) {
+                    case "=":  dueFrom = Math.max(dueFrom, time); dueTo = Math.min(dueTo, after(time)); break;
+                    case ">=": dueFrom = Math.max(dueFrom, time); break;
+                    case ">":  dueFrom = Math.max(dueFrom, after(time)); break;
+                    case "<":  dueTo = Math.min(dueTo, time); break;
+                    case "<=": dueTo = Math.min(dueTo, after(time)); break;
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Cannot select on column: " + column);
+        }
+    }
+
+    // The next millisecond, without wrapping around to the distant past at the end of time
+    private static long after(long time) {
+        return time == Long.MAX_VALUE ? Long.MAX_VALUE : time + 1;
+    }
+
+    private static void requireEquals(String column, String op) {
+        if (!op.equals("=")) throw new IllegalArgumentException(column + " only supports =");
+    }
+
+    private static long parseTime(String value) {
+        try {
+            return Long.parseLong(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("due must be epoch millis: " + value, e);
+        }
+    }
+
+    // The column the app's list sorts by, or the SortOrder's own name
+    private static SortOrder parseOrder(String sortOrder) {
+        if (sortOrder == null || sortOrder.trim().isEmpty()) return null;
+        String key = sortOrder.trim().toLowerCase(Locale.ROOT);
+        if (key.endsWith(" asc")) key = key.substring(0, key.length() - 4).trim();
+        switch (key) {
+            case TaskContract.PRIORITY: return SortOrder.PRIORITY;
+            case TaskContract.DUE:
+            case "due_date": return SortOrder.DUE_DATE;
+            case TaskContract.TITLE:
+            case "name": return SortOrder.NAME;
+            default: throw new IllegalArgumentException("Unsupported sort order: " + sortOrder);
+        }
+    }
+}
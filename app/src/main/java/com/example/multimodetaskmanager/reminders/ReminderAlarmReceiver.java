@@ -0,0 +1,20 @@
+package com.example.multimodetaskmanager.reminders;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+
+/**
+ * Receives the single reminder alarm, and the boot broadcast (alarms do not survive a reboot;
+ * starting the app re-arms it, see {@link com.example.multimodetaskmanager.TaskManagerApp}).
+ */
+public class ReminderAlarmReceiver extends BroadcastReceiver {
+    @Override
+    public void onReceive(Context context, Intent intent) {
+        TaskReminders reminders = TaskReminders.start(context);
+        if (Intent.ACTION_BOOT_COMPLETED.equals(intent.getAction())) return; // Starting was all it took
+
+        PendingResult result = goAsync(); // Loading the tasks may take a moment after a cold start
+        reminders.onAlarm(result::finish);
+    }
+}
@@ -0,0 +1,290 @@
+package com.example.multimodetaskmanager.reminders;
+
+import com.example.multimodetaskmanager.models.Recurrence;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.Gauge;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.utils.Occurrences;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TimeZone;
+import java.util.UUID;
+
+/**
+ * Fires reminders for task due dates with a single system alarm.
+ *
+ * Upcoming due dates are kept in a min-heap; the one {@link Alarm} is always armed for the
+ * head of the heap, and only re-armed when the head changes. Adding, editing, completing or
+ * deleting a task costs O(log n) and usually no alarm call at all. When the alarm goes off,
+ * every reminder due up to {@link #getBatchWindowMillis()} later is delivered together, so a
+ * cluster of deadlines is one wakeup and one notification.
+ *
+ * A recurring task has one entry, for its next occurrence; once that is delivered the entry
+ * moves on to the one after, so a daily task never puts more than one reminder in the heap.
+ *
+ * Plain Java, with the clock, the alarm and the notification passed in; see
+ * {@link TaskReminders} for the Android side. Changes arrive on the store's writer thread, the
+ * alarm on another, so the state is guarded by this object's lock. The sink is called after
+ * the lock is released, so building a notification never holds up the writer.
+ */
+public class ReminderScheduler implements TaskStore.ChangeListener {
+    public static final long DEFAULT_BATCH_WINDOW_MILLIS = 5 * 60_000L;
+    private static final long NOT_ARMED = Long.MIN_VALUE;
+
+    private static final Counter ALARMS_ARMED = MetricsRegistry.global().counter("reminders.alarmsArmed");
+    private static final Counter DELIVERED = MetricsRegistry.global().counter("reminders.delivered");
+    private static final Gauge PENDING = MetricsRegistry.global().gauge("reminders.pending");
+
+    // Wall-clock time, the same time base as Task.getDueDate()
+    public interface Clock {
+        long currentTimeMillis();
+    }
+
+    // The one system alarm
+    public interface Alarm {
+        void arm(long atMillis);
+        void cancel();
+    }
+
+    // Shows the reminders that came due together, in due date order
+    public interface Sink {
+        void deliver(List<Task> due);
+    }
+
+    // A due date in the heap; entries replaced by an edit stay in the heap, cancelled, until they surface
+    private static final class Entry implements Comparable<Entry> {
+        Task task; // Updated in place by edits that keep the due date; the template if recurring
+        final long due;
+        boolean cancelled;
+
+        Entry(Task task, long due) {
+            this.task = task;
+            this.due = due;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            return Long.compare(due, other.due);
+        }
+    }
+
+    private final Clock clock;
+    private final Alarm alarm;
+    private final Sink sink;
+    private final long batchWindowMillis;
+    private final PriorityQueue<Entry> heap = new PriorityQueue<>();
+    private final Map<UUID, Entry> byId = new HashMap<>();
+    private long notifiedUpTo; // Everything due up to here has been delivered
+    private long armedAt = NOT_ARMED;
+    private int generation; // Of the current follow() listener
+
+    /**
+     * @param notifiedUpTo Where the last run left off (see {@link #getNotifiedUpTo()}); tasks
+     *                     loaded later that came due after it are delivered straight away.
+     */
+    public ReminderScheduler(Clock clock, Alarm alarm, Sink sink, long batchWindowMillis, long notifiedUpTo) {
+        this.clock = clock;
+        this.alarm = alarm;
+        this.sink = sink;
+        this.batchWindowMillis = batchWindowMillis;
+        this.notifiedUpTo = notifiedUpTo;
+    }
+
+    public long getBatchWindowMillis() {
+        return batchWindowMillis;
+    }
+
+    public synchronized long getNotifiedUpTo() {
+        return notifiedUpTo;
+    }
+
+    // The time the alarm is armed for, or Long.MIN_VALUE when it is not armed
+    public synchronized long getArmedAt() {
+        return armedAt;
+    }
+
+    public synchronized int pendingCount() {
+        return byId.size();
+    }
+
+    /**
+     * A listener to add to the store whose tasks are reminded of. It forwards to this scheduler
+     * until the next call: changes the previous store had already queued on its own writer
+     * thread, which can arrive after the new store's {@link #onTasksLoaded}, are then ignored.
+     */
+    public synchronized TaskStore.ChangeListener follow() {
+        return new Follower(++generation);
+    }
+
+    // Stops forwarding from the current follow() listener, e.g. on logout
+    public synchronized void unfollow() {
+        generation++;
+    }
+
+    private final class Follower implements TaskStore.ChangeListener {
+        private final int followed;
+
+        Follower(int generation) {
+            followed = generation;
+        }
+
+        @Override
+        public void onTasksLoaded(List<Task> tasks) {
+            synchronized (ReminderScheduler.this) {
+                if (followed == generation) ReminderScheduler.this.onTasksLoaded(tasks);
+            }
+        }
+
+        @Override
+        public void onTaskChanged(Task task) {
+            synchronized (ReminderScheduler.this) {
+                if (followed == generation) ReminderScheduler.this.onTaskChanged(task);
+            }
+        }
+
+        @Override
+        public void onTaskRemoved(Task task) {
+            synchronized (ReminderScheduler.this) {
+                if (followed == generation) ReminderScheduler.this.onTaskRemoved(task);
+            }
+        }
+    }
+
+    // --- TaskStore.ChangeListener ---
+
+    /**
+     * Replaces everything with the given tasks. Reminders that came due since
+     * {@link #getNotifiedUpTo()} (e.g. while the app was not running) fire at once.
+     */
+    @Override
+    public synchronized void onTasksLoaded(List<Task> tasks) {
+        heap.clear();
+        byId.clear();
+        List<Entry> entries = new ArrayList<>();
+        for (Task task : tasks) {
+            long due = nextDue(task, notifiedUpTo);
+            if (due != Recurrence.NONE) {
+                Entry entry = new Entry(task, due);
+                byId.put(keyOf(task), entry);
+                entries.add(entry);
+            }
+        }
+        heap.addAll(entries);
+        rearm();
+    }
+
+    /**
+     * Adds, moves or drops the task's reminder. A task that is done, has no due date, or is
+     * already overdue when it is saved has none.
+     */
+    @Override
+    public synchronized void onTaskChanged(Task task) {
+        UUID key = keyOf(task);
+        Entry old = byId.get(key);
+        if (old != null && nextDue(task, old.due - 1) == old.due) {
+            old.task = task; // Same due date: only what the reminder shows changes
+            return;
+        }
+        drop(key);
+        add(task, nextDue(task, clock.currentTimeMillis()));
+        rearm();
+    }
+
+    @Override
+    public synchronized void onTaskRemoved(Task task) {
+        drop(keyOf(task));
+        rearm();
+    }
+
+    // --- Alarm ---
+
+    /**
+     * Call when the alarm goes off. Delivers, as one batch, every reminder due before the end of
+     * the batch window, then arms the alarm for the next one.
+     *
+     * @return The number of reminders delivered.
+     */
+    public int onAlarm() {
+        List<Task> due = new ArrayList<>();
+        synchronized (this) {
+            armedAt = NOT_ARMED; // The alarm is used up
+            long limit = clock.currentTimeMillis() + batchWindowMillis;
+            List<Task> repeating = new ArrayList<>();
+            while (!heap.isEmpty() && heap.peek().due <= limit) {
+                Entry entry = heap.poll();
+                if (entry.cancelled) continue;
+                byId.remove(keyOf(entry.task));
+                if (entry.task.isRecurring()) {
+                    due.add(Occurrences.of(entry.task, entry.due));
+                    repeating.add(entry.task);
+                } else {
+                    due.add(entry.task);
+                }
+            }
+            notifiedUpTo = Math.max(notifiedUpTo, limit);
+            // After a long gap a series gets one catch-up reminder, not one per missed occurrence
+            for (Task template : repeating) add(template, nextDue(template, limit));
+            rearm();
+        }
+        if (!due.isEmpty()) { // Outside the lock: the writer thread can go on while it is shown
+            DELIVERED.add(due.size());
+            sink.deliver(Collections.unmodifiableList(due));
+        }
+        return due.size();
+    }
+
+    // --- Internals ---
+
+    private void add(Task task, long due) {
+        if (due == Recurrence.NONE) return;
+        Entry entry = new Entry(task, due);
+        byId.put(keyOf(task), entry);
+        heap.add(entry);
+    }
+
+    private void drop(UUID key) {
+        Entry old = byId.remove(key);
+        if (old != null) old.cancelled = true; // Removed lazily, when it reaches the head
+    }
+
+    // Keeps exactly one alarm armed, for the earliest live due date; calls the alarm only on a change
+    private void rearm() {
+        while (!heap.isEmpty() && heap.peek().cancelled) heap.poll();
+        if (heap.size() > 2 * byId.size() + 64) compact();
+        PENDING.set(byId.size());
+
+        long next = heap.isEmpty() ? NOT_ARMED : heap.peek().due;
+        if (next == armedAt) return;
+        armedAt = next;
+        if (next == NOT_ARMED) {
+            alarm.cancel();
+        } else {
+            ALARMS_ARMED.increment();
+            alarm.arm(next);
+        }
+    }
+
+    // Drops cancelled entries once they outnumber the live ones
+    private void compact() {
+        heap.clear();
+        heap.addAll(byId.values());
+    }
+
+    // The task's next reminder time after 'after', or Recurrence.NONE if it needs none
+    private static long nextDue(Task task, long after) {
+        if (task.isDone()) return Recurrence.NONE;
+        if (task.isRecurring()) return Occurrences.next(task, after, TimeZone.getDefault());
+        return task.getDueDate() > 0L && task.getDueDate() > after ? task.getDueDate() : Recurrence.NONE;
+    }
+
+    private static UUID keyOf(Task task) {
+        return new UUID(task.getIdMostSigBits(), task.getIdLeastSigBits());
+    }
+}
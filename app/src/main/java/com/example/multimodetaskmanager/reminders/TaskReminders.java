@@ -0,0 +1,166 @@
+package com.example.multimodetaskmanager.reminders;
+
+import android.app.AlarmManager;
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.content.SharedPreferences;
+import android.os.Build;
+
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+
+import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.activities.LoginActivity;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.repository.TaskStores;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Android side of the due date reminders: one AlarmManager alarm, a notification per batch,
+ * and the "notified up to" mark kept across process restarts. The scheduling itself is in
+ * {@link ReminderScheduler}.
+ */
+public final class TaskReminders implements ReminderScheduler.Alarm, ReminderScheduler.Sink,
+        TaskStores.ActiveStoreListener {
+    private static final String PREF_NAME = "reminder_prefs";
+    private static final String KEY_NOTIFIED_UP_TO = "notified_up_to";
+    private static final String CHANNEL_ID = "task_reminders";
+    private static final int NOTIFICATION_ID = 1;
+    private static final int MAX_LINES = 5; // InboxStyle shows at most this many tasks
+
+    private static TaskReminders instance;
+
+    private final Context appContext;
+    private final SharedPreferences prefs;
+    private final ReminderScheduler scheduler;
+    private TaskStore followed; // The active account's store; null after logout
+    private TaskStore.ChangeListener follower; // What followed forwards to the scheduler through
+
+    private TaskReminders(Context context) {
+        appContext = context.getApplicationContext();
+        prefs = appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE);
+        // On the very first run, start from now rather than reminding about every past due date
+        long notifiedUpTo = prefs.getLong(KEY_NOTIFIED_UP_TO, System.currentTimeMillis());
+        scheduler = new ReminderScheduler(System::currentTimeMillis, this, this,
+                ReminderScheduler.DEFAULT_BATCH_WINDOW_MILLIS, notifiedUpTo);
+    }
+
+    /**
+     * Starts following the active account's task store. The alarm is armed once the stored
+     * tasks are loaded.
+     */
+    public static synchronized TaskReminders start(Context context) {
+        if (instance == null) {
+            instance = new TaskReminders(context);
+            createChannel(instance.appContext);
+            TaskStores.get(context).addActiveStoreListener(instance);
+        }
+        return instance;
+    }
+
+    // --- TaskStores.ActiveStoreListener ---
+
+    // Reminders are for the signed-in account only; none are armed while logged out
+    @Override
+    public synchronized void onActiveStoreChanged(TaskStore store, String partition) {
+        if (followed != null) followed.removeChangeListener(follower);
+        followed = store;
+        if (store != null) {
+            // Replaces the previous account's reminders; what its store still delivers is ignored
+            follower = scheduler.follow();
+            store.addChangeListener(follower);
+        } else {
+            follower = null;
+            scheduler.unfollow();
+            scheduler.onTasksLoaded(Collections.<Task>emptyList());
+        }
+    }
+
+    /**
+     * Delivers what is due. Runs after the store has loaded, since the process may have just
+     * been started for this alarm.
+     */
+    void onAlarm(Runnable done) {
+        TaskStore store;
+        synchronized (this) {
+            store = followed;
+        }
+        if (store == null) { // Logged out since the alarm was set
+            done.run();
+            return;
+        }
+        store.load().whenComplete((snapshot, error) -> {
+            try {
+                scheduler.onAlarm();
+                prefs.edit().putLong(KEY_NOTIFIED_UP_TO, scheduler.getNotifiedUpTo()).apply();
+            } finally {
+                done.run();
+            }
+        });
+    }
+
+    // --- ReminderScheduler.Alarm ---
+
+    @Override
+    public void arm(long atMillis) {
+        // Inexact while idle is fine: anything due within the batch window goes out together anyway
+        alarmManager().setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, atMillis, alarmIntent());
+    }
+
+    @Override
+    public void cancel() {
+        alarmManager().cancel(alarmIntent());
+    }
+
+    // --- ReminderScheduler.Sink ---
+
+    @Override
+    public void deliver(List<Task> due) {
+        NotificationManagerCompat notifications = NotificationManagerCompat.from(appContext);
+        if (!notifications.areNotificationsEnabled()) return;
+
+        String title = due.size() == 1 ? "Task due: " + due.get(0).getTitle() : due.size() + " tasks due";
+        NotificationCompat.InboxStyle style = new NotificationCompat.InboxStyle();
+        for (int i = 0; i < due.size() && i < MAX_LINES; i++) style.addLine(due.get(i).getTitle());
+        if (due.size() > MAX_LINES) style.setSummaryText("+" + (due.size() - MAX_LINES) + " more");
+
+        Intent open = new Intent(appContext, LoginActivity.class).setFlags(Intent.FLAG_ACTIVITY_NEW_TASK);
+        NotificationCompat.Builder builder = new NotificationCompat.Builder(appContext, CHANNEL_ID)
+                .setSmallIcon(R.drawable.ic_launcher_foreground)
+                .setContentTitle(title)
+                .setContentText(due.get(0).getTitle())
+                .setStyle(style)
+                .setNumber(due.size())
+                .setAutoCancel(true)
+                .setContentIntent(PendingIntent.getActivity(appContext, 0, open, PendingIntent.FLAG_IMMUTABLE));
+        try {
+            notifications.notify(NOTIFICATION_ID, builder.build()); // One notification, replaced by the next batch
+        } catch (SecurityException e) {
+            // POST_NOTIFICATIONS was revoked between the check and the call
+        }
+    }
+
+    private AlarmManager alarmManager() {
+        return (AlarmManager) appContext.getSystemService(Context.ALARM_SERVICE);
+    }
+
+    private PendingIntent alarmIntent() {
+        Intent intent = new Intent(appContext, ReminderAlarmReceiver.class);
+        return PendingIntent.getBroadcast(appContext, 0, intent,
+                PendingIntent.FLAG_UPDATE_CURRENT | PendingIntent.FLAG_IMMUTABLE);
+    }
+
+    private static void createChannel(Context context) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) return;
+        NotificationChannel channel = new NotificationChannel(CHANNEL_ID,
+                context.getString(R.string.reminder_channel_name), NotificationManager.IMPORTANCE_DEFAULT);
+        channel.setDescription(context.getString(R.string.reminder_channel_description));
+        context.getSystemService(NotificationManager.class).createNotificationChannel(channel);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.TagFilter;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.utils.RoaringBitmap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Which tasks carry which tag, as one {@link RoaringBitmap} of task ordinals per tag.
+ *
+ * Every task gets the next ordinal when it is first indexed and keeps it until removed, so
+ * ordinal order is the order the tasks were added in, the same as the store's list. A filter
+ * is then a few bitmap ANDs or ORs, and its tasks come out in insertion order without a sort.
+ * Ordinals of removed tasks are not reused; once more than half are holes, the store indexes
+ * its list again from 0 (see {@link #isSparse()}).
+ *
+ * Kept by {@link TaskStore} on its writer thread. Not thread-safe. No Android dependencies.
+ */
+public final class TagIndex {
+    private static final int MIN_COMPACT = 1024; // Holes always tolerated, so small lists are never rebuilt
+
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+    private final Map<String, RoaringBitmap> byTag = new TreeMap<>(); // Sorted, for the list of tags
+    private Task[] byOrdinal = new Task[16];
+    private int nextOrdinal;
+    private List<String> tags = Collections.emptyList(); // Cached for snapshots; null when stale
+
+    /**
+     * Indexes the tasks from scratch, numbered in list order.
+     */
+    public void rebuild(List<Task> tasks) {
+        ordinals.clear();
+        byTag.clear();
+        byOrdinal = new Task[Math.max(16, tasks.size())];
+        nextOrdinal = 0;
+        tags = null;
+        for (Task task : tasks) put(task);
+    }
+
+    // Forgets every task and lets go of the memory
+    public void clear() {
+        rebuild(Collections.<Task>emptyList());
+    }
+
+    /**
+     * Adds the task, or replaces the one with the same ID, touching only the tags that changed.
+     */
+    public void put(Task task) {
+        UUID id = idOf(task);
+        Integer known = ordinals.get(id);
+        if (known == null) {
+            int ordinal = nextOrdinal++;
+            if (ordinal == byOrdinal.length) byOrdinal = Arrays.copyOf(byOrdinal, ordinal * 2);
+            byOrdinal[ordinal] = task;
+            ordinals.put(id, ordinal);
+            for (String tag : task.getTags()) add(tag, ordinal);
+            return;
+        }
+        int ordinal = known;
+        List<String> before = byOrdinal[ordinal].getTags();
+        byOrdinal[ordinal] = task;
+        if (before == task.getTags()) return; // Copies share the list, so this is the usual edit
+        for (String tag : before) {
+            if (!task.hasTag(tag)) drop(tag, ordinal);
+        }
+        for (String tag : task.getTags()) {
+            if (Collections.binarySearch(before, tag) < 0) add(tag, ordinal);
+        }
+    }
+
+    public void remove(Task task) {
+        Integer ordinal = ordinals.remove(idOf(task));
+        if (ordinal == null) return;
+        for (String tag : byOrdinal[ordinal].getTags()) drop(tag, ordinal);
+        byOrdinal[ordinal] = null;
+    }
+
+    /**
+     * Whether most ordinals handed out belong to removed tasks, so the index should be rebuilt.
+     */
+    public boolean isSparse() {
+        return nextOrdinal > MIN_COMPACT && ordinals.size() < nextOrdinal / 2;
+    }
+
+    /**
+     * The indexed tasks the filter matches, in the order they were added.
+     */
+    public List<Task> select(TagFilter filter) {
+        RoaringBitmap matches = match(filter);
+        List<Task> selected = new ArrayList<>(matches.getCardinality());
+        matches.forEach(ordinal -> selected.add(byOrdinal[ordinal]));
+        return selected;
+    }
+
+    // The ordinals of the tasks the filter matches; may be one of the index's own bitmaps, so
+    // it must not be changed
+    public RoaringBitmap match(TagFilter filter) {
+        List<RoaringBitmap> bitmaps = new ArrayList<>(filter.getTags().size());
+        for (String tag : filter.getTags()) {
+            RoaringBitmap bitmap = byTag.get(tag);
+            if (bitmap != null) {
+                bitmaps.add(bitmap);
+            } else if (filter.isMatchAll()) {
+                return new RoaringBitmap(); // No task has this one
+            }
+        }
+        if (bitmaps.isEmpty()) return new RoaringBitmap();
+        if (filter.isMatchAll()) {
+            // Smallest first, so every AND after it has the least to look at
+            Collections.sort(bitmaps, (a, b) -> Integer.compare(a.getCardinality(), b.getCardinality()));
+        }
+        RoaringBitmap result = bitmaps.get(0);
+        for (int i = 1; i < bitmaps.size(); i++) {
+            result = filter.isMatchAll() ? result.and(bitmaps.get(i)) : result.or(bitmaps.get(i));
+            if (result.isEmpty()) break;
+        }
+        return result;
+    }
+
+    /**
+     * Every tag in use, sorted. Unmodifiable.
+     */
+    public List<String> tags() {
+        if (tags == null) tags = Collections.unmodifiableList(new ArrayList<>(byTag.keySet()));
+        return tags;
+    }
+
+    /**
+     * Approximate heap bytes held by the tag bitmaps.
+     */
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (RoaringBitmap bitmap : byTag.values()) bytes += bitmap.getSizeInBytes();
+        return bytes;
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    private void add(String tag, int ordinal) {
+        RoaringBitmap bitmap = byTag.get(tag);
+        if (bitmap == null) {
+            bitmap = new RoaringBitmap();
+            byTag.put(tag, bitmap);
+            tags = null;
+        }
+        bitmap.add(ordinal);
+    }
+
+    private void drop(String tag, int ordinal) {
+        RoaringBitmap bitmap = byTag.get(tag);
+        if (bitmap == null) return;
+        bitmap.remove(ordinal);
+        if (bitmap.isEmpty()) {
+            byTag.remove(tag);
+            tags = null;
+        }
+    }
+
+    private static UUID idOf(Task task) {
+        return new UUID(task.getIdMostSigBits(), task.getIdLeastSigBits());
+    }
+}
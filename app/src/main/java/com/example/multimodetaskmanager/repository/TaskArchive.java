@@ -0,0 +1,307 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.perf.SizedTimer;
+import com.example.multimodetaskmanager.perf.TraceSpan;
+import com.example.multimodetaskmanager.security.RecordCipher;
+import com.example.multimodetaskmanager.utils.StringPool;
+import com.example.multimodetaskmanager.utils.TaskJson;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Cold storage for completed tasks: an append-only file of gzipped chunks, one per
+ * {@link #append}, outside the working set. Nothing here is read at startup; the file is only
+ * opened to archive more tasks or when the user browses or searches the archive.
+ *
+ * Reads go newest first and are paged. The chunk headers alone say how many tasks each chunk
+ * holds, so a page only decompresses the chunks it overlaps; a search decompresses chunks
+ * one at a time and stops once the page is full.
+ *
+ * Layout, repeated per chunk:
+ * <pre>
+ *     int   length of the payload
+ *     int   number of tasks in it; the top bit is set if the payload is sealed
+ *     bytes gzipped JSON array of tasks (see {@link TaskJson}), oldest completion first;
+ *           sealed with {@link RecordCipher} if the bit is set
+ * </pre>
+ * A chunk cut short by a crash during {@link #append} is dropped the next time the file is
+ * opened, along with anything after it. A complete chunk that does not open, decompress or
+ * parse is left out and counted (archive.unreadableChunks), and the rest of the archive still
+ * reads. From then on its tasks count neither in {@link #size} nor in page offsets, so paging
+ * newest first, as the archive screen does, neither repeats nor loses a task.
+ *
+ * With a cipher every chunk is sealed on its own, bound to its offset and task count, so a page
+ * decrypts only the chunks it decompresses, and an append seals only the chunk it adds. Plain
+ * chunks from before encryption are sealed once, by the first append that finds them.
+ */
+public class TaskArchive {
+    private static final int HEADER_BYTES = 8;
+    private static final int SEALED = 0x80000000; // Flag in the count of a sealed chunk
+
+    private static final SizedTimer APPEND_TIMER = MetricsRegistry.global().sizedTimer("archive.append");
+    private static final SizedTimer READ_TIMER = MetricsRegistry.global().sizedTimer("archive.read");
+    private static final Counter UNREADABLE_CHUNKS = MetricsRegistry.global().counter("archive.unreadableChunks");
+
+    private final File file;
+    private final RecordCipher cipher; // null: chunks are only gzipped
+    // {payload offset, payload length, task count, sealed (0/1), unreadable (0/1)}, oldest first; read lazily
+    private List<long[]> chunks;
+    private int size; // Tasks in the chunks not found unreadable
+
+    public TaskArchive(File file) {
+        this(file, null);
+    }
+
+    public TaskArchive(File file, RecordCipher cipher) {
+        this.file = file;
+        this.cipher = cipher;
+    }
+
+    /**
+     * Adds the tasks as one chunk and syncs it to disk before returning, so the caller can
+     * drop them from the working set.
+     */
+    public synchronized void append(List<Task> tasks) throws IOException {
+        if (tasks.isEmpty()) return;
+        long start = TraceSpan.begin("archive.append");
+        try {
+            List<Task> ordered = new ArrayList<>(tasks);
+            Collections.sort(ordered, (a, b) -> Long.compare(a.getCompletedAt(), b.getCompletedAt()));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (Writer out = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+                TaskJson.toJson(ordered, out);
+            }
+            byte[] payload = bytes.toByteArray();
+
+            ensureIndex();
+            if (cipher != null) sealPlainChunks();
+            File dir = file.getParentFile();
+            if (dir != null && !dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                long offset = end();
+                raf.seek(offset);
+                writeChunk(raf, offset, ordered.size(), payload);
+                raf.getFD().sync();
+            }
+        } finally {
+            TraceSpan.end(APPEND_TIMER, tasks.size(), start);
+        }
+    }
+
+    /**
+     * The tasks of the last {@link #append}, or none if they do not read. A caller that drops
+     * archived tasks from its own storage after appending them can tell from these which
+     * tasks a crash in between left in both. Decompresses just that chunk.
+     */
+    public synchronized List<Task> lastAppended() throws IOException {
+        ensureIndex();
+        if (chunks.isEmpty()) return Collections.emptyList();
+        List<Task> tasks = readOrSkip(chunks.get(chunks.size() - 1));
+        return tasks != null ? tasks : Collections.<Task>emptyList();
+    }
+
+    /**
+     * The number of archived tasks. Reads only the chunk headers, once.
+     */
+    public synchronized int size() throws IOException {
+        ensureIndex();
+        return size;
+    }
+
+    /**
+     * Archived tasks, most recently completed first.
+     */
+    public synchronized List<Task> page(int offset, int limit) throws IOException {
+        ensureIndex();
+        List<Task> page = new ArrayList<>(Math.max(0, Math.min(limit, size - offset)));
+        long start = TraceSpan.begin("archive.read");
+        try {
+            int skip = offset; // Counted from the newest task
+            for (int c = chunks.size() - 1; c >= 0 && page.size() < limit; c--) {
+                long[] chunk = chunks.get(c);
+                if (chunk[4] != 0) continue;
+                int count = (int) chunk[2];
+                if (skip >= count) { // Whole chunk before the page: not even decompressed
+                    skip -= count;
+                    continue;
+                }
+                List<Task> tasks = readOrSkip(chunk);
+                if (tasks == null) continue; // Its tasks drop out of the offsets too
+                for (int i = tasks.size() - 1 - skip; i >= 0 && page.size() < limit; i--) page.add(tasks.get(i));
+                skip = 0;
+            }
+        } finally {
+            TraceSpan.end(READ_TIMER, page.size(), start);
+        }
+        return page;
+    }
+
+    /**
+     * Archived tasks whose title or description contains the text, ignoring case, most
+     * recently completed first.
+     */
+    public synchronized List<Task> search(String text, int offset, int limit) throws IOException {
+        ensureIndex();
+        String needle = text.toLowerCase(Locale.ROOT);
+        List<Task> page = new ArrayList<>();
+        long start = TraceSpan.begin("archive.read");
+        try {
+            int skip = offset;
+            for (int c = chunks.size() - 1; c >= 0 && page.size() < limit; c--) {
+                List<Task> tasks = readOrSkip(chunks.get(c));
+                if (tasks == null) continue;
+                for (int i = tasks.size() - 1; i >= 0 && page.size() < limit; i--) {
+                    if (!contains(tasks.get(i), needle)) continue;
+                    if (skip > 0) skip--; else page.add(tasks.get(i));
+                }
+            }
+        } finally {
+            TraceSpan.end(READ_TIMER, page.size(), start);
+        }
+        return page;
+    }
+
+    private static boolean contains(Task task, String needle) {
+        return (task.getTitle() != null && task.getTitle().toLowerCase(Locale.ROOT).contains(needle))
+                || (task.getDescription() != null && task.getDescription().toLowerCase(Locale.ROOT).contains(needle));
+    }
+
+    // The chunk's tasks, or null if it is corrupt or does not open: marked, so it is passed over
+    // from then on, and counted. Failing to read the file, or to get the key, still throws.
+    private List<Task> readOrSkip(long[] chunk) throws IOException {
+        if (chunk[4] != 0) return null;
+        byte[] stored = readStored(chunk);
+        byte[] payload;
+        try {
+            payload = open(chunk, stored);
+        } catch (IOException e) { // Tampered with, or sealed under another key
+            return skip(chunk);
+        }
+        try (InputStreamReader in = new InputStreamReader(
+                new GZIPInputStream(new BufferedInputStream(new ByteArrayInputStream(payload))), StandardCharsets.UTF_8)) {
+            return TaskJson.fromJson(in, new StringPool());
+        } catch (IOException | RuntimeException e) { // Bad gzip or bad JSON
+            return skip(chunk);
+        }
+    }
+
+    private List<Task> skip(long[] chunk) {
+        chunk[4] = 1;
+        size -= (int) chunk[2];
+        UNREADABLE_CHUNKS.increment();
+        return null;
+    }
+
+    private byte[] readStored(long[] chunk) throws IOException {
+        byte[] stored = new byte[(int) chunk[1]];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(chunk[0]);
+            raf.readFully(stored);
+        }
+        return stored;
+    }
+
+    // The chunk's gzipped bytes, decrypted if it is sealed
+    private byte[] open(long[] chunk, byte[] payload) throws IOException {
+        if (chunk[3] == 0) return payload;
+        if (cipher == null) throw new IOException("Archive chunk is encrypted");
+        try {
+            return cipher.open(payload, name(chunk[0] - HEADER_BYTES, (int) chunk[2]));
+        } catch (GeneralSecurityException e) {
+            throw new IOException("Archive chunk failed authentication", e);
+        }
+    }
+
+    // Writes the header and payload at the offset, sealing it if there is a cipher, and indexes it
+    private void writeChunk(RandomAccessFile raf, long offset, int count, byte[] payload) throws IOException {
+        byte[] stored = cipher != null ? cipher.seal(payload, name(offset, count)) : payload;
+        raf.writeInt(stored.length);
+        raf.writeInt(cipher != null ? count | SEALED : count);
+        raf.write(stored);
+        chunks.add(new long[]{offset + HEADER_BYTES, stored.length, count, cipher != null ? 1 : 0, 0});
+        size += count;
+    }
+
+    // What a sealed chunk is bound to: where it starts and how many tasks the header claims, so
+    // chunks cannot be moved around or their counts changed
+    private static byte[] name(long offset, int count) {
+        return ByteBuffer.allocate(12).putLong(offset).putInt(count).array();
+    }
+
+    // Rewrites the file with every chunk sealed, reusing the gzipped payloads, then swaps it in
+    private void sealPlainChunks() throws IOException {
+        boolean plain = false;
+        for (long[] chunk : chunks) plain |= chunk[3] == 0;
+        if (!plain) return;
+        List<long[]> old = chunks;
+        File sealed = new File(file.getPath() + ".tmp");
+        chunks = new ArrayList<>();
+        size = 0;
+        try (RandomAccessFile raf = new RandomAccessFile(sealed, "rw")) {
+            raf.setLength(0L);
+            for (long[] chunk : old) writeChunk(raf, raf.getFilePointer(), (int) chunk[2], open(chunk, readStored(chunk)));
+            raf.getFD().sync();
+        } catch (IOException e) {
+            chunks = null; // Read the old file's index again
+            throw e;
+        }
+        if (!sealed.renameTo(file)) {
+            chunks = null;
+            throw new IOException("Cannot replace " + file);
+        }
+    }
+
+    // Where the next chunk goes: right after the last complete one
+    private long end() {
+        if (chunks.isEmpty()) return 0L;
+        long[] last = chunks.get(chunks.size() - 1);
+        return last[0] + last[1];
+    }
+
+    // Reads the chunk headers, skipping over the payloads, and cuts off a torn last chunk
+    private void ensureIndex() throws IOException {
+        if (chunks != null) return;
+        List<long[]> index = new ArrayList<>();
+        int total = 0;
+        if (file.exists()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                long length = raf.length();
+                long offset = 0L;
+                while (offset + HEADER_BYTES <= length) {
+                    raf.seek(offset);
+                    int payloadLength = raf.readInt();
+                    int flagged = raf.readInt();
+                    int count = flagged & ~SEALED;
+                    long next = offset + HEADER_BYTES + payloadLength;
+                    if (payloadLength < 0 || next > length) break;
+                    index.add(new long[]{offset + HEADER_BYTES, payloadLength, count, (flagged & SEALED) != 0 ? 1 : 0, 0});
+                    total += count;
+                    offset = next;
+                }
+                if (offset < length) raf.setLength(offset);
+            }
+        }
+        chunks = index;
+        size = total;
+    }
+}
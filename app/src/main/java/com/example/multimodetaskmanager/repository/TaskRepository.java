@@ -0,0 +1,492 @@
+package com.example.multimodetaskmanager.repository;
+
+import android.content.SharedPreferences;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.perf.SizedTimer;
+import com.example.multimodetaskmanager.perf.TraceSpan;
+import com.example.multimodetaskmanager.security.RecordCipher;
+import com.example.multimodetaskmanager.utils.StringPool;
+import com.example.multimodetaskmanager.utils.TaskJson;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Stores tasks as records in small chunk files and writes only the chunks that changed.
+ *
+ * Every change reported through {@link #onTaskChanged} or {@link #onTaskRemoved} bumps a
+ * version counter and marks that task dirty. {@link #persist()} rewrites only the chunks
+ * holding dirty records; when nothing changed since the last write it returns without
+ * encoding anything or touching storage.
+ *
+ * Each task gets a sequence number when it is first stored, and keeps it: it orders the tasks
+ * and picks their chunk, {@link #CHUNK_RECORDS} consecutive numbers per chunk. One edit reads
+ * and rewrites that one chunk, about 100 KB, whatever the number of tasks; nothing else is
+ * kept in memory but the tasks themselves and their sequence numbers.
+ *
+ * {@link TaskStore} owns the in-memory list and calls all of these on its writer thread.
+ *
+ * Layout of task_records (one directory per account, see {@link TaskStores}):
+ * <pre>
+ *     chunk.&lt;n&gt;  one byte, 1 if sealed, then UTF-8 lines: "v&lt;version&gt;" (the chunk's
+ *                highest version), then one "&lt;uuid&gt; &lt;record JSON&gt;" per task, the
+ *                record JSON being the task plus its "version" and "seq" (see TaskJson)
+ * </pre>
+ * A chunk is written to a temporary file, synced and renamed over the old one, so a crash
+ * leaves either the old chunk or the new one. The highest version of any chunk is the
+ * high-water mark. Chunks left without records are deleted.
+ *
+ * With a {@link RecordCipher} every chunk is sealed on its own (AES-GCM, bound to its name),
+ * so a load decrypts each chunk once and a persist encrypts only the chunks it rewrites.
+ * Chunks still in plain text are loaded as before and rewritten sealed by the next persist.
+ *
+ * Before chunk files, records were kept in the account's task_prefs as "task.&lt;uuid&gt;"
+ * keys with a "version" high-water mark, and before that as a single "tasks" JSON array. The
+ * first {@link #load()} moves either into chunks, then removes it from the prefs.
+ */
+public class TaskRepository {
+    static final String PREF_NAME = "task_prefs"; // Plus a suffix per account, see TaskStores
+    static final String DIR_NAME = "task_records"; // Plus the same suffix, in the files directory
+    static final int CHUNK_RECORDS = 256; // Sequence numbers per chunk
+    private static final String CHUNK_PREFIX = "chunk.";
+    private static final byte PLAIN = 0;
+    private static final byte SEALED = 1;
+    private static final char MALFORMED = '#'; // Marks a line without a key while a chunk is rewritten
+    // In the prefs, from before chunk files
+    private static final String KEY_LEGACY_TASKS = "tasks"; // Whole list as one JSON array (before records)
+    private static final String KEY_VERSION = "version";
+    private static final String RECORD_PREFIX = "task.";
+    private static final String KEY_IN_FILES = "records_in_files"; // Set once the prefs records are moved
+
+    private static final SizedTimer LOAD_TIMER = MetricsRegistry.global().sizedTimer("repository.load");
+    private static final SizedTimer PERSIST_TIMER = MetricsRegistry.global().sizedTimer("repository.persist");
+    // The JSON work alone, apart from the file I/O and encryption around it
+    private static final SizedTimer ENCODE_TIMER = MetricsRegistry.global().sizedTimer("gson.encode");
+    private static final SizedTimer DECODE_TIMER = MetricsRegistry.global().sizedTimer("gson.decode");
+    private static final Counter RECORDS_WRITTEN = MetricsRegistry.global().counter("repository.recordsWritten");
+    private static final Counter CHUNKS_WRITTEN = MetricsRegistry.global().counter("repository.chunksWritten");
+    private static final Counter SKIPPED_PERSISTS = MetricsRegistry.global().counter("repository.persistSkipped");
+    private static final Counter UNREADABLE_RECORDS = MetricsRegistry.global().counter("repository.unreadableRecords");
+    private static final Counter UNREADABLE_CHUNKS = MetricsRegistry.global().counter("repository.unreadableChunks");
+
+    private final File dir;
+    private final SharedPreferences legacy; // null: nothing to move from prefs
+    private final RecordCipher cipher; // null: chunks stay plain text
+    private final Map<String, Long> seqByKey = new HashMap<>(); // Sequence number of every stored or dirty record
+    private final Map<String, DirtyRecord> dirty = new LinkedHashMap<>();
+    private long version;          // Bumped on every change
+    private long persistedVersion; // High-water mark of what is in storage
+    private long nextSeq;
+
+    // A task waiting to be written, or removed when task is null
+    private static final class DirtyRecord {
+        final Task task;
+        final long version;
+
+        DirtyRecord(Task task, long version) {
+            this.task = task;
+            this.version = version;
+        }
+    }
+
+    // One chunk as read: its high-water version, and each line split into key and record JSON
+    private static final class Chunk {
+        final long version;
+        final boolean sealed;
+        final List<String> keys = new ArrayList<>(CHUNK_RECORDS); // null for a line without one
+        final List<String> records = new ArrayList<>(CHUNK_RECORDS); // The whole line if it has no key
+
+        Chunk(long version, boolean sealed) {
+            this.version = version;
+            this.sealed = sealed;
+        }
+    }
+
+    public TaskRepository(File dir) {
+        this(dir, null, null);
+    }
+
+    public TaskRepository(File dir, RecordCipher cipher) {
+        this(dir, null, cipher);
+    }
+
+    /**
+     * One per account, over that account's directory (see TaskStores).
+     *
+     * @param legacy The account's task_prefs, whose records from before chunk files the first
+     *               load moves over; null if there are none.
+     */
+    public TaskRepository(File dir, SharedPreferences legacy, RecordCipher cipher) {
+        this.dir = dir;
+        this.legacy = legacy;
+        this.cipher = cipher;
+    }
+
+    /**
+     * Reads all stored tasks in the order they were added. Call off the main thread.
+     *
+     * @throws IllegalStateException If the key to open sealed chunks is unavailable.
+     * @throws UncheckedIOException  If the chunk files cannot be read.
+     */
+    public synchronized List<Task> load() {
+        long start = TraceSpan.begin("repository.load");
+        List<Task> tasks = new ArrayList<>();
+        try {
+            seqByKey.clear();
+            dirty.clear();
+            persistedVersion = version = 0L;
+            nextSeq = 0L;
+
+            if (legacy != null && !legacy.getBoolean(KEY_IN_FILES, false) && hasLegacyRecords()) {
+                moveFromPrefs(tasks);
+                return tasks;
+            }
+
+            List<String> keys = new ArrayList<>();
+            List<String> records = new ArrayList<>();
+            List<Integer> plain = new ArrayList<>(); // Records to seal on the next persist
+            for (int n : chunkNumbers()) {
+                Chunk chunk = read(n);
+                if (chunk == null) { // Left in storage as it is, and no new record goes into it
+                    nextSeq = Math.max(nextSeq, (long) (n + 1) * CHUNK_RECORDS);
+                    continue;
+                }
+                version = Math.max(version, chunk.version);
+                for (int i = 0; i < chunk.keys.size(); i++) {
+                    if (chunk.keys.get(i) == null) { // Malformed: kept in its chunk, like a malformed record
+                        UNREADABLE_RECORDS.increment();
+                        continue;
+                    }
+                    if (cipher != null && !chunk.sealed) plain.add(keys.size());
+                    keys.add(chunk.keys.get(i));
+                    records.add(chunk.records.get(i));
+                }
+            }
+            persistedVersion = version;
+            long[] seqs = new long[records.size()];
+            List<Task> loaded = decode(records, seqs);
+            List<Integer> order = new ArrayList<>(loaded.size());
+            for (int i = 0; i < loaded.size(); i++) {
+                if (loaded.get(i) == null) { // Malformed: kept in its chunk, which a rewrite carries over
+                    UNREADABLE_RECORDS.increment();
+                    continue;
+                }
+                order.add(i);
+                seqByKey.put(keys.get(i), seqs[i]);
+                nextSeq = Math.max(nextSeq, seqs[i] + 1);
+            }
+            for (int i : plain) {
+                if (loaded.get(i) != null) dirty.put(keys.get(i), new DirtyRecord(loaded.get(i), ++version));
+            }
+            Collections.sort(order, (a, b) -> Long.compare(seqs[a], seqs[b])); // Back into insertion order
+            for (int i : order) tasks.add(loaded.get(i));
+            return tasks;
+        } finally {
+            TraceSpan.end(LOAD_TIMER, tasks.size(), start);
+        }
+    }
+
+    // Marks the task as added or edited
+    public synchronized void onTaskChanged(Task task) {
+        String key = keyOf(task);
+        if (!seqByKey.containsKey(key)) seqByKey.put(key, nextSeq++);
+        dirty.put(key, new DirtyRecord(task, ++version));
+    }
+
+    public synchronized void onTaskRemoved(Task task) {
+        dirty.put(keyOf(task), new DirtyRecord(null, ++version));
+    }
+
+    public synchronized boolean hasUnsavedChanges() {
+        return version != persistedVersion;
+    }
+
+    /**
+     * Rewrites the chunks holding records that changed since the last call, and syncs them to
+     * disk before returning. Call off the main thread.
+     *
+     * @return false, without any encoding or I/O, if nothing changed.
+     * @throws IllegalStateException If a chunk cannot be sealed; the changes stay unsaved.
+     * @throws UncheckedIOException  If a chunk cannot be written; the changes stay unsaved.
+     */
+    public synchronized boolean persist() {
+        if (dirty.isEmpty()) {
+            SKIPPED_PERSISTS.increment();
+            return false;
+        }
+        int count = dirty.size();
+        long start = TraceSpan.begin("repository.persist");
+        try {
+            writeDirty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            TraceSpan.end(PERSIST_TIMER, count, start);
+        }
+        return true;
+    }
+
+    // Nothing is marked written until every chunk is: if one fails (the disk, or the key store
+    // failing to seal), all the records stay dirty and the next try rewrites their chunks again
+    private void writeDirty() throws IOException {
+        Map<Integer, List<String>> byChunk = new TreeMap<>();
+        for (String key : dirty.keySet()) {
+            Long seq = seqByKey.get(key);
+            if (seq == null) continue; // Removed without ever having been stored
+            int n = (int) (seq / CHUNK_RECORDS);
+            List<String> keys = byChunk.get(n);
+            if (keys == null) byChunk.put(n, keys = new ArrayList<>());
+            keys.add(key);
+        }
+        for (Map.Entry<Integer, List<String>> entry : byChunk.entrySet()) rewrite(entry.getKey(), entry.getValue());
+        for (Map.Entry<String, DirtyRecord> entry : dirty.entrySet()) {
+            if (entry.getValue().task == null) seqByKey.remove(entry.getKey());
+        }
+        RECORDS_WRITTEN.add(dirty.size());
+        persistedVersion = version;
+        dirty.clear();
+    }
+
+    // Reads the chunk, puts in or takes out the dirty records, and writes it back. Lines of
+    // other records, even malformed ones, are carried over as they are
+    private void rewrite(int n, List<String> keys) throws IOException {
+        Map<String, String> records = new LinkedHashMap<>(); // By key, in the order they were stored
+        if (chunkFile(n).exists()) {
+            Chunk chunk = read(n);
+            if (chunk == null) throw new IOException("Chunk " + n + " does not open; not overwriting it");
+            for (int i = 0; i < chunk.keys.size(); i++) {
+                String key = chunk.keys.get(i);
+                records.put(key != null ? key : String.valueOf(MALFORMED) + i, chunk.records.get(i));
+            }
+        }
+        long start = TraceSpan.begin("gson.encode");
+        try {
+            for (String key : keys) {
+                DirtyRecord record = dirty.get(key);
+                if (record.task == null) {
+                    records.remove(key);
+                } else {
+                    records.put(key, TaskJson.toRecordJson(record.task, record.version, seqByKey.get(key)));
+                }
+            }
+        } finally {
+            TraceSpan.end(ENCODE_TIMER, keys.size(), start);
+        }
+        write(n, records);
+    }
+
+    // One pool for all records, so repeated titles/descriptions are shared
+    private static List<Task> decode(List<String> records, long[] seqs) {
+        long start = TraceSpan.begin("gson.decode");
+        try {
+            return TaskJson.fromRecordsJson(records, new StringPool(), seqs);
+        } finally {
+            TraceSpan.end(DECODE_TIMER, records.size(), start);
+        }
+    }
+
+    // Replaces the chunk with the records, through a synced temporary file; deletes it if none
+    private void write(int n, Map<String, String> records) throws IOException {
+        File file = chunkFile(n);
+        if (records.isEmpty()) {
+            if (file.exists() && !file.delete()) throw new IOException("Cannot delete " + file);
+            return;
+        }
+        StringBuilder text = new StringBuilder(CHUNK_RECORDS * 400).append('v').append(version);
+        for (Map.Entry<String, String> record : records.entrySet()) {
+            text.append('\n');
+            if (record.getKey().charAt(0) != MALFORMED) text.append(record.getKey()).append(' ');
+            text.append(record.getValue());
+        }
+        byte[] payload = text.toString().getBytes(StandardCharsets.UTF_8);
+        if (cipher != null) payload = cipher.seal(payload, file.getName().getBytes(StandardCharsets.UTF_8));
+        if (!dir.isDirectory() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+        File temp = new File(dir, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(cipher != null ? SEALED : PLAIN);
+            out.write(payload);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) throw new IOException("Cannot replace " + file);
+        CHUNKS_WRITTEN.increment();
+    }
+
+    // The chunk's lines, or null if it does not open or is malformed: counted, and left as it is.
+    // Without a key at all (the key store failing) the cipher throws instead and the whole load
+    // fails, rather than loading as if there were no tasks
+    private Chunk read(int n) throws UncheckedIOException {
+        File file = chunkFile(n);
+        byte[] stored;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            stored = new byte[(int) in.length()];
+            in.readFully(stored);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (stored.length == 0) return unreadable();
+        byte[] payload = Arrays.copyOfRange(stored, 1, stored.length);
+        boolean sealed = stored[0] == SEALED;
+        if (sealed) {
+            if (cipher == null) return unreadable();
+            try {
+                payload = cipher.open(payload, file.getName().getBytes(StandardCharsets.UTF_8));
+            } catch (GeneralSecurityException e) { // Tampered with, moved, or sealed under another key
+                return unreadable();
+            }
+        } else if (stored[0] != PLAIN) {
+            return unreadable();
+        }
+        String text = new String(payload, StandardCharsets.UTF_8);
+        if (text.isEmpty() || text.charAt(0) != 'v') return unreadable();
+        int end = text.indexOf('\n');
+        Chunk chunk;
+        try {
+            chunk = new Chunk(Long.parseLong(text.substring(1, end < 0 ? text.length() : end)), sealed);
+        } catch (NumberFormatException e) {
+            return unreadable();
+        }
+        while (end >= 0) {
+            int next = text.indexOf('\n', end + 1);
+            int stop = next < 0 ? text.length() : next;
+            int space = text.indexOf(' ', end + 1);
+            boolean keyed = space >= 0 && space < stop;
+            chunk.keys.add(keyed ? text.substring(end + 1, space) : null);
+            chunk.records.add(text.substring(keyed ? space + 1 : end + 1, stop));
+            end = next;
+        }
+        return chunk;
+    }
+
+    private static Chunk unreadable() {
+        UNREADABLE_CHUNKS.increment();
+        return null;
+    }
+
+    // The numbers of the chunks in the directory, ascending
+    private int[] chunkNumbers() {
+        String[] names = dir.list();
+        if (names == null) return new int[0];
+        int[] numbers = new int[names.length];
+        int count = 0;
+        for (String name : names) {
+            if (!name.startsWith(CHUNK_PREFIX) || name.endsWith(".tmp")) continue; // A write cut short
+            try {
+                numbers[count++] = Integer.parseInt(name.substring(CHUNK_PREFIX.length()));
+            } catch (NumberFormatException e) {
+                // Not one of ours
+            }
+        }
+        numbers = Arrays.copyOf(numbers, count);
+        Arrays.sort(numbers);
+        return numbers;
+    }
+
+    private File chunkFile(int n) {
+        return new File(dir, CHUNK_PREFIX + n);
+    }
+
+    // --- Records from before chunk files, in the prefs ---
+
+    private boolean hasLegacyRecords() {
+        if (legacy.contains(KEY_LEGACY_TASKS)) return true;
+        for (String key : legacy.getAll().keySet()) {
+            if (key.startsWith(RECORD_PREFIX)) return true;
+        }
+        return false;
+    }
+
+    // Writes the prefs records, or the single JSON array before them, into chunks, then removes
+    // them from the prefs in one commit. Until that commit the prefs stay the source: a move cut
+    // short is simply done again, over whatever chunks it had written. Records that do not open
+    // or parse are not moved; they stay in the prefs, as they were, and are not shown
+    private void moveFromPrefs(List<Task> out) {
+        SharedPreferences.Editor editor = legacy.edit();
+        String blob = legacy.getString(KEY_LEGACY_TASKS, null);
+        if (blob != null) {
+            long start = TraceSpan.begin("gson.decode");
+            try {
+                out.addAll(TaskJson.fromJson(blob));
+            } finally {
+                TraceSpan.end(DECODE_TIMER, out.size(), start);
+            }
+            editor.remove(KEY_LEGACY_TASKS);
+        } else {
+            readPrefsRecords(out, editor);
+        }
+        for (int n : chunkNumbers()) {
+            if (!chunkFile(n).delete()) throw new UncheckedIOException(new IOException("Cannot delete " + chunkFile(n)));
+        }
+        for (Task task : out) onTaskChanged(task);
+        try {
+            writeDirty();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        editor.remove(KEY_VERSION).putBoolean(KEY_IN_FILES, true);
+        editor.commit(); // Synchronous: we are on a background thread, and the chunks are synced already
+    }
+
+    private void readPrefsRecords(List<Task> out, SharedPreferences.Editor moved) {
+        List<String> keys = new ArrayList<>();
+        List<String> records = new ArrayList<>();
+        for (Map.Entry<String, ?> entry : legacy.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(RECORD_PREFIX) || !(entry.getValue() instanceof String)) continue;
+            String record = (String) entry.getValue();
+            if (RecordCipher.isSealed(record)) {
+                record = openPrefsRecord(entry.getKey(), record);
+                if (record == null) continue;
+            }
+            keys.add(entry.getKey());
+            records.add(record);
+        }
+        long[] seqs = new long[records.size()];
+        List<Task> loaded = decode(records, seqs);
+        List<Integer> order = new ArrayList<>(loaded.size());
+        for (int i = 0; i < loaded.size(); i++) {
+            if (loaded.get(i) == null) {
+                UNREADABLE_RECORDS.increment();
+                continue;
+            }
+            order.add(i);
+            moved.remove(keys.get(i));
+        }
+        Collections.sort(order, (a, b) -> Long.compare(seqs[a], seqs[b]));
+        for (int i : order) out.add(loaded.get(i));
+    }
+
+    // The record's JSON, or null if it does not open with this key
+    private String openPrefsRecord(String key, String record) {
+        if (cipher == null) {
+            UNREADABLE_RECORDS.increment();
+            return null;
+        }
+        try {
+            return cipher.openString(key, record);
+        } catch (GeneralSecurityException e) {
+            UNREADABLE_RECORDS.increment();
+            return null;
+        }
+    }
+
+    // Record key for a task; built from the ID halves, only when something changes
+    private static String keyOf(Task task) {
+        return new UUID(task.getIdMostSigBits(), task.getIdLeastSigBits()).toString();
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.TagFilter;
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * An immutable view of all tasks at one point in time, published by {@link TaskStore}.
+ *
+ * Neither the list nor the tasks in it change after publication, so a snapshot can be read
+ * from any thread without locking. The tasks are in display order: insertion order, or
+ * sorted by {@link #getSortOrder()} when one is set.
+ *
+ * {@link #getTasks()} is always every task. While a {@link TagFilter} is set, the list to show
+ * is {@link #getFilteredTasks()}; other readers (e.g. the content provider) keep seeing all.
+ *
+ * If the stored tasks cannot be read (e.g. the key store fails), the store publishes a snapshot
+ * without tasks that says so, {@link #isLoadFailed()}, and takes no changes until a later
+ * {@link TaskStore#load()} succeeds.
+ */
+public final class TaskSnapshot {
+    // Before the stored tasks are loaded
+    static final TaskSnapshot EMPTY = new TaskSnapshot(0L, Collections.<Task>emptyList(), null, null, null,
+            Collections.<String>emptyList(), false);
+
+    private final long version;
+    private final List<Task> tasks;
+    private final List<Task> filteredTasks;
+    private final SortOrder sortOrder;
+    private final TagFilter tagFilter;
+    private volatile List<String> tags; // Worked out on first use when the store had no tag index
+    private final boolean loaded;
+    private final boolean loadFailed;
+
+    // The lists must not be shared with anything that changes them later; filteredTasks null
+    // when there is no filter, tags null to collect them from the tasks
+    TaskSnapshot(long version, List<Task> tasks, List<Task> filteredTasks, SortOrder sortOrder,
+                 TagFilter tagFilter, List<String> tags, boolean loaded) {
+        this(version, tasks, filteredTasks, sortOrder, tagFilter, tags, loaded, false);
+    }
+
+    private TaskSnapshot(long version, List<Task> tasks, List<Task> filteredTasks, SortOrder sortOrder,
+                         TagFilter tagFilter, List<String> tags, boolean loaded, boolean loadFailed) {
+        this.version = version;
+        this.tasks = Collections.unmodifiableList(tasks);
+        this.filteredTasks = filteredTasks != null ? Collections.unmodifiableList(filteredTasks) : this.tasks;
+        this.sortOrder = sortOrder;
+        this.tagFilter = tagFilter;
+        this.tags = tags;
+        this.loaded = loaded;
+        this.loadFailed = loadFailed;
+    }
+
+    // In place of the tasks when reading them failed
+    static TaskSnapshot loadFailed(long version) {
+        return new TaskSnapshot(version, Collections.<Task>emptyList(), null, null, null,
+                Collections.<String>emptyList(), false, true);
+    }
+
+    /**
+     * Goes up by one with every snapshot the store publishes, so a higher version is always
+     * the newer state.
+     */
+    public long getVersion() { return version; }
+    public List<Task> getTasks() { return tasks; }
+    public List<Task> getFilteredTasks() { return filteredTasks; } // The tasks the tag filter matches; all without one
+    public SortOrder getSortOrder() { return sortOrder; } // null while in insertion order
+    public TagFilter getTagFilter() { return tagFilter; } // null while showing all tasks
+    public boolean isLoaded() { return loaded; } // false until the stored tasks have been read
+    public boolean isLoadFailed() { return loadFailed; } // Reading them failed; nothing can be changed
+    public int size() { return tasks.size(); }
+
+    /**
+     * Every tag in use, sorted. Unmodifiable.
+     */
+    public List<String> getTags() {
+        List<String> result = tags;
+        if (result == null) {
+            TreeSet<String> all = new TreeSet<>();
+            for (Task task : tasks) all.addAll(task.getTags());
+            result = Collections.unmodifiableList(new ArrayList<>(all));
+            tags = result; // Any thread may get here first; they all work out the same list
+        }
+        return result;
+    }
+
+    /**
+     * @return The position of the task with the same ID, or -1.
+     */
+    public int indexOf(Task task) {
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).hasSameId(task)) return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,704 @@
+package com.example.multimodetaskmanager.repository;
+
+import android.content.Context;
+import android.util.Log;
+
+import com.example.multimodetaskmanager.models.Occurrence;
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.TagFilter;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.Gauge;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.perf.SizedTimer;
+import com.example.multimodetaskmanager.perf.TraceSpan;
+import com.example.multimodetaskmanager.utils.Occurrences;
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The in-memory task list, safe to change from any thread.
+ *
+ * All changes run one at a time on a single writer thread. Each change that does something
+ * publishes a new immutable {@link TaskSnapshot} through an atomic reference, then tells the
+ * listeners. Readers call {@link #snapshot()} from any thread and always get a complete,
+ * consistent list without taking a lock. The UI, imports, reminders and sync all change tasks
+ * the same way, so none of them has to hop to the main thread first.
+ *
+ * Changes are also handed to {@link TaskRepository}, and a write of the dirty records is queued
+ * behind them. A burst of changes (e.g. an import) ends up in one write. A write that fails
+ * (e.g. the key store cannot seal) leaves the changes unsaved; it is tried again with the next
+ * change, or after a backoff if none comes.
+ *
+ * The stored tasks are read on the writer thread before the first change runs, so nothing
+ * submitted early can be lost or overwritten by the load. If reading them fails, a snapshot
+ * saying so is published and every change fails, rather than being made to an empty list,
+ * until a later change or {@link #load()} reads them. Change listeners added in the meantime
+ * wait for that load.
+ *
+ * A snapshot's list is the previous one with the changed rows patched in: a changed task is
+ * kept in place if it still sorts there, else moved to its place found by binary search, so a
+ * tap costs a copy, not a sort. Tasks that tie keep the order they are shown in, and one that
+ * moves goes after those it ties with. Bulk changes, a new sort order or window, and changes to
+ * recurring tasks (which stand for several rows) rebuild and re-sort the list instead.
+ *
+ * Recurring tasks are stored once, as a template. Once a window is set with
+ * {@link #setOccurrenceWindow}, snapshots show each template's occurrences in that window
+ * instead (see {@link Occurrences}). Updating an occurrence that is not stored yet stores it
+ * as a task of its own; removing one just marks it excluded on the template. Either way the
+ * template stops generating that occurrence.
+ *
+ * The store stamps a task's completion time when it becomes done. {@link #archiveCompleted}
+ * moves tasks done long enough ago to a {@link TaskArchive}, so they are no longer loaded,
+ * sorted or diffed.
+ *
+ * Each task's tags are kept in a {@link TagIndex} as changes happen. With a filter set by
+ * {@link #setTagFilter}, snapshots also carry the matching tasks, found with bitmap operations
+ * instead of a pass over every task. Under memory pressure the index can be dropped with
+ * {@link #dropTagIndex} while no filter uses it; it is rebuilt from the list when a filter
+ * next needs it.
+ */
+public class TaskStore {
+    private static final String TAG = "TaskStore";
+    private static final SizedTimer WRITE_TIMER = MetricsRegistry.global().sizedTimer("store.write");
+    private static final SizedTimer SORT_TIMER = MetricsRegistry.global().sizedTimer("store.sort");
+    private static final Gauge TAG_BYTES = MetricsRegistry.global().gauge("tags.bitmapBytes");
+    private static final Counter LOAD_FAILURES = MetricsRegistry.global().counter("store.loadFailed");
+    private static final Counter PERSIST_FAILURES = MetricsRegistry.global().counter("store.persistFailed");
+    private static final long RETRY_MILLIS = 5_000L;
+    private static final long MAX_RETRY_MILLIS = 5 * 60_000L;
+    // More changed rows than this in one snapshot (e.g. an import) are sorted in, not patched
+    private static final int MAX_ROW_PATCHES = 64;
+
+    // Hands failed writes back to their store's writer after a backoff; one thread for all stores
+    private static final ScheduledExecutorService RETRIES = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "task-persist-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final TaskRepository repository;
+    private final Executor writer;
+    private final AtomicReference<TaskSnapshot> current = new AtomicReference<>(TaskSnapshot.EMPTY);
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    // Only touched on the writer thread
+    private final List<Task> tasks = new ArrayList<>(); // Insertion order
+    private List<Task> shown = Collections.emptyList(); // The published list; never changed once published
+    private boolean reorder = true; // The next snapshot rebuilds its list instead of patching shown
+    private final List<Task> patchedRows = new ArrayList<>(); // Changed since shown; all non-recurring
+    private final List<Task> removedRows = new ArrayList<>();
+    private final List<ChangeListener> changeListeners = new ArrayList<>();
+    // Added while the stored tasks could not be read; added for real by the first load that works
+    private final Map<ChangeListener, CompletableFuture<TaskSnapshot>> waitingListeners = new LinkedHashMap<>();
+    private final TagIndex tagIndex = new TagIndex();
+    private boolean tagIndexed; // false while the index is dropped; rebuilt on the next filter
+    private volatile long tagIndexBytes; // Read by memory trimming from other threads
+    private SortOrder sortOrder;
+    private TagFilter tagFilter; // null to show all tasks
+    private volatile boolean filtering; // tagFilter != null, for memory trimming on other threads
+    private long windowFrom; // Occurrence window; recurring tasks are not expanded while windowTo is 0
+    private long windowTo;
+    private boolean loaded;
+    private boolean persistQueued;
+    private int persistFailures; // In a row, for the retry backoff
+
+    /**
+     * Told about every published snapshot, in version order, on the writer thread. Keep it
+     * short: the next change waits for it.
+     */
+    public interface Listener {
+        void onSnapshot(TaskSnapshot snapshot);
+    }
+
+    /**
+     * Told about every single task change, on the writer thread, for bookkeeping that follows
+     * tasks one by one (e.g. reminders) instead of diffing whole snapshots.
+     */
+    public interface ChangeListener {
+        // All tasks when the listener is added; changes follow from there
+        void onTasksLoaded(List<Task> tasks);
+        void onTaskChanged(Task task);
+        void onTaskRemoved(Task task);
+
+        /**
+         * The tasks were moved to the archive: gone from the store, but not deleted. Treated as
+         * removals unless the listener cares about the difference (e.g. sync).
+         */
+        default void onTasksArchived(List<Task> archived) {
+            for (Task task : archived) onTaskRemoved(task);
+        }
+
+        /**
+         * A burst of changes was written: called once per batched write, right after it, so
+         * listeners that save state of their own can save it once per burst too.
+         */
+        default void onChangesWritten() {
+        }
+    }
+
+    // One change, run on the writer thread; returns false if it left everything as it was
+    private interface Change {
+        boolean apply();
+    }
+
+    /**
+     * @param writer Runs the changes. It must run them one at a time and in submission order,
+     *               like a single-thread executor.
+     */
+    public TaskStore(TaskRepository repository, Executor writer) {
+        this.repository = repository;
+        this.writer = writer;
+    }
+
+    /**
+     * The store of the active account (see {@link TaskStores}).
+     */
+    public static TaskStore get(Context context) {
+        return TaskStores.get(context).active();
+    }
+
+    /**
+     * Stops telling the listener about changes, after everything submitted before this call.
+     */
+    public CompletableFuture<TaskSnapshot> removeChangeListener(ChangeListener listener) {
+        CompletableFuture<TaskSnapshot> result = new CompletableFuture<>();
+        execute(result, () -> { // Also while the tasks cannot be read
+            CompletableFuture<TaskSnapshot> waiting = waitingListeners.remove(listener);
+            if (waiting != null) waiting.cancel(false);
+            changeListeners.remove(listener);
+            result.complete(current.get());
+        });
+        return result;
+    }
+
+    /**
+     * The latest published tasks. Lock-free; callable from any thread.
+     */
+    public TaskSnapshot snapshot() {
+        return current.get();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds the listener on the writer thread, once the stored tasks are loaded, and hands it
+     * the current tasks, so it cannot miss or double count a change. If they cannot be read
+     * yet, the listener waits, and the future with it, for the first load that works.
+     */
+    public CompletableFuture<TaskSnapshot> addChangeListener(ChangeListener listener) {
+        CompletableFuture<TaskSnapshot> result = new CompletableFuture<>();
+        execute(result, () -> {
+            try {
+                ensureLoaded();
+            } catch (RuntimeException e) {
+                waitingListeners.put(listener, result);
+                return;
+            }
+            addLoadedChangeListener(listener);
+            result.complete(current.get());
+        });
+        return result;
+    }
+
+    /**
+     * Reads the stored tasks if that has not happened yet. The result is the snapshot after
+     * everything submitted before this call.
+     */
+    public CompletableFuture<TaskSnapshot> load() {
+        return submit(() -> false);
+    }
+
+    public CompletableFuture<TaskSnapshot> add(Task task) {
+        Task added = new Task(task); // The store keeps its own copy, so the caller can go on editing theirs
+        return submit(() -> {
+            stampCompletion(added, null);
+            tasks.add(added);
+            changed(null, added);
+            return true;
+        });
+    }
+
+    /**
+     * Replaces the task with the same ID. An occurrence of a recurring task that is not stored
+     * yet is stored now, and excluded from its template. Does nothing if there is no such task
+     * (e.g. it was deleted in the meantime).
+     */
+    public CompletableFuture<TaskSnapshot> update(Task task) {
+        Task updated = new Task(task);
+        return submit(() -> {
+            int index = indexOf(updated);
+            if (index >= 0) {
+                stampCompletion(updated, tasks.get(index));
+                changed(tasks.set(index, updated), updated);
+                return true;
+            }
+            if (!excludeFromTemplate(updated.getOccurrence())) return false;
+            stampCompletion(updated, null);
+            tasks.add(updated);
+            changed(null, updated);
+            return true;
+        });
+    }
+
+    /**
+     * Replaces the task with the same ID, or adds it if there is none. For changes that come
+     * from elsewhere (e.g. sync), where the task may not have been seen here before.
+     */
+    public CompletableFuture<TaskSnapshot> put(Task task) {
+        Task stored = new Task(task);
+        return submit(() -> {
+            int index = indexOf(stored);
+            if (index >= 0) {
+                if (tasks.get(index).equals(stored)) return false;
+                stampCompletion(stored, tasks.get(index));
+                changed(tasks.set(index, stored), stored);
+            } else {
+                stampCompletion(stored, null);
+                tasks.add(stored);
+                changed(null, stored);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Removes the task with the same ID, if it is still there. Removing an occurrence of a
+     * recurring task, stored or not, also excludes it from its template.
+     */
+    public CompletableFuture<TaskSnapshot> remove(Task task) {
+        return submit(() -> {
+            boolean excluded = excludeFromTemplate(task.getOccurrence());
+            int index = indexOf(task);
+            if (index < 0) return excluded;
+            Task removed = tasks.remove(index);
+            rowRemoved(removed);
+            if (tagIndexed) {
+                tagIndex.remove(removed);
+                compactTagIndex();
+            }
+            repository.onTaskRemoved(removed);
+            for (ChangeListener listener : changeListeners) listener.onTaskRemoved(removed);
+            return true;
+        });
+    }
+
+    /**
+     * Shows recurring tasks as their occurrences between the two times, e.g. the dates the list
+     * covers. Occurrences outside the window are never created.
+     */
+    public CompletableFuture<TaskSnapshot> setOccurrenceWindow(long from, long to) {
+        return submit(() -> {
+            if (from == windowFrom && to == windowTo) return false;
+            windowFrom = from;
+            windowTo = to;
+            reorder = true;
+            return true;
+        });
+    }
+
+    /**
+     * Shows only the tasks the filter matches in {@link TaskSnapshot#getFilteredTasks()}, or
+     * all of them again for null or a filter without tags.
+     */
+    public CompletableFuture<TaskSnapshot> setTagFilter(TagFilter filter) {
+        TagFilter next = filter != null && !filter.getTags().isEmpty() ? filter : null;
+        return submit(() -> {
+            if (next == null ? tagFilter == null : next.equals(tagFilter)) return false;
+            tagFilter = next;
+            filtering = next != null;
+            return true;
+        });
+    }
+
+    /**
+     * Frees the tag index, unless a filter uses it: the next snapshot would only rebuild it.
+     * Snapshots work out their tags from their own list until a filter brings the index back.
+     */
+    public CompletableFuture<TaskSnapshot> dropTagIndex() {
+        return submit(() -> {
+            if (!tagIndexed || tagFilter != null) return false;
+            tagIndex.clear();
+            tagIndexed = false;
+            tagIndexBytes = 0L;
+            TAG_BYTES.set(0L);
+            return false; // Nothing shown changes
+        });
+    }
+
+    // Approximate heap bytes of the tag index, as of the last snapshot
+    public long tagIndexBytes() {
+        return tagIndexBytes;
+    }
+
+    // Whether a tag filter is set, so the index is in use and kept by dropTagIndex()
+    public boolean hasTagFilter() {
+        return filtering;
+    }
+
+    /**
+     * Adds the tasks only if there are no tasks at all, checked and done as one change.
+     */
+    public CompletableFuture<TaskSnapshot> addAllIfEmpty(List<Task> defaults) {
+        List<Task> copies = new ArrayList<>(defaults.size());
+        for (Task task : defaults) copies.add(new Task(task));
+        return submit(() -> {
+            if (!tasks.isEmpty()) return false;
+            for (Task task : copies) {
+                stampCompletion(task, null);
+                tasks.add(task);
+                changed(null, task);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Moves tasks that were marked done before the given time to the archive, and drops them
+     * from the store. Done tasks from before completion times were kept count as done long
+     * ago. Recurring templates are never archived.
+     *
+     * The archive is written, and synced to disk, first; if that fails nothing is dropped and
+     * the future completes with the error. The tasks are then dropped from storage before the
+     * change completes, instead of with the next queued write. If the app dies in between,
+     * they are in the archive and still stored: the next run drops them without archiving them
+     * again, as they are in the archive's last chunk.
+     */
+    public CompletableFuture<TaskSnapshot> archiveCompleted(long doneBefore, TaskArchive archive) {
+        return submit(() -> {
+            List<Task> old = new ArrayList<>();
+            for (Task task : tasks) {
+                if (task.isDone() && !task.isRecurring() && task.getCompletedAt() < doneBefore) old.add(task);
+            }
+            if (old.isEmpty()) return false;
+            try {
+                archive.append(notArchivedYet(old, archive.lastAppended()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            tasks.removeIf(task -> task.isDone() && !task.isRecurring() && task.getCompletedAt() < doneBefore);
+            reorder = true;
+            for (Task task : old) {
+                if (tagIndexed) tagIndex.remove(task);
+                repository.onTaskRemoved(task);
+            }
+            if (tagIndexed) compactTagIndex();
+            for (ChangeListener listener : changeListeners) listener.onTasksArchived(Collections.unmodifiableList(old));
+            persistAndTell(); // A failed write is retried like any other
+            return true;
+        });
+    }
+
+    // The tasks the archive's last chunk does not hold already
+    private static List<Task> notArchivedYet(List<Task> tasks, List<Task> lastArchived) {
+        if (lastArchived.isEmpty()) return tasks;
+        Set<String> archivedIds = new HashSet<>();
+        for (Task task : lastArchived) archivedIds.add(task.getId());
+        List<Task> fresh = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (!archivedIds.contains(task.getId())) fresh.add(task);
+        }
+        return fresh;
+    }
+
+    /**
+     * Publishes the tasks sorted by the given order, and keeps them sorted through later changes.
+     */
+    public CompletableFuture<TaskSnapshot> sort(SortOrder order) {
+        return submit(() -> {
+            sortOrder = order;
+            reorder = true;
+            return true;
+        });
+    }
+
+    // --- Writer thread ---
+
+    private CompletableFuture<TaskSnapshot> submit(Change change) {
+        CompletableFuture<TaskSnapshot> result = new CompletableFuture<>();
+        execute(result, () -> {
+            ensureLoaded();
+            if (change.apply()) publish();
+            result.complete(current.get());
+        });
+        return result;
+    }
+
+    // Runs the work on the writer thread; the result fails with whatever it throws
+    private void execute(CompletableFuture<TaskSnapshot> result, Runnable work) {
+        try {
+            writer.execute(() -> {
+                try {
+                    work.run();
+                } catch (RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e); // Released (see TaskStores), e.g. a change after logout
+        }
+    }
+
+    private void addLoadedChangeListener(ChangeListener listener) {
+        changeListeners.add(listener);
+        listener.onTasksLoaded(Collections.unmodifiableList(new ArrayList<>(tasks)));
+    }
+
+    // Adds the occurrence's time to its template's exclusions; false if there is no template
+    private boolean excludeFromTemplate(Occurrence occurrence) {
+        if (occurrence == null) return false;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task template = tasks.get(i);
+            if (!occurrence.isOf(template) || !template.isRecurring()) continue;
+            Task updated = new Task(template);
+            updated.setRecurrence(template.getRecurrence().withExclusion(occurrence.getScheduledTime()));
+            if (updated.getRecurrence() == template.getRecurrence()) return true; // Already excluded
+            tasks.set(i, updated);
+            changed(template, updated);
+            return true;
+        }
+        return false;
+    }
+
+    // Keeps completedAt in step with isDone: stamped when the task becomes done, kept while it
+    // stays done (callers edit copies that may not have it), cleared when it is undone
+    private static void stampCompletion(Task task, Task before) {
+        if (!task.isDone()) {
+            task.setCompletedAt(0L);
+        } else if (before != null && before.isDone()) {
+            if (task.getCompletedAt() == 0L) task.setCompletedAt(before.getCompletedAt());
+        } else if (task.getCompletedAt() == 0L) {
+            task.setCompletedAt(System.currentTimeMillis());
+        }
+    }
+
+    // The task replaced before, or was added for null
+    private void changed(Task before, Task task) {
+        if ((before != null && before.isRecurring()) || task.isRecurring()) {
+            reorder = true; // Its occurrences are rows of their own
+        } else {
+            patchedRows.add(task);
+        }
+        if (tagIndexed) tagIndex.put(task);
+        repository.onTaskChanged(task);
+        for (ChangeListener listener : changeListeners) listener.onTaskChanged(task);
+    }
+
+    private void rowRemoved(Task task) {
+        if (task.isRecurring()) {
+            reorder = true;
+        } else {
+            removedRows.add(task);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) return;
+        List<Task> stored;
+        try {
+            stored = repository.load();
+        } catch (RuntimeException e) { // E.g. no key: showing no tasks would let sync delete them all
+            LOAD_FAILURES.increment();
+            Log.w(TAG, "Loading tasks failed; retried with the next change", e);
+            if (!current.get().isLoadFailed()) {
+                TaskSnapshot failed = TaskSnapshot.loadFailed(current.get().getVersion() + 1);
+                current.set(failed);
+                for (Listener listener : listeners) listener.onSnapshot(failed);
+            }
+            throw e;
+        }
+        tasks.addAll(stored);
+        tagIndex.rebuild(tasks);
+        tagIndexed = true;
+        loaded = true;
+        publish();
+        for (Map.Entry<ChangeListener, CompletableFuture<TaskSnapshot>> waiting : waitingListeners.entrySet()) {
+            addLoadedChangeListener(waiting.getKey());
+            waiting.getValue().complete(current.get());
+        }
+        waitingListeners.clear();
+    }
+
+    private void publish() {
+        long start = TraceSpan.begin("store.write");
+        List<Task> ordered = Collections.emptyList();
+        TaskSnapshot next;
+        boolean patch = !reorder && patchedRows.size() + removedRows.size() <= MAX_ROW_PATCHES;
+        reorder = true; // Until this snapshot is published, so a failure is caught up with by the next
+        try { // A comparator or index failure must not leave the trace section open
+            if (patch) {
+                ordered = patchedList();
+            } else {
+                ordered = windowTo != 0L
+                        ? Occurrences.expand(tasks, windowFrom, windowTo, TimeZone.getDefault())
+                        : new ArrayList<>(tasks);
+                if (sortOrder != null) {
+                    long sortStart = TraceSpan.begin("store.sort");
+                    try {
+                        Collections.sort(ordered, TaskComparators.forOrder(sortOrder));
+                    } finally {
+                        TraceSpan.end(SORT_TIMER, ordered.size(), sortStart);
+                    }
+                }
+            }
+            List<Task> filtered = null;
+            if (tagFilter != null) {
+                if (!tagIndexed) {
+                    tagIndex.rebuild(tasks);
+                    tagIndexed = true;
+                }
+                // Only the matches are expanded and sorted, not the whole list again
+                List<Task> matching = tagIndex.select(tagFilter);
+                filtered = windowTo != 0L
+                        ? Occurrences.expand(matching, windowFrom, windowTo, TimeZone.getDefault())
+                        : matching;
+                if (sortOrder != null) Collections.sort(filtered, TaskComparators.forOrder(sortOrder));
+            }
+            // Plain set, no compare-and-set: this thread is the only writer
+            next = new TaskSnapshot(current.get().getVersion() + 1, ordered, filtered, sortOrder,
+                    tagFilter, tagIndexed ? tagIndex.tags() : null, true);
+            current.set(next);
+            shown = ordered;
+            reorder = false;
+        } finally {
+            patchedRows.clear();
+            removedRows.clear();
+            TraceSpan.end(WRITE_TIMER, ordered.size(), start);
+        }
+        if (tagIndexed) {
+            tagIndexBytes = tagIndex.sizeInBytes();
+            TAG_BYTES.set(tagIndexBytes);
+        }
+
+        queuePersist();
+        for (Listener listener : listeners) listener.onSnapshot(next);
+    }
+
+    // The published list with the rows changed since then removed, replaced or moved
+    private List<Task> patchedList() {
+        if (patchedRows.isEmpty() && removedRows.isEmpty()) return shown; // E.g. a new tag filter
+        List<Task> rows = new ArrayList<>(shown.size() + patchedRows.size());
+        for (int i = 0; i < shown.size(); i++) rows.add(shown.get(i)); // addAll() would copy it twice
+        for (Task removed : removedRows) {
+            int at = indexOf(rows, removed);
+            if (at >= 0) rows.remove(at);
+        }
+        Comparator<Task> order = sortOrder != null ? TaskComparators.forOrder(sortOrder) : null;
+        for (Task task : patchedRows) {
+            int at = indexOf(rows, task);
+            if (order == null) { // Insertion order: in place, or last if new
+                if (at >= 0) {
+                    rows.set(at, task);
+                } else {
+                    rows.add(task);
+                }
+                continue;
+            }
+            if (at >= 0) {
+                if ((at == 0 || order.compare(rows.get(at - 1), task) <= 0)
+                        && (at == rows.size() - 1 || order.compare(task, rows.get(at + 1)) <= 0)) {
+                    rows.set(at, task); // Still sorts here, e.g. marked done
+                    continue;
+                }
+                rows.remove(at);
+            }
+            rows.add(insertionPoint(rows, task, order), task);
+        }
+        return rows;
+    }
+
+    // The index after the last row that sorts before or with the task
+    private static int insertionPoint(List<Task> rows, Task task, Comparator<Task> order) {
+        int low = 0;
+        int high = rows.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (order.compare(rows.get(mid), task) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // Queues one write behind the changes already waiting, so a burst of changes is written once
+    private void queuePersist() {
+        if (persistQueued || !repository.hasUnsavedChanges()) return;
+        persistQueued = true;
+        try {
+            writer.execute(() -> {
+                persistQueued = false;
+                persistAndTell();
+            });
+        } catch (RejectedExecutionException e) {
+            persistAndTell(); // Released with this change still queued; write it now, on the writer thread
+        }
+    }
+
+    private void persistAndTell() {
+        try {
+            repository.persist();
+        } catch (RuntimeException e) { // E.g. the key store failing to seal; the records stay dirty
+            PERSIST_FAILURES.increment();
+            Log.w(TAG, "Writing tasks failed; kept to try again", e);
+            retryPersist();
+            return;
+        }
+        persistFailures = 0;
+        for (ChangeListener listener : changeListeners) listener.onChangesWritten();
+    }
+
+    // Queues the write again after a backoff, in case no change comes to queue it first
+    private void retryPersist() {
+        long delay = Math.min(MAX_RETRY_MILLIS, RETRY_MILLIS << Math.min(persistFailures++, 6));
+        RETRIES.schedule(() -> {
+            try {
+                writer.execute(this::queuePersist);
+            } catch (RejectedExecutionException e) {
+                Log.e(TAG, "Released with unsaved changes after a failed write", e);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Renumbers the tag index in list order once removals have left it mostly holes
+    private void compactTagIndex() {
+        if (tagIndex.isSparse()) tagIndex.rebuild(tasks);
+    }
+
+    private int indexOf(Task task) {
+        return indexOf(tasks, task);
+    }
+
+    private static int indexOf(List<Task> list, Task task) {
+        for (int i = 0; i < list.size(); i++) {
+            if (list.get(i).hasSameId(task)) return i;
+        }
+        return -1;
+    }
+}
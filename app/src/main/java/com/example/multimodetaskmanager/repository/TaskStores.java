@@ -0,0 +1,267 @@
+package com.example.multimodetaskmanager.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import com.example.multimodetaskmanager.memory.CacheManager;
+import com.example.multimodetaskmanager.security.RecordCipher;
+import com.example.multimodetaskmanager.security.TaskKeys;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * One {@link TaskStore} per account, each over its own record directory, so an account only
+ * ever loads and holds its own tasks.
+ *
+ * The active account's store is created, and its tasks start loading, when the account is
+ * switched to (at login, or at process start for the last account). The store of the account
+ * used before stays in memory, {@link #WARM_ACCOUNTS} in all, so switching back is instant;
+ * the least recently used one beyond that is released. Logging out releases all of them.
+ *
+ * Each account also has a {@link TaskArchive}, task_archive plus the same suffix in the files
+ * directory. Tasks done more than {@link #ARCHIVE_AFTER_DAYS} days ago move there when the
+ * account is switched to, after the listeners have their first look, so reminders and sync see
+ * them leave as archived rather than deleted. From then on startup only loads active tasks.
+ *
+ * Partitions are named task_records.&lt;account id&gt; in the files directory, with
+ * task_prefs.&lt;account id&gt; alongside for the account's key, the ID being a name-based
+ * UUID of the email. The first account opened after upgrading adopts the old shared
+ * task_prefs, which until then held that account's tasks, and the unsuffixed task_records its
+ * first load moves them into.
+ *
+ * An account's record chunks and archive chunks are encrypted with that account's key (see
+ * {@link TaskKeys}), each chunk on its own.
+ *
+ * Under memory pressure (see {@link CacheManager}) the other accounts' stores are released and
+ * the active store drops its tag index, unless a tag filter is using it. Switching back reloads
+ * that account from storage.
+ *
+ * Layout of account_prefs:
+ * <pre>
+ *     partition.&lt;account id&gt;  suffix of the account's files and directory ("" for the adopted one)
+ *     last_account             the account used last, opened when nobody switched yet
+ * </pre>
+ */
+public final class TaskStores implements CacheManager.Cache {
+    private static final String TAG = "TaskStores";
+    static final int WARM_ACCOUNTS = 2; // The active account and the one before it
+    public static final int ARCHIVE_AFTER_DAYS = 30;
+    public static final String LOCAL_ACCOUNT = "local"; // Tasks kept without an account
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final String ARCHIVE_NAME = "task_archive";
+    private static final String ACCOUNT_PREFS = "account_prefs";
+    private static final String KEY_PARTITION_PREFIX = "partition.";
+    private static final String KEY_LAST_ACCOUNT = "last_account";
+    private static final String LEGACY_SUFFIX = "";
+    private static final int TASK_BYTES = 256; // Rough heap of one loaded task and its strings (see TaskHeapSizeTest)
+
+    private static TaskStores instance;
+
+    /**
+     * Told when a different store becomes the active one, on the thread that switched.
+     * Per-account state that follows the store (reminders, sync) moves over here.
+     */
+    public interface ActiveStoreListener {
+        /**
+         * @param store     The new active store, or null after logout.
+         * @param partition Suffix of the account's prefs files, for state kept next to its tasks.
+         */
+        void onActiveStoreChanged(TaskStore store, String partition);
+    }
+
+    // An open account: its store and the writer thread behind it
+    private static final class Partition {
+        final TaskStore store;
+        final ExecutorService writer;
+        final String suffix;
+        final TaskArchive archive;
+
+        Partition(TaskStore store, ExecutorService writer, String suffix, TaskArchive archive) {
+            this.store = store;
+            this.writer = writer;
+            this.suffix = suffix;
+            this.archive = archive;
+        }
+    }
+
+    private final Context appContext;
+    private final SharedPreferences accounts;
+    private final List<ActiveStoreListener> listeners = new CopyOnWriteArrayList<>();
+    // Access order: the eldest entry is the least recently active account
+    private final Map<String, Partition> warm = new LinkedHashMap<String, Partition>(4, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Partition> eldest) {
+            if (size() <= WARM_ACCOUNTS) return false;
+            release(eldest.getValue());
+            return true;
+        }
+    };
+    private String activeAccount; // null before the first switch and after logout
+
+    TaskStores(Context context) {
+        appContext = context.getApplicationContext();
+        accounts = appContext.getSharedPreferences(ACCOUNT_PREFS, Context.MODE_PRIVATE);
+    }
+
+    public static synchronized TaskStores get(Context context) {
+        if (instance == null) instance = new TaskStores(context);
+        return instance;
+    }
+
+    /**
+     * The store of the active account; the last used account's if none was switched to.
+     */
+    public synchronized TaskStore active() {
+        if (activeAccount == null) activate(accounts.getString(KEY_LAST_ACCOUNT, accountId(null)));
+        return warm.get(activeAccount).store;
+    }
+
+    /**
+     * Makes the account's store the active one and starts loading its tasks, so they load
+     * while the first screen is being built.
+     *
+     * @param email The account's email; null for tasks kept without an account.
+     */
+    public synchronized TaskStore switchTo(String email) {
+        String account = accountId(email);
+        if (!account.equals(activeAccount)) activate(account);
+        return warm.get(account).store;
+    }
+
+    /**
+     * The active account's ID, the same on every device the account uses; null while logged
+     * out.
+     */
+    public synchronized String activeAccount() {
+        return activeAccount;
+    }
+
+    /**
+     * The active account's archive, for browsing and searching; null while logged out.
+     */
+    public synchronized TaskArchive archive() {
+        return activeAccount != null ? warm.get(activeAccount).archive : null;
+    }
+
+    /**
+     * Releases every account's tasks from memory. Changes not yet written are written first,
+     * on the stores' own threads.
+     */
+    public synchronized void logout() {
+        for (Partition partition : new ArrayList<>(warm.values())) release(partition);
+        warm.clear();
+        activeAccount = null;
+        for (ActiveStoreListener listener : listeners) listener.onActiveStoreChanged(null, null);
+    }
+
+    /**
+     * Adds the listener and tells it about the active store straight away; null if nobody is
+     * logged in yet.
+     */
+    public synchronized void addActiveStoreListener(ActiveStoreListener listener) {
+        listeners.add(listener);
+        Partition partition = activeAccount != null ? warm.get(activeAccount) : null;
+        listener.onActiveStoreChanged(partition != null ? partition.store : null,
+                partition != null ? partition.suffix : null);
+    }
+
+    // --- CacheManager.Cache ---
+
+    @Override
+    public synchronized long sizeInBytes() {
+        long bytes = 0;
+        for (Map.Entry<String, Partition> entry : warm.entrySet()) {
+            TaskStore store = entry.getValue().store;
+            bytes += entry.getKey().equals(activeAccount) ? store.tagIndexBytes() : (long) store.snapshot().size() * TASK_BYTES;
+        }
+        return bytes;
+    }
+
+    @Override
+    public synchronized long trim() {
+        long bytes = 0L;
+        // Iterating does not count as access, so the active account keeps its place
+        for (Iterator<Map.Entry<String, Partition>> it = warm.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Partition> entry = it.next();
+            TaskStore store = entry.getValue().store;
+            if (entry.getKey().equals(activeAccount)) {
+                if (store.hasTagFilter()) continue; // In use: the next change would only rebuild it
+                bytes += store.tagIndexBytes();
+                store.dropTagIndex();
+            } else {
+                bytes += (long) store.snapshot().size() * TASK_BYTES;
+                release(entry.getValue());
+                it.remove();
+            }
+        }
+        return bytes;
+    }
+
+    synchronized int warmCount() {
+        return warm.size();
+    }
+
+    private void activate(String account) {
+        Partition partition = warm.get(account);
+        if (partition == null) {
+            partition = open(account);
+            warm.put(account, partition);
+        }
+        activeAccount = account;
+        accounts.edit().putString(KEY_LAST_ACCOUNT, account).apply();
+        partition.store.load(); // Reads only this account's records
+        for (ActiveStoreListener listener : listeners) listener.onActiveStoreChanged(partition.store, partition.suffix);
+        long doneBefore = System.currentTimeMillis() - ARCHIVE_AFTER_DAYS * DAY_MILLIS;
+        partition.store.archiveCompleted(doneBefore, partition.archive) // Queued behind the listeners' first look
+                .whenComplete((snapshot, error) -> {
+                    if (error != null) Log.w(TAG, "Archiving done tasks failed; they stay in the list", error);
+                });
+    }
+
+    private Partition open(String account) {
+        String key = KEY_PARTITION_PREFIX + account;
+        String suffix = accounts.getString(key, null);
+        if (suffix == null) {
+            boolean adopted = false;
+            for (String existing : accounts.getAll().keySet()) {
+                adopted |= existing.startsWith(KEY_PARTITION_PREFIX);
+            }
+            suffix = adopted ? "." + account : LEGACY_SUFFIX; // The first account gets the old shared file
+            accounts.edit().putString(key, suffix).apply();
+        }
+        ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "task-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        SharedPreferences prefs = appContext.getSharedPreferences(TaskRepository.PREF_NAME + suffix, Context.MODE_PRIVATE);
+        // One key per account, unwrapped on the writer thread by the first load (see TaskKeys)
+        RecordCipher cipher = new RecordCipher(TaskKeys.dataKey(prefs));
+        File records = new File(appContext.getFilesDir(), TaskRepository.DIR_NAME + suffix);
+        TaskArchive archive = new TaskArchive(new File(appContext.getFilesDir(), ARCHIVE_NAME + suffix), cipher);
+        return new Partition(new TaskStore(new TaskRepository(records, prefs, cipher), writer), writer, suffix, archive);
+    }
+
+    // Lets queued changes and the write behind them finish, then ends the writer thread
+    private static void release(Partition partition) {
+        partition.writer.shutdown();
+    }
+
+    static String accountId(String email) {
+        if (email == null || email.trim().isEmpty()) return LOCAL_ACCOUNT;
+        byte[] name = email.trim().toLowerCase(Locale.ROOT).getBytes(StandardCharsets.UTF_8);
+        return UUID.nameUUIDFromBytes(name).toString();
+    }
+}
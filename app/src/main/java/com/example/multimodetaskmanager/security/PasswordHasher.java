@@ -0,0 +1,91 @@
+package com.example.multimodetaskmanager.security;
+
+import android.util.Base64;
+
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted PBKDF2 hashes for the login password, so LoginPrefs never holds the password itself.
+ *
+ * Deliberately slow (tens to hundreds of milliseconds on a phone): call {@link #hash} and
+ * {@link #verify} off the main thread.
+ *
+ * Stored as "&lt;algorithm&gt;$&lt;iterations&gt;$&lt;salt&gt;$&lt;hash&gt;", Base64, so the
+ * cost can be raised later without breaking the hashes already stored. HMAC-SHA256 needs API
+ * 26; older devices use HMAC-SHA1, still sound for PBKDF2.
+ */
+public final class PasswordHasher {
+    static final int ITERATIONS = 120_000;
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+    private static final String SHA256 = "pbkdf2-sha256";
+    private static final String SHA1 = "pbkdf2-sha1";
+
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private PasswordHasher() {
+    }
+
+    public static String hash(String password) {
+        return hash(password, ITERATIONS);
+    }
+
+    static String hash(String password, int iterations) {
+        byte[] salt = new byte[SALT_BYTES];
+        RANDOM.nextBytes(salt);
+        String algorithm = supports(SHA256) ? SHA256 : SHA1;
+        return algorithm + "$" + iterations + "$" + Base64.encodeToString(salt, Base64.NO_WRAP)
+                + "$" + Base64.encodeToString(derive(algorithm, password, salt, iterations), Base64.NO_WRAP);
+    }
+
+    /**
+     * Whether the password matches a stored hash; false for anything that is not one.
+     */
+    public static boolean verify(String password, String stored) {
+        String[] parts = stored.split("\\$");
+        if (parts.length != 4 || !supports(parts[0])) return false;
+        try {
+            int iterations = Integer.parseInt(parts[1]);
+            byte[] salt = Base64.decode(parts[2], Base64.NO_WRAP);
+            byte[] expected = Base64.decode(parts[3], Base64.NO_WRAP);
+            // Constant time, so how long a wrong guess takes says nothing about the hash
+            return MessageDigest.isEqual(expected, derive(parts[0], password, salt, iterations));
+        } catch (IllegalArgumentException e) { // Not a number or not Base64
+            return false;
+        }
+    }
+
+    private static byte[] derive(String algorithm, String password, byte[] salt, int iterations) {
+        char[] chars = password.toCharArray();
+        PBEKeySpec spec = new PBEKeySpec(chars, salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(jcaName(algorithm)).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2 unavailable", e); // Checked by supports()
+        } finally {
+            spec.clearPassword();
+            Arrays.fill(chars, '\0');
+        }
+    }
+
+    private static boolean supports(String algorithm) {
+        if (!SHA256.equals(algorithm) && !SHA1.equals(algorithm)) return false;
+        try {
+            SecretKeyFactory.getInstance(jcaName(algorithm));
+            return true;
+        } catch (NoSuchAlgorithmException e) {
+            return false;
+        }
+    }
+
+    private static String jcaName(String algorithm) {
+        return SHA256.equals(algorithm) ? "PBKDF2WithHmacSHA256" : "PBKDF2WithHmacSHA1";
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.multimodetaskmanager.security;
+
+import android.util.Base64;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+/**
+ * Encrypts stored data in small pieces, each sealed on its own with AES-GCM: one task record,
+ * one archive chunk. A piece is read or written without touching any other, so loading and
+ * saving cost the same as before plus the bytes actually read or written.
+ *
+ * Every piece gets a fresh random 96-bit IV and a 128-bit tag, and is bound to a name given by
+ * the caller (the record key, the chunk's place in the file) as associated data. Changing a
+ * single byte, or moving a piece to another name, makes {@link #open} fail instead of
+ * returning someone else's data.
+ *
+ * The key is asked for once, on the first seal or open, which happens on the thread that
+ * loads; the main thread never waits for the key store (see {@link TaskKeys}).
+ */
+public final class RecordCipher {
+    static final String PREFIX = "gcm1:"; // Marks a sealed string record; JSON always starts with '{'
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+    public static final int OVERHEAD = IV_BYTES + TAG_BITS / 8; // Bytes a sealed piece adds
+
+    private final Callable<SecretKey> keySource;
+    private final SecureRandom random = new SecureRandom();
+    private SecretKey key;
+    private Cipher cipher; // Reused; init with a new IV is much cheaper than getInstance
+
+    public RecordCipher(Callable<SecretKey> keySource) {
+        this.keySource = keySource;
+    }
+
+    /**
+     * Whether a stored string was written by {@link #sealString}, rather than as plain JSON
+     * before encryption.
+     */
+    public static boolean isSealed(String value) {
+        return value.startsWith(PREFIX);
+    }
+
+    /**
+     * Encrypts one piece under the name it is stored as.
+     *
+     * @return The IV followed by the ciphertext and tag.
+     */
+    public synchronized byte[] seal(byte[] plaintext, byte[] name) {
+        byte[] iv = new byte[IV_BYTES];
+        random.nextBytes(iv);
+        try {
+            Cipher c = cipher();
+            c.init(Cipher.ENCRYPT_MODE, key(), new GCMParameterSpec(TAG_BITS, iv));
+            c.updateAAD(name);
+            byte[] sealed = Arrays.copyOf(iv, IV_BYTES + c.getOutputSize(plaintext.length));
+            c.doFinal(plaintext, 0, plaintext.length, sealed, IV_BYTES);
+            return sealed;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot encrypt", e); // Only with a broken key or provider
+        }
+    }
+
+    /**
+     * Decrypts a piece from {@link #seal}, checking it against the name it is read as.
+     *
+     * @throws GeneralSecurityException If the piece was changed, sealed under another name or
+     *                                  key, or cut short.
+     */
+    public synchronized byte[] open(byte[] sealed, byte[] name) throws GeneralSecurityException {
+        if (sealed.length < OVERHEAD) throw new GeneralSecurityException("Sealed data too short: " + sealed.length);
+        Cipher c = cipher();
+        c.init(Cipher.DECRYPT_MODE, key(), new GCMParameterSpec(TAG_BITS, sealed, 0, IV_BYTES));
+        c.updateAAD(name);
+        return c.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES);
+    }
+
+    // For SharedPreferences values: the prefix, then the sealed bytes as Base64
+    public String sealString(String name, String text) {
+        byte[] sealed = seal(text.getBytes(StandardCharsets.UTF_8), name.getBytes(StandardCharsets.UTF_8));
+        return PREFIX + Base64.encodeToString(sealed, Base64.NO_WRAP);
+    }
+
+    public String openString(String name, String value) throws GeneralSecurityException {
+        byte[] sealed;
+        try {
+            sealed = Base64.decode(value.substring(PREFIX.length()), Base64.NO_WRAP);
+        } catch (IllegalArgumentException e) {
+            throw new GeneralSecurityException("Sealed record is not Base64", e);
+        }
+        return new String(open(sealed, name.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8);
+    }
+
+    private Cipher cipher() throws GeneralSecurityException {
+        if (cipher == null) cipher = Cipher.getInstance(TRANSFORMATION);
+        return cipher;
+    }
+
+    private SecretKey key() {
+        if (key == null) {
+            try {
+                key = keySource.call();
+            } catch (Exception e) {
+                throw new IllegalStateException("Task key unavailable", e);
+            }
+        }
+        return key;
+    }
+}
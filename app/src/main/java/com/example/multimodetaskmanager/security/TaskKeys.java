@@ -0,0 +1,115 @@
+package com.example.multimodetaskmanager.security;
+
+import android.content.SharedPreferences;
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import android.util.Base64;
+
+import androidx.annotation.VisibleForTesting;
+
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * The keys that encrypt each account's tasks.
+ *
+ * Every account has its own AES-256 data key, kept in the account's task_prefs wrapped (AES-GCM)
+ * by one master key that never leaves the Android key store. Records are not encrypted with the
+ * master key itself: every key store operation is a call into another process, which would put
+ * one round trip per task on the load path. Unwrapping the data key is the only such call, once
+ * per account and process, on the account's writer thread the first time its tasks are read.
+ *
+ * Data keys are created on first use, and only when none is stored. If the master key is lost
+ * (the key store was reset), the stored data key no longer unwraps: that fails with an error
+ * and the stored key is left as it is, never replaced, so the records sealed with it are not
+ * orphaned by a new key. Task prefs are kept out of backups for the same reason, see
+ * backup_rules.xml.
+ */
+public final class TaskKeys {
+    private static final String KEY_STORE = "AndroidKeyStore";
+    private static final String MASTER_ALIAS = "task_master";
+    static final String KEY_DATA_KEY = "data_key"; // In the account's task_prefs; its records are in task_records
+    private static final int KEY_BITS = 256;
+    private static final int IV_BYTES = 12;
+    private static final int TAG_BITS = 128;
+
+    private static volatile SecretKey testMasterKey;
+
+    private TaskKeys() {
+    }
+
+    /**
+     * Resolves, or creates, the data key stored in the prefs. Nothing happens until the result is
+     * called, which {@link RecordCipher} does on the thread that first needs it.
+     */
+    public static Callable<SecretKey> dataKey(SharedPreferences prefs) {
+        return () -> loadOrCreate(prefs);
+    }
+
+    // Robolectric has no Android key store; tests wrap the data keys with a software key instead
+    @VisibleForTesting
+    public static void useMasterKey(SecretKey key) {
+        testMasterKey = key;
+    }
+
+    // Synchronized so two threads opening one account never create two data keys
+    private static synchronized SecretKey loadOrCreate(SharedPreferences prefs) throws GeneralSecurityException {
+        SecretKey master = masterKey();
+        String wrapped = prefs.getString(KEY_DATA_KEY, null);
+        if (wrapped != null) {
+            byte[] sealed = Base64.decode(wrapped, Base64.NO_WRAP);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, master, new GCMParameterSpec(TAG_BITS, sealed, 0, IV_BYTES));
+            try {
+                return new SecretKeySpec(cipher.doFinal(sealed, IV_BYTES, sealed.length - IV_BYTES), "AES");
+            } catch (AEADBadTagException e) {
+                throw new GeneralSecurityException("Stored task key does not unwrap", e);
+            }
+        }
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(KEY_BITS);
+        SecretKey key = generator.generateKey();
+        // The key store picks the IV itself and refuses one from the caller
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.ENCRYPT_MODE, master);
+        byte[] iv = cipher.getIV();
+        byte[] body = cipher.doFinal(key.getEncoded());
+        byte[] sealed = Arrays.copyOf(iv, IV_BYTES + body.length);
+        System.arraycopy(body, 0, sealed, IV_BYTES, body.length);
+        // Synchronous: nothing may be sealed with a key that is not stored yet
+        if (!prefs.edit().putString(KEY_DATA_KEY, Base64.encodeToString(sealed, Base64.NO_WRAP)).commit()) {
+            throw new GeneralSecurityException("Cannot store the task key");
+        }
+        return key;
+    }
+
+    private static SecretKey masterKey() throws GeneralSecurityException {
+        if (testMasterKey != null) return testMasterKey;
+        KeyStore store = KeyStore.getInstance(KEY_STORE);
+        try {
+            store.load(null);
+        } catch (IOException e) {
+            throw new GeneralSecurityException("Key store unavailable", e);
+        }
+        KeyStore.Entry entry = store.getEntry(MASTER_ALIAS, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) return ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEY_STORE);
+        generator.init(new KeyGenParameterSpec.Builder(MASTER_ALIAS,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+                .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+                .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+                .setKeySize(KEY_BITS)
+                .build());
+        return generator.generateKey();
+    }
+}
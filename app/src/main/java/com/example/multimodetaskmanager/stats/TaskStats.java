@@ -0,0 +1,336 @@
+package com.example.multimodetaskmanager.stats;
+
+import android.content.SharedPreferences;
+
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TaskStore;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Counts for the statistics screen, kept up to date from the store's changes instead of
+ * counted from the list: tasks per priority, done and pending, overdue, and how many tasks
+ * were completed on each of the last {@link #HISTORY_DAYS} days.
+ *
+ * Every change is applied as the difference to the task's previous version, so an add, edit or
+ * delete costs O(1) whatever the list size. The one exception is overdue, which depends on the
+ * clock: pending due dates are kept in a sorted map (O(log n) per change), and reading the count
+ * only looks at the due dates passed since the last read.
+ *
+ * The per-day completions are a ring of {@link #HISTORY_DAYS} counters, one per local day; a
+ * slot is cleared when its day comes round again. Completions stay counted when the task is
+ * later deleted or archived, and are uncounted if it is marked pending again.
+ *
+ * The counters are saved to prefs with a checksum of the tasks they were counted from, once per
+ * burst of changes, when the store writes the tasks (see
+ * {@link TaskStore.ChangeListener#onChangesWritten}), not once per change. When
+ * the store loads, the loaded tasks are checked against it; only if they differ (the counters
+ * were not saved after a change, or are from an older version) are the counters counted again
+ * from the tasks. That recount can only see completions of tasks still in the list, so the
+ * history of archived ones survives only while the checksum matches.
+ *
+ * Thread-safe: changes arrive on the store's writer thread, {@link #summary} is read from the UI.
+ */
+public class TaskStats implements TaskStore.ChangeListener {
+    public static final int HISTORY_DAYS = 90;
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+    private static final int PRIORITIES = Priority.values().length;
+    private static final String KEY_STATE = "stats";
+    private static final String FORMAT = "1";
+
+    /**
+     * The counts at one point in time. Immutable.
+     */
+    public static final class Summary {
+        public final int total;
+        public final int done;
+        public final int overdue;
+        private final int[] pendingByPriority;
+        private final int[] doneByPriority;
+        private final int[] completedPerDay; // Oldest first, today last
+
+        Summary(int total, int done, int overdue, int[] pendingByPriority, int[] doneByPriority, int[] completedPerDay) {
+            this.total = total;
+            this.done = done;
+            this.overdue = overdue;
+            this.pendingByPriority = pendingByPriority;
+            this.doneByPriority = doneByPriority;
+            this.completedPerDay = completedPerDay;
+        }
+
+        public int pending() { return total - done; }
+        public int pending(Priority priority) { return pendingByPriority[priority.ordinal()]; }
+        public int done(Priority priority) { return doneByPriority[priority.ordinal()]; }
+
+        // Share of the listed tasks that are done, 0 for an empty list
+        public float completionRate() {
+            return total == 0 ? 0f : (float) done / total;
+        }
+
+        /**
+         * Tasks completed on a day.
+         *
+         * @param daysAgo 0 for today, up to {@link #HISTORY_DAYS} - 1.
+         */
+        public int completedOn(int daysAgo) {
+            return completedPerDay[completedPerDay.length - 1 - daysAgo];
+        }
+
+        // Tasks completed today and on the days before it, 'days' in all
+        public int completedInLast(int days) {
+            int sum = 0;
+            for (int i = 0; i < days && i < completedPerDay.length; i++) sum += completedOn(i);
+            return sum;
+        }
+    }
+
+    private final SharedPreferences prefs;
+    private final TimeZone zone;
+    private final Map<UUID, Task> tasks = new HashMap<>(); // As last counted
+    private final int[] pendingByPriority = new int[PRIORITIES];
+    private final int[] doneByPriority = new int[PRIORITIES];
+    private final TreeMap<Long, Integer> pendingDue = new TreeMap<>(); // Due date -> pending tasks due then
+    private long overdueCutoff; // Pending tasks due at or before it are counted in 'overdue'
+    private int overdue;
+    private final int[] completions = new int[HISTORY_DAYS]; // Indexed by local day modulo HISTORY_DAYS
+    private long newestDay = Long.MIN_VALUE; // The latest day the ring has a slot for; MIN_VALUE before any
+    private long checksum; // Sum of fingerprint() over the tasks
+    private boolean unsaved; // Changed since the counters were last saved
+
+    public TaskStats(SharedPreferences prefs, TimeZone zone) {
+        this.prefs = prefs;
+        this.zone = zone;
+    }
+
+    /**
+     * The counts as of now. Costs O(HISTORY_DAYS) plus the due dates passed since the last call.
+     */
+    public synchronized Summary summary(long now) {
+        advanceOverdue(now);
+        long today = dayOf(now);
+        advanceDays(today);
+        int[] days = new int[HISTORY_DAYS];
+        for (int i = 0; i < HISTORY_DAYS; i++) {
+            long day = today - (HISTORY_DAYS - 1) + i;
+            // Slots past newestDay - HISTORY_DAYS belong to later days if the clock went back
+            days[i] = day > newestDay - HISTORY_DAYS ? completions[slot(day)] : 0;
+        }
+        int done = 0;
+        for (int count : doneByPriority) done += count;
+        return new Summary(tasks.size(), done, overdue, pendingByPriority.clone(), doneByPriority.clone(), days);
+    }
+
+    // --- TaskStore.ChangeListener ---
+
+    /**
+     * Takes the saved counters if they were counted from exactly these tasks, else counts them.
+     * Either way the tasks are indexed once, so later changes can be applied as differences.
+     */
+    @Override
+    public synchronized void onTasksLoaded(List<Task> loadedTasks) {
+        tasks.clear();
+        pendingDue.clear();
+        overdueCutoff = 0L;
+        overdue = 0;
+        long sum = 0L;
+        for (Task task : loadedTasks) {
+            tasks.put(keyOf(task), task);
+            sum += fingerprint(task);
+            if (!task.isDone() && task.getDueDate() != 0L) addPendingDue(task.getDueDate(), 1);
+        }
+        if (!readState(sum, loadedTasks.size())) recount(loadedTasks);
+        checksum = sum;
+        save();
+    }
+
+    // After the store wrote the tasks, so the saved counters match what the next start loads
+    @Override
+    public synchronized void onChangesWritten() {
+        if (unsaved) save();
+    }
+
+    @Override
+    public synchronized void onTaskChanged(Task task) {
+        Task before = tasks.put(keyOf(task), task);
+        if (before != null) count(before, -1);
+        count(task, 1);
+        boolean wasCompleted = before != null && isCompleted(before);
+        if (wasCompleted && (!isCompleted(task) || before.getCompletedAt() != task.getCompletedAt())) {
+            recordCompletion(before.getCompletedAt(), -1);
+        }
+        if (isCompleted(task) && (!wasCompleted || before.getCompletedAt() != task.getCompletedAt())) {
+            recordCompletion(task.getCompletedAt(), 1);
+        }
+        unsaved = true;
+    }
+
+    @Override
+    public synchronized void onTaskRemoved(Task task) {
+        Task before = tasks.remove(keyOf(task));
+        if (before == null) return;
+        count(before, -1); // A completion stays in the history
+        unsaved = true;
+    }
+
+    @Override
+    public synchronized void onTasksArchived(List<Task> archived) {
+        for (Task task : archived) {
+            Task before = tasks.remove(keyOf(task));
+            if (before != null) count(before, -1);
+        }
+        unsaved = true;
+    }
+
+    // --- Counting ---
+
+    // Adds (sign 1) or takes away (sign -1) one task's share of the counters and checksum
+    private void count(Task task, int sign) {
+        int priority = task.getPriorityLevel().ordinal();
+        if (task.isDone()) {
+            doneByPriority[priority] += sign;
+        } else {
+            pendingByPriority[priority] += sign;
+            if (task.getDueDate() != 0L) addPendingDue(task.getDueDate(), sign);
+        }
+        checksum += sign * fingerprint(task);
+    }
+
+    private void recount(List<Task> loadedTasks) {
+        Arrays.fill(pendingByPriority, 0);
+        Arrays.fill(doneByPriority, 0);
+        Arrays.fill(completions, 0);
+        newestDay = Long.MIN_VALUE;
+        for (Task task : loadedTasks) {
+            int priority = task.getPriorityLevel().ordinal();
+            if (task.isDone()) doneByPriority[priority]++; else pendingByPriority[priority]++;
+            if (isCompleted(task)) recordCompletion(task.getCompletedAt(), 1);
+        }
+    }
+
+    private void addPendingDue(long due, int delta) {
+        int count = pendingDue.getOrDefault(due, 0) + delta;
+        if (count == 0) pendingDue.remove(due); else pendingDue.put(due, count);
+        if (due <= overdueCutoff) overdue += delta;
+    }
+
+    // Moves the cutoff to 'now', counting only the due dates between the old and new cutoff
+    private void advanceOverdue(long now) {
+        if (now > overdueCutoff) {
+            for (int count : pendingDue.subMap(overdueCutoff, false, now, true).values()) overdue += count;
+        } else if (now < overdueCutoff) { // The clock went back
+            for (int count : pendingDue.subMap(now, false, overdueCutoff, true).values()) overdue -= count;
+        }
+        overdueCutoff = now;
+    }
+
+    private static boolean isCompleted(Task task) {
+        return task.isDone() && task.getCompletedAt() != 0L;
+    }
+
+    private void recordCompletion(long completedAt, int delta) {
+        long day = dayOf(completedAt);
+        if (newestDay == Long.MIN_VALUE || day > newestDay) advanceDays(day);
+        if (day <= newestDay - HISTORY_DAYS) return; // Older than the ring reaches
+        int slot = slot(day);
+        completions[slot] = Math.max(0, completions[slot] + delta);
+    }
+
+    // Clears the slots of the days from after newestDay up to 'day'; they are about to be reused
+    private void advanceDays(long day) {
+        if (newestDay == Long.MIN_VALUE) {
+            newestDay = day;
+            return;
+        }
+        if (day <= newestDay) return;
+        long from = Math.max(newestDay + 1, day - HISTORY_DAYS + 1);
+        for (long d = from; d <= day; d++) completions[slot(d)] = 0;
+        newestDay = day;
+    }
+
+    private long dayOf(long time) {
+        return Math.floorDiv(time + zone.getOffset(time), DAY_MILLIS);
+    }
+
+    private static int slot(long day) {
+        return (int) Math.floorMod(day, (long) HISTORY_DAYS);
+    }
+
+    // What the counters depend on, mixed into 64 bits; summed (so order does not matter) for the checksum
+    private static long fingerprint(Task task) {
+        long h = task.getIdMostSigBits() * 0x9E3779B97F4A7C15L ^ task.getIdLeastSigBits();
+        h = h * 31 + task.getPriorityLevel().ordinal();
+        h = h * 31 + (task.isDone() ? 1 : 0);
+        h = h * 31 + task.getDueDate();
+        h = h * 31 + task.getCompletedAt();
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        return h ^ (h >>> 33);
+    }
+
+    private static UUID keyOf(Task task) {
+        return new UUID(task.getIdMostSigBits(), task.getIdLeastSigBits());
+    }
+
+    // --- Persistence ---
+
+    // "<format>|<task count>|<checksum>|<pending per priority>|<done per priority>|<newest day>|<ring>",
+    // lists comma-separated, the ring from slot 0
+    private void save() {
+        StringBuilder sb = new StringBuilder(16 + 4 * HISTORY_DAYS);
+        sb.append(FORMAT).append('|').append(tasks.size()).append('|').append(checksum).append('|');
+        appendList(sb, pendingByPriority).append('|');
+        appendList(sb, doneByPriority).append('|');
+        sb.append(newestDay).append('|');
+        appendList(sb, completions);
+        prefs.edit().putString(KEY_STATE, sb.toString()).apply();
+        unsaved = false;
+    }
+
+    private static StringBuilder appendList(StringBuilder sb, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(values[i]);
+        }
+        return sb;
+    }
+
+    // Restores the counters if they were saved for tasks with this checksum and count
+    private boolean readState(long expectedChecksum, int expectedCount) {
+        String encoded = prefs.getString(KEY_STATE, null);
+        if (encoded == null) return false;
+        String[] parts = encoded.split("\\|", -1);
+        try {
+            if (parts.length != 7 || !FORMAT.equals(parts[0])
+                    || Integer.parseInt(parts[1]) != expectedCount
+                    || Long.parseLong(parts[2]) != expectedChecksum) {
+                return false;
+            }
+            int[] pending = parseList(parts[3], PRIORITIES);
+            int[] done = parseList(parts[4], PRIORITIES);
+            int[] ring = parseList(parts[6], HISTORY_DAYS);
+            if (pending == null || done == null || ring == null) return false;
+            System.arraycopy(pending, 0, pendingByPriority, 0, PRIORITIES);
+            System.arraycopy(done, 0, doneByPriority, 0, PRIORITIES);
+            System.arraycopy(ring, 0, completions, 0, HISTORY_DAYS);
+            newestDay = Long.parseLong(parts[5]);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static int[] parseList(String list, int size) {
+        String[] items = list.split(",");
+        if (items.length != size) return null;
+        int[] values = new int[size];
+        for (int i = 0; i < size; i++) values[i] = Integer.parseInt(items[i]);
+        return values;
+    }
+}
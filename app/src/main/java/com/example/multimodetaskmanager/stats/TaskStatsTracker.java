@@ -0,0 +1,60 @@
+package com.example.multimodetaskmanager.stats;
+
+import android.content.Context;
+
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.repository.TaskStores;
+
+import java.util.TimeZone;
+
+/**
+ * Android side of the statistics: a {@link TaskStats} following the active account's task
+ * store, saved to stats_prefs plus the account's partition suffix (see {@link TaskStores}).
+ *
+ * Started with the process, before the active account is opened, so the stats see the loaded
+ * tasks before old done ones move to the archive and keep their completions.
+ */
+public final class TaskStatsTracker implements TaskStores.ActiveStoreListener {
+    private static final String PREF_NAME = "stats_prefs";
+
+    private static TaskStatsTracker instance;
+
+    private final Context appContext;
+    private TaskStore followed;
+    private volatile TaskStats stats; // The active account's; null after logout
+
+    private TaskStatsTracker(Context context) {
+        appContext = context.getApplicationContext();
+    }
+
+    public static synchronized TaskStatsTracker start(Context context) {
+        if (instance == null) {
+            instance = new TaskStatsTracker(context);
+            TaskStores.get(context).addActiveStoreListener(instance);
+        }
+        return instance;
+    }
+
+    /**
+     * The active account's statistics, or null while nobody is logged in.
+     */
+    public TaskStats current() {
+        return stats;
+    }
+
+    // --- TaskStores.ActiveStoreListener ---
+
+    @Override
+    public synchronized void onActiveStoreChanged(TaskStore store, String partition) {
+        if (followed != null) followed.removeChangeListener(stats);
+        followed = store;
+        if (store == null) {
+            stats = null;
+            return;
+        }
+        TaskStats next = new TaskStats(appContext.getSharedPreferences(PREF_NAME + partition, Context.MODE_PRIVATE),
+                TimeZone.getDefault());
+        stats = next;
+        store.addChangeListener(next);
+    }
+}
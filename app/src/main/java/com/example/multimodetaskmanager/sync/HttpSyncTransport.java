@@ -0,0 +1,48 @@
+package com.example.multimodetaskmanager.sync;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * POSTs each batch to the sync server's URL. The body is already gzipped by
+ * {@link SyncCodec}, so it is sent as is.
+ */
+public class HttpSyncTransport implements SyncTransport {
+    private static final int TIMEOUT_MILLIS = 15_000;
+
+    private final URL url;
+
+    public HttpSyncTransport(URL url) {
+        this.url = url;
+    }
+
+    @Override
+    public byte[] exchange(byte[] request) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setConnectTimeout(TIMEOUT_MILLIS);
+            connection.setReadTimeout(TIMEOUT_MILLIS);
+            connection.setFixedLengthStreamingMode(request.length);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(request);
+            }
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) throw new IOException("Sync server answered " + status);
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream response = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                for (int read; (read = in.read(buffer)) != -1; ) response.write(buffer, 0, read);
+                return response.toByteArray();
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+}
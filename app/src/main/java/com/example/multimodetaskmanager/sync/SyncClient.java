@@ -0,0 +1,393 @@
+package com.example.multimodetaskmanager.sync;
+
+import android.content.SharedPreferences;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.repository.TaskStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Keeps this device's tasks in sync with a server, sending and receiving only changes.
+ *
+ * Follows the task store like the reminders do: every local change stamps the fields that
+ * actually changed with this device and the next tick of a logical clock, bumps the task's
+ * {@link VersionVector}, and marks the task dirty. {@link #sync} sends the dirty tasks in
+ * batches and applies what other devices changed since the last sync token, merging
+ * per field (see {@link SyncRecord#merge}). Nothing is ever sent for a task that did not
+ * change, so syncing 10 edits costs the same with 100 tasks or 100,000.
+ *
+ * Every message names the account, so the server keeps each account's tasks and change log
+ * apart; two accounts on one device, or one server, never see each other's tasks.
+ *
+ * The sync state lives in its own prefs file, one per account (see {@link TaskSync}):
+ * <pre>
+ *     device        this install's random ID, unless it is kept elsewhere
+ *     account       the account the token belongs to
+ *     token         where the last sync left off in that account's log on the server
+ *     clock         the logical clock, past every stamp seen so far
+ *     meta.&lt;uuid&gt;   a task's version vector, flags and field stamps (not its fields; those
+ *                   are in task_records)
+ * </pre>
+ * Deleted tasks keep their meta entry as a tombstone, so a deletion wins over older edits
+ * that arrive later. Archived tasks (see {@link TaskStore#archiveCompleted}) keep theirs too,
+ * flagged, so they are not taken for deletions; the archive is this device's own, and a task
+ * archived before its last change was synced keeps that change here.
+ *
+ * Change callbacks come on the store's writer thread and {@link #sync} runs on another; both
+ * take this object's lock, but never across the network call.
+ */
+public class SyncClient implements TaskStore.ChangeListener {
+    public static final int BATCH_SIZE = 500;
+
+    private static final String KEY_DEVICE = "device";
+    private static final String KEY_ACCOUNT = "account";
+    private static final String KEY_TOKEN = "token";
+    private static final String KEY_CLOCK = "clock";
+    private static final String META_PREFIX = "meta.";
+
+    private static final Counter BYTES_SENT = MetricsRegistry.global().counter("sync.bytesSent");
+    private static final Counter BYTES_RECEIVED = MetricsRegistry.global().counter("sync.bytesReceived");
+    private static final Counter APPLIED = MetricsRegistry.global().counter("sync.applied");
+    private static final Counter REJECTED = MetricsRegistry.global().counter("sync.rejected");
+
+    // Where changes from other devices go; the TaskStore in the app
+    public interface Target {
+        void put(Task task);
+        void remove(Task task);
+    }
+
+    // What this device knows about a task's history, besides its fields
+    private static final class Meta {
+        VersionVector version = VersionVector.EMPTY;
+        final long[] clocks = new long[SyncRecord.FIELD_COUNT];
+        final String[] devices = new String[SyncRecord.FIELD_COUNT];
+        boolean dirty;   // Changed here since the server last confirmed it
+        boolean deleted;
+        boolean archived; // Moved to the archive here; a change from another device brings it back
+    }
+
+    private final SharedPreferences prefs;
+    private final Target target;
+    private final String device;
+    private final String account;
+    private final Map<UUID, Task> tasks = new HashMap<>(); // As the store has them
+    private final Map<UUID, Meta> metas = new HashMap<>();
+    private final Set<UUID> dirty = new LinkedHashSet<>();
+    private long clock;
+    private long token;
+    private boolean loaded;
+
+    public SyncClient(SharedPreferences prefs, String account, Target target) {
+        this(prefs, deviceId(prefs), account, target);
+    }
+
+    // With the device ID kept apart from the sync state, e.g. shared by several accounts
+    public SyncClient(SharedPreferences prefs, String device, String account, Target target) {
+        this.prefs = prefs;
+        this.target = target;
+        this.device = device;
+        this.account = account;
+    }
+
+    /**
+     * This install's random ID, from the given prefs; created and stored there on first use.
+     */
+    public static String deviceId(SharedPreferences prefs) {
+        String stored = prefs.getString(KEY_DEVICE, null);
+        if (stored == null) {
+            stored = UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+            prefs.edit().putString(KEY_DEVICE, stored).apply();
+        }
+        return stored;
+    }
+
+    public String getDevice() {
+        return device;
+    }
+
+    public String getAccount() {
+        return account;
+    }
+
+    public synchronized int dirtyCount() {
+        return dirty.size();
+    }
+
+    // --- TaskStore.ChangeListener ---
+
+    /**
+     * Reads the sync state and records tasks it has never seen (e.g. from before sync existed)
+     * as new, so they are sent on the next sync.
+     */
+    @Override
+    public synchronized void onTasksLoaded(List<Task> loadedTasks) {
+        SharedPreferences.Editor editor = prefs.edit();
+        if (!loaded) readState();
+        tasks.clear();
+        for (Task task : loadedTasks) {
+            UUID id = keyOf(task);
+            tasks.put(id, task);
+            Meta meta = metas.get(id);
+            if (meta == null || meta.deleted) recordLocalChange(id, null, task, editor);
+        }
+        for (Map.Entry<UUID, Meta> entry : new ArrayList<>(metas.entrySet())) {
+            Meta meta = entry.getValue();
+            if (!meta.deleted && !meta.archived && !tasks.containsKey(entry.getKey())) {
+                recordLocalDelete(entry.getKey(), editor);
+            }
+        }
+        loaded = true;
+        editor.apply();
+    }
+
+    @Override
+    public synchronized void onTaskChanged(Task task) {
+        UUID id = keyOf(task);
+        Task before = tasks.put(id, task);
+        SharedPreferences.Editor editor = prefs.edit();
+        recordLocalChange(id, before, task, editor);
+        editor.apply();
+    }
+
+    @Override
+    public synchronized void onTaskRemoved(Task task) {
+        UUID id = keyOf(task);
+        if (tasks.remove(id) == null) return; // Already gone, e.g. deleted by sync
+        SharedPreferences.Editor editor = prefs.edit();
+        recordLocalDelete(id, editor);
+        editor.apply();
+    }
+
+    // The tasks leave sync here without a tombstone, and unsent changes to them stay unsent
+    @Override
+    public synchronized void onTasksArchived(List<Task> archived) {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (Task task : archived) {
+            UUID id = keyOf(task);
+            tasks.remove(id);
+            Meta meta = metas.get(id);
+            if (meta == null) continue;
+            meta.archived = true;
+            meta.dirty = false;
+            dirty.remove(id);
+            writeMeta(id, meta, editor);
+        }
+        editor.apply();
+    }
+
+    // --- Sync ---
+
+    /**
+     * Exchanges changes with the server until neither side has any left. Blocks on the
+     * network; call off the main thread, after the tasks are loaded.
+     *
+     * @return The number of changes from other devices that were applied.
+     */
+    public int sync(SyncTransport transport) throws IOException {
+        int applied = 0;
+        while (true) {
+            Map<UUID, VersionVector> sent = new LinkedHashMap<>();
+            byte[] request;
+            synchronized (this) {
+                if (!loaded) throw new IllegalStateException("Sync before the tasks were loaded");
+                List<SyncRecord> changes = new ArrayList<>();
+                for (UUID id : dirty) {
+                    if (changes.size() == BATCH_SIZE) break;
+                    SyncRecord record = recordOf(id);
+                    changes.add(record);
+                    sent.put(id, record.getVersion());
+                }
+                request = SyncCodec.encode(new SyncMessage(device, account, token, false, changes));
+            }
+            BYTES_SENT.add(request.length);
+            byte[] encoded = transport.exchange(request);
+            BYTES_RECEIVED.add(encoded.length);
+            SyncMessage response = SyncCodec.decode(encoded);
+
+            synchronized (this) {
+                SharedPreferences.Editor editor = prefs.edit();
+                for (Map.Entry<UUID, VersionVector> entry : sent.entrySet()) {
+                    Meta meta = metas.get(entry.getKey());
+                    if (meta.version.equals(entry.getValue())) { // Not changed again in the meantime
+                        meta.dirty = false;
+                        dirty.remove(entry.getKey());
+                        writeMeta(entry.getKey(), meta, editor);
+                    }
+                }
+                for (SyncRecord remote : response.getChanges()) {
+                    if (applyRemote(remote, editor)) applied++;
+                }
+                token = response.getToken();
+                editor.putString(KEY_ACCOUNT, account).putLong(KEY_TOKEN, token).putLong(KEY_CLOCK, clock).apply();
+                if (!response.hasMore() && dirty.isEmpty()) break;
+            }
+        }
+        APPLIED.add(applied);
+        return applied;
+    }
+
+    // Merges a record from the server into what is here; false if it changed nothing
+    private boolean applyRemote(SyncRecord remote, SharedPreferences.Editor editor) {
+        UUID id = remote.getId();
+        Meta known = metas.get(id);
+        SyncRecord local = known != null && !known.archived ? recordOf(id) : null; // No fields here to merge with
+        SyncRecord merged = local != null ? SyncRecord.merge(local, remote) : remote;
+        if (merged == local) return false;
+
+        Task task = null;
+        if (!merged.isDeleted()) {
+            try {
+                task = merged.toTask();
+            } catch (IllegalArgumentException e) {
+                REJECTED.increment(); // Written by a newer version; keep what is here
+                return false;
+            }
+        }
+        clock = Math.max(clock, merged.getMaxClock());
+        Meta meta = new Meta();
+        meta.version = merged.getVersion();
+        for (int field = 0; field < SyncRecord.FIELD_COUNT; field++) {
+            meta.clocks[field] = merged.getClock(field);
+            meta.devices[field] = merged.getDevice(field);
+        }
+        meta.deleted = merged.isDeleted();
+        meta.dirty = merged != remote; // A merge of both sides; the server has not seen it yet
+        metas.put(id, meta);
+        if (meta.dirty) dirty.add(id); else dirty.remove(id);
+        writeMeta(id, meta, editor);
+
+        // The map is updated first, so the store's callback for this change finds nothing new
+        if (task == null) {
+            Task removed = tasks.remove(id);
+            if (removed != null) target.remove(removed);
+        } else if (!task.equals(tasks.get(id))) {
+            tasks.put(id, task);
+            target.put(task);
+        }
+        return true;
+    }
+
+    // --- Local changes ---
+
+    // Stamps the fields that differ from 'before' (all of them for a new task)
+    private void recordLocalChange(UUID id, Task before, Task after, SharedPreferences.Editor editor) {
+        String[] old = before != null ? SyncRecord.valuesOf(before) : null;
+        String[] now = SyncRecord.valuesOf(after);
+        Meta meta = metas.get(id);
+        if (meta == null) meta = new Meta();
+        long stamp = clock + 1;
+        boolean changed = false;
+        for (int field = 0; field < SyncRecord.FIELD_COUNT; field++) {
+            if (field == SyncRecord.DELETED) continue; // Stamped below
+            if (old != null && Objects.equals(old[field], now[field])) continue;
+            stamp(meta, field, stamp);
+            changed = true;
+        }
+        if (meta.deleted) { // Added back
+            meta.deleted = false;
+            stamp(meta, SyncRecord.DELETED, stamp);
+            changed = true;
+        }
+        if (!changed) return;
+        clock = stamp;
+        markDirty(id, meta, editor);
+    }
+
+    private void recordLocalDelete(UUID id, SharedPreferences.Editor editor) {
+        Meta meta = metas.get(id);
+        if (meta == null || meta.deleted) return;
+        meta.deleted = true;
+        stamp(meta, SyncRecord.DELETED, ++clock);
+        markDirty(id, meta, editor);
+    }
+
+    private void stamp(Meta meta, int field, long stamp) {
+        meta.clocks[field] = stamp;
+        meta.devices[field] = device;
+    }
+
+    private void markDirty(UUID id, Meta meta, SharedPreferences.Editor editor) {
+        meta.version = meta.version.increment(device);
+        meta.dirty = true;
+        metas.put(id, meta);
+        dirty.add(id);
+        writeMeta(id, meta, editor);
+        editor.putLong(KEY_CLOCK, clock);
+    }
+
+    // The task as it is here, with its stamps
+    private SyncRecord recordOf(UUID id) {
+        Meta meta = metas.get(id);
+        Task task = tasks.get(id);
+        String[] values = meta.deleted || task == null ? new String[SyncRecord.FIELD_COUNT] : SyncRecord.valuesOf(task);
+        values[SyncRecord.DELETED] = SyncRecord.deletedValue(meta.deleted);
+        return new SyncRecord(id, meta.version, values, meta.clocks.clone(), meta.devices.clone());
+    }
+
+    // --- Stored state ---
+
+    private void readState() {
+        // A token from before accounts were synced apart points into the one shared log: start
+        // this account's log from the top. Merging what is already here changes nothing.
+        token = account.equals(prefs.getString(KEY_ACCOUNT, null)) ? prefs.getLong(KEY_TOKEN, 0L) : 0L;
+        clock = prefs.getLong(KEY_CLOCK, 0L);
+        for (Map.Entry<String, ?> entry : prefs.getAll().entrySet()) {
+            if (!entry.getKey().startsWith(META_PREFIX) || !(entry.getValue() instanceof String)) continue;
+            UUID id = UUID.fromString(entry.getKey().substring(META_PREFIX.length()));
+            Meta meta = parseMeta((String) entry.getValue());
+            metas.put(id, meta);
+            if (meta.dirty) dirty.add(id);
+        }
+    }
+
+    // "<version vector>|<flags>|<clock>@<device>", the last part once if every field has the
+    // same stamp (the usual case), else once per field, comma-separated
+    private static void writeMeta(UUID id, Meta meta, SharedPreferences.Editor editor) {
+        StringBuilder sb = new StringBuilder(64).append(meta.version.encode()).append('|')
+                .append((meta.dirty ? 1 : 0) | (meta.deleted ? 2 : 0) | (meta.archived ? 4 : 0)).append('|');
+        boolean uniform = true;
+        for (int field = 1; field < SyncRecord.FIELD_COUNT && uniform; field++) {
+            uniform = meta.clocks[field] == meta.clocks[0] && Objects.equals(meta.devices[field], meta.devices[0]);
+        }
+        for (int field = 0; field < (uniform ? 1 : SyncRecord.FIELD_COUNT); field++) {
+            if (field > 0) sb.append(',');
+            sb.append(meta.clocks[field]).append('@').append(Objects.toString(meta.devices[field], ""));
+        }
+        editor.putString(META_PREFIX + id, sb.toString());
+    }
+
+    private static Meta parseMeta(String encoded) {
+        String[] parts = encoded.split("\\|", -1);
+        Meta meta = new Meta();
+        meta.version = VersionVector.parse(parts[0]);
+        int flags = Integer.parseInt(parts[1]);
+        meta.dirty = (flags & 1) != 0;
+        meta.deleted = (flags & 2) != 0;
+        meta.archived = (flags & 4) != 0;
+        String[] stamps = parts[2].split(",");
+        for (int field = 0; field < SyncRecord.FIELD_COUNT; field++) {
+            if (stamps.length > 1 && field >= stamps.length) break; // Stored before the field existed: never stamped
+            String stamp = stamps[stamps.length == 1 ? 0 : field];
+            int at = stamp.indexOf('@');
+            meta.clocks[field] = Long.parseLong(stamp.substring(0, at));
+            meta.devices[field] = at + 1 < stamp.length() ? stamp.substring(at + 1) : null;
+        }
+        return meta;
+    }
+
+    private static UUID keyOf(Task task) {
+        return new UUID(task.getIdMostSigBits(), task.getIdLeastSigBits());
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.multimodetaskmanager.sync;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Encodes {@link SyncMessage}s as gzipped JSON, streamed both ways so a batch is never held
+ * as one big string:
+ * <pre>
+ *     {"device":"3f2a9c1d7b0e","account":"&lt;account id&gt;","token":42,"more":false,"changes":[
+ *         {"id":"&lt;uuid&gt;","vv":"3f2a9c1d7b0e=4","f":[["Buy milk",17,"3f2a9c1d7b0e"],[null,0,null],...]}]}
+ * </pre>
+ * "f" holds [value, clock, device] per field, in {@link SyncRecord} field order. Readers
+ * ignore fields and keys they do not know, so newer clients can add some.
+ */
+public final class SyncCodec {
+    private SyncCodec() {
+    }
+
+    public static byte[] encode(SyncMessage message) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 + message.getChanges().size() * 96);
+        try (JsonWriter writer = new JsonWriter(new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8))) {
+            writer.beginObject();
+            if (message.getDevice() != null) writer.name("device").value(message.getDevice());
+            if (message.getAccount() != null) writer.name("account").value(message.getAccount());
+            writer.name("token").value(message.getToken());
+            writer.name("more").value(message.hasMore());
+            writer.name("changes").beginArray();
+            for (SyncRecord record : message.getChanges()) writeRecord(writer, record);
+            writer.endArray();
+            writer.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // In-memory streams do not throw
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IOException if the bytes are not a valid message.
+     */
+    public static SyncMessage decode(byte[] encoded) throws IOException {
+        String device = null;
+        String account = null;
+        long token = 0L;
+        boolean more = false;
+        List<SyncRecord> changes = new ArrayList<>();
+        try (JsonReader reader = new JsonReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(encoded)), StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "device":
+                        device = reader.nextString();
+                        break;
+                    case "account":
+                        account = reader.nextString();
+                        break;
+                    case "token":
+                        token = reader.nextLong();
+                        break;
+                    case "more":
+                        more = reader.nextBoolean();
+                        break;
+                    case "changes":
+                        reader.beginArray();
+                        while (reader.hasNext()) changes.add(readRecord(reader));
+                        reader.endArray();
+                        break;
+                    default:
+                        reader.skipValue();
+                        break;
+                }
+            }
+            reader.endObject();
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            throw new IOException("Malformed sync message", e);
+        }
+        return new SyncMessage(device, account, token, more, changes);
+    }
+
+    private static void writeRecord(JsonWriter writer, SyncRecord record) throws IOException {
+        writer.beginObject();
+        writer.name("id").value(record.getId().toString());
+        writer.name("vv").value(record.getVersion().encode());
+        writer.name("f").beginArray();
+        for (int field = 0; field < SyncRecord.FIELD_COUNT; field++) {
+            writer.beginArray();
+            writer.value(record.getValue(field));
+            writer.value(record.getClock(field));
+            writer.value(record.getDevice(field));
+            writer.endArray();
+        }
+        writer.endArray();
+        writer.endObject();
+    }
+
+    private static SyncRecord readRecord(JsonReader reader) throws IOException {
+        UUID id = null;
+        VersionVector version = VersionVector.EMPTY;
+        String[] values = new String[SyncRecord.FIELD_COUNT];
+        long[] clocks = new long[SyncRecord.FIELD_COUNT];
+        String[] devices = new String[SyncRecord.FIELD_COUNT];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "id":
+                    id = UUID.fromString(reader.nextString());
+                    break;
+                case "vv":
+                    version = VersionVector.parse(reader.nextString());
+                    break;
+                case "f":
+                    reader.beginArray();
+                    for (int field = 0; reader.hasNext(); field++) {
+                        if (field >= SyncRecord.FIELD_COUNT) {
+                            reader.skipValue(); // A field added by a newer version
+                            continue;
+                        }
+                        reader.beginArray();
+                        values[field] = nextStringOrNull(reader);
+                        clocks[field] = reader.nextLong();
+                        devices[field] = nextStringOrNull(reader);
+                        reader.endArray();
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+        if (id == null) throw new IOException("Sync record without an id");
+        return new SyncRecord(id, version, values, clocks, devices);
+    }
+
+    private static String nextStringOrNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.multimodetaskmanager.sync;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One batch of the sync protocol, in either direction.
+ *
+ * The client sends its device ID, the account it syncs, the token of the last batch it received
+ * and up to a batch of its own changes. Each account has its own tasks and change log on the
+ * server, so tokens are positions in that account's log. The server merges the changes, then answers with the changes made since that
+ * token (leaving out the ones the client has just sent), the token to send next time, and
+ * whether more changes are waiting. Only changed tasks ever travel, so the cost of a sync
+ * follows the number of changes, not the number of tasks.
+ *
+ * Encoded by {@link SyncCodec}.
+ */
+public final class SyncMessage {
+    private final String device; // Sender; null in responses
+    private final String account; // Whose tasks; null in responses
+    private final long token;
+    private final boolean more;  // Responses: more changes are waiting after this batch
+    private final List<SyncRecord> changes;
+
+    public SyncMessage(String device, String account, long token, boolean more, List<SyncRecord> changes) {
+        this.device = device;
+        this.account = account;
+        this.token = token;
+        this.more = more;
+        this.changes = Collections.unmodifiableList(changes);
+    }
+
+    public String getDevice() { return device; }
+    public String getAccount() { return account; }
+    public long getToken() { return token; }
+    public boolean hasMore() { return more; }
+    public List<SyncRecord> getChanges() { return changes; }
+}
@@ -0,0 +1,151 @@
+package com.example.multimodetaskmanager.sync;
+
+import com.example.multimodetaskmanager.models.Occurrence;
+import com.example.multimodetaskmanager.models.Recurrence;
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * One task as it is synced: its fields as strings, each stamped with the logical clock and
+ * device of its last change, and a {@link VersionVector} for the task as a whole. A deleted
+ * task is kept as a record whose DELETED field is set, so the deletion syncs like an edit.
+ *
+ * Merging two versions keeps the newer one when one includes the other. Versions changed on
+ * two devices in the meantime are merged field by field, each field taking the value with
+ * the later stamp; so a title edited on the phone and a due date edited on the tablet both
+ * survive. Every device and the server merge the same way and end up with the same result.
+ *
+ * Immutable. No Android dependencies.
+ */
+public final class SyncRecord {
+    // Field indexes; also the order of the fields on the wire
+    public static final int TITLE = 0;
+    public static final int DESCRIPTION = 1;
+    public static final int PRIORITY = 2;
+    public static final int DONE = 3;
+    public static final int DUE_DATE = 4;
+    public static final int RECURRENCE = 5;
+    public static final int OCCURRENCE = 6;
+    public static final int DELETED = 7;
+    public static final int PARENT = 8; // After DELETED: added later, and older clients skip fields past their last
+    public static final int TAGS = 9; // Sorted, one per line (tags hold no line breaks)
+    public static final int FIELD_COUNT = 10;
+
+    private static final String TRUE = "1";
+
+    private final UUID id;
+    private final VersionVector version;
+    private final String[] values;  // null for "not set"
+    private final long[] clocks;    // Logical clock of each field's last change
+    private final String[] devices; // Device of each field's last change; breaks clock ties
+
+    SyncRecord(UUID id, VersionVector version, String[] values, long[] clocks, String[] devices) {
+        this.id = id;
+        this.version = version;
+        this.values = values;
+        this.clocks = clocks;
+        this.devices = devices;
+    }
+
+    public UUID getId() { return id; }
+    public VersionVector getVersion() { return version; }
+    public String getValue(int field) { return values[field]; }
+    public long getClock(int field) { return clocks[field]; }
+    public String getDevice(int field) { return devices[field]; }
+    public boolean isDeleted() { return TRUE.equals(values[DELETED]); }
+
+    // The most recent clock of any field; a device's own clock must move past it
+    public long getMaxClock() {
+        long max = 0L;
+        for (long clock : clocks) max = Math.max(max, clock);
+        return max;
+    }
+
+    /**
+     * Merges two versions of the same task, see the class comment.
+     *
+     * @return One of the two if it already includes the other, otherwise a new record.
+     */
+    public static SyncRecord merge(SyncRecord local, SyncRecord remote) {
+        switch (local.version.compare(remote.version)) {
+            case EQUAL:
+            case AFTER:
+                return local;
+            case BEFORE:
+                return remote;
+            default:
+                String[] values = new String[FIELD_COUNT];
+                long[] clocks = new long[FIELD_COUNT];
+                String[] devices = new String[FIELD_COUNT];
+                for (int field = 0; field < FIELD_COUNT; field++) {
+                    SyncRecord winner = isNewer(remote, local, field) ? remote : local;
+                    values[field] = winner.values[field];
+                    clocks[field] = winner.clocks[field];
+                    devices[field] = winner.devices[field];
+                }
+                return new SyncRecord(local.id, local.version.merge(remote.version), values, clocks, devices);
+        }
+    }
+
+    private static boolean isNewer(SyncRecord a, SyncRecord b, int field) {
+        if (a.clocks[field] != b.clocks[field]) return a.clocks[field] > b.clocks[field];
+        return Objects.toString(a.devices[field], "").compareTo(Objects.toString(b.devices[field], "")) > 0;
+    }
+
+    // --- Task fields ---
+
+    /**
+     * The synced fields of a task, indexed like the field constants.
+     */
+    public static String[] valuesOf(Task task) {
+        String[] values = new String[FIELD_COUNT];
+        values[TITLE] = task.getTitle();
+        values[DESCRIPTION] = task.getDescription();
+        values[PRIORITY] = task.getPriority();
+        values[DONE] = task.isDone() ? TRUE : null;
+        values[DUE_DATE] = task.getDueDate() != 0L ? Long.toString(task.getDueDate()) : null;
+        values[RECURRENCE] = task.isRecurring() ? task.getRecurrence().toRule() : null;
+        Occurrence occurrence = task.getOccurrence();
+        values[OCCURRENCE] = occurrence == null ? null
+                : new UUID(occurrence.getSeriesMostSigBits(), occurrence.getSeriesLeastSigBits()) + "@" + occurrence.getScheduledTime();
+        values[PARENT] = task.hasParent() ? new UUID(task.getParentMostSigBits(), task.getParentLeastSigBits()).toString() : null;
+        values[TAGS] = task.getTags().isEmpty() ? null : String.join("\n", task.getTags());
+        return values;
+    }
+
+    /**
+     * The task this record describes; not meaningful for a deleted one.
+     *
+     * @throws IllegalArgumentException if a field holds a value this version cannot read.
+     */
+    public Task toTask() {
+        Task task = new Task();
+        task.setId(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        task.setTitle(values[TITLE]);
+        task.setDescription(values[DESCRIPTION]);
+        task.setPriority(values[PRIORITY]); // Custom labels survive the trip
+        task.setDone(TRUE.equals(values[DONE]));
+        task.setDueDate(values[DUE_DATE] != null ? Long.parseLong(values[DUE_DATE]) : 0L);
+        task.setRecurrence(values[RECURRENCE] != null ? Recurrence.parse(values[RECURRENCE]) : null);
+        String occurrence = values[OCCURRENCE];
+        if (occurrence != null) {
+            int at = occurrence.indexOf('@');
+            UUID series = UUID.fromString(occurrence.substring(0, at));
+            task.setOccurrence(new Occurrence(series.getMostSignificantBits(), series.getLeastSignificantBits(),
+                    Long.parseLong(occurrence.substring(at + 1))));
+        }
+        if (values[PARENT] != null) {
+            UUID parent = UUID.fromString(values[PARENT]);
+            task.setParentId(parent.getMostSignificantBits(), parent.getLeastSignificantBits());
+        }
+        if (values[TAGS] != null) task.setTags(Arrays.asList(values[TAGS].split("\n")));
+        return task;
+    }
+
+    static String deletedValue(boolean deleted) {
+        return deleted ? TRUE : null;
+    }
+}
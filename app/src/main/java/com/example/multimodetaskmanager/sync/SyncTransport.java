@@ -0,0 +1,10 @@
+package com.example.multimodetaskmanager.sync;
+
+import java.io.IOException;
+
+/**
+ * Sends one encoded {@link SyncMessage} to the server and returns its encoded answer.
+ */
+public interface SyncTransport {
+    byte[] exchange(byte[] request) throws IOException;
+}
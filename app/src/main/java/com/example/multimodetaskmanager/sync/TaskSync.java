@@ -0,0 +1,211 @@
+package com.example.multimodetaskmanager.sync;
+
+import android.content.Context;
+import android.text.TextUtils;
+import android.util.Log;
+
+import com.example.multimodetaskmanager.R;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.repository.TaskStores;
+
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Android side of sync: the {@link SyncClient} following the active account's task store, its
+ * own prefs file, and a background thread for the network. The protocol itself is in
+ * {@link SyncClient}.
+ *
+ * Each account has its own sync state, sync_prefs plus the account's partition suffix (see
+ * {@link TaskStores}); the device ID is one per install and stays in sync_prefs, which is
+ * never backed up. Messages name the account (see {@link SyncClient}), so the server keeps
+ * accounts apart. Tasks kept without an account stay on this device and are not synced.
+ *
+ * Changes are tracked from the start, whether or not a server is configured
+ * ({@code R.string.sync_server_url}), so turning sync on later sends everything once and only
+ * changes from then on.
+ *
+ * When a server is configured, a sync runs once the tasks are loaded (if they cannot be read,
+ * not until a retry of the load works, see {@link TaskStore}), a few seconds after a
+ * local change (one sync for a burst of edits), and every {@link #PERIOD_MILLIS} to pick up
+ * other devices' changes. A failed sync, whatever the reason, is retried with exponential
+ * backoff; its changes stay dirty in the meantime.
+ */
+public final class TaskSync implements TaskStores.ActiveStoreListener {
+    private static final String TAG = "TaskSync";
+    private static final String PREF_NAME = "sync_prefs";
+    static final long DEBOUNCE_MILLIS = 5_000;
+    static final long PERIOD_MILLIS = 15 * 60_000;
+    static final long MIN_RETRY_MILLIS = 30_000;
+
+    private static TaskSync instance;
+
+    private final Context appContext;
+    private final String device;
+    private final URL serverUrl; // null when sync is off
+    private TaskStore followed;
+    private volatile SyncClient client; // The active account's; null after logout
+    private boolean shared; // The active account syncs; tasks without an account do not
+    private ScheduledFuture<?> scheduled; // The next sync, not started yet; at most one waits
+    private int failures; // In a row, for the backoff
+    private final ScheduledExecutorService network = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "task-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // Added after the client, so it sees what the client made of each change. Changes sync
+    // applied from other devices leave nothing dirty and schedule nothing.
+    private final TaskStore.ChangeListener localChanges = new TaskStore.ChangeListener() {
+        @Override
+        public void onTasksLoaded(List<Task> tasks) {
+        }
+
+        @Override
+        public void onTaskChanged(Task task) {
+            syncSoonIfDirty();
+        }
+
+        @Override
+        public void onTaskRemoved(Task task) {
+            syncSoonIfDirty();
+        }
+
+        @Override
+        public void onTasksArchived(List<Task> archived) {
+            syncSoonIfDirty();
+        }
+    };
+
+    private TaskSync(Context context) {
+        appContext = context.getApplicationContext();
+        device = SyncClient.deviceId(appContext.getSharedPreferences(PREF_NAME, Context.MODE_PRIVATE));
+        serverUrl = parseUrl(appContext.getString(R.string.sync_server_url));
+    }
+
+    /**
+     * Starts following the active account's task store, and syncs once its tasks are loaded.
+     */
+    public static synchronized TaskSync start(Context context) {
+        if (instance == null) {
+            instance = new TaskSync(context);
+            TaskStores.get(context).addActiveStoreListener(instance);
+        }
+        return instance;
+    }
+
+    // --- TaskStores.ActiveStoreListener ---
+
+    @Override
+    public synchronized void onActiveStoreChanged(TaskStore store, String partition) {
+        if (followed != null) {
+            followed.removeChangeListener(client);
+            followed.removeChangeListener(localChanges);
+        }
+        followed = store;
+        failures = 0;
+        if (scheduled != null) {
+            scheduled.cancel(false);
+            scheduled = null;
+        }
+        if (store == null) {
+            client = null; // A sync still running finishes for the account it started with
+            return;
+        }
+        String account = TaskStores.get(appContext).activeAccount();
+        shared = !TaskStores.LOCAL_ACCOUNT.equals(account);
+        SyncClient next = new SyncClient(appContext.getSharedPreferences(PREF_NAME + partition, Context.MODE_PRIVATE),
+                device, account, new SyncClient.Target() {
+            @Override
+            public void put(Task task) {
+                store.put(task).whenComplete((snapshot, e) -> {
+                    if (e != null) Log.w(TAG, "Could not apply a synced change", e);
+                });
+            }
+
+            @Override
+            public void remove(Task task) {
+                store.remove(task).whenComplete((snapshot, e) -> {
+                    if (e != null) Log.w(TAG, "Could not apply a synced removal", e);
+                });
+            }
+        });
+        client = next;
+        store.addChangeListener(next);
+        store.addChangeListener(localChanges).thenRun(this::syncNow);
+    }
+
+    /**
+     * Syncs in the background, if a server is configured. A request made while one is running
+     * queues up behind it.
+     */
+    public void syncNow() {
+        schedule(0);
+    }
+
+    private void syncSoonIfDirty() {
+        SyncClient client = this.client;
+        if (client != null && client.dirtyCount() > 0) schedule(DEBOUNCE_MILLIS);
+    }
+
+    // Keeps whichever of the waiting sync and this one comes first
+    private synchronized void schedule(long delayMillis) {
+        if (serverUrl == null || client == null || !shared) return;
+        if (scheduled != null) {
+            if (scheduled.getDelay(TimeUnit.MILLISECONDS) <= delayMillis) return;
+            scheduled.cancel(false);
+        }
+        scheduled = network.schedule(this::sync, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    // On the network thread
+    private void sync() {
+        SyncClient client;
+        synchronized (this) {
+            scheduled = null; // Requests from here on wait for the next one
+            client = this.client;
+        }
+        if (client == null) return;
+        boolean synced;
+        try {
+            int applied = client.sync(new HttpSyncTransport(serverUrl));
+            Log.d(TAG, "Synced, " + applied + " changes from other devices");
+            synced = true;
+        } catch (IOException | RuntimeException e) {
+            // Whatever went wrong, the thread lives on and the changes stay dirty
+            Log.w(TAG, "Sync failed; changes are kept for the next one", e);
+            synced = false;
+        }
+        synchronized (this) {
+            if (client != this.client) return; // A new account has its own schedule
+            if (synced) {
+                failures = 0;
+                schedule(client.dirtyCount() > 0 ? DEBOUNCE_MILLIS : PERIOD_MILLIS); // Changed while it ran
+            } else {
+                schedule(retryDelay(failures++));
+            }
+        }
+    }
+
+    // 30 s, 1 min, 2 min, ... up to the period
+    static long retryDelay(int failures) {
+        return Math.min(PERIOD_MILLIS, MIN_RETRY_MILLIS << Math.min(failures, 20));
+    }
+
+    private static URL parseUrl(String url) {
+        if (TextUtils.isEmpty(url)) return null;
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            Log.e(TAG, "Invalid sync server URL: " + url, e);
+            return null;
+        }
+    }
+}
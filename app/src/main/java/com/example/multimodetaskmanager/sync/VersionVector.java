@@ -0,0 +1,140 @@
+package com.example.multimodetaskmanager.sync;
+
+import java.util.Arrays;
+
+/**
+ * How many changes to one task each device has made that went into a given version of it.
+ * Comparing two vectors tells whether one version already includes the other, or whether
+ * they were changed independently (concurrently) and have to be merged.
+ *
+ * Immutable. Kept as two parallel arrays sorted by device ID; a task is rarely edited on more
+ * than a handful of devices.
+ */
+public final class VersionVector {
+    public static final VersionVector EMPTY = new VersionVector(new String[0], new long[0]);
+
+    public enum Order { EQUAL, BEFORE, AFTER, CONCURRENT }
+
+    private final String[] devices;
+    private final long[] counters;
+
+    private VersionVector(String[] devices, long[] counters) {
+        this.devices = devices;
+        this.counters = counters;
+    }
+
+    public long get(String device) {
+        int index = Arrays.binarySearch(devices, device);
+        return index >= 0 ? counters[index] : 0L;
+    }
+
+    // A copy with one more change by the device
+    public VersionVector increment(String device) {
+        int index = Arrays.binarySearch(devices, device);
+        if (index >= 0) {
+            long[] copy = counters.clone();
+            copy[index]++;
+            return new VersionVector(devices, copy);
+        }
+        int insert = -index - 1;
+        String[] newDevices = new String[devices.length + 1];
+        long[] newCounters = new long[devices.length + 1];
+        System.arraycopy(devices, 0, newDevices, 0, insert);
+        System.arraycopy(counters, 0, newCounters, 0, insert);
+        newDevices[insert] = device;
+        newCounters[insert] = 1L;
+        System.arraycopy(devices, insert, newDevices, insert + 1, devices.length - insert);
+        System.arraycopy(counters, insert, newCounters, insert + 1, devices.length - insert);
+        return new VersionVector(newDevices, newCounters);
+    }
+
+    // The smallest vector that includes both
+    public VersionVector merge(VersionVector other) {
+        String[] mergedDevices = new String[devices.length + other.devices.length];
+        long[] mergedCounters = new long[mergedDevices.length];
+        int i = 0, j = 0, n = 0;
+        while (i < devices.length || j < other.devices.length) {
+            int cmp = i == devices.length ? 1 : j == other.devices.length ? -1 : devices[i].compareTo(other.devices[j]);
+            if (cmp < 0) {
+                mergedDevices[n] = devices[i];
+                mergedCounters[n++] = counters[i++];
+            } else if (cmp > 0) {
+                mergedDevices[n] = other.devices[j];
+                mergedCounters[n++] = other.counters[j++];
+            } else {
+                mergedDevices[n] = devices[i];
+                mergedCounters[n++] = Math.max(counters[i++], other.counters[j++]);
+            }
+        }
+        return new VersionVector(Arrays.copyOf(mergedDevices, n), Arrays.copyOf(mergedCounters, n));
+    }
+
+    /**
+     * BEFORE if the other version includes every change of this one and more, AFTER for the
+     * reverse, CONCURRENT if each has changes the other lacks.
+     */
+    public Order compare(VersionVector other) {
+        boolean less = false, greater = false;
+        int i = 0, j = 0;
+        while (i < devices.length || j < other.devices.length) {
+            int cmp = i == devices.length ? 1 : j == other.devices.length ? -1 : devices[i].compareTo(other.devices[j]);
+            long mine = cmp <= 0 ? counters[i++] : 0L;
+            long theirs = cmp >= 0 ? other.counters[j++] : 0L;
+            if (mine < theirs) less = true;
+            if (mine > theirs) greater = true;
+        }
+        if (less && greater) return Order.CONCURRENT;
+        return less ? Order.BEFORE : greater ? Order.AFTER : Order.EQUAL;
+    }
+
+    // --- Stored form ---
+
+    // E.g. "3f2a9c1d7b0e=4,a81c44e0d2f3=1"
+    public String encode() {
+        StringBuilder sb = new StringBuilder(devices.length * 16);
+        for (int i = 0; i < devices.length; i++) {
+            if (i > 0) sb.append(',');
+            sb.append(devices[i]).append('=').append(counters[i]);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string was not written by {@link #encode()}.
+     */
+    public static VersionVector parse(String encoded) {
+        if (encoded.isEmpty()) return EMPTY;
+        String[] parts = encoded.split(",");
+        String[] devices = new String[parts.length];
+        long[] counters = new long[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i++) {
+                int equals = parts[i].indexOf('=');
+                devices[i] = parts[i].substring(0, equals);
+                counters[i] = Long.parseLong(parts[i].substring(equals + 1));
+                if (i > 0 && devices[i - 1].compareTo(devices[i]) >= 0) throw new IllegalArgumentException("unsorted");
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Malformed version vector: " + encoded, e);
+        }
+        return new VersionVector(devices, counters);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof VersionVector)) return false;
+        VersionVector other = (VersionVector) o;
+        return Arrays.equals(devices, other.devices) && Arrays.equals(counters, other.counters);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(devices) + Arrays.hashCode(counters);
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.multimodetaskmanager.utils;
+
+import android.view.Choreographer;
+
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+
+import java.util.function.Consumer;
+
+/**
+ * Hands at most one value per display frame to a consumer: the newest one submitted since the
+ * previous frame. Anything submitted in between is dropped.
+ *
+ * Used between the task LiveData and the adapter, so a burst of list versions within one frame
+ * (swipes, rapid mark-done taps, a background import) costs a single diff and dispatch. The
+ * consumer runs from a {@link Choreographer} frame callback, i.e. before that frame's layout
+ * and draw, so the update still shows in the frame it was coalesced into.
+ *
+ * Main thread only.
+ */
+public class FrameCoalescer<T> implements Choreographer.FrameCallback {
+    private static final Counter COALESCED = MetricsRegistry.global().counter("list.coalescedUpdates");
+
+    private final Consumer<T> consumer;
+    private T pending;
+    private boolean scheduled;
+
+    public FrameCoalescer(Consumer<T> consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Replaces the value waiting for the next frame, scheduling that frame if needed.
+     */
+    public void submit(T value) {
+        if (scheduled) {
+            COALESCED.increment(); // The previous value is never delivered
+        } else {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+        pending = value;
+    }
+
+    // Drops the waiting value, e.g. when the view it was for is destroyed
+    public void cancel() {
+        if (!scheduled) return;
+        Choreographer.getInstance().removeFrameCallback(this);
+        scheduled = false;
+        pending = null;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        T value = pending;
+        pending = null;
+        scheduled = false;
+        consumer.accept(value);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.multimodetaskmanager.utils;
+
+import com.example.multimodetaskmanager.models.Occurrence;
+import com.example.multimodetaskmanager.models.Recurrence;
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Expands recurring tasks into their occurrences, on demand and only for a date window.
+ *
+ * Nothing here is stored: an occurrence is a throwaway {@link Task} with an ID derived from
+ * its template and scheduled time, so the same occurrence gets the same ID every time it is
+ * generated. It becomes a stored task only when the user edits, completes or deletes it
+ * (see {@link com.example.multimodetaskmanager.repository.TaskStore}).
+ *
+ * This class has no Android dependencies.
+ */
+public final class Occurrences {
+    // A runaway window (or a very dense rule) cannot produce more than this per template
+    static final int MAX_PER_SERIES = 400;
+
+    private Occurrences() {
+    }
+
+    /**
+     * The occurrence of the template scheduled at the given time.
+     */
+    public static Task of(Task template, long time) {
+        Task task = new Task(template);
+        task.setRecurrence(null);
+        task.setDone(false);
+        task.setDueDate(time);
+        task.setOccurrence(new Occurrence(template.getIdMostSigBits(), template.getIdLeastSigBits(), time));
+        // Stable per (template, time); mixed so nearby times do not give nearby IDs
+        long mixed = time * 0x9E3779B97F4A7C15L;
+        task.setId(template.getIdMostSigBits() ^ mixed, template.getIdLeastSigBits() ^ Long.rotateLeft(mixed, 31));
+        return task;
+    }
+
+    /**
+     * The template's first occurrence strictly after {@code after}, or {@link Recurrence#NONE}.
+     */
+    public static long next(Task template, long after, TimeZone zone) {
+        if (template.getDueDate() <= 0L) return Recurrence.NONE; // A rule needs a first occurrence
+        return template.getRecurrence().next(template.getDueDate(), after, zone);
+    }
+
+    /**
+     * Replaces each recurring template with its occurrences in [from, to). A template with none
+     * in the window is shown as its next occurrence after it, or as itself once the series
+     * has ended, so every series stays reachable. Other tasks are copied as they are.
+     */
+    public static List<Task> expand(List<Task> tasks, long from, long to, TimeZone zone) {
+        List<Task> expanded = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            if (!task.isRecurring()) {
+                expanded.add(task);
+                continue;
+            }
+            int added = 0;
+            long time = next(task, from - 1, zone);
+            while (time != Recurrence.NONE && time < to && added < MAX_PER_SERIES) {
+                expanded.add(of(task, time));
+                added++;
+                time = next(task, time, zone);
+            }
+            if (added == 0) expanded.add(time != Recurrence.NONE ? of(task, time) : task);
+        }
+        return expanded;
+    }
+}
@@ -0,0 +1,397 @@
+package com.example.multimodetaskmanager.utils;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of non-negative ints, split Roaring-style into chunks of 65536 values by
+ * their high 16 bits. Each chunk is stored the cheaper way for its content: a sorted array of
+ * the low 16 bits while it holds at most {@link #ARRAY_MAX} values, else a 65536-bit bitmap.
+ * Intersections and unions work chunk by chunk, skipping chunks only one side has (for AND)
+ * and combining two bitmaps a 64-bit word at a time.
+ *
+ * Run-length chunks are left out: the values here are task ordinals, which tags hit
+ * scattered rather than in long runs.
+ *
+ * Not thread-safe. No Android dependencies.
+ */
+public final class RoaringBitmap {
+    static final int ARRAY_MAX = 4096; // Where a bitmap (8 KB) gets smaller than an array of chars
+
+    private char[] keys = new char[4]; // High 16 bits of each chunk, ascending
+    private Container[] containers = new Container[4];
+    private int size; // Chunks in use
+
+    // --- Set operations ---
+
+    public void add(int value) {
+        char key = highBits(value);
+        int i = indexOf(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new ArrayContainer());
+        }
+        containers[i] = containers[i].add(lowBits(value));
+    }
+
+    public void remove(int value) {
+        int i = indexOf(highBits(value));
+        if (i < 0) return;
+        Container container = containers[i].remove(lowBits(value));
+        if (container.cardinality() == 0) {
+            removeChunk(i);
+        } else {
+            containers[i] = container;
+        }
+    }
+
+    public boolean contains(int value) {
+        int i = indexOf(highBits(value));
+        return i >= 0 && containers[i].contains(lowBits(value));
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getCardinality() {
+        int count = 0;
+        for (int i = 0; i < size; i++) count += containers[i].cardinality();
+        return count;
+    }
+
+    /**
+     * The values in both bitmaps, as a new bitmap.
+     */
+    public RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = containers[i].and(other.containers[j]);
+                if (container.cardinality() > 0) result.appendChunk(keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * The values in either bitmap, as a new bitmap.
+     */
+    public RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendChunk(keys[i], containers[i].copy());
+                i++;
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], other.containers[j].copy());
+                j++;
+            } else {
+                result.appendChunk(keys[i], containers[i].or(other.containers[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Calls the consumer with every value, ascending
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) containers[i].forEach(keys[i] << 16, consumer);
+    }
+
+    public int[] toArray() {
+        int[] values = new int[getCardinality()];
+        int[] next = new int[1];
+        forEach(value -> values[next[0]++] = value);
+        return values;
+    }
+
+    /**
+     * Approximate heap bytes held by the chunks: their arrays and object headers.
+     */
+    public long getSizeInBytes() {
+        long bytes = 16L + 2L * keys.length + 4L * containers.length + 32; // Object, arrays
+        for (int i = 0; i < size; i++) bytes += containers[i].sizeInBytes();
+        return bytes;
+    }
+
+    // --- Chunks ---
+
+    private int indexOf(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertChunk(int i, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            containers = Arrays.copyOf(containers, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(containers, i, containers, i + 1, size - i);
+        keys[i] = key;
+        containers[i] = container;
+        size++;
+    }
+
+    // Keys must arrive ascending
+    private void appendChunk(char key, Container container) {
+        insertChunk(size, key, container);
+    }
+
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(containers, i + 1, containers, i, size - i - 1);
+        containers[--size] = null;
+    }
+
+    private static char highBits(int value) {
+        if (value < 0) throw new IllegalArgumentException("Negative value " + value);
+        return (char) (value >>> 16);
+    }
+
+    private static char lowBits(int value) {
+        return (char) value;
+    }
+
+    // --- Containers: one chunk's low 16 bits. Operations return the container to keep, which
+    // is a converted one when the cardinality crosses ARRAY_MAX ---
+
+    private abstract static class Container {
+        abstract Container add(char value);
+        abstract Container remove(char value);
+        abstract boolean contains(char value);
+        abstract int cardinality();
+        abstract Container and(Container other);
+        abstract Container or(Container other);
+        abstract Container copy();
+        abstract void forEach(int high, IntConsumer consumer);
+        abstract long sizeInBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values;
+        int cardinality;
+
+        ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        ArrayContainer(char[] values, int cardinality) {
+            this.values = values;
+            this.cardinality = cardinality;
+        }
+
+        @Override
+        Container add(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i >= 0) return this;
+            if (cardinality == ARRAY_MAX) return toBitmap().add(value);
+            i = -i - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX, Math.max(4, cardinality * 2)));
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = value;
+            cardinality++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int i = Arrays.binarySearch(values, 0, cardinality, value);
+            if (i < 0) return this;
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, cardinality, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            char[] out = new char[cardinality];
+            int n = 0;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer b = (ArrayContainer) other;
+                int i = 0;
+                int j = 0;
+                while (i < cardinality && j < b.cardinality) { // Merge of two sorted arrays
+                    if (values[i] < b.values[j]) i++;
+                    else if (values[i] > b.values[j]) j++;
+                    else { out[n++] = values[i]; i++; j++; }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    if (other.contains(values[i])) out[n++] = values[i];
+                }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        @Override
+        Container or(Container other) {
+            if (other instanceof BitmapContainer) return other.or(this);
+            ArrayContainer b = (ArrayContainer) other;
+            if (cardinality + b.cardinality > ARRAY_MAX) return toBitmap().or(b);
+            char[] out = new char[cardinality + b.cardinality];
+            int n = 0;
+            int i = 0;
+            int j = 0;
+            while (i < cardinality || j < b.cardinality) {
+                if (j >= b.cardinality || (i < cardinality && values[i] < b.values[j])) out[n++] = values[i++];
+                else if (i >= cardinality || values[i] > b.values[j]) out[n++] = b.values[j++];
+                else { out[n++] = values[i]; i++; j++; }
+            }
+            return new ArrayContainer(out, n);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, cardinality), cardinality);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < cardinality; i++) consumer.accept(high | values[i]);
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L + 16 + 2L * values.length;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) bitmap.set(values[i]);
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[1024];
+        int cardinality;
+
+        void set(char value) {
+            long before = words[value >>> 6];
+            long after = before | (1L << value);
+            words[value >>> 6] = after;
+            if (after != before) cardinality++;
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            long before = words[value >>> 6];
+            long after = before & ~(1L << value);
+            if (after == before) return this;
+            words[value >>> 6] = after;
+            cardinality--;
+            return cardinality <= ARRAY_MAX ? toArray() : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        Container and(Container other) {
+            if (other instanceof ArrayContainer) return other.and(this);
+            BitmapContainer b = (BitmapContainer) other;
+            BitmapContainer out = new BitmapContainer();
+            int count = 0;
+            for (int k = 0; k < words.length; k++) {
+                long word = words[k] & b.words[k];
+                out.words[k] = word;
+                count += Long.bitCount(word);
+            }
+            out.cardinality = count;
+            return count <= ARRAY_MAX ? out.toArray() : out;
+        }
+
+        @Override
+        Container or(Container other) {
+            BitmapContainer out = new BitmapContainer();
+            System.arraycopy(words, 0, out.words, 0, words.length);
+            out.cardinality = cardinality;
+            if (other instanceof ArrayContainer) {
+                ArrayContainer b = (ArrayContainer) other;
+                for (int i = 0; i < b.cardinality; i++) out.set(b.values[i]);
+                return out;
+            }
+            BitmapContainer b = (BitmapContainer) other;
+            int count = 0;
+            for (int k = 0; k < words.length; k++) {
+                long word = words[k] | b.words[k];
+                out.words[k] = word;
+                count += Long.bitCount(word);
+            }
+            out.cardinality = count;
+            return out;
+        }
+
+        @Override
+        Container copy() {
+            BitmapContainer out = new BitmapContainer();
+            System.arraycopy(words, 0, out.words, 0, words.length);
+            out.cardinality = cardinality;
+            return out;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int k = 0; k < words.length; k++) {
+                long word = words[k];
+                while (word != 0) {
+                    consumer.accept(high | (k << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        long sizeInBytes() {
+            return 16L + 16 + 8L * words.length;
+        }
+
+        ArrayContainer toArray() {
+            char[] values = new char[cardinality];
+            int n = 0;
+            for (int k = 0; k < words.length; k++) {
+                long word = words[k];
+                while (word != 0) {
+                    values[n++] = (char) ((k << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return new ArrayContainer(values, n);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.multimodetaskmanager.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A small, non-thread-safe interning pool.
+ * Used while decoding tasks so that repeated titles and descriptions share one String
+ * instance instead of each task holding its own copy. Unlike {@link String#intern()},
+ * the pool is scoped to its owner and is garbage collected together with it.
+ */
+public class StringPool {
+    private final Map<String, String> pool;
+
+    public StringPool() {
+        this(64);
+    }
+
+    public StringPool(int expectedSize) {
+        this.pool = new HashMap<>(Math.max(16, expectedSize));
+    }
+
+    /**
+     * Returns the pooled instance equal to the given string, adding it if it is new.
+     *
+     * @param value The string to intern (may be null).
+     * @return The shared instance, or null if value was null.
+     */
+    public String intern(String value) {
+        if (value == null) return null;
+        if (value.isEmpty()) return ""; // All empty strings share the literal
+        String existing = pool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+
+    // Number of distinct strings held by the pool
+    public int size() {
+        return pool.size();
+    }
+
+    public void clear() {
+        pool.clear();
+    }
+}
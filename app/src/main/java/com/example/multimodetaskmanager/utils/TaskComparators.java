@@ -0,0 +1,59 @@
+package com.example.multimodetaskmanager.utils;
+
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.Comparator;
+
+/**
+ * The comparators behind each {@link SortOrder}.
+ * Kept free of Android dependencies so the same ordering can be used by the TaskStore,
+ * {@link com.example.multimodetaskmanager.models.TaskTable} and plain JVM tests.
+ */
+public final class TaskComparators {
+
+    // Sort by priority: High (1) > Medium (2) > Low (3). Lower value means higher priority.
+    public static final Comparator<Task> PRIORITY = (t1, t2) ->
+            Integer.compare(t1.getPriorityLevel().rank(), t2.getPriorityLevel().rank());
+
+    // Sort by due date, earliest first. Tasks with no due date (0L) are placed at the end.
+    public static final Comparator<Task> DUE_DATE = (t1, t2) -> compareDueDates(t1.getDueDate(), t2.getDueDate());
+
+    // Sort by task title alphabetically (case-insensitive). Tasks without a title (e.g. from a
+    // bad sync record) sort as an empty one rather than failing the sort.
+    public static final Comparator<Task> NAME = (t1, t2) -> titleOf(t1).compareToIgnoreCase(titleOf(t2));
+
+    private TaskComparators() {
+    }
+
+    /**
+     * Returns the comparator for the given sort order. The comparators are shared
+     * constants, so this does not allocate.
+     */
+    public static Comparator<Task> forOrder(SortOrder order) {
+        switch (order) {
+            case PRIORITY:
+                return PRIORITY;
+            case DUE_DATE:
+                return DUE_DATE;
+            case NAME:
+            default:
+                return NAME;
+        }
+    }
+
+    private static String titleOf(Task task) {
+        String title = task.getTitle();
+        return title != null ? title : "";
+    }
+
+    /**
+     * Compares two due dates, earliest first, with "no due date" (0L) placed last.
+     */
+    public static int compareDueDates(long d1, long d2) {
+        if (d1 == 0L && d2 == 0L) return 0; // Both no due date, maintain original order
+        if (d1 == 0L) return 1; // d1 has no due date, put it after d2
+        if (d2 == 0L) return -1; // d2 has no due date, put it after d1
+        return Long.compare(d1, d2);
+    }
+}
@@ -29,7 +29,7 @@ public class TaskDiffUtil extends DiffUtil.Callback {
         // This method is used by DiffUtil to check if two items represent the same logical entity.
         // CRITICAL FIX: Use the unique ID of the Task object. If IDs are the same, it's the same item.
         // This is essential for DiffUtil to correctly identify moved items across lists.
-        return oldList.get(oldItemPosition).getId().equals(newList.get(newItemPosition).getId());
+        return oldList.get(oldItemPosition).hasSameId(newList.get(newItemPosition));
     }
 
     @Override
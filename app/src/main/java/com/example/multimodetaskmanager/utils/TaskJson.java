@@ -0,0 +1,319 @@
+package com.example.multimodetaskmanager.utils;
+
+import com.example.multimodetaskmanager.models.Occurrence;
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.Recurrence;
+import com.example.multimodetaskmanager.models.Task;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Converts tasks to and from the stored JSON format: one record per task, kept in chunk files
+ * (see TaskRepository), or the whole list as one array as the archive and old versions store it.
+ * This class has no Android dependencies so it can be used from plain JVM tests.
+ *
+ * The JSON shape is the one the app has always written
+ * ({"id":"<uuid>","title":...,"description":...,"priority":"High","isDone":false,"dueDate":0}),
+ * even though {@link Task} now stores its ID and priority in compact form. Recurring tasks add
+ * "recurrence" (see {@link Recurrence#toRule()}); stored occurrences add "series" and
+ * "occurrence", done tasks "completedAt", subtasks "parent" (the parent's ID), and tagged tasks
+ * "tags" (an array of strings). Tasks without them are written exactly as before.
+ */
+public final class TaskJson {
+    private static final Type TASK_LIST_TYPE = new TypeToken<ArrayList<Task>>(){}.getType();
+
+    // Field names used in the stored JSON
+    static final String FIELD_ID = "id";
+    static final String FIELD_TITLE = "title";
+    static final String FIELD_DESCRIPTION = "description";
+    static final String FIELD_PRIORITY = "priority";
+    static final String FIELD_DONE = "isDone";
+    static final String FIELD_DUE_DATE = "dueDate";
+    static final String FIELD_RECURRENCE = "recurrence";
+    static final String FIELD_SERIES = "series";
+    static final String FIELD_OCCURRENCE = "occurrence";
+    static final String FIELD_COMPLETED_AT = "completedAt";
+    static final String FIELD_PARENT = "parent";
+    static final String FIELD_TAGS = "tags";
+    // Extra fields of a single stored record (see TaskRepository); list JSON does not have them
+    static final String FIELD_VERSION = "version";
+    static final String FIELD_SEQ = "seq";
+
+    // Writing needs no per-call state, so a single Gson instance is shared
+    private static final Gson WRITER = newGson(null);
+
+    private TaskJson() {
+    }
+
+    /**
+     * Encodes a list of tasks to JSON.
+     *
+     * @param tasks The list of Task objects to encode.
+     * @return The JSON array string.
+     */
+    public static String toJson(List<Task> tasks) {
+        return WRITER.toJson(tasks, TASK_LIST_TYPE);
+    }
+
+    /**
+     * Encodes a list of tasks to JSON, straight into {@code out} (e.g. a compressing stream).
+     */
+    public static void toJson(List<Task> tasks, Appendable out) {
+        WRITER.toJson(tasks, TASK_LIST_TYPE, out);
+    }
+
+    /**
+     * Decodes a JSON array of tasks. Titles and descriptions that occur more than once
+     * are deduplicated through a {@link StringPool} that lives only for this call.
+     *
+     * @param json The JSON array string.
+     * @return A mutable list of tasks, or an empty list if json is null.
+     */
+    public static List<Task> fromJson(String json) {
+        return fromJson(json, new StringPool());
+    }
+
+    /**
+     * Decodes a JSON array of tasks, interning strings through the given pool.
+     */
+    public static List<Task> fromJson(String json, StringPool pool) {
+        if (json == null) {
+            return new ArrayList<>();
+        }
+        List<Task> tasks = newGson(pool).fromJson(json, TASK_LIST_TYPE);
+        return tasks != null ? tasks : new ArrayList<>();
+    }
+
+    /**
+     * Decodes a JSON array of tasks as it is read from {@code in}, without holding the text.
+     */
+    public static List<Task> fromJson(Reader in, StringPool pool) {
+        List<Task> tasks = newGson(pool).fromJson(in, TASK_LIST_TYPE);
+        return tasks != null ? tasks : new ArrayList<>();
+    }
+
+    /**
+     * Encodes one task as a stored record: the usual task fields plus the record's version and
+     * sequence number. Readers that do not know the extra fields simply skip them.
+     */
+    public static String toRecordJson(Task task, long version, long seq) {
+        StringWriter out = new StringWriter(160);
+        try (JsonWriter writer = new JsonWriter(out)) {
+            writer.beginObject();
+            writeFields(writer, task);
+            writer.name(FIELD_VERSION).value(version);
+            writer.name(FIELD_SEQ).value(seq);
+            writer.endObject();
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    /**
+     * Decodes records written by {@link #toRecordJson}. The records are joined into one JSON
+     * array and read in a single pass, which allocates far less than a reader per record. If
+     * that pass fails, the records are read again one by one, so one malformed record costs
+     * only itself.
+     *
+     * @param seqs Receives each record's sequence number, at the same index as the record.
+     * @return The tasks, at the same index as their records; null for a record that is not a
+     *         valid task.
+     */
+    public static List<Task> fromRecordsJson(List<String> records, StringPool pool, long[] seqs) {
+        int length = 2;
+        for (String record : records) length += record.length() + 1;
+        StringBuilder joined = new StringBuilder(length).append('[');
+        for (int i = 0; i < records.size(); i++) {
+            if (i > 0) joined.append(',');
+            joined.append(records.get(i));
+        }
+        joined.append(']');
+
+        List<Task> tasks = new ArrayList<>(records.size());
+        long[] versionAndSeq = new long[2];
+        try (JsonReader reader = new JsonReader(new StringReader(joined.toString()))) {
+            reader.beginArray();
+            while (reader.hasNext() && tasks.size() < records.size()) {
+                versionAndSeq[1] = 0L; // Records written without a seq sort first
+                tasks.add(readTask(reader, pool, versionAndSeq));
+                seqs[tasks.size() - 1] = versionAndSeq[1];
+            }
+            reader.endArray(); // Also fails if a record held more than one value
+            if (tasks.size() == records.size()) return tasks;
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            // Some record is malformed; find out which below
+        }
+
+        tasks.clear();
+        for (int i = 0; i < records.size(); i++) {
+            versionAndSeq[1] = 0L;
+            tasks.add(fromRecordJson(records.get(i), pool, versionAndSeq));
+            seqs[i] = versionAndSeq[1];
+        }
+        return tasks;
+    }
+
+    // One record on its own, or null if it is not exactly one valid task
+    private static Task fromRecordJson(String record, StringPool pool, long[] versionAndSeq) {
+        try (JsonReader reader = new JsonReader(new StringReader(record))) {
+            Task task = readTask(reader, pool, versionAndSeq);
+            return reader.peek() == JsonToken.END_DOCUMENT ? task : null;
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static Gson newGson(StringPool pool) {
+        return new GsonBuilder()
+                .registerTypeAdapter(Task.class, new TaskAdapter(pool))
+                .create();
+    }
+
+    // Reads and writes Task field by field so the compact fields map onto the original JSON keys
+    private static final class TaskAdapter extends TypeAdapter<Task> {
+        private final StringPool pool; // null when only writing
+
+        TaskAdapter(StringPool pool) {
+            this.pool = pool;
+        }
+
+        @Override
+        public void write(JsonWriter out, Task task) throws IOException {
+            if (task == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            writeFields(out, task);
+            out.endObject();
+        }
+
+        @Override
+        public Task read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            return readTask(in, pool, null);
+        }
+    }
+
+    private static void writeFields(JsonWriter out, Task task) throws IOException {
+        out.name(FIELD_ID).value(task.getId());
+        if (task.getTitle() != null) out.name(FIELD_TITLE).value(task.getTitle());
+        if (task.getDescription() != null) out.name(FIELD_DESCRIPTION).value(task.getDescription());
+        if (task.getPriority() != null) out.name(FIELD_PRIORITY).value(task.getPriority());
+        out.name(FIELD_DONE).value(task.isDone());
+        out.name(FIELD_DUE_DATE).value(task.getDueDate());
+        if (task.getRecurrence() != null) out.name(FIELD_RECURRENCE).value(task.getRecurrence().toRule());
+        Occurrence occurrence = task.getOccurrence();
+        if (occurrence != null) {
+            out.name(FIELD_SERIES).value(new UUID(occurrence.getSeriesMostSigBits(), occurrence.getSeriesLeastSigBits()).toString());
+            out.name(FIELD_OCCURRENCE).value(occurrence.getScheduledTime());
+        }
+        if (task.getCompletedAt() != 0L) out.name(FIELD_COMPLETED_AT).value(task.getCompletedAt());
+        if (task.hasParent()) {
+            out.name(FIELD_PARENT).value(new UUID(task.getParentMostSigBits(), task.getParentLeastSigBits()).toString());
+        }
+        if (!task.getTags().isEmpty()) {
+            out.name(FIELD_TAGS).beginArray();
+            for (String tag : task.getTags()) out.value(tag);
+            out.endArray();
+        }
+    }
+
+    // Reads one task object; record metadata goes into versionAndSeq when it is not null
+    private static Task readTask(JsonReader in, StringPool pool, long[] versionAndSeq) throws IOException {
+        Task task = new Task();
+        boolean hasId = false;
+        UUID series = null;
+        long occurrenceTime = 0L;
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case FIELD_ID:
+                    task.setId(in.nextString());
+                    hasId = true;
+                    break;
+                case FIELD_TITLE:
+                    task.setTitle(pool.intern(in.nextString()));
+                    break;
+                case FIELD_DESCRIPTION:
+                    task.setDescription(pool.intern(in.nextString()));
+                    break;
+                case FIELD_PRIORITY:
+                    String label = in.nextString();
+                    Priority level = Priority.fromLabel(label);
+                    if (level != Priority.NONE) task.setPriorityLevel(level);
+                    else task.setPriority(pool.intern(label)); // A custom label, kept as written
+                    break;
+                case FIELD_DONE:
+                    task.setDone(in.nextBoolean());
+                    break;
+                case FIELD_DUE_DATE:
+                    task.setDueDate(in.nextLong());
+                    break;
+                case FIELD_RECURRENCE:
+                    task.setRecurrence(Recurrence.parse(in.nextString()));
+                    break;
+                case FIELD_SERIES:
+                    series = UUID.fromString(in.nextString());
+                    break;
+                case FIELD_OCCURRENCE:
+                    occurrenceTime = in.nextLong();
+                    break;
+                case FIELD_COMPLETED_AT:
+                    task.setCompletedAt(in.nextLong());
+                    break;
+                case FIELD_PARENT:
+                    UUID parent = UUID.fromString(in.nextString());
+                    task.setParentId(parent.getMostSignificantBits(), parent.getLeastSignificantBits());
+                    break;
+                case FIELD_TAGS:
+                    List<String> tags = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext()) tags.add(pool.intern(in.nextString())); // The same few tags on many tasks
+                    in.endArray();
+                    task.setTags(tags);
+                    break;
+                case FIELD_VERSION:
+                    if (versionAndSeq != null) versionAndSeq[0] = in.nextLong(); else in.skipValue();
+                    break;
+                case FIELD_SEQ:
+                    if (versionAndSeq != null) versionAndSeq[1] = in.nextLong(); else in.skipValue();
+                    break;
+                default:
+                    in.skipValue(); // Ignore fields this version does not know about
+                    break;
+            }
+        }
+        in.endObject();
+        if (!hasId) task.setId((String) null); // Stored without one: a new ID, so such tasks never share 0,0
+        if (series != null) {
+            task.setOccurrence(new Occurrence(series.getMostSignificantBits(), series.getLeastSignificantBits(), occurrenceTime));
+        }
+        return task;
+    }
+
+}
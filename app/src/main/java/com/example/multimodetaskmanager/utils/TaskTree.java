@@ -0,0 +1,319 @@
+package com.example.multimodetaskmanager.utils;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The tasks of a list arranged by parent, and the rows they show as: each task followed by its
+ * subtasks while it is expanded. Siblings keep the order of the list they came from, so the
+ * store's sort order applies within every level.
+ *
+ * Every task keeps the size of its subtree, the number of rows it takes up and how many of its
+ * subtasks are done. Expanding or collapsing a row therefore inserts or removes one range of
+ * rows, without looking at the rest of the list, and a task marked done only updates the
+ * counts of its ancestors. Both are reported to the {@link Listener} as they happen; rebuilding
+ * from a list with other tasks or another order ({@link #setTasks}) is not, because the caller
+ * diffs that like any other list change.
+ *
+ * A subtask whose parent is not in the list (deleted, archived, or a repeating task that only
+ * shows as occurrences) is shown at the top level. Tasks start out collapsed; expanded tasks
+ * stay expanded across new lists.
+ *
+ * Main thread only. No Android dependencies.
+ */
+public class TaskTree {
+    // Told about changes made in place; positions are row positions, as in an adapter
+    public interface Listener {
+        void onRowsInserted(int position, int count);
+        void onRowsRemoved(int position, int count);
+        void onRowChanged(int position);
+    }
+
+    private static final class Node {
+        Task task;
+        Node parent;
+        final List<Node> children = new ArrayList<>(0);
+        int depth;
+        boolean expanded;
+        int size = 1;     // Tasks in this subtree, itself included
+        int doneBelow;    // Done tasks among those below it
+        int visible = 1;  // Rows the subtree takes up while this node is shown
+        int row = -1;     // Position while shown and rowsValid, else -1
+        boolean changed;  // Counts or depth differ from the previous list's node (setTasks only)
+
+        Node(Task task) {
+            this.task = task;
+        }
+    }
+
+    private final Listener listener;
+    private final Set<UUID> expandedIds = new HashSet<>();
+    private List<Task> tasks = new ArrayList<>(); // As last given to setTasks or update
+    private List<Node> nodes = new ArrayList<>(); // Same order as tasks
+    private List<Node> rows = new ArrayList<>();
+    private boolean rowsValid = true; // Whether Node.row is up to date for every row
+
+    public TaskTree(Listener listener) {
+        this.listener = listener;
+    }
+
+    // --- Rows ---
+
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    public Task getTask(int position) {
+        return rows.get(position).task;
+    }
+
+    // 0 for top-level tasks
+    public int getDepth(int position) {
+        return rows.get(position).depth;
+    }
+
+    public boolean hasSubtasks(int position) {
+        return !rows.get(position).children.isEmpty();
+    }
+
+    public boolean isExpanded(int position) {
+        return rows.get(position).expanded;
+    }
+
+    // All subtasks, at any depth
+    public int getSubtaskCount(int position) {
+        return rows.get(position).size - 1;
+    }
+
+    public int getDoneSubtaskCount(int position) {
+        return rows.get(position).doneBelow;
+    }
+
+    /**
+     * Whether the row's task counts as done: it is marked done, or it has subtasks and all of
+     * them are done.
+     */
+    public boolean isComplete(int position) {
+        Node node = rows.get(position);
+        return node.task.isDone() || (node.size > 1 && node.doneBelow == node.size - 1);
+    }
+
+    /**
+     * The tasks of the rows, as a view. {@link #setTasks} replaces the rows instead of changing
+     * them, so a view taken before it can be diffed against one taken after; expanding and
+     * collapsing change them in place.
+     */
+    public List<Task> getRowTasks() {
+        List<Node> shown = rows;
+        return new AbstractList<Task>() {
+            @Override
+            public Task get(int index) {
+                return shown.get(index).task;
+            }
+
+            @Override
+            public int size() {
+                return shown.size();
+            }
+        };
+    }
+
+    // --- Expand and collapse ---
+
+    /**
+     * Shows the subtasks of the row's task below it, as far down as they were expanded before.
+     */
+    public void expand(int position) {
+        Node node = rows.get(position);
+        if (node.expanded || node.children.isEmpty()) return;
+        node.expanded = true;
+        expandedIds.add(keyOf(node.task));
+        List<Node> added = new ArrayList<>(node.size - 1);
+        for (Node child : node.children) addRows(child, added);
+        rows.addAll(position + 1, added);
+        int count = added.size();
+        for (Node n = node; n != null; n = n.parent) n.visible += count;
+        rowsValid = false;
+        listener.onRowsInserted(position + 1, count);
+        listener.onRowChanged(position); // Its expand indicator
+    }
+
+    /**
+     * Hides everything below the row's task.
+     */
+    public void collapse(int position) {
+        Node node = rows.get(position);
+        if (!node.expanded) return;
+        node.expanded = false;
+        expandedIds.remove(keyOf(node.task));
+        int count = node.visible - 1;
+        List<Node> removed = rows.subList(position + 1, position + 1 + count);
+        for (Node n : removed) n.row = -1;
+        removed.clear();
+        for (Node n = node; n != null; n = n.parent) n.visible -= count;
+        rowsValid = false;
+        listener.onRowsRemoved(position + 1, count);
+        listener.onRowChanged(position);
+    }
+
+    public void toggle(int position) {
+        if (rows.get(position).expanded) collapse(position); else expand(position);
+    }
+
+    /**
+     * Expands the task's parent from the next {@link #setTasks} on, e.g. before the task is
+     * added so that it shows straight away. Its ancestors further up are left as they are.
+     */
+    public void expandParentOf(Task task) {
+        if (task.hasParent()) expandedIds.add(new UUID(task.getParentMostSigBits(), task.getParentLeastSigBits()));
+    }
+
+    // --- Changes to the tasks ---
+
+    /**
+     * Takes a new version of the list in place if it has the same tasks in the same order
+     * under the same parents, which is the case for edits and for marking tasks done. The rows
+     * of changed tasks are reported to the listener, along with their ancestors' rows when the
+     * done counts change; nothing else is touched.
+     *
+     * @return false if the list differs in more than that; call {@link #setTasks} instead.
+     */
+    public boolean update(List<Task> newTasks) {
+        int count = nodes.size();
+        if (newTasks.size() != count) return false;
+        for (int i = 0; i < count; i++) {
+            Task old = tasks.get(i);
+            Task task = newTasks.get(i);
+            if (old != task && (!old.hasSameId(task)
+                    || old.getParentMostSigBits() != task.getParentMostSigBits()
+                    || old.getParentLeastSigBits() != task.getParentLeastSigBits())) {
+                return false;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            Task old = tasks.get(i);
+            Task task = newTasks.get(i);
+            if (old == task || old.equals(task)) {
+                nodes.get(i).task = task; // Same content; keep the new instance for later edits
+                continue;
+            }
+            Node node = nodes.get(i);
+            node.task = task;
+            notifyChanged(node);
+            if (old.isDone() == task.isDone()) continue;
+            int delta = task.isDone() ? 1 : -1;
+            for (Node ancestor = node.parent; ancestor != null; ancestor = ancestor.parent) {
+                ancestor.doneBelow += delta;
+                notifyChanged(ancestor);
+            }
+        }
+        tasks = newTasks;
+        return true;
+    }
+
+    /**
+     * Rebuilds the tree from a list of tasks, keeping what was expanded. Nothing is reported:
+     * diff {@link #getRowTasks()} from before and after, then call {@link #notifyRollupChanges()}
+     * for rows whose task is the same but whose subtask counts or depth are not.
+     */
+    public void setTasks(List<Task> newTasks) {
+        Map<UUID, Node> oldNodes = new HashMap<>(nodes.size() * 2);
+        for (Node node : nodes) oldNodes.put(keyOf(node.task), node);
+
+        List<Node> built = new ArrayList<>(newTasks.size());
+        Map<UUID, Node> byId = new HashMap<>(newTasks.size() * 2);
+        for (Task task : newTasks) {
+            Node node = new Node(task);
+            node.expanded = expandedIds.contains(keyOf(task));
+            built.add(node);
+            byId.put(keyOf(task), node);
+        }
+        for (Node node : built) {
+            if (!node.task.hasParent()) continue;
+            node.parent = byId.get(new UUID(node.task.getParentMostSigBits(), node.task.getParentLeastSigBits()));
+        }
+        List<Node> roots = new ArrayList<>();
+        for (Node node : built) {
+            if (node.parent != null && formsCycle(node, built.size())) node.parent = null; // Only from bad data; shown at the top
+            if (node.parent != null) node.parent.children.add(node);
+            else roots.add(node);
+        }
+
+        List<Node> shown = new ArrayList<>(newTasks.size());
+        for (Node root : roots) {
+            measure(root, 0);
+            addRows(root, shown);
+        }
+        for (int i = 0; i < shown.size(); i++) shown.get(i).row = i;
+        for (Node node : built) {
+            Node old = oldNodes.get(keyOf(node.task));
+            node.changed = old != null && (old.size != node.size || old.doneBelow != node.doneBelow || old.depth != node.depth);
+        }
+        tasks = newTasks;
+        nodes = built;
+        rows = shown;
+        rowsValid = true;
+    }
+
+    /**
+     * Reports the rows whose subtask counts or depth changed in the last {@link #setTasks},
+     * which a diff of the tasks alone does not see.
+     */
+    public void notifyRollupChanges() {
+        for (Node node : nodes) {
+            if (!node.changed) continue;
+            node.changed = false;
+            notifyChanged(node);
+        }
+    }
+
+    // --- Helpers ---
+
+    // Sets depth and counts for the subtree; children first
+    private static void measure(Node node, int depth) {
+        node.depth = depth;
+        for (Node child : node.children) {
+            measure(child, depth + 1);
+            node.size += child.size;
+            node.doneBelow += child.doneBelow + (child.task.isDone() ? 1 : 0);
+            if (node.expanded) node.visible += child.visible;
+        }
+    }
+
+    // Appends the node and, while it is expanded, its shown descendants
+    private static void addRows(Node node, List<Node> out) {
+        out.add(node);
+        if (!node.expanded) return;
+        for (Node child : node.children) addRows(child, out);
+    }
+
+    // Whether following parents from the node leads back to it, or into a loop further up
+    // (which is cut when its own nodes come up)
+    private static boolean formsCycle(Node node, int count) {
+        int steps = 0;
+        for (Node n = node.parent; n != null; n = n.parent) {
+            if (n == node || ++steps > count) return true;
+        }
+        return false;
+    }
+
+    private void notifyChanged(Node node) {
+        if (!rowsValid) {
+            for (int i = 0; i < rows.size(); i++) rows.get(i).row = i;
+            rowsValid = true;
+        }
+        if (node.row >= 0) listener.onRowChanged(node.row);
+    }
+
+    private static UUID keyOf(Task task) {
+        return new UUID(task.getIdMostSigBits(), task.getIdLeastSigBits());
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.multimodetaskmanager.viewmodel;
+
+import android.app.Application;
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import com.example.multimodetaskmanager.activities.LoginActivity;
+import com.example.multimodetaskmanager.repository.TaskStores;
+import com.example.multimodetaskmanager.security.PasswordHasher;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Checks a login password, or hashes a new account's, off the main thread for LoginActivity
+ * and SignUpActivity.
+ *
+ * The ViewModel outlives a rotation while the hash runs, so the recreated activity observes the
+ * same {@link #getStatus()} and acts on the outcome instead of losing it. The login state is
+ * saved, and the account's tasks switched to, here on the hashing thread, before the outcome
+ * is posted: that happens whether or not an activity is showing at the time.
+ */
+public class AccountViewModel extends AndroidViewModel {
+    public enum Status {
+        CHECKING,
+        LOGGED_IN,
+        SIGNED_UP,
+        INVALID
+    }
+
+    private final ExecutorService hasher = Executors.newSingleThreadExecutor();
+    // null while idle, or once the activity has acted on the outcome
+    private final MutableLiveData<Status> status = new MutableLiveData<>();
+
+    public AccountViewModel(@NonNull Application application) {
+        super(application);
+    }
+
+    public LiveData<Status> getStatus() {
+        return status;
+    }
+
+    /**
+     * Clears an outcome the activity has acted on, so an activity recreated later does not act
+     * on it again.
+     */
+    public void acknowledge() {
+        if (status.getValue() != Status.CHECKING) status.setValue(null);
+    }
+
+    /**
+     * Checks the password against the stored hash, or the plain text one from before hashing,
+     * which it then replaces with a hash. Call on the main thread.
+     */
+    public void logIn(String email, String password) {
+        if (status.getValue() == Status.CHECKING) return;
+        status.setValue(Status.CHECKING);
+        SharedPreferences prefs = prefs();
+        hasher.execute(() -> {
+            String storedHash = prefs.getString(LoginActivity.KEY_PASSWORD_HASH, null);
+            String legacyPassword = prefs.getString(LoginActivity.KEY_PASSWORD, null);
+            boolean valid = storedHash != null
+                    ? PasswordHasher.verify(password, storedHash)
+                    : password.equals(legacyPassword);
+            if (!valid) {
+                status.postValue(Status.INVALID);
+                return;
+            }
+            SharedPreferences.Editor editor = prefs.edit().putBoolean(LoginActivity.KEY_LOGGED_IN, true);
+            if (storedHash == null) { // Replace the plain text password now that we know it
+                editor.putString(LoginActivity.KEY_PASSWORD_HASH, PasswordHasher.hash(password))
+                        .remove(LoginActivity.KEY_PASSWORD);
+            }
+            editor.apply();
+            TaskStores.get(getApplication()).switchTo(email); // Starts loading this account's tasks
+            status.postValue(Status.LOGGED_IN);
+        });
+    }
+
+    /**
+     * Saves a new account, logged in, with a hash of the password. Call on the main thread.
+     */
+    public void signUp(String email, String password) {
+        if (status.getValue() == Status.CHECKING) return;
+        status.setValue(Status.CHECKING);
+        SharedPreferences prefs = prefs();
+        hasher.execute(() -> {
+            String passwordHash = PasswordHasher.hash(password);
+            // In a real app, you'd check if email already exists before saving.
+            // For this local example, we'll just overwrite/save.
+            prefs.edit()
+                    .putString(LoginActivity.KEY_EMAIL, email)
+                    .putString(LoginActivity.KEY_PASSWORD_HASH, passwordHash) // Never the password itself
+                    .remove(LoginActivity.KEY_PASSWORD)
+                    .putBoolean(LoginActivity.KEY_LOGGED_IN, true) // Log in automatically after signup
+                    .apply();
+            TaskStores.get(getApplication()).switchTo(email); // A new account starts with its own, empty task list
+            status.postValue(Status.SIGNED_UP);
+        });
+    }
+
+    @Override
+    protected void onCleared() {
+        hasher.shutdown(); // A hash already started still gets saved
+    }
+
+    private SharedPreferences prefs() {
+        return getApplication().getSharedPreferences(LoginActivity.PREFS_NAME, Context.MODE_PRIVATE);
+    }
+}
@@ -1,26 +1,62 @@
 // MultiModeTaskManager/app/src/main/java/com/example/multimodetaskmanager/viewmodel/TaskViewModel.java
 package com.example.multimodetaskmanager.viewmodel;
 
+import android.os.Handler;
+import android.os.Looper;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.example.multimodetaskmanager.models.SortOrder;
 import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TaskSnapshot;
+import com.example.multimodetaskmanager.repository.TaskStore;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.Calendar;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Shows the tasks of a {@link TaskStore} to the UI and forwards the user's changes to it.
+ *
+ * The store does the actual work (copying, sorting, saving) on its writer thread; this class
+ * only moves the newest snapshot onto the main thread.
+ *
+ * If the stored tasks cannot be read, {@link #getLoadFailed()} turns true and the changes are
+ * refused (they return false) until {@link #retryLoad()} works: a change made then would be
+ * lost, not saved.
+ */
+public class TaskViewModel extends ViewModel implements TaskStore.Listener {
+    // Recurring tasks are listed as their occurrences in the next two weeks
+    static final int OCCURRENCE_DAYS = 14;
 
-public class TaskViewModel extends ViewModel {
     // MutableLiveData to hold the list of tasks. MutableLiveData allows us to change its value.
-    // Initialized with an empty ArrayList.
-    private final MutableLiveData<List<Task>> tasks = new MutableLiveData<>(new ArrayList<>());
-    private SortOrder currentSortOrder = null; // Keeps track of the last applied sort order
+    // It has no value until the stored tasks are loaded, so observers never see an empty
+    // placeholder list.
+    private final MutableLiveData<List<Task>> tasks = new MutableLiveData<>();
+    private final MutableLiveData<Boolean> loadFailed = new MutableLiveData<>(false);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // The newest snapshot not yet handed to LiveData; older ones are skipped, like postValue()
+    private final AtomicReference<TaskSnapshot> pending = new AtomicReference<>();
+    private final Runnable deliverPending = this::deliverPending;
+    private TaskStore store;
+    private long shownVersion; // Version of the snapshot LiveData holds (main thread only)
 
-    // Enum to define different sorting options for tasks
-    public enum SortOrder {
-        PRIORITY, DUE_DATE, NAME
+    /**
+     * Starts showing the tasks of the store. Calls after the first one do nothing, so the
+     * ViewModel keeps its store across configuration changes.
+     *
+     * @return true on the first call, e.g. to add default tasks once per ViewModel.
+     */
+    public boolean attach(TaskStore taskStore) {
+        if (store != null) return false;
+        store = taskStore;
+        store.addListener(this);
+        // If the load already finished (it starts with the process), show it before the first frame
+        show(store.snapshot());
+        store.load();
+        return true;
     }
 
     // Provides an immutable LiveData object to the UI, allowing it to observe changes
@@ -29,128 +65,113 @@ public class TaskViewModel extends ViewModel {
     }
 
     /**
-     * Sets the initial list of tasks. This is typically used when loading tasks from storage
-     * at the start of the application.
-     * @param initialTasks The list of tasks to set.
+     * True while the stored tasks cannot be read (e.g. the key store is unavailable).
      */
-    public void setTasks(List<Task> initialTasks) {
-        tasks.setValue(initialTasks);
-        // If there's a current sort order set, re-apply it after setting initial tasks
-        if (currentSortOrder != null) {
-            sortTasks(currentSortOrder);
-        }
+    public LiveData<Boolean> getLoadFailed() {
+        return loadFailed;
     }
 
     /**
-     * Adds a new task to the list. The list is then re-sorted if a sort order is active.
-     * @param task The Task object to add.
+     * Tries to read the stored tasks again after a failed load.
      */
-    public void addTask(Task task) {
-        // Create a new modifiable copy of the current list from LiveData
-        List<Task> current = new ArrayList<>(tasks.getValue());
-        current.add(task); // Add the new task
-
-        // After adding, apply the current sort order
-        if (currentSortOrder != null) {
-            List<Task> sortedList = new ArrayList<>(current); // Create a new list for sorting
-            Collections.sort(sortedList, getComparatorForOrder(currentSortOrder));
-            tasks.setValue(sortedList); // Update LiveData with the sorted list
-        } else {
-            tasks.setValue(current); // Just update LiveData if no specific sort order is active
+    public void retryLoad() {
+        store.load();
+    }
+
+    // Called on the store's writer thread
+    @Override
+    public void onSnapshot(TaskSnapshot snapshot) {
+        if (pending.getAndSet(snapshot) == null) {
+            mainHandler.post(deliverPending);
         }
     }
 
-    /**
-     * Removes a task at a specific position from the list.
-     * @param position The index of the task to remove.
-     */
-    public void removeTask(int position) {
-        // Create a new modifiable copy of the current list from LiveData
-        List<Task> current = new ArrayList<>(tasks.getValue());
-        if (position >= 0 && position < current.size()) {
-            current.remove(position); // Remove the task
-            tasks.setValue(current); // Update LiveData, which triggers UI update and storage save
+    private void deliverPending() {
+        TaskSnapshot snapshot = pending.getAndSet(null);
+        if (snapshot != null) show(snapshot);
+    }
+
+    private void show(TaskSnapshot snapshot) {
+        if (snapshot.getVersion() <= shownVersion) return;
+        if (snapshot.isLoadFailed()) {
+            shownVersion = snapshot.getVersion(); // Only before a first load, so no tasks are shown
+            loadFailed.setValue(true);
+            return;
         }
+        if (!snapshot.isLoaded()) return;
+        shownVersion = snapshot.getVersion();
+        if (Boolean.TRUE.equals(loadFailed.getValue())) loadFailed.setValue(false);
+        tasks.setValue(snapshot.getFilteredTasks());
+    }
+
+    @Override
+    protected void onCleared() {
+        if (store != null) store.removeListener(this);
+        mainHandler.removeCallbacks(deliverPending);
     }
 
     /**
-     * Updates an existing task in the list. The list is then re-sorted if a sort order is active.
-     * @param updatedTask The updated Task object.
+     * Adds a new task to the list, in its place if a sort order is active.
+     * @param task The Task object to add.
+     * @return false, and nothing added, while the stored tasks are not shown.
      */
-    public void updateTask(Task updatedTask) {
-        // Get a mutable copy of the current tasks
-        List<Task> currentTasks = new ArrayList<>(tasks.getValue());
-        for (int i = 0; i < currentTasks.size(); i++) {
-            // Find the task by its unique ID and replace it with the updated version
-            if (currentTasks.get(i).getId().equals(updatedTask.getId())) {
-                currentTasks.set(i, updatedTask);
-                break; // Task found and updated, so exit loop
-            }
-        }
-        // After updating, apply the current sort order
-        if (currentSortOrder != null) {
-            List<Task> sortedList = new ArrayList<>(currentTasks); // Create a new list for sorting
-            Collections.sort(sortedList, getComparatorForOrder(currentSortOrder));
-            tasks.setValue(sortedList);
-        } else {
-            tasks.setValue(currentTasks); // Trigger LiveData update for UI refresh
-        }
+    public boolean addTask(Task task) {
+        if (!isShowingTasks()) return false;
+        store.add(task);
+        return true;
     }
 
-    // --- Sorting Logic ---
     /**
-     * Sorts the current list of tasks based on the specified order.
-     * @param order The desired sorting order (PRIORITY, DUE_DATE, or NAME).
+     * Removes a task from the list. Matched by ID, so a change in the meantime (or a list that
+     * is shown a frame late) cannot hit the wrong task.
+     * @param task The task to remove.
+     * @return false, and nothing removed, while the stored tasks are not shown.
      */
-    public void sortTasks(SortOrder order) {
-        List<Task> currentTasks = tasks.getValue();
-        if (currentTasks == null || currentTasks.isEmpty()) {
-            return; // Nothing to sort if the list is empty or null
-        }
-
-        // CRITICAL FIX: Create a NEW list to ensure LiveData detects a change.
-        // Even if the list were sorted in place, setValue() needs a new object reference
-        // to properly notify observers, especially when using DiffUtil.
-        List<Task> sortedList = new ArrayList<>(currentTasks); // Create a new list from current tasks
+    public boolean removeTask(Task task) {
+        if (!isShowingTasks()) return false;
+        store.remove(task);
+        return true;
+    }
 
-        // Sort the new list using the appropriate comparator
-        Collections.sort(sortedList, getComparatorForOrder(order));
+    /**
+     * Updates an existing task in the list. It moves to its new place if a sort order is active.
+     * @param updatedTask The updated Task object.
+     * @return false, and nothing updated, while the stored tasks are not shown.
+     */
+    public boolean updateTask(Task updatedTask) {
+        if (!isShowingTasks()) return false;
+        store.update(updatedTask);
+        return true;
+    }
 
-        currentSortOrder = order; // Update the stored current sort order
-        tasks.setValue(sortedList); // Set the NEWLY SORTED LIST to trigger LiveData observer
+    // Changes are only taken for a list the user can see, so never while a load has failed
+    private boolean isShowingTasks() {
+        return tasks.getValue() != null;
     }
 
-    // Helper method to get the appropriate Comparator based on the SortOrder enum
-    private Comparator<Task> getComparatorForOrder(SortOrder order) {
-        return (t1, t2) -> { // Lambda expression for a Comparator
-            switch (order) {
-                case PRIORITY:
-                    // Sort by priority: High (1) > Medium (2) > Low (3). Lower value means higher priority.
-                    int p1 = getPriorityValue(t1.getPriority());
-                    int p2 = getPriorityValue(t2.getPriority());
-                    return Integer.compare(p1, p2);
-                case DUE_DATE:
-                    // Sort by due date, earliest first. Tasks with no due date (0L) are placed at the end.
-                    if (t1.getDueDate() == 0L && t2.getDueDate() == 0L) return 0; // Both no due date, maintain original order
-                    if (t1.getDueDate() == 0L) return 1; // t1 has no due date, put it after t2
-                    if (t2.getDueDate() == 0L) return -1; // t2 has no due date, put it after t1
-                    return Long.compare(t1.getDueDate(), t2.getDueDate());
-                case NAME:
-                default:
-                    // Default sort by task title alphabetically (case-insensitive)
-                    return t1.getTitle().compareToIgnoreCase(t2.getTitle());
-            }
-        };
+    /**
+     * Lists recurring tasks as their occurrences from the start of the given day until
+     * {@link #OCCURRENCE_DAYS} later. Call again when the day may have changed, e.g. on resume.
+     */
+    public void showOccurrencesFrom(long now) {
+        Calendar day = Calendar.getInstance();
+        day.setTimeInMillis(now);
+        day.set(Calendar.HOUR_OF_DAY, 0);
+        day.set(Calendar.MINUTE, 0);
+        day.set(Calendar.SECOND, 0);
+        day.set(Calendar.MILLISECOND, 0);
+        long from = day.getTimeInMillis();
+        day.add(Calendar.DAY_OF_MONTH, OCCURRENCE_DAYS);
+        store.setOccurrenceWindow(from, day.getTimeInMillis());
     }
 
-    // Helper method to assign numerical values to priority strings for easier comparison
-    private int getPriorityValue(String priority) {
-        if (priority == null) return Integer.MAX_VALUE; // Null priority tasks go last
-        switch (priority.toLowerCase()) {
-            case "high": return 1;
-            case "medium": return 2;
-            case "low": return 3;
-            default: return Integer.MAX_VALUE; // Unrecognized priorities also go last
-        }
+    // --- Sorting Logic ---
+    /**
+     * Sorts the current list of tasks based on the specified order. The order is kept for
+     * later changes.
+     * @param order The desired sorting order (PRIORITY, DUE_DATE, or NAME).
+     */
+    public void sortTasks(SortOrder order) {
+        store.sort(order);
     }
-}
\ No newline at end of file
+}
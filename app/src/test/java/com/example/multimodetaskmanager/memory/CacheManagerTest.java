@@ -0,0 +1,117 @@
+package com.example.multimodetaskmanager.memory;
+
+import android.content.ComponentCallbacks2;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * {@link CacheManager} under simulated trim levels: which tiers go, in which order, and how
+ * much memory that gives back.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CacheManagerTest {
+    private final List<String> trimmed = new ArrayList<>();
+    private CacheManager manager;
+
+    // Holds a fixed number of bytes until trimmed, then rebuilds them on the next get()
+    private final class FakeCache implements CacheManager.Cache {
+        final String name;
+        final long bytes;
+        long held;
+
+        FakeCache(String name, long bytes) {
+            this.name = name;
+            this.bytes = bytes;
+            this.held = bytes;
+        }
+
+        void get() {
+            held = bytes;
+        }
+
+        @Override
+        public long sizeInBytes() {
+            return held;
+        }
+
+        @Override
+        public long trim() {
+            trimmed.add(name);
+            long released = held;
+            held = 0;
+            return released;
+        }
+    }
+
+    private FakeCache tasks;
+    private FakeCache index;
+    private FakeCache titles;
+    private FakeCache rows;
+
+    @Before
+    public void setUp() {
+        manager = new CacheManager();
+        tasks = new FakeCache("tasks", 4_000_000);
+        index = new FakeCache("index", 300_000);
+        titles = new FakeCache("titles", 200_000);
+        rows = new FakeCache("rows", 50_000);
+        // Registered out of tier order on purpose
+        manager.register("index", CacheManager.Tier.REBUILDABLE, index);
+        manager.register("tasks", CacheManager.Tier.CRITICAL, tasks);
+        manager.register("titles", CacheManager.Tier.DROPPABLE, titles);
+        manager.register("rows", CacheManager.Tier.DROPPABLE, rows);
+    }
+
+    @Test
+    public void moderatePressure_keepsEverything() {
+        assertEquals(0L, manager.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(550_000L, manager.sizeInBytes(CacheManager.Tier.DROPPABLE) + manager.sizeInBytes(CacheManager.Tier.REBUILDABLE));
+    }
+
+    @Test
+    public void uiHidden_dropsOnlyTheDroppableTier() {
+        assertEquals(250_000L, manager.trim(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+
+        assertEquals(Arrays.asList("titles", "rows"), trimmed);
+        assertEquals(0L, manager.sizeInBytes(CacheManager.Tier.DROPPABLE));
+        assertEquals(300_000L, manager.sizeInBytes(CacheManager.Tier.REBUILDABLE));
+    }
+
+    @Test
+    public void criticalPressure_dropsDroppableThenRebuildable_butNeverCritical() {
+        for (int level : new int[]{ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL,
+                ComponentCallbacks2.TRIM_MEMORY_BACKGROUND, ComponentCallbacks2.TRIM_MEMORY_COMPLETE}) {
+            trimmed.clear();
+            index.get();
+            titles.get();
+            rows.get();
+
+            assertEquals(550_000L, manager.trim(level));
+            assertEquals(Arrays.asList("titles", "rows", "index"), trimmed);
+            assertEquals(4_000_000L, manager.sizeInBytes(CacheManager.Tier.CRITICAL));
+        }
+        manager.onLowMemory();
+        assertEquals(4_000_000L, tasks.sizeInBytes());
+    }
+
+    @Test
+    public void trimmedCaches_areRebuiltOnUse_andReleasedAgain() {
+        manager.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        titles.get(); // The list scrolled: its titles are measured again
+
+        assertEquals(200_000L, manager.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+
+        manager.unregister(titles);
+        titles.get();
+        assertEquals(0L, manager.trim(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+    }
+}
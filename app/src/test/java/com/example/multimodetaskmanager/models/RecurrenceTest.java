@@ -0,0 +1,171 @@
+package com.example.multimodetaskmanager.models;
+
+import com.example.multimodetaskmanager.utils.Occurrences;
+import com.example.multimodetaskmanager.utils.StringPool;
+import com.example.multimodetaskmanager.utils.TaskJson;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class RecurrenceTest {
+    private static final TimeZone BERLIN = TimeZone.getTimeZone("Europe/Berlin");
+    private static final long DAY = 86_400_000L;
+
+    @Test
+    public void daily_keepsTheTimeOfDayAcrossDaylightSaving() {
+        long first = at(2024, Calendar.MARCH, 30, 9, 0); // The clocks go forward on the 31st
+        Recurrence daily = Recurrence.daily(1);
+
+        long next = daily.next(first, first, BERLIN);
+        long after = daily.next(first, next, BERLIN);
+
+        assertEquals(at(2024, Calendar.MARCH, 31, 9, 0), next);
+        assertEquals(at(2024, Calendar.APRIL, 1, 9, 0), after);
+        assertEquals(DAY - 3_600_000L, next - first); // A 23-hour day
+    }
+
+    @Test
+    public void daily_jumpsStraightToFarAwayDates() {
+        long first = at(2024, Calendar.JANUARY, 1, 9, 0);
+        long after = at(2030, Calendar.JUNE, 15, 12, 0);
+
+        assertEquals(at(2030, Calendar.JUNE, 16, 9, 0), Recurrence.daily(1).next(first, after, BERLIN));
+        assertEquals(at(2030, Calendar.JUNE, 18, 9, 0), Recurrence.daily(5).next(first, after, BERLIN)); // Day 2360
+    }
+
+    @Test
+    public void weekly_onSeveralDays_everyOtherWeek() {
+        long first = at(2024, Calendar.MAY, 6, 8, 30); // A Monday
+        Recurrence rule = Recurrence.weekly(2, Calendar.MONDAY, Calendar.THURSDAY);
+
+        List<Long> times = firstTimes(rule, first, 5);
+
+        assertEquals(at(2024, Calendar.MAY, 6, 8, 30), (long) times.get(0));
+        assertEquals(at(2024, Calendar.MAY, 9, 8, 30), (long) times.get(1));
+        assertEquals(at(2024, Calendar.MAY, 20, 8, 30), (long) times.get(2));
+        assertEquals(at(2024, Calendar.MAY, 23, 8, 30), (long) times.get(3));
+        assertEquals(at(2024, Calendar.JUNE, 3, 8, 30), (long) times.get(4));
+    }
+
+    @Test
+    public void monthly_onTheNthAndTheLastWeekday() {
+        long first = at(2024, Calendar.JANUARY, 9, 18, 0); // 2nd Tuesday of January
+        List<Long> second = firstTimes(Recurrence.monthlyOnWeekday(1, 2, Calendar.TUESDAY), first, 3);
+        assertEquals(at(2024, Calendar.FEBRUARY, 13, 18, 0), (long) second.get(1));
+        assertEquals(at(2024, Calendar.MARCH, 12, 18, 0), (long) second.get(2));
+
+        long lastFriday = at(2024, Calendar.JANUARY, 26, 17, 0);
+        List<Long> last = firstTimes(Recurrence.monthlyOnWeekday(1, -1, Calendar.FRIDAY), lastFriday, 3);
+        assertEquals(at(2024, Calendar.FEBRUARY, 23, 17, 0), (long) last.get(1));
+        assertEquals(at(2024, Calendar.MARCH, 29, 17, 0), (long) last.get(2));
+    }
+
+    @Test
+    public void exclusionsAndUntil_endOrSkipOccurrences() {
+        long first = at(2024, Calendar.MAY, 1, 9, 0);
+        Recurrence rule = Recurrence.daily(1)
+                .withExclusion(first + DAY)
+                .withUntil(first + 3 * DAY);
+
+        assertEquals(first + 2 * DAY, rule.next(first, first, BERLIN));
+        assertEquals(first + 3 * DAY, rule.next(first, first + 2 * DAY, BERLIN));
+        assertEquals(Recurrence.NONE, rule.next(first, first + 3 * DAY, BERLIN));
+        assertSame(rule, rule.withExclusion(first + DAY));
+    }
+
+    @Test
+    public void rule_roundTripsThroughItsStoredForm() {
+        Recurrence[] rules = {
+                Recurrence.daily(3),
+                Recurrence.weekly(2, Calendar.MONDAY, Calendar.WEDNESDAY).withUntil(1_800_000_000_000L),
+                Recurrence.monthlyOnWeekday(1, -1, Calendar.FRIDAY).withExclusion(42L).withExclusion(7L),
+        };
+        for (Recurrence rule : rules) {
+            assertEquals(rule, Recurrence.parse(rule.toRule()));
+        }
+        assertEquals("FREQ=WEEKLY;INTERVAL=2;BYDAY=MO,WE;UNTIL=1800000000000", rules[1].toRule());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsUnknownDays() {
+        Recurrence.parse("FREQ=WEEKLY;INTERVAL=1;BYDAY=XX");
+    }
+
+    @Test
+    public void aYearOfDailyTasks_isOneStoredRecord() {
+        Task template = new Task("Stand-up", "", "Medium", at(2024, Calendar.JANUARY, 1, 9, 0));
+        template.setRecurrence(Recurrence.daily(1));
+
+        String record = TaskJson.toRecordJson(template, 1L, 1L);
+        List<Task> stored = TaskJson.fromRecordsJson(Collections.singletonList(record), new StringPool(), new long[1]);
+        List<Task> year = Occurrences.expand(stored, template.getDueDate(),
+                at(2025, Calendar.JANUARY, 1, 0, 0), BERLIN);
+
+        assertEquals(1, stored.size());
+        assertEquals(template, stored.get(0));
+        assertEquals(366, year.size());
+    }
+
+    @Test
+    public void expand_onlyCreatesOccurrencesInsideTheWindow() {
+        Task template = new Task("Water plants", "", "Low", at(2024, Calendar.JANUARY, 1, 9, 0));
+        template.setRecurrence(Recurrence.daily(1));
+        Task plain = new Task("Plain", "Low");
+        long from = at(2024, Calendar.MARCH, 1, 0, 0);
+
+        List<Task> window = Occurrences.expand(Arrays.asList(template, plain), from, from + 7 * DAY, BERLIN);
+
+        assertEquals(8, window.size());
+        assertSame(plain, window.get(7));
+        Task firstInWindow = window.get(0);
+        assertEquals(at(2024, Calendar.MARCH, 1, 9, 0), firstInWindow.getDueDate());
+        assertFalse(firstInWindow.isRecurring());
+        assertTrue(firstInWindow.getOccurrence().isOf(template));
+        assertNotEquals(template.getId(), firstInWindow.getId());
+        assertEquals(firstInWindow, Occurrences.of(template, firstInWindow.getDueDate())); // Same ID every time
+    }
+
+    @Test
+    public void expand_showsASeriesWithNothingInTheWindowOnce() {
+        Task monthly = new Task("Rent", "", "High", at(2024, Calendar.JANUARY, 26, 9, 0));
+        monthly.setRecurrence(Recurrence.monthlyOnWeekday(1, -1, Calendar.FRIDAY));
+        Task ended = new Task("Course", "", "Low", at(2024, Calendar.JANUARY, 1, 9, 0));
+        ended.setRecurrence(Recurrence.daily(1).withUntil(at(2024, Calendar.JANUARY, 5, 9, 0)));
+        long from = at(2024, Calendar.MARCH, 1, 0, 0);
+
+        List<Task> window = Occurrences.expand(Arrays.asList(monthly, ended), from, from + 7 * DAY, BERLIN);
+
+        assertEquals(2, window.size());
+        assertEquals(at(2024, Calendar.MARCH, 29, 9, 0), window.get(0).getDueDate()); // The next one
+        assertSame(ended, window.get(1));
+    }
+
+    private static List<Long> firstTimes(Recurrence rule, long first, int count) {
+        List<Long> times = new ArrayList<>();
+        long time = first - 1;
+        while (times.size() < count) {
+            time = rule.next(first, time, BERLIN);
+            times.add(time);
+        }
+        return times;
+    }
+
+    private static long at(int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(BERLIN);
+        calendar.clear();
+        calendar.set(year, month, day, hour, minute);
+        return calendar.getTimeInMillis();
+    }
+}
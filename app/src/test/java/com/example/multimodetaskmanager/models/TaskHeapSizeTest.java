@@ -0,0 +1,126 @@
+package com.example.multimodetaskmanager.models;
+
+import com.example.multimodetaskmanager.utils.TaskJson;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Measures the retained heap per task for the compact {@link Task} layout and compares it
+ * with the previous layout (String id, String priority, one String per title/description).
+ */
+public class TaskHeapSizeTest {
+    private static final int TASK_COUNT = 100_000;
+    private static final String[] PRIORITIES = {"High", "Medium", "Low"};
+
+    // Same fields as Task had before the compact layout, decoded by plain Gson reflection
+    @SuppressWarnings("unused")
+    private static class LegacyTask {
+        String id;
+        String title;
+        String description;
+        String priority;
+        boolean isDone;
+        long dueDate;
+    }
+
+    @Test
+    public void compactLayout_retainsLessHeapPerTask() {
+        String json = buildJson();
+
+        long legacyBytes = retainedBytes(() ->
+                new Gson().fromJson(json, new TypeToken<ArrayList<LegacyTask>>(){}.getType()));
+        long compactBytes = retainedBytes(() -> TaskJson.fromJson(json));
+
+        assertTrue("Compact layout should retain less than 3/4 of the legacy layout (legacy="
+                        + legacyBytes / TASK_COUNT + " B/task, compact=" + compactBytes / TASK_COUNT + " B/task)",
+                compactBytes * 4 < legacyBytes * 3);
+    }
+
+    @Test
+    public void compactLayout_keepsJsonFormat() {
+        Task task = new Task("Title", "Description", "Medium", 1234L);
+        task.setDone(true);
+        List<Task> list = new ArrayList<>();
+        list.add(task);
+
+        String json = TaskJson.toJson(list);
+        LegacyTask[] legacy = new Gson().fromJson(json, LegacyTask[].class);
+        assertEquals(task.getId(), legacy[0].id);
+        assertEquals("Medium", legacy[0].priority);
+        assertTrue(legacy[0].isDone);
+
+        Task decoded = TaskJson.fromJson(json).get(0);
+        assertEquals(task, decoded);
+        assertEquals(Priority.MEDIUM, decoded.getPriorityLevel());
+    }
+
+    @Test
+    public void customPrioritiesAndMissingIds_surviveDecoding() {
+        Task custom = new Task("Title", "Urgent!");
+        assertEquals(Priority.NONE, custom.getPriorityLevel()); // Sorts with the unknown ones
+        List<Task> list = new ArrayList<>();
+        list.add(custom);
+        assertEquals("Urgent!", TaskJson.fromJson(TaskJson.toJson(list)).get(0).getPriority());
+
+        List<Task> idless = TaskJson.fromJson("[{\"title\":\"One\"},{\"title\":\"Two\",\"id\":null}]");
+        assertFalse(idless.get(0).hasSameId(idless.get(1)));
+        assertTrue(idless.get(0).getIdMostSigBits() != 0L || idless.get(0).getIdLeastSigBits() != 0L);
+
+        Task task = new Task("Title", "Low");
+        task.setId((String) null);
+        assertFalse(task.hasSameId(new Task()));
+        task.setPriorityLevel(Priority.HIGH);
+        assertEquals("High", task.getPriority());
+    }
+
+    // A corpus with the kind of repetition real task lists have: a few hundred distinct titles
+    private static String buildJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < TASK_COUNT; i++) {
+            if (i > 0) sb.append(',');
+            sb.append("{\"id\":\"").append(UUID.randomUUID())
+                    .append("\",\"title\":\"Review pull request ").append(i % 300)
+                    .append("\",\"description\":\"Follow up with the team about item ").append(i % 50)
+                    .append("\",\"priority\":\"").append(PRIORITIES[i % PRIORITIES.length])
+                    .append("\",\"isDone\":").append(i % 4 == 0)
+                    .append(",\"dueDate\":").append(1_700_000_000_000L + i * 60_000L)
+                    .append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private interface Decoder {
+        Object decode();
+    }
+
+    private static long retainedBytes(Decoder decoder) {
+        long before = usedHeapAfterGc();
+        Object retained = decoder.decode();
+        long after = usedHeapAfterGc();
+        assertEquals(TASK_COUNT, ((List<?>) retained).size()); // Also keeps the result reachable
+        return after - before;
+    }
+
+    private static long usedHeapAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 4; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.multimodetaskmanager.models;
+
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskTableTest {
+    private static final String[] PRIORITIES = {"High", "Medium", "Low", null};
+
+    @Test
+    public void counts_matchObjectList() {
+        List<Task> tasks = randomTasks(1_000, 42);
+        TaskTable table = TaskTable.from(tasks);
+        long now = 1_700_000_500_000L;
+
+        int done = 0, high = 0, overdue = 0;
+        for (Task t : tasks) {
+            if (t.isDone()) done++;
+            if (t.getPriorityLevel() == Priority.HIGH) high++;
+            if (!t.isDone() && t.getDueDate() != 0L && t.getDueDate() < now) overdue++;
+        }
+        assertEquals(done, table.countDone());
+        assertEquals(tasks.size() - done, table.countPending());
+        assertEquals(high, table.countByPriority(Priority.HIGH));
+        assertEquals(overdue, table.countOverdue(now));
+    }
+
+    @Test
+    public void sortRows_matchesComparatorsForEveryOrder() {
+        List<Task> tasks = randomTasks(2_000, 7);
+        TaskTable table = TaskTable.from(tasks);
+        int[] rows = new int[table.size()];
+
+        for (SortOrder order : SortOrder.values()) {
+            List<Task> expected = new ArrayList<>(tasks);
+            Collections.sort(expected, TaskComparators.forOrder(order)); // Stable, like sortRows
+            int count = table.selectAll(rows);
+            table.sortRows(rows, count, order);
+            assertEquals("Order " + order, expected, table.view(rows, count));
+        }
+    }
+
+    @Test
+    public void selectDone_thenSort_onlyContainsPendingRows() {
+        List<Task> tasks = randomTasks(500, 3);
+        TaskTable table = TaskTable.from(tasks);
+        int[] rows = new int[table.size()];
+        int count = table.selectDone(false, rows);
+        table.sortRows(rows, count, SortOrder.DUE_DATE);
+
+        assertEquals(table.countPending(), count);
+        for (int i = 0; i < count; i++) {
+            assertTrue(!table.isDone(rows[i]));
+            if (i > 0) {
+                assertTrue(TaskComparators.compareDueDates(table.getDueDate(rows[i - 1]), table.getDueDate(rows[i])) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void materialize_roundTripsEveryField() {
+        List<Task> tasks = randomTasks(100, 11);
+        TaskTable table = TaskTable.from(tasks);
+        for (int i = 0; i < tasks.size(); i++) {
+            assertEquals(tasks.get(i), table.materialize(i));
+        }
+        assertEquals(tasks, table.view());
+    }
+
+    @Test
+    public void materialize_keepsFieldsNothingScans() {
+        Task series = new Task("Water plants", "Balcony", "Low", 1_700_000_000_000L);
+        series.setRecurrence(Recurrence.weekly(1, Calendar.MONDAY, Calendar.THURSDAY));
+        series.setTags(Arrays.asList("home", "garden"));
+        Task occurrence = new Task(series);
+        occurrence.setId(null);
+        occurrence.setRecurrence(null);
+        occurrence.setOccurrence(new Occurrence(series.getIdMostSigBits(), series.getIdLeastSigBits(), 1_700_000_000_000L));
+        occurrence.setDone(true);
+        occurrence.setCompletedAt(1_700_000_100_000L);
+        Task subtask = new Task("Buy soil", "Someday"); // A label Priority has no constant for
+        subtask.setParent(series);
+        List<Task> tasks = Arrays.asList(series, occurrence, subtask);
+
+        TaskTable table = TaskTable.from(tasks);
+        for (int i = 0; i < tasks.size(); i++) {
+            Task copy = table.materialize(i);
+            assertEquals(tasks.get(i), copy);
+            assertEquals(tasks.get(i).getCompletedAt(), copy.getCompletedAt()); // Not part of equals()
+            assertEquals(tasks.get(i).getPriority(), copy.getPriority());
+        }
+        assertEquals("Someday", table.getPriorityLabel(2));
+        assertEquals(Priority.NONE, table.getPriority(2));
+    }
+
+    @Test
+    public void clear_emptiesTheStringTable() {
+        TaskTable table = TaskTable.from(randomTasks(500, 5));
+        long empty = new TaskTable(table.size()).sizeInBytes();
+        table.clear();
+
+        assertEquals(0, table.size());
+        assertTrue(table.sizeInBytes() < empty + 1_024); // The string index no longer holds the old strings
+        Task task = new Task("Only", "One", "High", 0L);
+        table.add(task);
+        assertEquals(task, table.materialize(0));
+        assertEquals(Collections.singletonList(task), table.view());
+    }
+
+    private static List<Task> randomTasks(int count, long seed) {
+        Random random = new Random(seed);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long due = random.nextInt(4) == 0 ? 0L : 1_700_000_000_000L + random.nextInt(1_000_000);
+            // Titles differ only in case sometimes, to exercise case-insensitive ties
+            String title = (random.nextBoolean() ? "Task " : "task ") + random.nextInt(50);
+            Task task = new Task(title, "Description " + random.nextInt(10), PRIORITIES[random.nextInt(PRIORITIES.length)], due);
+            task.setDone(random.nextInt(3) == 0);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.multimodetaskmanager.perf;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+
+import static org.junit.Assert.fail;
+
+/**
+ * Measures how many bytes the current thread allocates per call of an operation, using the
+ * HotSpot per-thread allocation counter. Used by the allocation budget tests to keep
+ * per-call garbage out of the hot paths (comparators, equality, diff callbacks, codecs).
+ */
+public final class AllocationTracker {
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // Enough calls that one-off costs (class init, a lazily grown buffer) round away to 0 per call,
+    // few enough that escape analysis in the fully optimized compile does not hide the allocations
+    public static final int DEFAULT_CALLS = 2_000;
+    private static final int ROUNDS = 3; // The counter is updated per TLAB, so keep the quietest round
+
+    private AllocationTracker() {
+    }
+
+    /** Bytes allocated by the calling thread since it started. */
+    public static long currentThreadAllocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Runs {@code operation} once to load and initialize whatever it touches, then
+     * {@code calls} more times, and returns the average bytes allocated per call.
+     * The cost of the measurement itself is subtracted.
+     */
+    public static double bytesPerCall(int calls, Runnable operation) {
+        operation.run();
+        long best = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long overhead = measure(calls, () -> { });
+            best = Math.min(best, measure(calls, operation) - overhead);
+        }
+        return Math.max(0, best) / (double) calls;
+    }
+
+    /**
+     * Fails with the measured per-call byte count if {@code operation} allocates more than
+     * {@code maxBytesPerCall} on average.
+     *
+     * @param name Shown in the failure message, e.g. "Task.hashCode".
+     */
+    public static void assertBytesPerCall(String name, double maxBytesPerCall, Runnable operation) {
+        double perCall = bytesPerCall(DEFAULT_CALLS, operation);
+        if (perCall > maxBytesPerCall) {
+            fail(String.format(Locale.US, "%s allocated %.1f bytes per call (budget %.1f)",
+                    name, perCall, maxBytesPerCall));
+        }
+    }
+
+    /** Shorthand for a budget of zero bytes per call. */
+    public static void assertNoAllocation(String name, Runnable operation) {
+        assertBytesPerCall(name, 0.5, operation); // Anything below half a byte per call is rounding
+    }
+
+    private static long measure(int calls, Runnable operation) {
+        long before = currentThreadAllocatedBytes();
+        for (int i = 0; i < calls; i++) {
+            operation.run();
+        }
+        return currentThreadAllocatedBytes() - before;
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.multimodetaskmanager.perf;
+
+import com.example.multimodetaskmanager.adapters.TaskRowText;
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.models.TaskTable;
+import com.example.multimodetaskmanager.utils.TaskComparators;
+import com.example.multimodetaskmanager.utils.TaskDiffUtil;
+import com.example.multimodetaskmanager.utils.TaskJson;
+import com.example.multimodetaskmanager.workload.TaskCopies;
+import com.example.multimodetaskmanager.workload.TaskWorkloadGenerator;
+import com.example.multimodetaskmanager.workload.WorkloadSpec;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.example.multimodetaskmanager.perf.AllocationTracker.assertBytesPerCall;
+import static com.example.multimodetaskmanager.perf.AllocationTracker.assertNoAllocation;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Allocation budgets for the code that runs per item while sorting, diffing and binding.
+ * Anything that allocates here turns into GC pauses once lists get long, so most budgets are 0.
+ */
+public class HotPathAllocationTest {
+    private static final int TASK_COUNT = 64;
+
+    private final List<Task> tasks = new TaskWorkloadGenerator(WorkloadSpec.typical()).generate(TASK_COUNT);
+    private final List<Task> copies = TaskCopies.copiesOf(tasks);
+    private int next; // Walks through the tasks so the calls do not all see the same input
+
+    @Test
+    public void comparators_doNotAllocate() {
+        for (SortOrder order : SortOrder.values()) {
+            Comparator<Task> comparator = TaskComparators.forOrder(order);
+            assertNoAllocation("TaskComparators." + order + ".compare",
+                    () -> comparator.compare(tasks.get(step()), tasks.get(next / 2)));
+        }
+    }
+
+    @Test
+    public void priorityLookup_doesNotAllocate() {
+        String[] labels = {"High", "medium", "LOW", "Urgent", null};
+        assertNoAllocation("Priority.fromLabel", () -> Priority.fromLabel(labels[step() % labels.length]));
+    }
+
+    @Test
+    public void equality_doesNotAllocate() {
+        assertNoAllocation("Task.equals", () -> tasks.get(step()).equals(copies.get(next)));
+        assertNoAllocation("Task.hashCode", () -> tasks.get(step()).hashCode());
+        assertNoAllocation("Task.hasSameId", () -> tasks.get(step()).hasSameId(copies.get(next / 2)));
+    }
+
+    @Test
+    public void diffCallbacks_doNotAllocate() {
+        TaskDiffUtil callback = new TaskDiffUtil(tasks, copies);
+        assertNoAllocation("TaskDiffUtil.areItemsTheSame", () -> callback.areItemsTheSame(step(), next / 2));
+        assertNoAllocation("TaskDiffUtil.areContentsTheSame", () -> callback.areContentsTheSame(step(), next));
+    }
+
+    @Test
+    public void taskTableScans_doNotAllocate() {
+        TaskTable table = TaskTable.from(tasks);
+        int[] rows = new int[TASK_COUNT];
+        assertNoAllocation("TaskTable.countOverdue", () -> table.countOverdue(WorkloadSpec.DEFAULT_BASE_TIME_MILLIS));
+        assertNoAllocation("TaskTable.selectByPriority", () -> table.selectByPriority(Priority.HIGH, rows));
+        assertNoAllocation("TaskTable.sortRows", () -> table.sortRows(rows, table.selectAll(rows), SortOrder.NAME));
+    }
+
+    @Test
+    public void rowText_withSubtasks_doesNotAllocate() {
+        String subtasksDone = "%1$d/%2$d subtasks done"; // R.plurals.task_subtasks_done, "other"
+        TaskRowText line = new TaskRowText(); // One per row holder, reused across binds
+        line.build("Priority: High", subtasksDone, 2, 5, Collections.<String>emptyList());
+        assertEquals("Priority: High · 2/5 subtasks done", line.toString());
+
+        assertNoAllocation("TaskRowText.build with subtasks",
+                () -> line.build("Priority: Low", subtasksDone, step() % 12, 12, tasks.get(next).getTags()));
+    }
+
+    @Test
+    public void rowText_withTags_doesNotAllocate() {
+        Task tagged = new Task(tasks.get(0));
+        tagged.setTags(Arrays.asList("work", "home"));
+        TaskRowText line = new TaskRowText();
+        line.build("Priority: High", "%1$d/%2$d subtasks done", 1, 3, tagged.getTags());
+        assertEquals("Priority: High · 1/3 subtasks done  #home  #work", line.toString());
+
+        List<String> tags = tagged.getTags();
+        assertNoAllocation("TaskRowText.build with tags",
+                () -> line.build("Priority: Medium", "", 0, 0, tags));
+        assertNoAllocation("TaskRowText.build with subtasks and tags",
+                () -> line.build("Priority: Low", "%1$d/%2$d subtasks done", step() % 12, 12, tags));
+    }
+
+    @Test
+    public void rowText_withCustomPriority_keepsItsLabel_withoutAllocating() {
+        Task urgent = new Task(tasks.get(0));
+        urgent.setPriority("Urgent!"); // No Priority constant: kept as written
+        TaskRowText line = new TaskRowText();
+        line.build("Priority: ", urgent.getPriority(), null, 0, 0, Collections.<String>emptyList());
+        assertEquals("Priority: Urgent!", line.toString());
+
+        String label = urgent.getPriority();
+        List<String> tags = urgent.getTags();
+        assertNoAllocation("TaskRowText.build with a custom priority",
+                () -> line.build("Priority: ", label, null, 0, 0, tags));
+    }
+
+    @Test
+    public void codec_staysWithinPerTaskBudget() {
+        // The JSON text has to be built, so the codec budgets are per task rather than zero.
+        // A typical task is about 160 characters of JSON and costs about 700 bytes each way.
+        String json = TaskJson.toJson(tasks);
+        assertBytesPerCall("TaskJson.toJson(" + TASK_COUNT + " tasks)", 1_024 * TASK_COUNT,
+                () -> TaskJson.toJson(tasks));
+        assertBytesPerCall("TaskJson.fromJson(" + TASK_COUNT + " tasks)", 1_152 * TASK_COUNT,
+                () -> TaskJson.fromJson(json));
+    }
+
+    private int step() {
+        next = (next + 1) % TASK_COUNT;
+        return next;
+    }
+}
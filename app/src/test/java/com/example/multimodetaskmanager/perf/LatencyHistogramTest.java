@@ -0,0 +1,51 @@
+package com.example.multimodetaskmanager.perf;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketBounds_areContiguousAndContainTheirValues() {
+        long previousHighest = -1;
+        for (int index = 0; index <= LatencyHistogram.indexOf(LatencyHistogram.MAX_TRACKABLE_NANOS); index++) {
+            long highest = LatencyHistogram.highestValueAt(index);
+            assertEquals("Bucket " + index + " starts right after the previous one",
+                    index, LatencyHistogram.indexOf(previousHighest + 1));
+            assertEquals(index, LatencyHistogram.indexOf(highest));
+            previousHighest = highest;
+        }
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (long ms = 1; ms <= 1000; ms++) {
+            histogram.record(ms * 1_000_000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertWithinPrecision(500_000_000L, histogram.getValueAtPercentile(50));
+        assertWithinPrecision(990_000_000L, histogram.getValueAtPercentile(99));
+        assertEquals(1_000_000_000L, histogram.getMaxNanos());
+        assertEquals(500.5e6, histogram.getMeanNanos(), 1.0);
+    }
+
+    @Test
+    public void countAbove_countsSlowFrames() {
+        LatencyHistogram histogram = new LatencyHistogram("frames");
+        for (int i = 0; i < 90; i++) histogram.record(8_000_000L);
+        for (int i = 0; i < 10; i++) histogram.record(40_000_000L);
+        assertEquals(10, histogram.countAbove(16_666_667L));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.countAbove(0));
+    }
+
+    private static void assertWithinPrecision(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+                Math.abs(actual - expected) <= expected / 50); // Buckets are within ~1.6%
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.multimodetaskmanager.perf;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void counters_areExactUnderConcurrentUpdates() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    registry.counter("saves").increment();
+                    registry.timer("save").record(1_000);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) thread.join();
+
+        assertEquals(80_000, registry.counter("saves").get());
+        assertEquals(80_000, registry.timer("save").getCount());
+        assertSame(registry.counter("saves"), registry.counter("saves"));
+    }
+
+    @Test
+    public void sizedTimer_separatesListSizes() {
+        MetricsRegistry registry = new MetricsRegistry();
+        SizedTimer timer = registry.sizedTimer("storage.save");
+        timer.record(20, 1_000_000);
+        timer.record(50_000, 90_000_000);
+
+        Map<String, String> snapshot = registry.snapshot();
+        assertTrue(snapshot.containsKey("storage.save{size<=100}"));
+        assertTrue(snapshot.containsKey("storage.save{size<=100k}"));
+        assertEquals(1, registry.timer("storage.save{size<=100k}").getCount());
+    }
+
+    @Test
+    public void fileExporter_appendsOneLinePerMetric() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.counter("storage.saves").add(3);
+        registry.gauge("tasks.count").set(42);
+        File file = File.createTempFile("metrics", ".log");
+        file.deleteOnExit();
+
+        MetricsReporter reporter = new MetricsReporter(registry, new FileMetricsExporter(file));
+        reporter.report();
+        reporter.report();
+
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(4, lines.size());
+        assertTrue(lines.get(0).endsWith(" storage.saves 3"));
+        assertTrue(lines.get(1).endsWith(" tasks.count 42"));
+    }
+}
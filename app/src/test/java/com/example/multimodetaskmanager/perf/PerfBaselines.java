@@ -0,0 +1,65 @@
+package com.example.multimodetaskmanager.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Properties;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Per-scenario budgets for the performance regression tests, read from
+ * {@code src/test/resources/perf/baselines.properties}. Each scenario has a
+ * {@code <scenario>.maxMillis} and a {@code <scenario>.maxBytes} entry.
+ *
+ * Allocation budgets are always checked: they do not depend on the machine. Time budgets are
+ * opt-in, because a few milliseconds of wall clock is noise on a shared CI runner. They are
+ * checked only with {@code -Dperf.timeScale=<factor>} (the Gradle property
+ * {@code -Pperf.timeScale} is passed through), e.g. 1 on a quiet machine, 2 on a slower one.
+ */
+public final class PerfBaselines {
+    private static final String RESOURCE = "/perf/baselines.properties";
+
+    private final Properties budgets;
+    private final double timeScale; // 0: time budgets are not checked
+
+    private PerfBaselines(Properties budgets, double timeScale) {
+        this.budgets = budgets;
+        this.timeScale = timeScale;
+    }
+
+    public static PerfBaselines load() {
+        Properties properties = new Properties();
+        try (InputStream in = PerfBaselines.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) throw new IllegalStateException("Missing test resource " + RESOURCE);
+            properties.load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + RESOURCE, e);
+        }
+        String timeScale = System.getProperty("perf.timeScale", "");
+        return new PerfBaselines(properties, timeScale.isEmpty() ? 0 : Double.parseDouble(timeScale));
+    }
+
+    /**
+     * Fails if the measurement is over either budget of the scenario. The message carries the
+     * whole measurement, so a new baseline can be read off the failure.
+     */
+    public void check(String scenario, PerfMeasurement measurement) {
+        double maxMillis = budget(scenario, "maxMillis") * timeScale; // Looked up either way, so none goes missing
+        long maxBytes = (long) budget(scenario, "maxBytes");
+        if (timeScale > 0) {
+            assertTrue(scenario + " took " + measurement + ", time budget is " + maxMillis + " ms",
+                    measurement.millis() <= maxMillis);
+        }
+        assertTrue(scenario + " took " + measurement + ", allocation budget is "
+                        + String.format(Locale.US, "%,d", maxBytes) + " bytes",
+                measurement.allocatedBytes <= maxBytes);
+    }
+
+    private double budget(String scenario, String key) {
+        String value = budgets.getProperty(scenario + "." + key);
+        if (value == null) fail("No baseline for " + scenario + "." + key + " in " + RESOURCE);
+        return Double.parseDouble(value.replace("_", ""));
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.multimodetaskmanager.perf;
+
+/**
+ * Wall time and bytes allocated on the calling thread for one run of a scenario.
+ * {@link #measure} reports the best of several runs so one GC pause or JIT compile does
+ * not decide whether a regression test passes.
+ */
+public final class PerfMeasurement {
+    public final long nanos;
+    public final long allocatedBytes;
+
+    PerfMeasurement(long nanos, long allocatedBytes) {
+        this.nanos = nanos;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Runs {@code setUp} then {@code operation} {@code warmups + runs} times. Only the operation
+     * is measured, and only the last {@code runs} iterations count.
+     */
+    public static PerfMeasurement measure(int warmups, int runs, Runnable setUp, Runnable operation) {
+        long bestNanos = Long.MAX_VALUE;
+        long bestBytes = Long.MAX_VALUE;
+        for (int i = 0; i < warmups + runs; i++) {
+            setUp.run();
+            long bytesBefore = AllocationTracker.currentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            operation.run();
+            long elapsed = System.nanoTime() - start;
+            long bytes = AllocationTracker.currentThreadAllocatedBytes() - bytesBefore;
+            if (i >= warmups) {
+                bestNanos = Math.min(bestNanos, elapsed);
+                bestBytes = Math.min(bestBytes, bytes);
+            }
+        }
+        return new PerfMeasurement(bestNanos, bestBytes);
+    }
+
+    public double millis() {
+        return nanos / 1_000_000.0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(java.util.Locale.US, "%.2f ms, %,d bytes", millis(), allocatedBytes);
+    }
+}
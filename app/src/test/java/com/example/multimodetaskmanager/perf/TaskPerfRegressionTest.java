@@ -0,0 +1,304 @@
+package com.example.multimodetaskmanager.perf;
+
+import androidx.recyclerview.widget.DiffUtil;
+import androidx.recyclerview.widget.ListUpdateCallback;
+
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.TagFilter;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TagIndex;
+import com.example.multimodetaskmanager.repository.TaskRepository;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.security.RecordCipher;
+import com.example.multimodetaskmanager.utils.TaskDiffUtil;
+import com.example.multimodetaskmanager.workload.TaskCopies;
+import com.example.multimodetaskmanager.workload.TaskWorkloadGenerator;
+import com.example.multimodetaskmanager.workload.WorkloadSpec;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.ParameterizedRobolectricTestRunner;
+
+import java.io.File;
+import java.security.GeneralSecurityException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Drives the task repository (plain and encrypted), the task store, the tag index and the diff path over heavy-user
+ * corpora and fails when a scenario goes over its time or allocation budget in {@code perf/baselines.properties}.
+ */
+@RunWith(ParameterizedRobolectricTestRunner.class)
+public class TaskPerfRegressionTest {
+    private static final int STEADY_WARMUPS = 30; // For scenarios cheap enough to run warm
+    private static final int STEADY_RUNS = 10;
+
+    @ParameterizedRobolectricTestRunner.Parameters(name = "{1} tasks")
+    public static Collection<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{
+                {10_000, "10k", 3, 5},
+                {100_000, "100k", 1, 3},
+        });
+    }
+
+    private final int size;
+    private final String label;
+    private final int warmups;
+    private final int runs;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final PerfBaselines baselines = PerfBaselines.load();
+    private File dir; // Real chunk files, synced on every write as on a device
+    private TaskRepository repository;
+    private SecretKey key; // A software key, as unwrapped from the key store at load
+    private RecordCipher cipher;
+    private List<Task> tasks;
+    private TaskStore store;
+    private final ArrayDeque<Runnable> writerQueue = new ArrayDeque<>(); // The store's writer, run by hand
+
+    public TaskPerfRegressionTest(int size, String label, int warmups, int runs) {
+        this.size = size;
+        this.label = label;
+        this.warmups = warmups;
+        this.runs = runs;
+    }
+
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        dir = folder.getRoot();
+        tasks = new TaskWorkloadGenerator(WorkloadSpec.heavyUser()).generate(size);
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        key = generator.generateKey();
+        cipher = new RecordCipher(() -> key);
+    }
+
+    // --- Storage ---
+
+    @Test
+    public void storage_saveAll() {
+        saveAll("storage.save", null);
+    }
+
+    @Test
+    public void storage_load() {
+        load("storage.load", null);
+    }
+
+    @Test
+    public void storage_persistOneEdit() {
+        persistOneEdit("storage.persistEdit", null);
+    }
+
+    // The same three with every chunk sealed: the difference to the plain ones is the cost of encryption
+
+    @Test
+    public void storage_saveAllEncrypted() {
+        saveAll("storage.saveEncrypted", cipher);
+    }
+
+    @Test
+    public void storage_loadEncrypted() {
+        load("storage.loadEncrypted", cipher);
+    }
+
+    @Test
+    public void storage_persistOneEditEncrypted() {
+        persistOneEdit("storage.persistEditEncrypted", cipher);
+    }
+
+    // Process start: a new repository, and a new cipher with no key resolved yet, reading every
+    // chunk. Sealed chunks must not make startup slower than plain ones (see the budgets)
+
+    @Test
+    public void storage_coldStart() {
+        coldStart("storage.coldStart", false);
+    }
+
+    @Test
+    public void storage_coldStartEncrypted() {
+        coldStart("storage.coldStartEncrypted", true);
+    }
+
+    @Test
+    public void storage_persistUnchanged() {
+        storeAll(null);
+        // What every LiveData replay after rotation or a theme change does
+        check("storage.persistUnchanged", () -> { }, () -> assertFalse(repository.persist()));
+    }
+
+    // --- Task store: one change on the writer, up to the published snapshot ---
+
+    @Test
+    public void store_add() {
+        Task added = new Task("Pick up dry cleaning", "", "Medium", WorkloadSpec.DEFAULT_BASE_TIME_MILLIS);
+        check("store.add", this::newSortedStore, () -> {
+            store.add(added);
+            runNextWrite();
+        });
+    }
+
+    @Test
+    public void store_update() {
+        Task edited = TaskCopies.edited(tasks.get(size / 2));
+        check("store.update", this::newSortedStore, () -> {
+            store.update(edited);
+            runNextWrite();
+        });
+    }
+
+    @Test
+    public void store_sort() {
+        check("store.sort", this::newStore, () -> {
+            store.sort(SortOrder.DUE_DATE);
+            runNextWrite();
+        });
+    }
+
+    // --- Tag index: one AND and one OR query over the tag bitmaps ---
+
+    @Test
+    public void tags_filter() {
+        String[] tags = {"work", "home", "errands", "urgent", "health", "finance", "travel", "reading"};
+        Random random = new Random(size);
+        List<Task> tagged = new ArrayList<>(size);
+        for (Task task : tasks) {
+            Task copy = new Task(task);
+            // One to three tags each, the first ones far more common (work on about half the tasks)
+            List<String> picked = new ArrayList<>();
+            for (int n = 1 + random.nextInt(3); n > 0; n--) picked.add(tags[Math.min(tags.length - 1, (int) (-Math.log(random.nextDouble()) * 1.5))]);
+            copy.setTags(picked);
+            tagged.add(copy);
+        }
+        TagIndex index = new TagIndex();
+        index.rebuild(tagged);
+        TagFilter all = TagFilter.allOf(Arrays.asList("work", "urgent"));
+        TagFilter any = TagFilter.anyOf(Arrays.asList("errands", "health", "travel"));
+
+        int[] matched = new int[1];
+        // Filters run on every publish while one is set: measured once the JIT has compiled
+        // them, as with the few warm-ups the other scenarios get most of the time is compiling
+        PerfMeasurement measurement = PerfMeasurement.measure(STEADY_WARMUPS, STEADY_RUNS, () -> matched[0] = 0, () -> {
+            matched[0] += index.select(all).size();
+            matched[0] += index.select(any).size();
+        });
+        baselines.check("tags.filter." + label, measurement);
+        assertTrue("filters should match some tasks", matched[0] > 0);
+        // Far below a plain int per task and tag
+        long assignments = 0;
+        for (Task task : tagged) assignments += task.getTags().size();
+        assertTrue("bitmaps take " + index.sizeInBytes() + " bytes", index.sizeInBytes() < 4 * assignments);
+    }
+
+    // --- Diff path ---
+
+    @Test
+    public void diff_afterEdit() {
+        newSortedStore();
+        List<Task> before = store.snapshot().getTasks();
+        store.update(TaskCopies.edited(before.get(size / 3)));
+        store.add(new Task("Renew passport", "", "High", WorkloadSpec.DEFAULT_BASE_TIME_MILLIS));
+        store.remove(before.get(size / 4));
+        while (!writerQueue.isEmpty()) runNextWrite();
+        List<Task> after = store.snapshot().getTasks();
+
+        int[] updates = new int[1];
+        ListUpdateCallback counter = new ListUpdateCallback() {
+            @Override public void onInserted(int position, int count) { updates[0] += count; }
+            @Override public void onRemoved(int position, int count) { updates[0] += count; }
+            @Override public void onMoved(int fromPosition, int toPosition) { updates[0]++; }
+            @Override public void onChanged(int position, int count, Object payload) { updates[0] += count; }
+        };
+        check("diff.edit", () -> updates[0] = 0,
+                () -> DiffUtil.calculateDiff(new TaskDiffUtil(before, after)).dispatchUpdatesTo(counter));
+        assertTrue("edit, insert and removal should all be dispatched", updates[0] >= 3);
+    }
+
+    private void check(String scenario, Runnable setUp, Runnable operation) {
+        baselines.check(scenario + "." + label, PerfMeasurement.measure(warmups, runs, setUp, operation));
+    }
+
+    private void saveAll(String scenario, RecordCipher cipher) {
+        check(scenario, () -> {
+            clearRecords();
+            repository = new TaskRepository(dir, cipher);
+            repository.load();
+            for (Task task : tasks) repository.onTaskChanged(task);
+        }, () -> repository.persist());
+    }
+
+    private void load(String scenario, RecordCipher cipher) {
+        storeAll(cipher);
+        List<List<Task>> loaded = new ArrayList<>(1);
+        check(scenario, loaded::clear, () -> loaded.add(repository.load()));
+        assertEquals(size, loaded.get(0).size());
+        assertFalse(repository.hasUnsavedChanges()); // Nothing left in plain JSON to rewrite
+    }
+
+    private void coldStart(String scenario, boolean sealed) {
+        storeAll(sealed ? cipher : null);
+        List<List<Task>> loaded = new ArrayList<>(1);
+        check(scenario, () -> {
+            loaded.clear();
+            repository = new TaskRepository(dir, sealed ? new RecordCipher(() -> key) : null);
+        }, () -> loaded.add(repository.load()));
+        assertEquals(size, loaded.get(0).size());
+    }
+
+    private void persistOneEdit(String scenario, RecordCipher cipher) {
+        storeAll(cipher);
+        Task edited = TaskCopies.edited(tasks.get(size / 2));
+        check(scenario, () -> repository.onTaskChanged(edited), () -> repository.persist());
+    }
+
+    private void storeAll(RecordCipher cipher) {
+        clearRecords();
+        repository = new TaskRepository(dir, cipher);
+        repository.load();
+        for (Task task : tasks) repository.onTaskChanged(task);
+        repository.persist();
+    }
+
+    private void clearRecords() {
+        File[] chunks = dir.listFiles();
+        if (chunks == null) return;
+        for (File chunk : chunks) assertTrue(chunk.delete());
+    }
+
+    // A store over an empty directory holding the corpus. Its writer only queues; the test runs
+    // the queued changes itself, on this thread, so a measurement covers just the change
+    private void newStore() {
+        clearRecords();
+        writerQueue.clear();
+        store = new TaskStore(new TaskRepository(dir), writerQueue::add);
+        store.addAllIfEmpty(tasks);
+        runNextWrite();
+        writerQueue.clear(); // Drops the queued write of every record; later changes join it and are not written
+    }
+
+    private void newSortedStore() {
+        newStore();
+        store.sort(SortOrder.PRIORITY);
+        runNextWrite();
+    }
+
+    private void runNextWrite() {
+        writerQueue.poll().run();
+    }
+}
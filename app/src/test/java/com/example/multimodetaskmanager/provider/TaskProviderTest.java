@@ -0,0 +1,131 @@
+package com.example.multimodetaskmanager.provider;
+
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.repository.TaskStores;
+import com.example.multimodetaskmanager.security.TaskKeys;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.security.GeneralSecurityException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import javax.crypto.KeyGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TaskProvider} through a ContentResolver, the way a widget or launcher would use it.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskProviderTest {
+    private static final long DAY = 86_400_000L;
+
+    private ContentResolver resolver;
+    private TaskStore store;
+    private Task groceries;
+    private Task report;
+
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        Context context = RuntimeEnvironment.getApplication();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        TaskKeys.useMasterKey(generator.generateKey()); // Robolectric has no Android key store
+        // A new account per test: TaskStores outlives each test's application
+        store = TaskStores.get(context).switchTo("provider-" + UUID.randomUUID() + "@example.com");
+        Robolectric.setupContentProvider(TaskProvider.class, TaskContract.AUTHORITY);
+        resolver = context.getContentResolver();
+
+        groceries = add(new Task("Groceries", "", "High", 2 * DAY));
+        report = add(new Task("Report", "", "Medium", DAY));
+        add(new Task("Call Sam", "Low"));
+        Task old = new Task("Old idea", "", "High", 3 * DAY);
+        old.setDone(true);
+        add(old);
+    }
+
+    @Test
+    public void query_filtersSortsAndPages() {
+        Uri firstTwo = TaskContract.CONTENT_URI.buildUpon().appendQueryParameter(TaskContract.PARAM_LIMIT, "2").build();
+        try (Cursor cursor = resolver.query(firstTwo, new String[]{TaskContract.TITLE, TaskContract.DUE},
+                TaskContract.DONE + " = ?", new String[]{"0"}, TaskContract.DUE)) {
+            assertEquals(2, cursor.getCount());
+            assertTrue(cursor.moveToNext());
+            assertEquals("Report", cursor.getString(0));
+            assertEquals(DAY, cursor.getLong(cursor.getColumnIndexOrThrow(TaskContract.DUE)));
+            assertTrue(cursor.moveToNext());
+            assertEquals("Groceries", cursor.getString(0));
+        }
+    }
+
+    @Test
+    public void taskUri_readsAndUpdatesThatTask() {
+        Uri uri = TaskContract.taskUri(groceries.getId());
+        ContentValues values = new ContentValues();
+        values.put(TaskContract.DONE, 1);
+
+        assertEquals(1, resolver.update(uri, values, null, null));
+
+        try (Cursor cursor = resolver.query(uri, null, null, null, null)) {
+            assertEquals(1, cursor.getCount());
+            assertTrue(cursor.moveToFirst());
+            assertEquals(groceries.getId(), cursor.getString(cursor.getColumnIndexOrThrow(TaskContract.UUID)));
+            assertEquals("High", cursor.getString(cursor.getColumnIndexOrThrow(TaskContract.PRIORITY)));
+            assertEquals(1, cursor.getInt(cursor.getColumnIndexOrThrow(TaskContract.DONE)));
+        }
+    }
+
+    @Test
+    public void changes_notifyOnlyTheirOwnTaskUri() {
+        Uri groceriesUri = TaskContract.taskUri(groceries.getId());
+        List<Uri> groceriesChanges = observe(groceriesUri, false);
+        List<Uri> listChanges = observe(TaskContract.CONTENT_URI, true);
+
+        Task edited = new Task(report);
+        edited.setTitle("Quarterly report");
+        store.update(edited).join(); // Observers are told before the future completes
+
+        assertEquals(0, groceriesChanges.size());
+        assertEquals(1, listChanges.size());
+        assertEquals(TaskContract.taskUri(report.getId()), listChanges.get(0));
+
+        store.remove(groceries).join();
+
+        assertEquals(1, groceriesChanges.size());
+        assertEquals(2, listChanges.size());
+    }
+
+    // --- Helpers ---
+
+    private Task add(Task task) {
+        store.add(task).join();
+        return task;
+    }
+
+    private List<Uri> observe(Uri uri, boolean descendants) {
+        List<Uri> changes = new CopyOnWriteArrayList<>();
+        resolver.registerContentObserver(uri, descendants, new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange, Uri changed) {
+                changes.add(changed);
+            }
+        });
+        return changes;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.multimodetaskmanager.provider;
+
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.models.TaskTable;
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * The selection grammar of {@link TaskContract}, checked against the same filter and sort done
+ * on the task list.
+ */
+public class TaskQueryTest {
+    private static final long DAY = 86_400_000L;
+    private static final long NOW = 1_700_000_000_000L;
+    private static final String[] PRIORITIES = {"High", "Medium", "Low", null};
+
+    private final List<Task> tasks = randomTasks(500);
+    private final TaskTable table = TaskTable.from(tasks);
+
+    @Test
+    public void selection_matchesTheSameFilterOnTheList() {
+        List<Task> expected = new ArrayList<>();
+        for (Task task : tasks) {
+            long due = task.getDueDate();
+            if (!task.isDone() && task.getPriorityLevel() == Priority.HIGH && due != 0L && due >= NOW && due < NOW + 7 * DAY) {
+                expected.add(task);
+            }
+        }
+
+        TaskQuery query = TaskQuery.parse("done = ? AND priority = 'High' AND due >= ? and due < ?",
+                new String[]{"0", Long.toString(NOW), Long.toString(NOW + 7 * DAY)}, null);
+
+        assertEquals(expected, select(query));
+    }
+
+    @Test
+    public void sortAndPage_matchTheComparatorsOnTheList() {
+        List<Task> sorted = new ArrayList<>(tasks);
+        sorted.sort(TaskComparators.forOrder(SortOrder.DUE_DATE));
+
+        assertEquals(sorted.subList(40, 60), select(TaskQuery.parse(null, null, "due").page(20, 40)));
+        assertEquals(sorted.subList(490, 500), select(TaskQuery.parse(null, null, "DUE_DATE").page(20, 490)));
+        assertEquals(0, select(TaskQuery.parse(null, null, null).page(20, 1_000)).size());
+    }
+
+    @Test
+    public void byId_selectsThatTaskOnly() {
+        Task task = tasks.get(123);
+        TaskQuery query = TaskQuery.parse("done = " + (task.isDone() ? 1 : 0), null, null)
+                .withId(task.getIdMostSigBits(), task.getIdLeastSigBits());
+
+        assertEquals(Arrays.asList(task), select(query));
+    }
+
+    @Test
+    public void boundsAtTheEndOfTime_doNotWrapAround() {
+        String max = Long.toString(Long.MAX_VALUE);
+        List<Task> withDue = new ArrayList<>();
+        for (Task task : tasks) if (task.getDueDate() != 0L) withDue.add(task);
+
+        assertEquals(withDue, select(TaskQuery.parse("due <= ?", new String[]{max}, null)));
+        assertEquals(0, select(TaskQuery.parse("due > ?", new String[]{max}, null)).size());
+        assertEquals(0, select(TaskQuery.parse("due = ?", new String[]{max}, null)).size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownColumn_isRejected() {
+        TaskQuery.parse("title = ?", new String[]{"Groceries"}, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOnDone_isRejected() {
+        TaskQuery.parse("done > 0", null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void missingArgument_isRejected() {
+        TaskQuery.parse("due < ?", null, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void descendingSort_isRejected() {
+        TaskQuery.parse(null, null, "due DESC");
+    }
+
+    // --- Helpers ---
+
+    private List<Task> select(TaskQuery query) {
+        int[] rows = new int[table.size()];
+        int count = query.select(table, rows);
+        List<Task> selected = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) selected.add(tasks.get(rows[i]));
+        return selected;
+    }
+
+    private static List<Task> randomTasks(int count) {
+        Random random = new Random(17);
+        List<Task> list = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            long due = random.nextInt(4) == 0 ? 0L : NOW + (random.nextInt(30) - 10) * DAY;
+            Task task = new Task("Task " + random.nextInt(100), "", PRIORITIES[random.nextInt(PRIORITIES.length)], due);
+            task.setDone(random.nextBoolean());
+            list.add(task);
+        }
+        return list;
+    }
+}
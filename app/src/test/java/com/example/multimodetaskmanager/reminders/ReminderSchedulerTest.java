@@ -0,0 +1,247 @@
+package com.example.multimodetaskmanager.reminders;
+
+import com.example.multimodetaskmanager.models.Recurrence;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.repository.TaskStore;
+import com.example.multimodetaskmanager.utils.Occurrences;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ReminderSchedulerTest {
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long MINUTE = 60_000L;
+    private static final long WINDOW = 5 * MINUTE;
+
+    private final FakeClock clock = new FakeClock(NOW);
+    private final RecordingAlarm alarm = new RecordingAlarm();
+    private final List<List<Task>> notifications = new ArrayList<>();
+    private final ReminderScheduler scheduler =
+            new ReminderScheduler(clock, alarm, notifications::add, WINDOW, NOW);
+
+    @Test
+    public void manyTasks_armOneAlarmForTheEarliest() {
+        Random random = new Random(40);
+        List<Task> tasks = new ArrayList<>();
+        long earliest = Long.MAX_VALUE;
+        for (int i = 0; i < 5_000; i++) {
+            long due = NOW + MINUTE + random.nextInt(1_000_000_000);
+            tasks.add(dueAt("Task " + i, due));
+            earliest = Math.min(earliest, due);
+        }
+
+        scheduler.onTasksLoaded(tasks);
+
+        assertEquals(Collections.singletonList(earliest), alarm.armed);
+        assertEquals(5_000, scheduler.pendingCount());
+    }
+
+    @Test
+    public void changes_rearmOnlyWhenTheEarliestMoves() {
+        Task inAnHour = dueAt("In an hour", NOW + 60 * MINUTE);
+        scheduler.onTasksLoaded(Collections.singletonList(inAnHour));
+
+        scheduler.onTaskChanged(dueAt("Tomorrow", NOW + 24 * 60 * MINUTE)); // Later: no alarm call
+        assertEquals(Collections.singletonList(NOW + 60 * MINUTE), alarm.armed);
+
+        Task soon = dueAt("Soon", NOW + 10 * MINUTE);
+        scheduler.onTaskChanged(soon); // Earlier: re-armed
+        assertEquals(NOW + 10 * MINUTE, scheduler.getArmedAt());
+
+        soon.setDone(true);
+        scheduler.onTaskChanged(soon); // Completed: back to the hour
+        assertEquals(NOW + 60 * MINUTE, scheduler.getArmedAt());
+        assertEquals(3, alarm.armed.size());
+    }
+
+    @Test
+    public void removingEverything_cancelsTheAlarm() {
+        Task task = dueAt("Only", NOW + MINUTE);
+        scheduler.onTasksLoaded(Collections.singletonList(task));
+        scheduler.onTaskRemoved(task);
+
+        assertEquals(1, alarm.cancels);
+        assertEquals(Long.MIN_VALUE, scheduler.getArmedAt());
+    }
+
+    @Test
+    public void alarm_deliversEverythingInTheWindowAsOneBatch() {
+        Task first = dueAt("First", NOW + 10 * MINUTE);
+        Task second = dueAt("Second", NOW + 12 * MINUTE);
+        Task third = dueAt("Third", NOW + 14 * MINUTE);
+        Task later = dueAt("Later", NOW + 30 * MINUTE);
+        scheduler.onTasksLoaded(Arrays.asList(later, third, first, second));
+
+        clock.now = scheduler.getArmedAt();
+        assertEquals(3, scheduler.onAlarm());
+
+        assertEquals(Collections.singletonList(Arrays.asList(first, second, third)), notifications);
+        assertEquals(NOW + 30 * MINUTE, scheduler.getArmedAt()); // Straight on to the next one
+        assertEquals(1, scheduler.pendingCount());
+    }
+
+    @Test
+    public void afterFollowingAnotherStore_theOldStoresLateCallbacksAreIgnored() {
+        TaskStore.ChangeListener oldStore = scheduler.follow();
+        oldStore.onTasksLoaded(Collections.singletonList(dueAt("Account A", NOW + 10 * MINUTE)));
+
+        TaskStore.ChangeListener newStore = scheduler.follow(); // Account switch
+        Task accountB = dueAt("Account B", NOW + 20 * MINUTE);
+        newStore.onTasksLoaded(Collections.singletonList(accountB));
+        // Still queued on account A's writer when the switch happened
+        oldStore.onTaskChanged(dueAt("Account A, edited", NOW + 5 * MINUTE));
+        oldStore.onTasksLoaded(Collections.singletonList(dueAt("Account A again", NOW + MINUTE)));
+
+        assertEquals(1, scheduler.pendingCount());
+        assertEquals(NOW + 20 * MINUTE, scheduler.getArmedAt());
+        scheduler.unfollow(); // Logout
+        newStore.onTaskRemoved(accountB);
+        assertEquals(1, scheduler.pendingCount());
+    }
+
+    @Test
+    public void batch_isDeliveredWithoutHoldingTheSchedulerLock() {
+        boolean[] heldLock = new boolean[1];
+        ReminderScheduler[] self = new ReminderScheduler[1];
+        self[0] = new ReminderScheduler(clock, alarm, due -> heldLock[0] = Thread.holdsLock(self[0]), WINDOW, NOW);
+        self[0].onTasksLoaded(Collections.singletonList(dueAt("Soon", NOW + MINUTE)));
+        clock.now = NOW + MINUTE;
+
+        assertEquals(1, self[0].onAlarm());
+        assertFalse(heldLock[0]);
+    }
+
+    @Test
+    public void editKeepingTheDueDate_showsTheNewTitleWithoutRearming() {
+        Task task = dueAt("Old title", NOW + MINUTE);
+        scheduler.onTasksLoaded(Collections.singletonList(task));
+
+        Task edited = new Task(task);
+        edited.setTitle("New title");
+        scheduler.onTaskChanged(edited);
+        clock.now = NOW + MINUTE;
+        scheduler.onAlarm();
+
+        assertEquals(1, alarm.armed.size());
+        assertEquals("New title", notifications.get(0).get(0).getTitle());
+    }
+
+    @Test
+    public void movedDueDate_firesOnlyAtTheNewTime() {
+        Task task = dueAt("Moved", NOW + MINUTE);
+        scheduler.onTasksLoaded(Collections.singletonList(task));
+        Task moved = new Task(task);
+        moved.setDueDate(NOW + 60 * MINUTE);
+        scheduler.onTaskChanged(moved);
+
+        clock.now = NOW + MINUTE; // A stale alarm still goes off at the old time
+        assertEquals(0, scheduler.onAlarm());
+        assertEquals(NOW + 60 * MINUTE, scheduler.getArmedAt());
+        clock.now = NOW + 60 * MINUTE;
+        assertEquals(1, scheduler.onAlarm());
+    }
+
+    @Test
+    public void loading_catchesUpOnlyOnRemindersMissedSinceTheLastRun() {
+        Task alreadyNotified = dueAt("Already notified", NOW - 60 * MINUTE);
+        Task missed = dueAt("Missed while stopped", NOW - 5 * MINUTE);
+        ReminderScheduler restarted = new ReminderScheduler(clock, alarm, notifications::add, WINDOW, NOW - 30 * MINUTE);
+
+        restarted.onTasksLoaded(Arrays.asList(alreadyNotified, missed));
+        assertEquals(NOW - 5 * MINUTE, restarted.getArmedAt()); // In the past, so the system fires it right away
+        restarted.onAlarm();
+
+        assertEquals(Collections.singletonList(Collections.singletonList(missed)), notifications);
+        assertTrue(restarted.getNotifiedUpTo() >= NOW);
+    }
+
+    @Test
+    public void tasksWithoutAFutureDueDate_getNoReminder() {
+        scheduler.onTasksLoaded(Collections.<Task>emptyList());
+        scheduler.onTaskChanged(dueAt("Overdue", NOW - MINUTE));
+        scheduler.onTaskChanged(new Task("No due date", "Low"));
+
+        assertEquals(0, scheduler.pendingCount());
+        assertTrue(alarm.armed.isEmpty());
+    }
+
+    @Test
+    public void churn_keepsTheAlarmOnTheEarliest() {
+        Random random = new Random(41);
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 100; i++) tasks.add(dueAt("Task " + i, NOW + MINUTE + random.nextInt(1_000_000)));
+        scheduler.onTasksLoaded(tasks);
+
+        for (int round = 0; round < 20_000; round++) {
+            int index = random.nextInt(tasks.size());
+            Task moved = new Task(tasks.get(index));
+            moved.setDueDate(NOW + MINUTE + random.nextInt(1_000_000));
+            tasks.set(index, moved);
+            scheduler.onTaskChanged(moved);
+        }
+
+        long earliest = Long.MAX_VALUE;
+        for (Task task : tasks) earliest = Math.min(earliest, task.getDueDate());
+        assertEquals(earliest, scheduler.getArmedAt());
+        assertEquals(100, scheduler.pendingCount());
+    }
+
+    @Test
+    public void recurringTask_keepsOneEntryThatMovesToTheNextOccurrence() {
+        Task daily = dueAt("Daily", NOW + MINUTE);
+        daily.setRecurrence(Recurrence.daily(1));
+        scheduler.onTasksLoaded(Collections.singletonList(daily));
+
+        clock.now = NOW + MINUTE;
+        assertEquals(1, scheduler.onAlarm());
+
+        Task delivered = notifications.get(0).get(0);
+        assertTrue(delivered.getOccurrence().isOf(daily));
+        assertEquals(NOW + MINUTE, delivered.getDueDate());
+        assertEquals(1, scheduler.pendingCount());
+        assertEquals(Occurrences.next(daily, NOW + MINUTE, TimeZone.getDefault()), scheduler.getArmedAt());
+    }
+
+    private static Task dueAt(String title, long dueDate) {
+        return new Task(title, "", "Medium", dueDate);
+    }
+
+    private static final class FakeClock implements ReminderScheduler.Clock {
+        long now;
+
+        FakeClock(long now) {
+            this.now = now;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+    }
+
+    // Records every alarm call instead of talking to AlarmManager
+    private static final class RecordingAlarm implements ReminderScheduler.Alarm {
+        final List<Long> armed = new ArrayList<>();
+        int cancels;
+
+        @Override
+        public void arm(long atMillis) {
+            armed.add(atMillis);
+        }
+
+        @Override
+        public void cancel() {
+            cancels++;
+        }
+    }
+}
@@ -0,0 +1,259 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.security.RecordCipher;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TaskArchive} on disk, and {@link TaskStore#archiveCompleted} moving tasks into it.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskArchiveTest {
+    private static final long DAY = 86_400_000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private TaskArchive archive;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(folder.getRoot(), "task_archive");
+        archive = new TaskArchive(file);
+    }
+
+    @Test
+    public void pages_runNewestFirstAcrossChunks() throws IOException {
+        List<Task> all = new ArrayList<>();
+        for (int chunk = 0; chunk < 3; chunk++) {
+            List<Task> batch = new ArrayList<>();
+            for (int i = 0; i < 10; i++) batch.add(done("Task " + all.size(), (all.size() + 1) * DAY));
+            all.addAll(batch);
+            archive.append(batch);
+        }
+
+        TaskArchive reopened = new TaskArchive(file);
+        assertEquals(30, reopened.size());
+        List<Task> page = reopened.page(5, 10);
+        assertEquals(10, page.size());
+        for (int i = 0; i < 10; i++) assertEquals(all.get(24 - i), page.get(i)); // Spans the last two chunks
+        assertEquals(2, reopened.page(28, 10).size());
+        assertTrue(reopened.page(30, 10).isEmpty());
+    }
+
+    @Test
+    public void search_matchesTitleOrDescriptionIgnoringCase() throws IOException {
+        List<Task> batch = new ArrayList<>();
+        batch.add(done("Buy milk", DAY));
+        batch.add(done("Call Sam", 2 * DAY));
+        Task described = done("Errands", 3 * DAY);
+        described.setDescription("Milk, bread");
+        batch.add(described);
+        archive.append(batch);
+        archive.append(Collections.singletonList(done("Unrelated", 4 * DAY)));
+
+        List<Task> found = archive.search("MILK", 0, 10);
+
+        assertEquals(2, found.size());
+        assertEquals("Errands", found.get(0).getTitle());
+        assertEquals("Buy milk", found.get(1).getTitle());
+        assertEquals(1, archive.search("milk", 1, 10).size());
+    }
+
+    @Test
+    public void tornLastChunk_isDroppedAndOverwritten() throws IOException {
+        archive.append(Collections.singletonList(done("Kept", DAY)));
+        long good = file.length();
+        archive.append(Collections.singletonList(done("Torn", 2 * DAY)));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(file.length() - 5); // A crash in the middle of the second append
+        }
+
+        TaskArchive reopened = new TaskArchive(file);
+        assertEquals(1, reopened.size());
+        assertEquals(good, file.length());
+        reopened.append(Collections.singletonList(done("Next", 3 * DAY)));
+        assertEquals("Next", new TaskArchive(file).page(0, 1).get(0).getTitle());
+    }
+
+    @Test
+    public void sealedChunks_pageLikePlainOnes_andOldPlainChunksGetSealed() throws IOException, GeneralSecurityException {
+        archive.append(Collections.singletonList(done("Before encryption", DAY)));
+        RecordCipher cipher = new RecordCipher(key());
+        TaskArchive sealed = new TaskArchive(file, cipher);
+        assertEquals("Before encryption", sealed.page(0, 1).get(0).getTitle()); // Plain chunks still read
+
+        List<Task> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) batch.add(done("Secret " + i, (i + 2) * DAY));
+        sealed.append(batch);
+
+        TaskArchive reopened = new TaskArchive(file, cipher);
+        assertEquals(11, reopened.size());
+        assertEquals("Secret 9", reopened.page(0, 1).get(0).getTitle());
+        assertEquals("Before encryption", reopened.page(10, 1).get(0).getTitle());
+        assertEquals(1, reopened.search("secret 3", 0, 10).size());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) { // Both chunks were sealed
+            long offset = 0;
+            while (offset < raf.length()) {
+                raf.seek(offset);
+                int length = raf.readInt();
+                assertTrue(raf.readInt() < 0); // The sealed flag in the count
+                offset += 8 + length;
+            }
+        }
+    }
+
+    @Test
+    public void tamperedChunk_isSkippedAndCounted() throws IOException, GeneralSecurityException {
+        RecordCipher cipher = new RecordCipher(key());
+        new TaskArchive(file, cipher).append(Collections.singletonList(done("Kept", DAY)));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(file.length() - 1);
+            int last = raf.read();
+            raf.seek(file.length() - 1);
+            raf.write(last ^ 1);
+        }
+        Counter unreadable = MetricsRegistry.global().counter("archive.unreadableChunks");
+        long before = unreadable.get();
+
+        TaskArchive reopened = new TaskArchive(file, cipher);
+        assertTrue(reopened.page(0, 1).isEmpty());
+        assertEquals(0, reopened.size());
+        assertEquals(1, unreadable.get() - before);
+    }
+
+    @Test
+    public void corruptedMiddleChunk_isSkipped_andTheRestStillPagesAndSearches() throws IOException {
+        List<Task> all = new ArrayList<>();
+        long middle = 0;
+        for (int chunk = 0; chunk < 3; chunk++) {
+            if (chunk == 1) middle = file.length();
+            List<Task> batch = new ArrayList<>();
+            for (int i = 0; i < 10; i++) batch.add(done("Task " + all.size(), (all.size() + 1) * DAY));
+            all.addAll(batch);
+            archive.append(batch);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(middle + 8); // Past the header: the gzip magic of the payload
+            raf.write(new byte[]{0, 0});
+        }
+        Counter unreadable = MetricsRegistry.global().counter("archive.unreadableChunks");
+        long before = unreadable.get();
+
+        TaskArchive reopened = new TaskArchive(file);
+        List<Task> first = reopened.page(0, 15);
+        List<Task> expected = new ArrayList<>();
+        for (int i = 29; i >= 20; i--) expected.add(all.get(i));
+        for (int i = 9; i >= 5; i--) expected.add(all.get(i));
+        assertEquals(expected, first);
+        assertEquals(20, reopened.size());
+        List<Task> next = reopened.page(15, 15); // Offsets carry on after the skipped chunk
+        assertEquals(all.subList(0, 5), reverse(next));
+        assertEquals(20, reopened.search("task", 0, 100).size());
+        assertEquals(1, unreadable.get() - before); // Found once, then passed over
+    }
+
+    @Test
+    public void archiveCompleted_movesOnlyTasksDoneLongAgo() throws IOException {
+        File records = new File(folder.getRoot(), "task_records");
+        TaskStore store = new TaskStore(new TaskRepository(records), Runnable::run);
+        long now = System.currentTimeMillis();
+        Task old = done("Old", now - 40 * DAY);
+        Task recent = new Task("Recent", "Low");
+        Task open = new Task("Open", "Low");
+        store.add(old);
+        store.add(recent);
+        store.add(open);
+        Task finished = new Task(recent);
+        finished.setDone(true);
+        store.update(finished);
+
+        store.archiveCompleted(now - 30 * DAY, archive).join();
+
+        assertEquals(2, store.snapshot().size());
+        assertTrue(store.snapshot().getTasks().get(0).getCompletedAt() >= now); // Stamped by the update
+        assertEquals(2, new TaskRepository(records).load().size()); // Startup no longer reads it
+        assertEquals(Collections.singletonList(old), archive.page(0, 10));
+        assertEquals(old.getCompletedAt(), archive.page(0, 1).get(0).getCompletedAt());
+    }
+
+    @Test
+    public void archiveCompleted_dropsTheTasksFromStorageBeforeItCompletes() throws IOException {
+        File records = new File(folder.getRoot(), "task_records");
+        List<Runnable> queued = new ArrayList<>();
+        TaskStore store = new TaskStore(new TaskRepository(records), queued::add);
+        long now = System.currentTimeMillis();
+        store.add(done("Old", now - 40 * DAY));
+        store.add(new Task("Open", "Low"));
+        while (!queued.isEmpty()) queued.remove(0).run(); // The adds and their write
+
+        CompletableFuture<TaskSnapshot> archived = store.archiveCompleted(now - 30 * DAY, archive);
+        queued.remove(0).run(); // Just the change, not a write queued behind it
+
+        assertTrue(archived.isDone());
+        assertEquals(1, new TaskRepository(records).load().size()); // Written already, not left to the queued write
+    }
+
+    @Test
+    public void archiveCompleted_afterACrashMidway_doesNotArchiveTwice() throws IOException {
+        File records = new File(folder.getRoot(), "task_records");
+        long now = System.currentTimeMillis();
+        Task old = done("Old", now - 40 * DAY);
+        Task older = done("Older", now - 50 * DAY);
+        TaskStore store = new TaskStore(new TaskRepository(records), Runnable::run);
+        store.add(old);
+        store.add(older);
+        archive.append(Collections.singletonList(old)); // Archived, then the app died before dropping it
+
+        store.archiveCompleted(now - 30 * DAY, archive).join();
+
+        assertEquals(0, store.snapshot().size());
+        assertEquals(2, archive.size());
+        assertEquals(Collections.singletonList(older), archive.lastAppended());
+    }
+
+    private static Callable<SecretKey> key() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        SecretKey key = generator.generateKey();
+        return () -> key;
+    }
+
+    private static List<Task> reverse(List<Task> tasks) {
+        List<Task> reversed = new ArrayList<>(tasks);
+        Collections.reverse(reversed);
+        return reversed;
+    }
+
+    private static Task done(String title, long completedAt) {
+        Task task = new Task(title, "Low");
+        task.setDone(true);
+        task.setCompletedAt(completedAt);
+        return task;
+    }
+}
@@ -0,0 +1,374 @@
+package com.example.multimodetaskmanager.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.perf.Counter;
+import com.example.multimodetaskmanager.perf.LatencyHistogram;
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+import com.example.multimodetaskmanager.security.RecordCipher;
+import com.example.multimodetaskmanager.utils.TaskJson;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.ProviderException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@RunWith(RobolectricTestRunner.class)
+public class TaskRepositoryTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private SharedPreferences prefs;
+    private final Counter chunksWritten = MetricsRegistry.global().counter("repository.chunksWritten");
+
+    @Before
+    public void setUp() {
+        dir = new File(folder.getRoot(), "task_records");
+        prefs = RuntimeEnvironment.getApplication().getSharedPreferences("test_task_prefs", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void load_movesLegacyBlobIntoChunks() throws IOException {
+        List<Task> legacy = tasks("Buy milk", "Call mom", "Write report");
+        prefs.edit().putString("tasks", TaskJson.toJson(legacy)).commit();
+
+        assertEquals(legacy, new TaskRepository(dir, prefs, null).load());
+        assertNull(prefs.getString("tasks", null));
+        assertTrue(chunk(0).contains("Call mom"));
+        assertEquals(legacy, new TaskRepository(dir, prefs, null).load()); // Now read back from the chunk
+    }
+
+    @Test
+    public void load_movesPrefsRecordsIntoSealedChunks_andRemovesThemFromThePrefs() throws GeneralSecurityException {
+        RecordCipher cipher = new RecordCipher(key());
+        List<Task> tasks = tasks("Buy milk", "Call mom", "Write report");
+        SharedPreferences.Editor editor = prefs.edit().putLong("version", 3L).putString("data_key", "wrapped");
+        for (int i = 0; i < tasks.size(); i++) {
+            String key = "task." + tasks.get(i).getId();
+            editor.putString(key, cipher.sealString(key, TaskJson.toRecordJson(tasks.get(i), i + 1, i)));
+        }
+        editor.putString("task." + new Task("Lost", "Low").getId(), "gcm1:AAAA"); // Does not open
+        editor.commit();
+
+        assertEquals(tasks, new TaskRepository(dir, prefs, cipher).load());
+
+        assertEquals(1, recordKeys());
+        assertFalse(prefs.contains("version"));
+        assertEquals("wrapped", prefs.getString("data_key", null)); // The key stays
+        TaskRepository reloaded = new TaskRepository(dir, prefs, cipher);
+        assertEquals(tasks, reloaded.load());
+        assertFalse(reloaded.hasUnsavedChanges());
+    }
+
+    @Test
+    public void persist_withoutChanges_doesNoIo() {
+        TaskRepository repository = stored(tasks("Buy milk", "Call mom"));
+        long lastModified = new File(dir, "chunk.0").lastModified();
+        long written = chunksWritten.get();
+
+        assertFalse(repository.persist());
+        assertFalse(repository.hasUnsavedChanges());
+        assertEquals(written, chunksWritten.get());
+        assertEquals(lastModified, new File(dir, "chunk.0").lastModified());
+    }
+
+    @Test
+    public void persist_rewritesOnlyTheChunkOfTheChangedRecord() throws IOException {
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < 3 * TaskRepository.CHUNK_RECORDS; i++) tasks.add(new Task("Task " + i, "", "Low", 0L));
+        TaskRepository repository = stored(tasks);
+        assertEquals(3, dir.list().length);
+        byte[] first = bytes(0);
+        byte[] last = bytes(2);
+        long written = chunksWritten.get();
+
+        Task edited = tasks.get(TaskRepository.CHUNK_RECORDS + 5);
+        edited.setDone(true);
+        repository.onTaskChanged(edited);
+        assertTrue(repository.hasUnsavedChanges());
+        assertTrue(repository.persist());
+
+        assertEquals(1, chunksWritten.get() - written);
+        assertArrayEquals(first, bytes(0));
+        assertArrayEquals(last, bytes(2));
+        assertTrue(new TaskRepository(dir).load().get(TaskRepository.CHUNK_RECORDS + 5).isDone());
+    }
+
+    @Test
+    public void jsonWork_isTimedOnItsOwn() {
+        LatencyHistogram encode = MetricsRegistry.global().sizedTimer("gson.encode").histogramFor(1);
+        LatencyHistogram decode = MetricsRegistry.global().sizedTimer("gson.decode").histogramFor(2);
+        List<Task> tasks = tasks("Buy milk", "Call mom");
+        TaskRepository repository = stored(tasks);
+        long encoded = encode.getCount();
+        long decoded = decode.getCount();
+
+        MetricsRegistry.global().setEnabled(true);
+        try {
+            repository.onTaskChanged(tasks.get(0));
+            repository.persist();
+            new TaskRepository(dir).load();
+        } finally {
+            MetricsRegistry.global().setEnabled(false);
+        }
+
+        assertEquals(1, encode.getCount() - encoded); // The one dirty record, in its chunk
+        assertEquals(1, decode.getCount() - decoded); // Both records, in one pass
+    }
+
+    @Test
+    public void removedAndAddedTasks_keepInsertionOrderAcrossLoads() {
+        List<Task> tasks = tasks("Buy milk", "Call mom", "Write report");
+        TaskRepository repository = stored(tasks);
+
+        repository.onTaskRemoved(tasks.get(0));
+        Task added = new Task("Plan trip", "Medium");
+        repository.onTaskChanged(added);
+        repository.persist();
+
+        TaskRepository reloaded = new TaskRepository(dir);
+        assertEquals(Arrays.asList(tasks.get(1), tasks.get(2), added), reloaded.load());
+
+        // Sequence numbers continue after a reload instead of starting over
+        Task another = new Task("Pay rent", "High");
+        reloaded.onTaskChanged(another);
+        reloaded.persist();
+        assertEquals(another, new TaskRepository(dir).load().get(3));
+    }
+
+    @Test
+    public void chunkLeftWithoutRecords_isDeleted() {
+        List<Task> tasks = tasks("Buy milk", "Call mom");
+        TaskRepository repository = stored(tasks);
+
+        for (Task task : tasks) repository.onTaskRemoved(task);
+        repository.persist();
+
+        assertEquals(0, dir.list().length);
+        assertTrue(new TaskRepository(dir).load().isEmpty());
+    }
+
+    @Test
+    public void versionHighWaterMark_isPersisted() throws IOException {
+        List<Task> tasks = tasks("Buy milk", "Call mom");
+        stored(tasks);
+        assertTrue(chunk(0).startsWith("v2\n"));
+
+        TaskRepository reloaded = new TaskRepository(dir);
+        reloaded.load();
+        reloaded.onTaskChanged(tasks.get(0));
+        reloaded.persist();
+        assertTrue(chunk(0).startsWith("v3\n"));
+    }
+
+    @Test
+    public void encryptedChunks_areSealedOneByOne_andOnlyTheChangedOneRewritten() throws Exception {
+        RecordCipher cipher = new RecordCipher(key());
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TaskRepository.CHUNK_RECORDS + 1; i++) tasks.add(new Task("Buy milk " + i, "", "Low", 0L));
+        TaskRepository repository = new TaskRepository(dir, cipher);
+        repository.load();
+        for (Task task : tasks) repository.onTaskChanged(task);
+        repository.persist();
+        byte[] untouched = bytes(0);
+        assertEquals(1, untouched[0]);
+        assertFalse(new String(untouched, StandardCharsets.UTF_8).contains("Buy milk"));
+
+        tasks.get(TaskRepository.CHUNK_RECORDS).setDone(true);
+        repository.onTaskChanged(tasks.get(TaskRepository.CHUNK_RECORDS));
+        repository.persist();
+
+        assertArrayEquals(untouched, bytes(0));
+        assertEquals(tasks, new TaskRepository(dir, cipher).load());
+    }
+
+    @Test
+    public void plainChunks_loadAndAreSealedByTheNextPersist() throws Exception {
+        List<Task> tasks = tasks("Buy milk", "Call mom");
+        stored(tasks); // From before encryption
+
+        RecordCipher cipher = new RecordCipher(key());
+        TaskRepository repository = new TaskRepository(dir, cipher);
+        assertEquals(tasks, repository.load());
+        assertTrue(repository.hasUnsavedChanges());
+        repository.persist();
+
+        assertEquals(1, bytes(0)[0]);
+        TaskRepository reloaded = new TaskRepository(dir, cipher);
+        assertEquals(tasks, reloaded.load());
+        assertFalse(reloaded.hasUnsavedChanges());
+    }
+
+    @Test
+    public void chunksThatDoNotOpen_areSkippedAndKept_andNotWrittenInto() throws Exception {
+        RecordCipher cipher = new RecordCipher(key());
+        List<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < TaskRepository.CHUNK_RECORDS + 1; i++) tasks.add(new Task("Task " + i, "", "Low", 0L));
+        TaskRepository repository = new TaskRepository(dir, cipher);
+        repository.load();
+        for (Task task : tasks) repository.onTaskChanged(task);
+        repository.persist();
+        // Swap the two chunks: each is intact but stored under the other's name
+        byte[] first = bytes(0);
+        byte[] second = bytes(1);
+        Files.write(new File(dir, "chunk.0").toPath(), second);
+        Files.write(new File(dir, "chunk.1").toPath(), first);
+        Counter unreadable = MetricsRegistry.global().counter("repository.unreadableChunks");
+        long before = unreadable.get();
+
+        assertTrue(new TaskRepository(dir, new RecordCipher(key())).load().isEmpty()); // Another key
+        TaskRepository reloaded = new TaskRepository(dir, cipher);
+        assertTrue(reloaded.load().isEmpty());
+        assertEquals(4, unreadable.get() - before);
+
+        Task added = new Task("Water plants", "", "Low", 0L);
+        reloaded.onTaskChanged(added);
+        reloaded.persist();
+        assertArrayEquals(second, bytes(0)); // Kept as they were
+        assertArrayEquals(first, bytes(1));
+        assertEquals(Arrays.asList(added), new TaskRepository(dir, cipher).load());
+    }
+
+    @Test
+    public void malformedRecords_areSkippedAndCounted_theRestLoad() throws IOException {
+        List<Task> tasks = tasks("Buy milk", "Call mom", "Write report", "Pay rent");
+        stored(tasks);
+        String[] lines = chunk(0).split("\n");
+        lines[2] = tasks.get(1).getId() + " {\"title\":\"Call m"; // Cut short
+        lines[3] = lines[3].replace("\"title\"", "\"recurrence\":\"NOT A RULE\",\"title\"");
+        writeChunk(0, String.join("\n", lines));
+        Counter unreadable = MetricsRegistry.global().counter("repository.unreadableRecords");
+        long before = unreadable.get();
+
+        TaskRepository reloaded = new TaskRepository(dir);
+        assertEquals(Arrays.asList(tasks.get(0), tasks.get(3)), reloaded.load()); // In their order
+        assertEquals(2, unreadable.get() - before);
+        // The next record still follows the ones that loaded, and the broken ones are kept as they were
+        Task added = new Task("Water plants", "", "Low", 0L);
+        reloaded.onTaskChanged(added);
+        reloaded.persist();
+        assertTrue(chunk(0).contains(lines[2]));
+        assertEquals(Arrays.asList(tasks.get(0), tasks.get(3), added), new TaskRepository(dir).load());
+    }
+
+    @Test
+    public void keyFailures_keepChangesUnsaved_andFailTheLoadInsteadOfLoadingNothing() throws Exception {
+        Callable<SecretKey> key = key();
+        AtomicBoolean keyStoreUp = new AtomicBoolean(false);
+        Callable<SecretKey> flaky = () -> {
+            if (!keyStoreUp.get()) throw new ProviderException("Key store unavailable");
+            return key.call();
+        };
+        List<Task> tasks = tasks("Buy milk", "Call mom");
+        TaskRepository repository = new TaskRepository(dir, new RecordCipher(flaky));
+        repository.load();
+        for (Task task : tasks) repository.onTaskChanged(task);
+        repository.onTaskRemoved(tasks.get(1));
+
+        try {
+            repository.persist();
+            fail("Persisted without a key");
+        } catch (IllegalStateException expected) {
+            // The caller retries later
+        }
+        assertTrue(repository.hasUnsavedChanges());
+        assertFalse(new File(dir, "chunk.0").exists());
+
+        keyStoreUp.set(true); // Back: the same changes are written
+        assertTrue(repository.persist());
+        assertFalse(repository.hasUnsavedChanges());
+        byte[] sealed = bytes(0);
+
+        keyStoreUp.set(false);
+        try {
+            new TaskRepository(dir, new RecordCipher(flaky)).load();
+            fail("Loaded without a key");
+        } catch (IllegalStateException expected) {
+            // Not an empty list, which sync would take for every task deleted
+        }
+        assertArrayEquals(sealed, bytes(0));
+        keyStoreUp.set(true);
+        assertEquals(tasks.subList(0, 1), new TaskRepository(dir, new RecordCipher(flaky)).load());
+    }
+
+    private static Callable<SecretKey> key() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        SecretKey key = generator.generateKey();
+        return () -> key;
+    }
+
+    private TaskRepository stored(List<Task> tasks) {
+        TaskRepository repository = new TaskRepository(dir);
+        repository.load();
+        for (Task task : tasks) repository.onTaskChanged(task);
+        repository.persist();
+        return repository;
+    }
+
+    // The prefs keys still holding a task record
+    private int recordKeys() {
+        int count = 0;
+        for (String key : prefs.getAll().keySet()) {
+            if (key.startsWith("task.")) count++;
+        }
+        return count;
+    }
+
+    private byte[] bytes(int n) {
+        try {
+            return Files.readAllBytes(new File(dir, "chunk." + n).toPath());
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    // A plain chunk's text, after its flag byte
+    private String chunk(int n) throws IOException {
+        byte[] stored = bytes(n);
+        assertEquals(0, stored[0]);
+        return new String(stored, 1, stored.length - 1, StandardCharsets.UTF_8);
+    }
+
+    private void writeChunk(int n, String text) throws IOException {
+        byte[] payload = text.getBytes(StandardCharsets.UTF_8);
+        byte[] stored = new byte[payload.length + 1];
+        System.arraycopy(payload, 0, stored, 1, payload.length);
+        Files.write(new File(dir, "chunk." + n).toPath(), stored);
+    }
+
+    private static List<Task> tasks(String... titles) {
+        List<Task> tasks = new ArrayList<>();
+        for (String title : titles) tasks.add(new Task(title, "", "Low", 0L));
+        return tasks;
+    }
+}
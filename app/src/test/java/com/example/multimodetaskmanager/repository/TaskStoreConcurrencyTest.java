@@ -0,0 +1,269 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Hammers one {@link TaskStore} with adds, updates and deletes from several threads while
+ * other threads read snapshots, then checks the history is linearizable: the published
+ * snapshots replay as one change at a time, every call's result fits that order and its
+ * real-time order, and readers only ever see published snapshots, never going back.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskStoreConcurrencyTest {
+    private static final int WRITERS = 8;
+    private static final int READERS = 2;
+    private static final int OPS_PER_WRITER = 400;
+    private static final long SEED = 38L;
+
+    private enum Kind { ADD, UPDATE, REMOVE }
+
+    // One completed call: what was asked, when, and the snapshot it returned
+    private static final class Op {
+        final Kind kind;
+        final Task task;
+        final long invokedNanos;
+        final long respondedNanos;
+        final TaskSnapshot result;
+
+        Op(Kind kind, Task task, long invokedNanos, long respondedNanos, TaskSnapshot result) {
+            this.kind = kind;
+            this.task = task;
+            this.invokedNanos = invokedNanos;
+            this.respondedNanos = respondedNanos;
+            this.result = result;
+        }
+    }
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private ExecutorService writer;
+    private ExecutorService threads;
+
+    @Before
+    public void setUp() {
+        dir = folder.getRoot();
+        writer = Executors.newSingleThreadExecutor();
+        threads = Executors.newFixedThreadPool(WRITERS + READERS);
+    }
+
+    @After
+    public void tearDown() {
+        threads.shutdownNow();
+        writer.shutdownNow();
+    }
+
+    @Test
+    public void concurrentChanges_areLinearizable() throws Exception {
+        TaskStore store = new TaskStore(new TaskRepository(dir), writer);
+        Map<Long, TaskSnapshot> published = new ConcurrentHashMap<>();
+        store.addListener(snapshot -> published.put(snapshot.getVersion(), snapshot));
+        assertEquals(1L, store.load().get().getVersion());
+
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        List<Future<List<Op>>> writers = new ArrayList<>();
+        for (int w = 0; w < WRITERS; w++) {
+            int id = w;
+            writers.add(threads.submit(() -> runWriter(store, id, start)));
+        }
+        List<Future<List<TaskSnapshot>>> readers = new ArrayList<>();
+        for (int r = 0; r < READERS; r++) {
+            readers.add(threads.submit(() -> runReader(store, start, writing)));
+        }
+        start.countDown();
+
+        List<Op> ops = new ArrayList<>();
+        for (Future<List<Op>> future : writers) ops.addAll(future.get(60, TimeUnit.SECONDS));
+        writing.set(false);
+        List<TaskSnapshot> seenByReaders = new ArrayList<>();
+        for (Future<List<TaskSnapshot>> future : readers) seenByReaders.addAll(future.get(60, TimeUnit.SECONDS));
+
+        long latest = store.snapshot().getVersion();
+        assertEquals("every published version was delivered", latest, published.size());
+        Op[] producers = checkSequentialReplay(ops, published, latest);
+        checkRealTimeOrder(ops, producers);
+        for (TaskSnapshot seen : seenByReaders) {
+            assertSame("readers only see published snapshots", published.get(seen.getVersion()), seen);
+        }
+
+        // The queued write ran before this, so storage holds the final state (in insertion order)
+        List<Task> finalTasks = store.load().get().getTasks();
+        assertEquals(finalTasks, new TaskRepository(dir).load());
+    }
+
+    // Random adds, updates and removes; updates and removes pick from the latest snapshot, so
+    // writers often race for the same task
+    private static List<Op> runWriter(TaskStore store, int id, CountDownLatch start) throws Exception {
+        Random random = new Random(SEED + id);
+        List<Op> ops = new ArrayList<>(OPS_PER_WRITER);
+        start.await();
+        for (int i = 0; i < OPS_PER_WRITER; i++) {
+            List<Task> current = store.snapshot().getTasks();
+            int roll = random.nextInt(100);
+            Kind kind = current.isEmpty() || roll < 40 ? Kind.ADD : roll < 75 ? Kind.UPDATE : Kind.REMOVE;
+            Task task;
+            if (kind == Kind.ADD) {
+                task = new Task("w" + id + " #" + i, "", "Medium", 0L);
+            } else {
+                task = new Task(current.get(random.nextInt(current.size())));
+                task.setTitle("w" + id + " edit #" + i); // Unique, so an applied update is recognizable
+            }
+            long invoked = System.nanoTime();
+            TaskSnapshot result;
+            if (kind == Kind.ADD) result = store.add(task).get();
+            else if (kind == Kind.UPDATE) result = store.update(task).get();
+            else result = store.remove(task).get();
+            ops.add(new Op(kind, task, invoked, System.nanoTime(), result));
+        }
+        return ops;
+    }
+
+    // Reads snapshots until the writers are done, checking that the version never goes back
+    // and that no snapshot holds a task twice; keeps a sample for the final check
+    private static List<TaskSnapshot> runReader(TaskStore store, CountDownLatch start, AtomicBoolean writing)
+            throws InterruptedException {
+        List<TaskSnapshot> sample = new ArrayList<>();
+        start.await();
+        long lastVersion = 0L;
+        for (int reads = 0; writing.get(); reads++) {
+            TaskSnapshot snapshot = store.snapshot();
+            assertTrue("snapshot versions never go back", snapshot.getVersion() >= lastVersion);
+            lastVersion = snapshot.getVersion();
+            if (reads % 64 == 0) {
+                List<Task> tasks = snapshot.getTasks();
+                for (int i = 0; i < tasks.size(); i++) {
+                    assertEquals("task listed once", i, snapshot.indexOf(tasks.get(i)));
+                }
+                sample.add(snapshot);
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Finds, for every version after the load, the one call that produced it, and checks the
+     * version is exactly that call applied to the version before. Every other call must have
+     * been a no-op against the state it returned.
+     *
+     * @return The producing call per version.
+     */
+    private static Op[] checkSequentialReplay(List<Op> ops, Map<Long, TaskSnapshot> published, long latest) {
+        Op[] producers = new Op[(int) latest + 1];
+        for (Op op : ops) {
+            long version = op.result.getVersion();
+            assertSame("calls return a published snapshot", published.get(version), op.result);
+            int index = op.result.indexOf(op.task);
+            boolean applied;
+            switch (op.kind) {
+                case ADD:
+                    applied = true;
+                    break;
+                case UPDATE:
+                    applied = index >= 0 && op.result.getTasks().get(index).equals(op.task);
+                    break;
+                default:
+                    // Two removes of one task can return the same version; either may be the one that applied
+                    applied = index < 0 && producers[(int) version] == null && version > 1
+                            && published.get(version - 1).indexOf(op.task) >= 0;
+                    break;
+            }
+            if (applied) {
+                assertNull("one change per version", producers[(int) version]);
+                producers[(int) version] = op;
+            } else {
+                assertTrue(op.kind + " that changed nothing found the task missing", index < 0);
+            }
+        }
+
+        for (long version = 2; version <= latest; version++) {
+            Op producer = producers[(int) version];
+            assertNotNull("version " + version + " has a producing call", producer);
+            List<Task> expected = new ArrayList<>(published.get(version - 1).getTasks());
+            int index = published.get(version - 1).indexOf(producer.task);
+            switch (producer.kind) {
+                case ADD:
+                    assertEquals(-1, index);
+                    expected.add(producer.task);
+                    break;
+                case UPDATE:
+                    expected.set(index, producer.task);
+                    break;
+                default:
+                    expected.remove(index);
+                    break;
+            }
+            assertEquals("version " + version + " is " + producer.kind + " applied to the version before",
+                    expected, published.get(version).getTasks());
+        }
+        return producers;
+    }
+
+    /**
+     * If call A returned before call B started, B must not see an older state than A, and B
+     * must come strictly after A if B changed something.
+     */
+    private static void checkRealTimeOrder(List<Op> ops, Op[] producers) {
+        List<Op> byResponse = new ArrayList<>(ops);
+        Collections.sort(byResponse, Comparator.comparingLong(op -> op.respondedNanos));
+        long[] responded = new long[byResponse.size()];
+        long[] maxVersionSoFar = new long[byResponse.size()];
+        for (int i = 0; i < byResponse.size(); i++) {
+            responded[i] = byResponse.get(i).respondedNanos;
+            maxVersionSoFar[i] = Math.max(i > 0 ? maxVersionSoFar[i - 1] : 0L, byResponse.get(i).result.getVersion());
+        }
+        for (Op op : ops) {
+            int before = lastIndexBelow(responded, op.invokedNanos);
+            if (before < 0) continue;
+            long version = op.result.getVersion();
+            boolean applied = producers[(int) version] == op;
+            if (applied ? version <= maxVersionSoFar[before] : version < maxVersionSoFar[before]) {
+                fail(op.kind + " returned version " + version + " after a call that had already returned version "
+                        + maxVersionSoFar[before]);
+            }
+        }
+    }
+
+    // Index of the last value below the key in a sorted array, or -1
+    private static int lastIndexBelow(long[] sorted, long key) {
+        int low = 0;
+        int high = sorted.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < key) low = mid + 1;
+            else high = mid - 1;
+        }
+        return high;
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.security.RecordCipher;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.security.ProviderException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * A {@link TaskStore} whose stored tasks cannot be read (the key store failing): it says so in
+ * a snapshot and takes no changes until a load works.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskStoreLoadFailureTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final AtomicBoolean keyStoreUp = new AtomicBoolean(true);
+    private SecretKey key;
+    private File dir;
+
+    @Before
+    public void setUp() throws Exception {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        key = generator.generateKey();
+        dir = folder.getRoot();
+        TaskRepository repository = new TaskRepository(dir, cipher());
+        repository.load();
+        repository.onTaskChanged(new Task("Buy milk", "Low"));
+        repository.persist();
+    }
+
+    @Test
+    public void failedLoad_isPublished_andChangesFailUntilALoadWorks() {
+        keyStoreUp.set(false);
+        TaskStore store = new TaskStore(new TaskRepository(dir, cipher()), Runnable::run); // Changes run on the calling thread
+        List<TaskSnapshot> published = new ArrayList<>();
+        store.addListener(published::add);
+
+        try {
+            store.add(new Task("Call mom", "Low")).join();
+            fail("Changed a list that was never read");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(store.snapshot().isLoadFailed());
+        assertFalse(store.snapshot().isLoaded());
+        try {
+            store.load().join();
+            fail("Loaded without a key");
+        } catch (CompletionException expected) {
+            // Still failing
+        }
+        assertEquals(1, published.size()); // Said once, not on every retry
+
+        keyStoreUp.set(true);
+        TaskSnapshot loaded = store.load().join();
+
+        assertTrue(loaded.isLoaded());
+        assertFalse(loaded.isLoadFailed());
+        assertEquals(1, loaded.size()); // What is stored, without the change that failed
+        assertEquals("Buy milk", loaded.getTasks().get(0).getTitle());
+    }
+
+    @Test
+    public void changeListeners_waitForTheFirstLoadThatWorks() {
+        keyStoreUp.set(false);
+        TaskStore store = new TaskStore(new TaskRepository(dir, cipher()), Runnable::run);
+        List<Task> seen = new ArrayList<>();
+        CompletableFuture<TaskSnapshot> added = store.addChangeListener(new TaskStore.ChangeListener() {
+            @Override public void onTasksLoaded(List<Task> tasks) { seen.addAll(tasks); }
+            @Override public void onTaskChanged(Task task) { seen.add(task); }
+            @Override public void onTaskRemoved(Task task) { }
+        });
+        assertFalse(added.isDone());
+
+        keyStoreUp.set(true);
+        store.add(new Task("Call mom", "Low")).join();
+
+        assertTrue(added.isDone());
+        assertEquals(2, seen.size()); // The stored task, then the change
+        assertEquals("Buy milk", seen.get(0).getTitle());
+    }
+
+    /**
+     * A cipher of its own, as after a restart: it has not got the key yet.
+     */
+    private RecordCipher cipher() {
+        return new RecordCipher(() -> {
+            if (!keyStoreUp.get()) throw new ProviderException("Key store unavailable");
+            return key;
+        });
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.Recurrence;
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recurring tasks in the {@link TaskStore}: one stored template, occurrences only inside the
+ * window, and a stored task only for an occurrence the user changed.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskStoreRecurrenceTest {
+    private static final long DAY = 86_400_000L;
+    private static final long FIRST = 1_704_096_000_000L; // 2024-01-01 08:00 UTC
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private TaskStore store;
+    private Task template;
+
+    @Before
+    public void setUp() {
+        dir = folder.getRoot();
+        store = new TaskStore(new TaskRepository(dir), Runnable::run); // Changes run on the calling thread
+        template = new Task("Stand-up", "", "Medium", FIRST);
+        template.setRecurrence(Recurrence.daily(1));
+        store.add(template);
+    }
+
+    @Test
+    public void withoutAWindow_theTemplateIsListedAsItIs() {
+        assertEquals(1, store.snapshot().size());
+        assertTrue(store.snapshot().getTasks().get(0).isRecurring());
+    }
+
+    @Test
+    public void window_listsOnlyItsOccurrences() {
+        List<Task> shown = store.setOccurrenceWindow(FIRST + 30 * DAY - 1, FIRST + 44 * DAY).join().getTasks();
+
+        assertEquals(14, shown.size());
+        assertEquals(FIRST + 30 * DAY, shown.get(0).getDueDate());
+        assertEquals(1, storedRecords());
+    }
+
+    @Test
+    public void completingAnOccurrence_storesItAndSkipsItInTheSeries() {
+        store.setOccurrenceWindow(FIRST, FIRST + 3 * DAY);
+        Task second = new Task(store.snapshot().getTasks().get(1));
+        second.setDone(true);
+
+        List<Task> shown = store.update(second).join().getTasks();
+
+        assertEquals(3, shown.size()); // Still one per day, the second one now the stored copy
+        Task stored = find(shown, second);
+        assertTrue(stored.isDone());
+        assertNull(stored.getRecurrence());
+        assertEquals(2, storedRecords());
+        assertTrue(templateRule().isExcluded(FIRST + DAY));
+        assertEquals(1, store.update(second).join().getTasks().stream().filter(Task::isDone).count()); // Updated in place
+    }
+
+    @Test
+    public void deletingAnOccurrence_onlyExcludesItFromTheSeries() {
+        store.setOccurrenceWindow(FIRST, FIRST + 3 * DAY);
+        Task third = store.snapshot().getTasks().get(2);
+
+        List<Task> shown = store.remove(third).join().getTasks();
+
+        assertEquals(2, shown.size());
+        assertEquals(1, storedRecords());
+        assertTrue(templateRule().isExcluded(FIRST + 2 * DAY));
+        assertFalse(templateRule().isExcluded(FIRST + DAY));
+    }
+
+    private static Task find(List<Task> tasks, Task task) {
+        for (Task candidate : tasks) {
+            if (candidate.hasSameId(task)) return candidate;
+        }
+        throw new AssertionError("not listed: " + task.getTitle());
+    }
+
+    private int storedRecords() {
+        TaskRepository repository = new TaskRepository(dir);
+        return repository.load().size();
+    }
+
+    private Recurrence templateRule() {
+        for (Task task : new TaskRepository(dir).load()) {
+            if (task.hasSameId(template)) return task.getRecurrence();
+        }
+        throw new AssertionError("template not stored");
+    }
+}
@@ -0,0 +1,149 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Sorted snapshots of the {@link TaskStore}, patched change by change instead of re-sorted,
+ * checked against sorting the whole list.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskStoreSortTest {
+    private static final String[] PRIORITIES = {"Low", "Medium", "High"};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private TaskStore store;
+
+    @Before
+    public void setUp() throws Exception {
+        store = newStore();
+    }
+
+    @Test
+    public void randomChanges_sortLikeSortingEverything() throws Exception {
+        for (SortOrder order : SortOrder.values()) {
+            store = newStore();
+            store.sort(order);
+            Comparator<Task> comparator = TaskComparators.forOrder(order);
+            Random random = new Random(order.ordinal());
+            List<Task> tasks = new ArrayList<>();
+            for (int step = 0; step < 2_000; step++) {
+                int op = random.nextInt(10);
+                if (tasks.isEmpty() || op < 4) {
+                    Task task = randomTask(random, step);
+                    tasks.add(task);
+                    store.add(task);
+                } else if (op < 8) {
+                    int i = random.nextInt(tasks.size());
+                    Task edited = new Task(tasks.get(i));
+                    if (random.nextBoolean()) {
+                        edited.setDone(!edited.isDone()); // Same place
+                    } else {
+                        Task other = randomTask(random, step);
+                        edited.setTitle(other.getTitle());
+                        edited.setPriority(other.getPriority());
+                        edited.setDueDate(other.getDueDate());
+                    }
+                    tasks.set(i, edited);
+                    store.update(edited);
+                } else {
+                    store.remove(tasks.remove(random.nextInt(tasks.size())));
+                }
+
+                List<Task> shown = store.snapshot().getTasks();
+                assertEquals(tasks.size(), shown.size());
+                for (int i = 1; i < shown.size(); i++) {
+                    assertTrue(order + " out of order at step " + step, comparator.compare(shown.get(i - 1), shown.get(i)) <= 0);
+                }
+                assertTrue(new HashSet<>(shown).containsAll(tasks));
+            }
+        }
+    }
+
+    @Test
+    public void update_keepsTheRowInPlaceWhileItSortsThere() {
+        store.sort(SortOrder.PRIORITY);
+        Task first = new Task("First", "Medium");
+        Task second = new Task("Second", "Medium");
+        Task third = new Task("Third", "Medium");
+        store.add(first);
+        store.add(second);
+        store.add(third);
+
+        Task done = new Task(second);
+        done.setDone(true);
+        store.update(done);
+        assertEquals(done, store.snapshot().getTasks().get(1));
+
+        Task moved = new Task(first);
+        moved.setPriority("Low");
+        store.update(moved);
+        moved.setPriority("Medium"); // Back among the tasks it ties with, but after them
+        store.update(moved);
+        List<Task> shown = store.snapshot().getTasks();
+        assertEquals("Second", shown.get(0).getTitle());
+        assertEquals("Third", shown.get(1).getTitle());
+        assertEquals("First", shown.get(2).getTitle());
+    }
+
+    @Test
+    public void taskWithoutTitle_isPublished() {
+        store.sort(SortOrder.NAME);
+        store.add(new Task("Buy milk", "Low"));
+        Task untitled = new Task(null, "Low"); // E.g. from a bad sync record
+
+        TaskSnapshot snapshot = store.add(untitled).join();
+
+        assertEquals(2, snapshot.size());
+        assertEquals(untitled, snapshot.getTasks().get(0)); // Sorts as an empty title
+        assertSame(snapshot, store.snapshot());
+    }
+
+    @Test
+    public void insertionOrder_addsLastAndUpdatesInPlace() {
+        Task first = new Task("First", "Low");
+        Task second = new Task("Second", "High");
+        store.add(first);
+        store.add(second);
+        Task renamed = new Task(first);
+        renamed.setTitle("Renamed");
+
+        store.update(renamed);
+        store.add(new Task("Third", "Medium"));
+
+        List<Task> shown = store.snapshot().getTasks();
+        assertEquals("Renamed", shown.get(0).getTitle());
+        assertEquals("Second", shown.get(1).getTitle());
+        assertEquals("Third", shown.get(2).getTitle());
+    }
+
+    private TaskStore newStore() throws Exception {
+        return new TaskStore(new TaskRepository(folder.newFolder()), Runnable::run); // Changes run on the calling thread
+    }
+
+    private static Task randomTask(Random random, int step) {
+        long due = random.nextInt(4) == 0 ? 0L : 1_700_000_000_000L + random.nextInt(20) * 86_400_000L;
+        return new Task((char) ('a' + random.nextInt(26)) + "task " + step, "",
+                PRIORITIES[random.nextInt(PRIORITIES.length)], due);
+    }
+}
@@ -0,0 +1,137 @@
+package com.example.multimodetaskmanager.repository;
+
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.TagFilter;
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tag filters in the {@link TaskStore}: the bitmap index kept up to date change by change,
+ * checked against filtering the list task by task.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskStoreTagFilterTest {
+    private static final String[] TAGS = {"work", "home", "errands", "urgent", "someday"};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File dir;
+    private TaskStore store;
+
+    @Before
+    public void setUp() {
+        dir = folder.getRoot();
+        store = new TaskStore(new TaskRepository(dir), Runnable::run); // Changes run on the calling thread
+    }
+
+    @Test
+    public void randomChanges_filterLikeCheckingEveryTask() {
+        Random random = new Random(9);
+        List<Task> tasks = new ArrayList<>();
+        for (int step = 0; step < 3_000; step++) {
+            int op = random.nextInt(10);
+            if (tasks.isEmpty() || op < 5) {
+                Task task = new Task("Task " + step, "Low");
+                task.setTags(randomTags(random));
+                tasks.add(task);
+                store.add(task);
+            } else if (op < 8) {
+                int i = random.nextInt(tasks.size());
+                Task retagged = new Task(tasks.get(i));
+                retagged.setTags(randomTags(random));
+                tasks.set(i, retagged);
+                store.update(retagged);
+            } else {
+                store.remove(tasks.remove(random.nextInt(tasks.size())));
+            }
+        }
+
+        for (TagFilter filter : Arrays.asList(TagFilter.anyOf(Arrays.asList("work", "urgent")),
+                TagFilter.allOf(Arrays.asList("home", "errands")), TagFilter.allOf(Arrays.asList("work", "missing")))) {
+            List<Task> expected = new ArrayList<>();
+            for (Task task : tasks) {
+                if (filter.matches(task)) expected.add(task);
+            }
+            TaskSnapshot snapshot = store.setTagFilter(filter).join();
+            assertEquals(expected, snapshot.getFilteredTasks()); // In insertion order, like the list
+            assertEquals(tasks.size(), snapshot.getTasks().size()); // Everyone else still sees all
+        }
+    }
+
+    @Test
+    public void filteredTasks_followTheSortOrder_andReloadFromStorage() {
+        store.add(tagged("Write report", "High", "work"));
+        store.add(tagged("Buy milk", "Low", "errands", "home"));
+        store.add(tagged("Call plumber", "Medium", "home"));
+        store.sort(SortOrder.PRIORITY);
+
+        TaskSnapshot snapshot = store.setTagFilter(TagFilter.anyOf(Arrays.asList("home", "work"))).join();
+        assertEquals(Arrays.asList("errands", "home", "work"), snapshot.getTags());
+        assertEquals("Write report", snapshot.getFilteredTasks().get(0).getTitle());
+        assertEquals("Buy milk", snapshot.getFilteredTasks().get(2).getTitle());
+
+        TaskStore reopened = new TaskStore(new TaskRepository(dir), Runnable::run);
+        List<Task> shown = reopened.setTagFilter(TagFilter.allOf(Arrays.asList("home", "errands"))).join().getFilteredTasks();
+        assertEquals(1, shown.size());
+        assertEquals(Arrays.asList("errands", "home"), shown.get(0).getTags());
+    }
+
+    @Test
+    public void noFilter_showsEveryTask() {
+        store.add(tagged("Write report", "High", "work"));
+        store.setTagFilter(TagFilter.anyOf(Arrays.asList("home")));
+
+        TaskSnapshot snapshot = store.setTagFilter(TagFilter.anyOf(new ArrayList<>())).join();
+        assertNull(snapshot.getTagFilter());
+        assertSame(snapshot.getTasks(), snapshot.getFilteredTasks());
+    }
+
+    @Test
+    public void droppedIndex_isRebuiltForTheNextFilter() {
+        store.add(tagged("Write report", "High", "work"));
+        store.add(tagged("Buy milk", "Low", "errands"));
+        assertTrue(store.tagIndexBytes() > 0);
+
+        store.dropTagIndex();
+        assertEquals(0L, store.tagIndexBytes());
+        // Changes while it is gone still show up, in the tags and in the next filter
+        TaskSnapshot snapshot = store.add(tagged("Pay rent", "High", "home", "work")).join();
+        assertEquals(Arrays.asList("errands", "home", "work"), snapshot.getTags());
+        List<Task> shown = store.setTagFilter(TagFilter.anyOf(Arrays.asList("work"))).join().getFilteredTasks();
+        assertEquals(2, shown.size());
+        assertEquals("Pay rent", shown.get(1).getTitle());
+        assertTrue(store.tagIndexBytes() > 0);
+    }
+
+    private static List<String> randomTags(Random random) {
+        List<String> tags = new ArrayList<>();
+        for (String tag : TAGS) {
+            if (random.nextInt(3) == 0) tags.add(tag);
+        }
+        return tags;
+    }
+
+    private static Task tagged(String title, String priority, String... tags) {
+        Task task = new Task(title, priority);
+        task.setTags(Arrays.asList(tags));
+        return task;
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.multimodetaskmanager.repository;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.multimodetaskmanager.models.TagFilter;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.security.TaskKeys;
+import com.example.multimodetaskmanager.utils.TaskJson;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import javax.crypto.KeyGenerator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link TaskStores}: one partition per account, the old shared file adopted by the first
+ * account, and a bounded number of accounts kept in memory.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskStoresTest {
+    private static final String ALICE = "alice@example.com";
+    private static final String BOB = "bob@example.com";
+    private static final String CAROL = "carol@example.com";
+
+    private Context context;
+    private TaskStores stores;
+
+    @Before
+    public void setUp() throws GeneralSecurityException {
+        context = RuntimeEnvironment.getApplication();
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        TaskKeys.useMasterKey(generator.generateKey()); // In place of the Android key store
+        prefs("account_prefs").edit().clear().commit();
+        clear("");
+        for (String email : new String[]{ALICE, BOB, CAROL}) clear("." + TaskStores.accountId(email));
+        stores = new TaskStores(context);
+    }
+
+    @Test
+    public void eachAccount_seesOnlyItsOwnTasks() {
+        TaskStore alice = stores.switchTo(ALICE);
+        alice.add(new Task("Alice's task", "Low")).join();
+        alice.load().join(); // After the write queued behind the add, so it cannot outlive the test
+        TaskStore bob = stores.switchTo(BOB);
+
+        assertEquals(0, bob.load().join().size());
+        assertSame(alice, stores.switchTo(ALICE)); // Still warm
+        assertEquals(1, alice.snapshot().size());
+    }
+
+    @Test
+    public void firstAccount_adoptsTheSharedTaskFile() {
+        Task old = new Task("From before accounts", "Medium"); // A record as kept in the prefs back then
+        prefs(TaskRepository.PREF_NAME).edit()
+                .putString("task." + old.getId(), TaskJson.toRecordJson(old, 1L, 0L))
+                .putLong("version", 1L)
+                .commit();
+
+        assertEquals(1, stores.switchTo(ALICE).load().join().size());
+        assertEquals(0, stores.switchTo(BOB).load().join().size());
+        TaskStore restarted = new TaskStores(context).switchTo(ALICE);
+        assertEquals(1, restarted.load().join().size()); // Also after a restart
+        restarted.load().join(); // After the write queued behind the first load
+        for (String key : prefs(TaskRepository.PREF_NAME).getAll().keySet()) assertFalse(key.startsWith("task."));
+        File chunk = new File(new File(context.getFilesDir(), TaskRepository.DIR_NAME), "chunk.0");
+        assertEquals(1, readFirstByte(chunk)); // Moved into a chunk, encrypted
+    }
+
+    @Test
+    public void thirdAccount_releasesTheLeastRecentlyUsed() {
+        TaskStore alice = stores.switchTo(ALICE);
+        TaskStore bob = stores.switchTo(BOB);
+        bob.add(new Task("Bob's task", "Low")).join();
+        bob.load().join(); // After the write queued behind the add
+        stores.switchTo(ALICE);
+        stores.switchTo(CAROL);
+
+        assertEquals(TaskStores.WARM_ACCOUNTS, stores.warmCount());
+        assertSame(alice, stores.switchTo(ALICE));
+        TaskStore reopened = stores.switchTo(BOB);
+        assertNotSame(bob, reopened);
+        assertEquals(1, reopened.load().join().size());
+    }
+
+    @Test
+    public void logout_releasesEveryAccount() {
+        TaskStore alice = stores.switchTo(ALICE);
+        alice.add(new Task("Alice's task", "Low")).join();
+        alice.load().join();
+        stores.switchTo(BOB);
+
+        stores.logout();
+
+        assertEquals(0, stores.warmCount());
+        try {
+            alice.add(new Task("Too late", "Low")).join();
+            fail("A released store must not take changes");
+        } catch (CompletionException expected) {
+            assertTrue(expected.getCause() instanceof RejectedExecutionException);
+        }
+        TaskStore again = stores.switchTo(ALICE);
+        assertNotSame(alice, again);
+        assertEquals(1, again.load().join().size());
+    }
+
+    @Test
+    public void trim_releasesTheOtherAccounts_andKeepsTheActiveOne() {
+        TaskStore alice = stores.switchTo(ALICE);
+        alice.add(new Task("Alice's task", "Low")).join();
+        alice.load().join();
+        TaskStore bob = stores.switchTo(BOB);
+        assertTrue(stores.sizeInBytes() > 0); // Alice's task, still in memory
+
+        assertTrue(stores.trim() > 0);
+
+        assertEquals(1, stores.warmCount());
+        assertSame(bob, stores.switchTo(BOB));
+        TaskStore reopened = stores.switchTo(ALICE);
+        assertNotSame(alice, reopened);
+        assertEquals(1, reopened.load().join().size());
+    }
+
+    @Test
+    public void trim_keepsTheTagIndexWhileAFilterUsesIt_andItIsRebuiltAfterADrop() {
+        TaskStore alice = stores.switchTo(ALICE);
+        alice.add(tagged("Write report", "work"));
+        alice.add(tagged("Buy milk", "errands"));
+        alice.setTagFilter(TagFilter.anyOf(Arrays.asList("work"))).join();
+        long indexBytes = alice.tagIndexBytes();
+        assertTrue(indexBytes > 0);
+
+        assertEquals(0L, stores.trim()); // The filter is using it
+        alice.load().join(); // After anything the trim queued
+        assertEquals(indexBytes, alice.tagIndexBytes());
+        assertEquals(1, alice.snapshot().getFilteredTasks().size());
+
+        alice.setTagFilter(null).join();
+        assertEquals(indexBytes, stores.trim());
+        alice.load().join(); // After the queued drop
+        assertEquals(0L, alice.tagIndexBytes());
+        assertEquals(0L, stores.sizeInBytes());
+
+        TaskSnapshot filtered = alice.setTagFilter(TagFilter.anyOf(Arrays.asList("errands"))).join();
+        assertEquals("Buy milk", filtered.getFilteredTasks().get(0).getTitle());
+        assertEquals(indexBytes, alice.tagIndexBytes()); // Rebuilt for the filter
+    }
+
+    // --- Helpers ---
+
+    private static Task tagged(String title, String tag) {
+        Task task = new Task(title, "Low");
+        task.setTags(Collections.singletonList(tag));
+        return task;
+    }
+
+    private SharedPreferences prefs(String name) {
+        return context.getSharedPreferences(name, Context.MODE_PRIVATE);
+    }
+
+    // Removes an account partition's prefs, task records and archive
+    private void clear(String suffix) {
+        prefs(TaskRepository.PREF_NAME + suffix).edit().clear().commit();
+        File records = new File(context.getFilesDir(), TaskRepository.DIR_NAME + suffix);
+        File[] chunks = records.listFiles();
+        if (chunks != null) {
+            for (File chunk : chunks) chunk.delete();
+        }
+        records.delete();
+        new File(context.getFilesDir(), "task_archive" + suffix).delete();
+    }
+
+    private static int readFirstByte(File file) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            return in.read();
+        } catch (IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
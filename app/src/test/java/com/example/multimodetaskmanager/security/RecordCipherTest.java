@@ -0,0 +1,127 @@
+package com.example.multimodetaskmanager.security;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * {@link RecordCipher}: round trips, and every way a sealed piece can be tampered with or
+ * misplaced failing to open. {@link TaskKeys} and {@link PasswordHasher} at the bottom.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class RecordCipherTest {
+    private static final String JSON = "{\"title\":\"Buy milk\",\"version\":3,\"seq\":7}";
+
+    @Test
+    public void sealedRecords_openUnderTheirOwnName() throws GeneralSecurityException {
+        RecordCipher cipher = new RecordCipher(RecordCipherTest::newKey);
+        String sealed = cipher.sealString("task.a", JSON);
+
+        assertTrue(RecordCipher.isSealed(sealed));
+        assertFalse(RecordCipher.isSealed(JSON));
+        assertFalse(sealed.contains("milk"));
+        assertNotEquals(sealed, cipher.sealString("task.a", JSON)); // Fresh IV every time
+        assertEquals(JSON, cipher.openString("task.a", sealed));
+    }
+
+    @Test
+    public void tamperedOrMovedRecords_doNotOpen() {
+        RecordCipher cipher = new RecordCipher(RecordCipherTest::newKey);
+        byte[] name = "task.a".getBytes(StandardCharsets.UTF_8);
+        byte[] sealed = cipher.seal(JSON.getBytes(StandardCharsets.UTF_8), name);
+
+        for (int i = 0; i < sealed.length; i++) { // IV, ciphertext and tag alike
+            byte[] tampered = sealed.clone();
+            tampered[i] ^= 1;
+            assertDoesNotOpen(cipher, tampered, name);
+        }
+        assertDoesNotOpen(cipher, sealed, "task.b".getBytes(StandardCharsets.UTF_8)); // Swapped with another record
+        assertDoesNotOpen(cipher, Arrays.copyOf(sealed, sealed.length - 1), name);
+        assertDoesNotOpen(cipher, new byte[RecordCipher.OVERHEAD - 1], name);
+        assertDoesNotOpen(new RecordCipher(RecordCipherTest::newKey), sealed, name); // Another account's key
+    }
+
+    @Test
+    public void key_isAskedForOnce_onFirstUse() throws GeneralSecurityException {
+        AtomicInteger asked = new AtomicInteger();
+        SecretKey key = newKey();
+        RecordCipher cipher = new RecordCipher(() -> {
+            asked.incrementAndGet();
+            return key;
+        });
+        assertEquals(0, asked.get()); // Creating the cipher, e.g. on the main thread, costs nothing
+
+        String sealed = cipher.sealString("task.a", JSON);
+        cipher.openString("task.a", sealed);
+        assertEquals(1, asked.get());
+    }
+
+    @Test
+    public void dataKeyThatNoLongerUnwraps_isKept_notReplaced() throws Exception {
+        SharedPreferences prefs = RuntimeEnvironment.getApplication().getSharedPreferences("test_key_prefs", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        try {
+            TaskKeys.useMasterKey(newKey());
+            SecretKey created = TaskKeys.dataKey(prefs).call();
+            assertArrayEquals(created.getEncoded(), TaskKeys.dataKey(prefs).call().getEncoded());
+            String wrapped = prefs.getString(TaskKeys.KEY_DATA_KEY, null);
+
+            TaskKeys.useMasterKey(newKey()); // The key store was reset
+            try {
+                TaskKeys.dataKey(prefs).call();
+                fail("Unwrapped with another master key");
+            } catch (GeneralSecurityException expected) {
+                // Surfaced, instead of a new key orphaning every record sealed with the old one
+            }
+            assertEquals(wrapped, prefs.getString(TaskKeys.KEY_DATA_KEY, null));
+        } finally {
+            TaskKeys.useMasterKey(null);
+        }
+    }
+
+    @Test
+    public void passwordHashes_verifyOnlyTheirPassword() {
+        String stored = PasswordHasher.hash("S3cret!pass", 1_000);
+
+        assertFalse(stored.contains("S3cret"));
+        assertNotEquals(stored, PasswordHasher.hash("S3cret!pass", 1_000)); // Salted
+        assertTrue(PasswordHasher.verify("S3cret!pass", stored));
+        assertFalse(PasswordHasher.verify("S3cret!pasS", stored));
+        assertFalse(PasswordHasher.verify("S3cret!pass", "S3cret!pass")); // An old plain text password is no hash
+        assertFalse(PasswordHasher.verify("S3cret!pass", "pbkdf2-md5$1000$AAAA$AAAA"));
+    }
+
+    private static void assertDoesNotOpen(RecordCipher cipher, byte[] sealed, byte[] name) {
+        try {
+            cipher.open(sealed, name);
+            fail("Opened a tampered or misplaced piece");
+        } catch (GeneralSecurityException expected) {
+            // The tag check failed
+        }
+    }
+
+    private static SecretKey newKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance("AES");
+        generator.init(256);
+        return generator.generateKey();
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.multimodetaskmanager.stats;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TaskStats} kept up to date change by change, checked against counting the list.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TaskStatsTest {
+    private static final long DAY = 86_400_000L;
+    private static final long NOW = 1_700_000_000_000L - 1_700_000_000_000L % DAY + DAY / 2; // Noon UTC
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final String[] PRIORITIES = {"High", "Medium", "Low", null};
+
+    private SharedPreferences prefs;
+
+    @Before
+    public void setUp() {
+        prefs = RuntimeEnvironment.getApplication().getSharedPreferences("test_stats_prefs", Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+    }
+
+    @Test
+    public void randomChanges_matchCountingTheList() {
+        TaskStats stats = new TaskStats(prefs, UTC);
+        stats.onTasksLoaded(Collections.emptyList());
+        Random random = new Random(5);
+        List<Task> tasks = new ArrayList<>();
+        for (int step = 0; step < 2_000; step++) {
+            int op = random.nextInt(10);
+            if (tasks.isEmpty() || op < 4) {
+                long due = random.nextBoolean() ? 0L : NOW + (random.nextInt(20) - 10) * DAY;
+                Task task = new Task("Task " + step, "", PRIORITIES[random.nextInt(PRIORITIES.length)], due);
+                tasks.add(task);
+                stats.onTaskChanged(task);
+            } else if (op < 8) {
+                int i = random.nextInt(tasks.size());
+                Task edited = new Task(tasks.get(i));
+                edited.setDone(!edited.isDone());
+                edited.setCompletedAt(edited.isDone() ? NOW : 0L);
+                edited.setPriority(PRIORITIES[random.nextInt(PRIORITIES.length)]);
+                tasks.set(i, edited);
+                stats.onTaskChanged(edited);
+            } else {
+                stats.onTaskRemoved(tasks.remove(random.nextInt(tasks.size())));
+            }
+        }
+
+        TaskStats.Summary summary = stats.summary(NOW);
+        int done = 0;
+        int overdue = 0;
+        int[] pending = new int[Priority.values().length];
+        for (Task task : tasks) {
+            if (task.isDone()) done++; else pending[task.getPriorityLevel().ordinal()]++;
+            if (!task.isDone() && task.getDueDate() != 0L && task.getDueDate() <= NOW) overdue++;
+        }
+        assertEquals(tasks.size(), summary.total);
+        assertEquals(done, summary.done);
+        assertEquals(overdue, summary.overdue);
+        for (Priority priority : Priority.values()) {
+            assertEquals(pending[priority.ordinal()], summary.pending(priority));
+        }
+    }
+
+    @Test
+    public void overdue_followsTheClock() {
+        TaskStats stats = new TaskStats(prefs, UTC);
+        stats.onTasksLoaded(Collections.singletonList(new Task("Report", "", "High", NOW + DAY)));
+
+        assertEquals(0, stats.summary(NOW).overdue);
+        assertEquals(1, stats.summary(NOW + 2 * DAY).overdue);
+        stats.onTaskChanged(new Task("Taxes", "", "Low", NOW + DAY / 2)); // Already overdue at the last read
+        assertEquals(2, stats.summary(NOW + 2 * DAY).overdue);
+        assertEquals(0, stats.summary(NOW).overdue); // Clock set back
+    }
+
+    @Test
+    public void completions_areCountedPerDay_andWrapAround() {
+        TaskStats stats = new TaskStats(prefs, UTC);
+        stats.onTasksLoaded(Collections.emptyList());
+        Task today = complete(new Task("Today", "Low"), NOW);
+        stats.onTaskChanged(today);
+        stats.onTaskChanged(complete(new Task("Yesterday", "Low"), NOW - DAY));
+        Task undone = complete(new Task("Undone", "Low"), NOW - DAY);
+        stats.onTaskChanged(undone);
+        Task pendingAgain = new Task(undone);
+        pendingAgain.setDone(false);
+        pendingAgain.setCompletedAt(0L);
+        stats.onTaskChanged(pendingAgain);
+        stats.onTaskRemoved(today); // Still completed that day
+
+        TaskStats.Summary summary = stats.summary(NOW);
+        assertEquals(1, summary.completedOn(0));
+        assertEquals(1, summary.completedOn(1));
+        assertEquals(2, summary.completedInLast(7));
+
+        long later = NOW + TaskStats.HISTORY_DAYS * DAY; // Today's slot comes round again
+        assertEquals(0, stats.summary(later).completedInLast(TaskStats.HISTORY_DAYS));
+    }
+
+    @Test
+    public void savedCounters_areKeptWhileTheChecksumMatches() {
+        Task kept = new Task("Kept", "High");
+        Task archived = complete(new Task("Archived", "Low"), NOW - DAY);
+        TaskStats stats = new TaskStats(prefs, UTC);
+        stats.onTasksLoaded(Collections.emptyList());
+        stats.onTaskChanged(kept);
+        stats.onTaskChanged(archived);
+        stats.onTasksArchived(Collections.singletonList(archived));
+        stats.onChangesWritten(); // The store wrote the tasks
+
+        // Next start: the same tasks, so the saved history (with the archived task) is used
+        TaskStats reopened = new TaskStats(prefs, UTC);
+        reopened.onTasksLoaded(Collections.singletonList(kept));
+        assertEquals(1, reopened.summary(NOW).completedOn(1));
+        assertEquals(1, reopened.summary(NOW).total);
+
+        // Tasks changed without the stats seeing it: counted again from the list
+        Task edited = complete(new Task(kept), NOW);
+        TaskStats recounted = new TaskStats(prefs, UTC);
+        recounted.onTasksLoaded(Collections.singletonList(edited));
+        TaskStats.Summary summary = recounted.summary(NOW);
+        assertEquals(1, summary.done(Priority.HIGH));
+        assertEquals(0, summary.pending(Priority.HIGH));
+        assertEquals(1, summary.completedOn(0));
+        assertEquals(0, summary.completedOn(1)); // The archived task's completion is not in the list
+    }
+
+    @Test
+    public void burstOfChanges_isSavedOnce_whenTheStoreWritesIt() {
+        TaskStats stats = new TaskStats(prefs, UTC);
+        stats.onTasksLoaded(Collections.emptyList());
+        List<String> saved = new ArrayList<>();
+        SharedPreferences.OnSharedPreferenceChangeListener recorder = (changed, key) -> saved.add(key);
+        prefs.registerOnSharedPreferenceChangeListener(recorder);
+        try {
+            for (int i = 0; i < 100; i++) stats.onTaskChanged(new Task("Task " + i, "Medium"));
+            assertTrue(saved.isEmpty());
+
+            stats.onChangesWritten();
+            assertEquals(1, saved.size());
+            stats.onChangesWritten(); // Nothing changed since
+            assertEquals(1, saved.size());
+        } finally {
+            prefs.unregisterOnSharedPreferenceChangeListener(recorder);
+        }
+    }
+
+    private static Task complete(Task task, long at) {
+        Task done = new Task(task);
+        done.setDone(true);
+        done.setCompletedAt(at);
+        return done;
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.multimodetaskmanager.sync;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * The smallest server that speaks the sync protocol, for tests. Per account: every task's
+ * latest merged {@link SyncRecord}, and a change log in which each task appears once, at the
+ * sequence number of its last change. A sync token is a position in that account's log, so
+ * answering "what changed since" walks only the account's changes, however many tasks there
+ * are. A message without an account is rejected.
+ *
+ * Use {@link #exchange} directly, or {@link #start()} it on a free localhost port and talk to
+ * it through {@link HttpSyncTransport}.
+ */
+public final class ReferenceSyncServer implements SyncTransport, AutoCloseable {
+    private final int batchSize;
+    private final Map<String, Account> accounts = new HashMap<>();
+    private HttpServer http;
+
+    // One account's tasks and change log
+    private static final class Account {
+        final Map<UUID, SyncRecord> records = new HashMap<>();
+        final Map<UUID, Long> seqOf = new HashMap<>();
+        final TreeMap<Long, UUID> log = new TreeMap<>();
+        long seq;
+    }
+
+    public ReferenceSyncServer() {
+        this(SyncClient.BATCH_SIZE);
+    }
+
+    public ReferenceSyncServer(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public synchronized int recordCount(String account) {
+        Account state = accounts.get(account);
+        return state != null ? state.records.size() : 0;
+    }
+
+    public synchronized SyncRecord get(String account, UUID id) {
+        Account state = accounts.get(account);
+        return state != null ? state.records.get(id) : null;
+    }
+
+    /**
+     * Serves POST /sync on a free port of the loopback interface.
+     *
+     * @return The URL to sync with.
+     */
+    public URL start() throws IOException {
+        http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        http.createContext("/sync", exchange -> {
+            try {
+                byte[] response = exchange(readAll(exchange.getRequestBody()));
+                exchange.sendResponseHeaders(200, response.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(response);
+                }
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(400, -1);
+            } finally {
+                exchange.close();
+            }
+        });
+        http.start();
+        return url();
+    }
+
+    private URL url() throws MalformedURLException {
+        InetSocketAddress address = http.getAddress();
+        return new URL("http", address.getHostString(), address.getPort(), "/sync");
+    }
+
+    @Override
+    public void close() {
+        if (http != null) http.stop(0);
+    }
+
+    // --- The protocol ---
+
+    @Override
+    public synchronized byte[] exchange(byte[] body) throws IOException {
+        SyncMessage request = SyncCodec.decode(body);
+        if (request.getAccount() == null) throw new IOException("Sync message without an account");
+        Account account = accounts.get(request.getAccount());
+        if (account == null) {
+            account = new Account();
+            accounts.put(request.getAccount(), account);
+        }
+        Map<UUID, SyncRecord> records = account.records;
+        TreeMap<Long, UUID> log = account.log;
+        Set<UUID> echoes = new HashSet<>(); // Sent by this client and unchanged by the merge
+        for (SyncRecord pushed : request.getChanges()) {
+            SyncRecord current = records.get(pushed.getId());
+            SyncRecord merged = current != null ? SyncRecord.merge(current, pushed) : pushed;
+            if (merged.getVersion().equals(pushed.getVersion())) echoes.add(pushed.getId());
+            if (merged == current) continue;
+            records.put(pushed.getId(), merged);
+            Long previous = account.seqOf.put(pushed.getId(), ++account.seq);
+            if (previous != null) log.remove(previous);
+            log.put(account.seq, pushed.getId());
+        }
+
+        List<SyncRecord> changes = new ArrayList<>();
+        long token = account.seq;
+        boolean more = false;
+        for (Map.Entry<Long, UUID> entry : log.tailMap(request.getToken(), false).entrySet()) {
+            if (changes.size() == batchSize) {
+                more = true;
+                break;
+            }
+            token = entry.getKey();
+            if (!echoes.contains(entry.getValue())) changes.add(records.get(entry.getValue()));
+        }
+        return SyncCodec.encode(new SyncMessage(null, null, more ? token : account.seq, more, changes));
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int read; (read = in.read(buffer)) != -1; ) bytes.write(buffer, 0, read);
+        return bytes.toByteArray();
+    }
+}
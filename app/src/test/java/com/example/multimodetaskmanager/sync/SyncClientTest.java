@@ -0,0 +1,329 @@
+package com.example.multimodetaskmanager.sync;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Two or more devices, each a {@link SyncClient} over an in-memory task list, syncing through a
+ * {@link ReferenceSyncServer}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class SyncClientTest {
+    private static final long DAY = 86_400_000L;
+    private static final String ACCOUNT = "0b6f3c1e-5a2d-3c4b-9e8f-1a2b3c4d5e6f";
+
+    private final ReferenceSyncServer server = new ReferenceSyncServer();
+    private int devices;
+
+    @After
+    public void tearDown() {
+        server.close();
+    }
+
+    @Test
+    public void twoDevices_convergeOverHttp() throws IOException {
+        SyncTransport http = new HttpSyncTransport(server.start());
+        Device phone = newDevice();
+        Device tablet = newDevice();
+        Task groceries = phone.add(new Task("Groceries", "Milk", "High", 0L));
+        Task report = phone.add(new Task("Report", "Medium"));
+        phone.add(new Task("Call Sam", "Low"));
+
+        phone.client.sync(http);
+        assertEquals(3, tablet.client.sync(http));
+        assertEquals(phone.tasks, tablet.tasks);
+
+        Task edited = new Task(groceries);
+        edited.setDone(true);
+        tablet.edit(edited);
+        tablet.delete(report);
+        tablet.client.sync(http);
+        assertEquals(2, phone.client.sync(http));
+
+        assertEquals(tablet.tasks, phone.tasks);
+        assertEquals(2, phone.tasks.size());
+    }
+
+    @Test
+    public void concurrentEditsOfDifferentFields_bothSurvive() throws IOException {
+        Device phone = newDevice();
+        Device tablet = newDevice();
+        Task task = phone.add(new Task("Dentist", "", "Medium", 0L));
+        syncAll(phone, tablet);
+
+        Task renamed = new Task(task);
+        renamed.setTitle("Dentist at 3pm");
+        phone.edit(renamed);
+        Task moved = new Task(task);
+        moved.setDueDate(10 * DAY);
+        tablet.edit(moved);
+        syncAll(phone, tablet);
+
+        for (Device device : new Device[]{phone, tablet}) {
+            Task merged = device.get(task);
+            assertEquals("Dentist at 3pm", merged.getTitle());
+            assertEquals(10 * DAY, merged.getDueDate());
+        }
+    }
+
+    @Test
+    public void concurrentEditsOfTheSameField_resolveTheSameEverywhere() throws IOException {
+        Device phone = newDevice();
+        Device tablet = newDevice();
+        Task task = phone.add(new Task("Plan trip", "Low"));
+        syncAll(phone, tablet);
+
+        Task fromPhone = new Task(task);
+        fromPhone.setTitle("Plan trip to Rome");
+        phone.edit(fromPhone);
+        Task fromTablet = new Task(task);
+        fromTablet.setTitle("Plan trip to Lisbon");
+        tablet.edit(fromTablet);
+        syncAll(phone, tablet);
+
+        assertEquals(phone.tasks, tablet.tasks);
+        assertEquals(phone.get(task).getTitle(), server.get(ACCOUNT, idOf(task)).toTask().getTitle());
+        assertEquals(0, phone.client.dirtyCount());
+        assertEquals(0, tablet.client.dirtyCount());
+    }
+
+    @Test
+    public void deletion_winsOverAConcurrentEdit() throws IOException {
+        Device phone = newDevice();
+        Device tablet = newDevice();
+        Task task = phone.add(new Task("Old idea", "Low"));
+        syncAll(phone, tablet);
+
+        phone.delete(task);
+        Task edited = new Task(task);
+        edited.setDescription("Still thinking about it");
+        tablet.edit(edited);
+        syncAll(phone, tablet);
+
+        assertTrue(phone.tasks.isEmpty());
+        assertTrue(tablet.tasks.isEmpty());
+        assertTrue(server.get(ACCOUNT, idOf(task)).isDeleted());
+    }
+
+    @Test
+    public void restartedClient_resumesWithoutResendingAnything() throws IOException {
+        Device phone = newDevice();
+        Task task = phone.add(new Task("Water plants", "Low"));
+        phone.client.sync(server);
+
+        SyncClient restarted = new SyncClient(phone.prefs, ACCOUNT, phone);
+        restarted.onTasksLoaded(new ArrayList<>(phone.tasks.values()));
+        assertEquals(0, restarted.dirtyCount());
+
+        Task edited = new Task(task);
+        edited.setDone(true);
+        phone.tasks.put(idOf(edited), edited);
+        restarted.onTaskChanged(edited);
+        restarted.sync(server);
+
+        assertEquals(edited, server.get(ACCOUNT, idOf(task)).toTask());
+    }
+
+    @Test
+    public void archivedTask_isNotDeletedOnOtherDevices() throws IOException {
+        Device phone = newDevice();
+        Device tablet = newDevice();
+        Task task = phone.add(new Task("File taxes", "Low"));
+        syncAll(phone, tablet);
+
+        phone.archive(task);
+        SyncClient restarted = new SyncClient(phone.prefs, ACCOUNT, phone); // Loads without the archived task
+        restarted.onTasksLoaded(new ArrayList<>(phone.tasks.values()));
+        restarted.sync(server);
+        tablet.client.sync(server);
+
+        assertEquals(0, restarted.dirtyCount());
+        assertFalse(server.get(ACCOUNT, idOf(task)).isDeleted());
+        assertEquals(1, tablet.tasks.size());
+    }
+
+    @Test
+    public void tenEditsInAHundredThousandTasks_syncInKilobytes() throws IOException {
+        Device phone = newDevice();
+        Device tablet = newDevice();
+        List<Task> all = new ArrayList<>();
+        for (int i = 0; i < 100_000; i++) all.add(new Task("Task " + i, "Description " + i, "Medium", (i + 1) * DAY));
+        phone.load(all);
+        syncAll(phone, tablet);
+        assertEquals(100_000, tablet.tasks.size());
+
+        for (int i = 0; i < 10; i++) {
+            Task edited = new Task(all.get(i * 9_973));
+            edited.setTitle("Edited " + i);
+            phone.edit(edited);
+        }
+        CountingTransport counted = new CountingTransport(server);
+        phone.client.sync(counted);
+        assertEquals(10, tablet.client.sync(counted));
+
+        assertEquals(phone.tasks, tablet.tasks);
+        assertTrue("synced " + counted.bytes + " bytes", counted.bytes < 4_096);
+    }
+
+    @Test
+    public void twoAccounts_onOneServer_neverSeeEachOthersTasks() throws IOException {
+        SyncTransport http = new HttpSyncTransport(server.start());
+        String other = "7c9e6679-7425-30de-944b-e07fc1f90ae7";
+        Device alicePhone = newDevice();
+        Device aliceTablet = newDevice();
+        Device bobPhone = newDevice(other);
+        Task alices = alicePhone.add(new Task("Alice's dentist", "High"));
+        Task bobs = bobPhone.add(new Task("Bob's car service", "Low"));
+
+        alicePhone.client.sync(http);
+        assertEquals(0, bobPhone.client.sync(http)); // Alice's token is past nothing of Bob's
+        assertEquals(1, aliceTablet.client.sync(http));
+
+        assertEquals(1, bobPhone.tasks.size());
+        assertEquals(bobs, bobPhone.get(bobs));
+        assertEquals(alicePhone.tasks, aliceTablet.tasks);
+        assertEquals(1, server.recordCount(ACCOUNT));
+        assertEquals(1, server.recordCount(other));
+        assertNull(server.get(other, idOf(alices)));
+
+        // Bob's edits still reach only Bob
+        Task renamed = new Task(bobs);
+        renamed.setTitle("Bob's car service, 9am");
+        bobPhone.edit(renamed);
+        bobPhone.client.sync(http);
+        assertEquals(0, alicePhone.client.sync(http));
+        assertEquals(1, alicePhone.tasks.size());
+    }
+
+    @Test
+    public void tokenFromTheSharedLog_isDropped_andTheAccountsLogReadFromTheStart() throws IOException {
+        Device tablet = newDevice();
+        tablet.add(new Task("Book flights", "High"));
+        tablet.client.sync(server);
+        Device phone = newDevice();
+        phone.prefs.edit().remove("account").putLong("token", 1_000L).commit(); // Synced before accounts were kept apart
+
+        Device restarted = new Device(phone.prefs, ACCOUNT);
+        restarted.load(Collections.<Task>emptyList());
+        assertEquals(1, restarted.client.sync(server));
+        assertEquals(tablet.tasks, restarted.tasks);
+    }
+
+    // --- Helpers ---
+
+    private void syncAll(Device... all) throws IOException {
+        for (int round = 0; round < 2; round++) {
+            for (Device device : all) device.client.sync(server);
+        }
+    }
+
+    private Device newDevice() {
+        return newDevice(ACCOUNT);
+    }
+
+    private Device newDevice(String account) {
+        SharedPreferences prefs = RuntimeEnvironment.getApplication()
+                .getSharedPreferences("test_sync_prefs_" + devices++, Context.MODE_PRIVATE);
+        prefs.edit().clear().commit();
+        Device device = new Device(prefs, account);
+        device.load(Collections.<Task>emptyList());
+        return device;
+    }
+
+    private static UUID idOf(Task task) {
+        return new UUID(task.getIdMostSigBits(), task.getIdLeastSigBits());
+    }
+
+    // A device's task list; tells its client about every change, like TaskStore does
+    private static final class Device implements SyncClient.Target {
+        final SharedPreferences prefs;
+        final SyncClient client;
+        final Map<UUID, Task> tasks = new LinkedHashMap<>();
+
+        Device(SharedPreferences prefs, String account) {
+            this.prefs = prefs;
+            this.client = new SyncClient(prefs, account, this);
+        }
+
+        void load(List<Task> loaded) {
+            for (Task task : loaded) tasks.put(idOf(task), new Task(task));
+            client.onTasksLoaded(new ArrayList<>(tasks.values()));
+        }
+
+        Task add(Task task) {
+            edit(task);
+            return task;
+        }
+
+        void edit(Task task) {
+            Task copy = new Task(task);
+            tasks.put(idOf(copy), copy);
+            client.onTaskChanged(copy);
+        }
+
+        void delete(Task task) {
+            Task removed = tasks.remove(idOf(task));
+            assertNotNull(removed);
+            client.onTaskRemoved(removed);
+        }
+
+        void archive(Task task) {
+            Task archived = tasks.remove(idOf(task));
+            assertNotNull(archived);
+            client.onTasksArchived(Collections.singletonList(archived));
+        }
+
+        Task get(Task task) {
+            return tasks.get(idOf(task));
+        }
+
+        @Override
+        public void put(Task task) {
+            edit(task);
+        }
+
+        @Override
+        public void remove(Task task) {
+            Task removed = tasks.remove(idOf(task));
+            if (removed != null) client.onTaskRemoved(removed);
+        }
+    }
+
+    private static final class CountingTransport implements SyncTransport {
+        final SyncTransport inner;
+        long bytes;
+
+        CountingTransport(SyncTransport inner) {
+            this.inner = inner;
+        }
+
+        @Override
+        public byte[] exchange(byte[] request) throws IOException {
+            byte[] response = inner.exchange(request);
+            bytes += request.length + response.length;
+            return response;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.multimodetaskmanager.utils;
+
+import android.os.Looper;
+
+import com.example.multimodetaskmanager.perf.MetricsRegistry;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class FrameCoalescerTest {
+    private final List<String> delivered = new ArrayList<>();
+    private final FrameCoalescer<String> coalescer = new FrameCoalescer<>(delivered::add);
+
+    @Test
+    public void burstWithinOneFrame_deliversOnlyTheNewest() {
+        long coalescedBefore = MetricsRegistry.global().counter("list.coalescedUpdates").get();
+
+        coalescer.submit("v1");
+        coalescer.submit("v2");
+        coalescer.submit("v3");
+        assertEquals(Collections.emptyList(), delivered); // Nothing until the frame
+
+        nextFrame();
+        assertEquals(Collections.singletonList("v3"), delivered);
+        assertEquals(2L, MetricsRegistry.global().counter("list.coalescedUpdates").get() - coalescedBefore);
+    }
+
+    @Test
+    public void laterFrames_deliverAgain() {
+        coalescer.submit("v1");
+        nextFrame();
+        coalescer.submit("v2");
+        nextFrame();
+        nextFrame(); // No new value, no delivery
+
+        assertEquals(Arrays.asList("v1", "v2"), delivered);
+    }
+
+    @Test
+    public void cancel_dropsTheWaitingValue() {
+        coalescer.submit("v1");
+        coalescer.cancel();
+        nextFrame();
+        assertEquals(Collections.emptyList(), delivered);
+
+        coalescer.submit("v2"); // Still usable afterwards
+        nextFrame();
+        assertEquals(Collections.singletonList("v2"), delivered);
+    }
+
+    // Runs the main looper past the next Choreographer frame
+    private static void nextFrame() {
+        shadowOf(Looper.getMainLooper()).idleFor(Duration.ofMillis(20));
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.multimodetaskmanager.utils;
+
+import org.junit.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link RoaringBitmap} checked against {@link BitSet}, across array and bitmap chunks.
+ */
+public class RoaringBitmapTest {
+
+    @Test
+    public void randomAddsAndRemoves_matchABitSet() {
+        Random random = new Random(11);
+        RoaringBitmap bitmap = new RoaringBitmap();
+        BitSet expected = new BitSet();
+        for (int step = 0; step < 60_000; step++) {
+            // Dense in the first chunk (turns into a bitmap and back), sparse in the next ones
+            int value = random.nextBoolean() ? random.nextInt(8_000) : random.nextInt(300_000);
+            if (random.nextInt(3) == 0) {
+                bitmap.remove(value);
+                expected.clear(value);
+            } else {
+                bitmap.add(value);
+                expected.set(value);
+            }
+        }
+
+        assertEquals(expected.cardinality(), bitmap.getCardinality());
+        assertArrayEquals(expected.stream().toArray(), bitmap.toArray());
+        for (int value = 0; value < 10_000; value++) assertEquals(expected.get(value), bitmap.contains(value));
+    }
+
+    @Test
+    public void andAndOr_matchABitSet_forEveryMixOfChunks() {
+        Random random = new Random(3);
+        // Dense, sparse, and dense in one chunk but sparse in the other
+        int[][] bounds = {{20_000, 5_000}, {300_000, 2_000}, {65_536, 6_000}};
+        for (int[] a : bounds) {
+            for (int[] b : bounds) {
+                BitSet left = new BitSet();
+                BitSet right = new BitSet();
+                RoaringBitmap x = fill(random, a[0], a[1], left);
+                RoaringBitmap y = fill(random, b[0], b[1], right);
+
+                BitSet and = (BitSet) left.clone();
+                and.and(right);
+                BitSet or = (BitSet) left.clone();
+                or.or(right);
+                assertArrayEquals(and.stream().toArray(), x.and(y).toArray());
+                assertArrayEquals(or.stream().toArray(), x.or(y).toArray());
+                assertEquals(left.cardinality(), x.getCardinality()); // Operands unchanged
+            }
+        }
+    }
+
+    @Test
+    public void emptiedChunks_areDropped() {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        long empty = bitmap.getSizeInBytes();
+        for (int value = 70_000; value < 80_000; value++) bitmap.add(value);
+        assertTrue(bitmap.getSizeInBytes() > empty);
+
+        for (int value = 70_000; value < 80_000; value++) bitmap.remove(value);
+        assertTrue(bitmap.isEmpty());
+        assertFalse(bitmap.contains(70_000));
+        assertEquals(0, bitmap.and(bitmap).getCardinality());
+    }
+
+    private static RoaringBitmap fill(Random random, int bound, int count, BitSet expected) {
+        RoaringBitmap bitmap = new RoaringBitmap();
+        for (int i = 0; i < count; i++) {
+            int value = random.nextInt(bound);
+            bitmap.add(value);
+            expected.set(value);
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,143 @@
+package com.example.multimodetaskmanager.utils;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link TaskTree}: the rows it shows, and the ranges it reports for changes made in place.
+ */
+public class TaskTreeTest {
+    private final List<String> events = new ArrayList<>();
+    private final TaskTree tree = new TaskTree(new TaskTree.Listener() {
+        @Override
+        public void onRowsInserted(int position, int count) {
+            events.add("+" + position + "x" + count);
+        }
+
+        @Override
+        public void onRowsRemoved(int position, int count) {
+            events.add("-" + position + "x" + count);
+        }
+
+        @Override
+        public void onRowChanged(int position) {
+            events.add("~" + position);
+        }
+    });
+
+    private Task home, garden, seeds, water, kitchen, work;
+    private List<Task> tasks;
+
+    @Before
+    public void setUp() {
+        // home > (garden > (seeds, water), kitchen); work
+        home = new Task("Home", "High");
+        garden = subtask("Garden", home);
+        seeds = subtask("Seeds", garden);
+        water = subtask("Water", garden);
+        kitchen = subtask("Kitchen", home);
+        work = new Task("Work", "Low");
+        tasks = Arrays.asList(seeds, home, garden, work, water, kitchen); // Parents need not come first
+        tree.setTasks(tasks);
+    }
+
+    @Test
+    public void expandAndCollapse_moveOneRangeOfRows() {
+        assertEquals(Arrays.asList(home, work), tree.getRowTasks());
+        assertEquals(4, tree.getSubtaskCount(0));
+
+        tree.expand(0);
+        assertEquals(Arrays.asList(home, garden, kitchen, work), tree.getRowTasks());
+        tree.expand(1);
+        assertEquals(Arrays.asList(home, garden, seeds, water, kitchen, work), tree.getRowTasks());
+        assertEquals(2, tree.getDepth(2));
+        assertEquals(Arrays.asList("+1x2", "~0", "+2x2", "~1"), events);
+
+        events.clear();
+        tree.collapse(0);
+        assertEquals(Arrays.asList(home, work), tree.getRowTasks());
+        assertEquals(Arrays.asList("-1x4", "~0"), events); // Everything below, in one range
+
+        tree.expand(0); // Garden is still expanded
+        assertEquals(Arrays.asList(home, garden, seeds, water, kitchen, work), tree.getRowTasks());
+    }
+
+    @Test
+    public void markingDone_updatesOnlyTheAncestorRows() {
+        tree.expand(0);
+        tree.expand(1);
+        events.clear();
+
+        List<Task> next = new ArrayList<>(tasks);
+        next.set(0, done(seeds));
+        next.set(4, done(water));
+        assertTrue(tree.update(next));
+
+        assertEquals(Arrays.asList("~2", "~1", "~0", "~3", "~1", "~0"), events);
+        assertEquals(2, tree.getDoneSubtaskCount(1));
+        assertTrue(tree.isComplete(1)); // Garden: all its subtasks are done
+        assertEquals(2, tree.getDoneSubtaskCount(0));
+        assertFalse(tree.isComplete(0)); // Home: the kitchen is not
+    }
+
+    @Test
+    public void markingDone_belowACollapsedRow_updatesTheShownAncestorsOnly() {
+        List<Task> next = new ArrayList<>(tasks);
+        next.set(0, done(seeds));
+
+        assertTrue(tree.update(next));
+
+        assertEquals(Arrays.asList("~0"), events); // Home; garden and seeds are not shown
+        assertEquals(1, tree.getDoneSubtaskCount(0));
+    }
+
+    @Test
+    public void otherOrder_needsARebuild_whichKeepsExpandedRows() {
+        tree.expand(0);
+        List<Task> reordered = Arrays.asList(home, work, kitchen, garden, seeds, water);
+
+        assertFalse(tree.update(reordered));
+        List<Task> before = tree.getRowTasks();
+        tree.setTasks(reordered);
+
+        assertEquals(Arrays.asList(home, garden, kitchen, work), before); // Still the old rows
+        assertEquals(Arrays.asList(home, kitchen, garden, work), tree.getRowTasks());
+    }
+
+    @Test
+    public void removedParent_showsItsSubtasksAtTheTop_andCyclesAreCut() {
+        Task a = new Task("A", "Low");
+        Task b = subtask("B", a);
+        a.setParent(b);
+        tree.setTasks(Arrays.asList(garden, seeds, water, a, b));
+
+        assertEquals(Arrays.asList(garden, a), tree.getRowTasks());
+        assertEquals(0, tree.getDepth(0));
+        assertEquals(2, tree.getSubtaskCount(0));
+        assertEquals(1, tree.getSubtaskCount(1));
+    }
+
+    // --- Helpers ---
+
+    private static Task subtask(String title, Task parent) {
+        Task task = new Task(title, "Medium");
+        task.setParent(parent);
+        return task;
+    }
+
+    private static Task done(Task task) {
+        Task copy = new Task(task);
+        copy.setDone(true);
+        return copy;
+    }
+}
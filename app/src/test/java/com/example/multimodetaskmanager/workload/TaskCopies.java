@@ -0,0 +1,38 @@
+package com.example.multimodetaskmanager.workload;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Copies of tasks for tests and benchmarks that compare or replace them, made with the
+ * {@link Task#Task(Task)} copy constructor so every field a later change adds to Task is
+ * copied too. The JMH benchmarks keep their own copy in TaskFixtures.
+ */
+public final class TaskCopies {
+    private TaskCopies() {
+    }
+
+    /**
+     * Equal copies with their own title and description strings, so equality checks compare
+     * contents and cannot short-circuit on identity.
+     */
+    public static List<Task> copiesOf(List<Task> tasks) {
+        List<Task> copies = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            Task copy = new Task(task);
+            if (task.getTitle() != null) copy.setTitle(new String(task.getTitle()));
+            if (task.getDescription() != null) copy.setDescription(new String(task.getDescription()));
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    // Same task, new title, so the list position and the contents both change
+    public static Task edited(Task task) {
+        Task copy = new Task(task);
+        copy.setTitle("Edited " + task.getTitle());
+        return copy;
+    }
+}
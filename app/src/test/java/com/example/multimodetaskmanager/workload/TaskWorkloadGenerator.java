@@ -0,0 +1,104 @@
+package com.example.multimodetaskmanager.workload;
+
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds deterministic task corpora from a {@link WorkloadSpec}. The same spec always yields
+ * the same tasks, IDs included, so a failing performance test can be rerun on the exact data.
+ */
+public final class TaskWorkloadGenerator {
+    private static final long DAY_MILLIS = 86_400_000L;
+    private static final Priority[] PRIORITIES = {Priority.HIGH, Priority.MEDIUM, Priority.LOW, Priority.NONE};
+    private static final String[] VERBS = {"Review", "Call", "Write", "Plan", "Fix", "Buy", "Email", "Read",
+            "Book", "Pay", "Clean", "Prepare", "Update", "Schedule", "Check", "Send"};
+    private static final String[] WORDS = {"report", "groceries", "design", "meeting", "budget", "invoice",
+            "draft", "release", "dentist", "car", "taxes", "slides", "notes", "backlog", "garden", "flight",
+            "team", "weekly", "quarterly", "client", "contract", "plan", "kitchen", "library", "insurance",
+            "birthday", "present", "docs", "server", "backup", "tickets", "school"};
+
+    private final WorkloadSpec spec;
+    private final int priorityWeightTotal;
+
+    public TaskWorkloadGenerator(WorkloadSpec spec) {
+        this.spec = spec;
+        int total = 0;
+        for (int weight : spec.priorityWeights) total += weight;
+        this.priorityWeightTotal = total;
+    }
+
+    /**
+     * Generates {@code count} tasks. Calling this twice with the same count returns equal lists.
+     */
+    public List<Task> generate(int count) {
+        Random random = new Random(spec.seed);
+        List<Task> tasks = new ArrayList<>(count);
+        StringBuilder sb = new StringBuilder(Math.max(64, spec.maxDescriptionChars));
+        for (int i = 0; i < count; i++) {
+            Task task = new Task();
+            // Random version 4 UUID bits, but drawn from the seeded Random
+            task.setId((random.nextLong() & ~0xF000L) | 0x4000L,
+                    (random.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L);
+            task.setTitle(nextTitle(random, tasks, sb));
+            task.setDescription(nextDescription(random, sb));
+            task.setPriorityLevel(nextPriority(random));
+            task.setDueDate(nextDueDate(random));
+            task.setDone(random.nextDouble() < spec.doneRatio);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    private String nextTitle(Random random, List<Task> earlier, StringBuilder sb) {
+        if (!earlier.isEmpty() && random.nextDouble() < spec.repeatedTitleRatio) {
+            // Favour recent titles, the way recurring chores repeat
+            int back = Math.min(earlier.size(), 1 + random.nextInt(64));
+            return earlier.get(earlier.size() - back).getTitle();
+        }
+        int words = longTailed(random, spec.meanTitleWords, 1, spec.maxTitleWords);
+        sb.setLength(0);
+        sb.append(VERBS[random.nextInt(VERBS.length)]);
+        for (int w = 1; w < words; w++) {
+            sb.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+
+    private String nextDescription(Random random, StringBuilder sb) {
+        if (random.nextDouble() < spec.emptyDescriptionRatio) return "";
+        int length = longTailed(random, spec.meanDescriptionChars, 1, spec.maxDescriptionChars);
+        sb.setLength(0);
+        while (sb.length() < length) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        sb.setLength(length);
+        return sb.toString();
+    }
+
+    private Priority nextPriority(Random random) {
+        int pick = random.nextInt(priorityWeightTotal);
+        for (int p = 0; p < PRIORITIES.length; p++) {
+            pick -= spec.priorityWeights[p];
+            if (pick < 0) return PRIORITIES[p];
+        }
+        return Priority.NONE;
+    }
+
+    private long nextDueDate(Random random) {
+        if (random.nextDouble() < spec.noDueDateRatio) return 0L;
+        long spreadMillis = (spec.dueDatePastDays + spec.dueDateFutureDays) * DAY_MILLIS;
+        long offset = (long) (random.nextDouble() * spreadMillis) - spec.dueDatePastDays * DAY_MILLIS;
+        return spec.baseTimeMillis + offset;
+    }
+
+    // Exponentially distributed around the mean and clamped, so most values are short with a long tail
+    private static int longTailed(Random random, int mean, int min, int max) {
+        double value = -Math.log(1 - random.nextDouble()) * mean;
+        return (int) Math.max(min, Math.min(max, Math.round(value)));
+    }
+}
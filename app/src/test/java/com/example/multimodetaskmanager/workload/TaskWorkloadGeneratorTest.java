@@ -0,0 +1,99 @@
+package com.example.multimodetaskmanager.workload;
+
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.Task;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TaskWorkloadGeneratorTest {
+    private static final int COUNT = 20_000;
+
+    @Test
+    public void sameSpec_generatesSameTasks() {
+        List<Task> first = new TaskWorkloadGenerator(WorkloadSpec.heavyUser()).generate(COUNT);
+        List<Task> second = new TaskWorkloadGenerator(WorkloadSpec.heavyUser()).generate(COUNT);
+        assertEquals(first, second);
+    }
+
+    @Test
+    public void differentSeed_generatesDifferentTasks() {
+        WorkloadSpec spec = WorkloadSpec.typical();
+        List<Task> first = new TaskWorkloadGenerator(spec).generate(100);
+        List<Task> second = new TaskWorkloadGenerator(spec.toBuilder().seed(42).build()).generate(100);
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void idsAreUniqueUuids() {
+        Set<String> ids = new HashSet<>();
+        for (Task task : new TaskWorkloadGenerator(WorkloadSpec.typical()).generate(COUNT)) {
+            String id = task.getId();
+            assertEquals('4', id.charAt(14)); // Version 4 layout, like UUID.randomUUID()
+            ids.add(id);
+        }
+        assertEquals(COUNT, ids.size());
+    }
+
+    @Test
+    public void ratiosFollowTheSpec() {
+        WorkloadSpec spec = new WorkloadSpec.Builder()
+                .doneRatio(0.7)
+                .noDueDateRatio(0.2)
+                .emptyDescriptionRatio(0.5)
+                .priorityWeights(1, 1, 2, 0)
+                .build();
+        int done = 0, noDueDate = 0, emptyDescription = 0, low = 0, none = 0;
+        for (Task task : new TaskWorkloadGenerator(spec).generate(COUNT)) {
+            if (task.isDone()) done++;
+            if (task.getDueDate() == 0) noDueDate++;
+            if (task.getDescription().isEmpty()) emptyDescription++;
+            if (task.getPriorityLevel() == Priority.LOW) low++;
+            if (task.getPriorityLevel() == Priority.NONE) none++;
+        }
+        assertEquals(0.7, done / (double) COUNT, 0.02);
+        assertEquals(0.2, noDueDate / (double) COUNT, 0.02);
+        assertEquals(0.5, emptyDescription / (double) COUNT, 0.02);
+        assertEquals(0.5, low / (double) COUNT, 0.02);
+        assertEquals(0, none);
+    }
+
+    @Test
+    public void lengthsAndDueDatesStayInRange() {
+        WorkloadSpec spec = new WorkloadSpec.Builder()
+                .titleWords(3, 6)
+                .descriptionChars(100, 300)
+                .emptyDescriptionRatio(0)
+                .noDueDateRatio(0)
+                .dueDateDays(10, 20)
+                .build();
+        long day = 86_400_000L;
+        long base = WorkloadSpec.DEFAULT_BASE_TIME_MILLIS;
+        long totalDescription = 0;
+        for (Task task : new TaskWorkloadGenerator(spec).generate(COUNT)) {
+            int words = task.getTitle().split(" ").length;
+            assertTrue("title words " + words, words >= 1 && words <= 6);
+            int length = task.getDescription().length();
+            assertTrue("description length " + length, length >= 1 && length <= 300);
+            totalDescription += length;
+            assertTrue(task.getDueDate() >= base - 10 * day && task.getDueDate() < base + 20 * day);
+        }
+        double mean = totalDescription / (double) COUNT;
+        assertTrue("mean description length " + mean, mean > 60 && mean < 110); // Clamping trims the tail
+    }
+
+    @Test
+    public void repeatedTitles_areShared() {
+        WorkloadSpec spec = new WorkloadSpec.Builder().repeatedTitleRatio(0.5).build();
+        Set<String> distinct = new HashSet<>();
+        for (Task task : new TaskWorkloadGenerator(spec).generate(COUNT)) distinct.add(task.getTitle());
+        assertTrue("distinct titles " + distinct.size(), distinct.size() < COUNT * 0.6);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.multimodetaskmanager.workload;
+
+/**
+ * Describes the shape of a synthetic task corpus: how long titles and descriptions are,
+ * how priorities are mixed, how due dates are spread and how many tasks are already done.
+ * A spec plus a seed always produces the same tasks (see {@link TaskWorkloadGenerator}).
+ */
+public final class WorkloadSpec {
+    // Fixed reference time so generated due dates do not depend on when the test runs
+    public static final long DEFAULT_BASE_TIME_MILLIS = 1_700_000_000_000L;
+
+    final long seed;
+    final int meanTitleWords;
+    final int maxTitleWords;
+    final double repeatedTitleRatio;
+    final int meanDescriptionChars;
+    final int maxDescriptionChars;
+    final double emptyDescriptionRatio;
+    final int[] priorityWeights; // High, Medium, Low, none
+    final double noDueDateRatio;
+    final int dueDatePastDays;
+    final int dueDateFutureDays;
+    final long baseTimeMillis;
+    final double doneRatio;
+
+    private WorkloadSpec(Builder b) {
+        this.seed = b.seed;
+        this.meanTitleWords = b.meanTitleWords;
+        this.maxTitleWords = b.maxTitleWords;
+        this.repeatedTitleRatio = b.repeatedTitleRatio;
+        this.meanDescriptionChars = b.meanDescriptionChars;
+        this.maxDescriptionChars = b.maxDescriptionChars;
+        this.emptyDescriptionRatio = b.emptyDescriptionRatio;
+        this.priorityWeights = b.priorityWeights.clone();
+        this.noDueDateRatio = b.noDueDateRatio;
+        this.dueDatePastDays = b.dueDatePastDays;
+        this.dueDateFutureDays = b.dueDateFutureDays;
+        this.baseTimeMillis = b.baseTimeMillis;
+        this.doneRatio = b.doneRatio;
+    }
+
+    /** A casual user: short titles, mostly empty descriptions, a few weeks of due dates. */
+    public static WorkloadSpec typical() {
+        return new Builder().build();
+    }
+
+    /**
+     * The heavy users behind our slowest sessions: long notes, titles reused over and over
+     * ("Weekly report", "Buy milk"), two years of history with most of it already done.
+     */
+    public static WorkloadSpec heavyUser() {
+        return new Builder()
+                .titleWords(4, 12)
+                .repeatedTitleRatio(0.4)
+                .descriptionChars(240, 2_000)
+                .emptyDescriptionRatio(0.1)
+                .priorityWeights(2, 3, 4, 1)
+                .noDueDateRatio(0.15)
+                .dueDateDays(540, 180)
+                .doneRatio(0.7)
+                .build();
+    }
+
+    public Builder toBuilder() {
+        return new Builder()
+                .seed(seed)
+                .titleWords(meanTitleWords, maxTitleWords)
+                .repeatedTitleRatio(repeatedTitleRatio)
+                .descriptionChars(meanDescriptionChars, maxDescriptionChars)
+                .emptyDescriptionRatio(emptyDescriptionRatio)
+                .priorityWeights(priorityWeights[0], priorityWeights[1], priorityWeights[2], priorityWeights[3])
+                .noDueDateRatio(noDueDateRatio)
+                .dueDateDays(dueDatePastDays, dueDateFutureDays)
+                .baseTimeMillis(baseTimeMillis)
+                .doneRatio(doneRatio);
+    }
+
+    public static final class Builder {
+        private long seed = 0x7A5C;
+        private int meanTitleWords = 3;
+        private int maxTitleWords = 8;
+        private double repeatedTitleRatio = 0.1;
+        private int meanDescriptionChars = 40;
+        private int maxDescriptionChars = 400;
+        private double emptyDescriptionRatio = 0.5;
+        private int[] priorityWeights = {1, 2, 2, 0};
+        private double noDueDateRatio = 0.3;
+        private int dueDatePastDays = 14;
+        private int dueDateFutureDays = 30;
+        private long baseTimeMillis = DEFAULT_BASE_TIME_MILLIS;
+        private double doneRatio = 0.25;
+
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /** Title length in words, drawn from a geometric-like distribution around the mean. */
+        public Builder titleWords(int mean, int max) {
+            checkArgument(mean >= 1 && max >= mean, "title words: need 1 <= mean <= max");
+            this.meanTitleWords = mean;
+            this.maxTitleWords = max;
+            return this;
+        }
+
+        /** Share of tasks whose title repeats one of the earlier titles. */
+        public Builder repeatedTitleRatio(double ratio) {
+            this.repeatedTitleRatio = checkRatio(ratio, "repeatedTitleRatio");
+            return this;
+        }
+
+        /** Length of non-empty descriptions in characters, long-tailed around the mean. */
+        public Builder descriptionChars(int mean, int max) {
+            checkArgument(mean >= 1 && max >= mean, "description chars: need 1 <= mean <= max");
+            this.meanDescriptionChars = mean;
+            this.maxDescriptionChars = max;
+            return this;
+        }
+
+        public Builder emptyDescriptionRatio(double ratio) {
+            this.emptyDescriptionRatio = checkRatio(ratio, "emptyDescriptionRatio");
+            return this;
+        }
+
+        /** Relative weights of High, Medium, Low and no priority. */
+        public Builder priorityWeights(int high, int medium, int low, int none) {
+            checkArgument(high >= 0 && medium >= 0 && low >= 0 && none >= 0
+                    && high + medium + low + none > 0, "priority weights must be >= 0 and not all 0");
+            this.priorityWeights = new int[]{high, medium, low, none};
+            return this;
+        }
+
+        public Builder noDueDateRatio(double ratio) {
+            this.noDueDateRatio = checkRatio(ratio, "noDueDateRatio");
+            return this;
+        }
+
+        /** Due dates are spread uniformly from pastDays before to futureDays after the base time. */
+        public Builder dueDateDays(int pastDays, int futureDays) {
+            checkArgument(pastDays >= 0 && futureDays >= 0 && pastDays + futureDays > 0,
+                    "due date spread must cover at least one day");
+            this.dueDatePastDays = pastDays;
+            this.dueDateFutureDays = futureDays;
+            return this;
+        }
+
+        public Builder baseTimeMillis(long baseTimeMillis) {
+            this.baseTimeMillis = baseTimeMillis;
+            return this;
+        }
+
+        public Builder doneRatio(double ratio) {
+            this.doneRatio = checkRatio(ratio, "doneRatio");
+            return this;
+        }
+
+        public WorkloadSpec build() {
+            return new WorkloadSpec(this);
+        }
+
+        private static double checkRatio(double ratio, String name) {
+            checkArgument(ratio >= 0 && ratio <= 1, name + " must be between 0 and 1");
+            return ratio;
+        }
+
+        private static void checkArgument(boolean condition, String message) {
+            if (!condition) throw new IllegalArgumentException(message);
+        }
+    }
+}
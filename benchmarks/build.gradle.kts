@@ -0,0 +1,39 @@
+// JMH benchmarks for the device-independent task core. Runs on a plain JVM, no device needed:
+//   ./gradlew :benchmarks:jmh
+//   ./gradlew :benchmarks:jmh -Pjmh.includes=TaskSortBenchmark
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            // Compile the app's pure-Java classes directly instead of depending on the Android module.
+            // Never the app's test tree: fixtures the benchmarks need live in TaskFixtures
+            setSrcDirs(listOf("../app/src/main/java"))
+            include("com/example/multimodetaskmanager/models/**")
+            include("com/example/multimodetaskmanager/utils/StringPool.java")
+            include("com/example/multimodetaskmanager/utils/TaskComparators.java")
+            include("com/example/multimodetaskmanager/utils/TaskJson.java")
+        }
+    }
+}
+
+dependencies {
+    implementation(libs.gson)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    (findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    resultFormat.set("JSON")
+}
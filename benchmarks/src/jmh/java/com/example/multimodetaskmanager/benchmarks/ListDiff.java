@@ -0,0 +1,50 @@
+package com.example.multimodetaskmanager.benchmarks;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.List;
+
+/**
+ * A plain-JVM stand-in for DiffUtil.calculateDiff with TaskDiffUtil as the callback.
+ *
+ * RecyclerView's DiffUtil ships in an Android library, so it cannot run here. This runs the
+ * same Myers O((N+M)D) search over the same callbacks: areItemsTheSame compares task ids
+ * (Task.hasSameId) and areContentsTheSame (Task.equals) is called for every matched pair, the
+ * way DiffUtil does while building its snakes. It returns the edit distance plus the number
+ * of changed items so the JIT cannot drop the work.
+ */
+final class ListDiff {
+    private ListDiff() {
+    }
+
+    static int diff(List<Task> oldList, List<Task> newList) {
+        int n = oldList.size();
+        int m = newList.size();
+        int max = n + m;
+        int offset = max + 1;
+        int[] v = new int[2 * max + 3];
+        for (int d = 0; d <= max; d++) {
+            for (int k = -d; k <= d; k += 2) {
+                int x;
+                if (k == -d || (k != d && v[offset + k - 1] < v[offset + k + 1])) {
+                    x = v[offset + k + 1]; // Insertion
+                } else {
+                    x = v[offset + k - 1] + 1; // Removal
+                }
+                int y = x - k;
+                int changed = 0;
+                // Follow the snake of matching items
+                while (x < n && y < m && oldList.get(x).hasSameId(newList.get(y))) {
+                    if (!oldList.get(x).equals(newList.get(y))) changed++;
+                    x++;
+                    y++;
+                }
+                v[offset + k] = x;
+                if (x >= n && y >= m) {
+                    return d + changed;
+                }
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.multimodetaskmanager.benchmarks;
+
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diffing the list the adapter shows against the next list, the work the TaskListFragment
+ * observer does on every emission.
+ *
+ * SHUFFLED and RESORTED move almost every row, which is Myers' worst case (quadratic), the same
+ * as for DiffUtil; those stop at 10k rows because 1M rows would not finish. EDIT changes one
+ * task and inserts another, the common case after a tap, and runs up to 1M rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskDiffBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Reordered {
+        @Param({"100", "1000", "10000"})
+        public int size;
+
+        @Param({"SHUFFLED", "RESORTED"})
+        public String scenario;
+
+        List<Task> oldList;
+        List<Task> newList;
+
+        @Setup
+        public void setUp() {
+            List<Task> tasks = TaskFixtures.tasks(size);
+            oldList = new ArrayList<>(tasks);
+            Collections.sort(oldList, TaskComparators.forOrder(SortOrder.DUE_DATE));
+            if (scenario.equals("SHUFFLED")) {
+                newList = TaskFixtures.shuffled(oldList);
+            } else {
+                newList = new ArrayList<>(oldList);
+                Collections.sort(newList, TaskComparators.forOrder(SortOrder.NAME));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Edited {
+        @Param({"100", "10000", "1000000"})
+        public int size;
+
+        List<Task> oldList;
+        List<Task> newList;
+
+        @Setup
+        public void setUp() {
+            oldList = TaskFixtures.tasks(size);
+            newList = TaskFixtures.copiesOf(oldList);
+            Task edited = newList.get(size / 2);
+            edited.setDone(!edited.isDone());
+            newList.add(size / 3, new Task("Inserted task", "", "High", 0L));
+        }
+    }
+
+    @Benchmark
+    public int reordered(Reordered state) {
+        return ListDiff.diff(state.oldList, state.newList);
+    }
+
+    @Benchmark
+    public int edited(Edited state) {
+        return ListDiff.diff(state.oldList, state.newList);
+    }
+}
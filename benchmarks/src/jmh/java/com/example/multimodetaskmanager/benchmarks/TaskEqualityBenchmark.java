@@ -0,0 +1,53 @@
+package com.example.multimodetaskmanager.benchmarks;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task.equals and Task.hashCode over a whole list, as DiffUtil and hash-based lookups use them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskEqualityBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Task> tasks;
+    private List<Task> copies;
+
+    @Setup
+    public void setUp() {
+        tasks = TaskFixtures.tasks(size);
+        copies = TaskFixtures.copiesOf(tasks);
+    }
+
+    @Benchmark
+    public int equalsAll() {
+        int equal = 0;
+        for (int i = 0; i < size; i++) {
+            if (tasks.get(i).equals(copies.get(i))) equal++;
+        }
+        return equal;
+    }
+
+    @Benchmark
+    public int hashCodeAll() {
+        int hash = 0;
+        for (int i = 0; i < size; i++) {
+            hash += tasks.get(i).hashCode();
+        }
+        return hash;
+    }
+}
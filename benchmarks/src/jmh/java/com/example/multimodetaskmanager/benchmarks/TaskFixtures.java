@@ -0,0 +1,57 @@
+package com.example.multimodetaskmanager.benchmarks;
+
+import com.example.multimodetaskmanager.models.Task;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic task lists for the benchmarks. The same seed always produces the same list,
+ * so runs on different machines and commits measure the same data.
+ */
+final class TaskFixtures {
+    static final long SEED = 0x7A5C;
+    private static final String[] PRIORITIES = {"High", "Medium", "Low"};
+    private static final String[] WORDS = {"Review", "Call", "Write", "Plan", "Fix", "Buy", "Email", "Read",
+            "report", "groceries", "design", "meeting", "budget", "invoice", "draft", "release"};
+
+    private TaskFixtures() {
+    }
+
+    static List<Task> tasks(int count) {
+        Random random = new Random(SEED);
+        List<Task> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String title = WORDS[random.nextInt(8)] + " " + WORDS[8 + random.nextInt(8)] + " " + random.nextInt(1000);
+            long due = random.nextInt(5) == 0 ? 0L : 1_700_000_000_000L + random.nextInt(90) * 86_400_000L;
+            Task task = new Task(title, "Notes for " + title, PRIORITIES[random.nextInt(PRIORITIES.length)], due);
+            task.setDone(random.nextInt(4) == 0);
+            tasks.add(task);
+        }
+        return tasks;
+    }
+
+    /**
+     * Equal copies with their own title and description strings, so equality checks compare
+     * contents and cannot short-circuit on identity. Made with the Task copy constructor, like
+     * the app tests' TaskCopies; kept here so the benchmarks do not compile the app's test tree.
+     */
+    static List<Task> copiesOf(List<Task> tasks) {
+        List<Task> copies = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            Task copy = new Task(task);
+            if (task.getTitle() != null) copy.setTitle(new String(task.getTitle()));
+            if (task.getDescription() != null) copy.setDescription(new String(task.getDescription()));
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    static List<Task> shuffled(List<Task> tasks) {
+        List<Task> copy = new ArrayList<>(tasks);
+        Collections.shuffle(copy, new Random(SEED + 1));
+        return copy;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.multimodetaskmanager.benchmarks;
+
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.utils.StringPool;
+import com.example.multimodetaskmanager.utils.TaskJson;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode through TaskJson: the whole list as one JSON array (the old storage format,
+ * still read once when migrating) and as per-task records, the work behind
+ * TaskRepository.persist and load.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TaskJsonBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Task> tasks;
+    private String json;
+    private List<String> records;
+    private long[] seqs;
+
+    @Setup
+    public void setUp() {
+        tasks = TaskFixtures.tasks(size);
+        json = TaskJson.toJson(tasks);
+        records = encodeRecords();
+        seqs = new long[size];
+    }
+
+    @Benchmark
+    public String encode() {
+        return TaskJson.toJson(tasks);
+    }
+
+    @Benchmark
+    public List<Task> decode() {
+        return TaskJson.fromJson(json);
+    }
+
+    @Benchmark
+    public List<Task> roundTrip() {
+        return TaskJson.fromJson(TaskJson.toJson(tasks));
+    }
+
+    @Benchmark
+    public List<String> encodeRecords() {
+        List<String> out = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            out.add(TaskJson.toRecordJson(tasks.get(i), i + 1, i));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public List<Task> decodeRecords() {
+        return TaskJson.fromRecordsJson(records, new StringPool(), seqs);
+    }
+}
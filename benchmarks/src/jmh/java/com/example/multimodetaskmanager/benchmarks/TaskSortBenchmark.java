@@ -0,0 +1,47 @@
+package com.example.multimodetaskmanager.benchmarks;
+
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The TaskStore sort path: copy the list, then sort it with the comparator for each SortOrder.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskSortBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    @Param({"PRIORITY", "DUE_DATE", "NAME"})
+    public SortOrder order;
+
+    private List<Task> shuffled;
+
+    @Setup
+    public void setUp() {
+        shuffled = TaskFixtures.shuffled(TaskFixtures.tasks(size));
+    }
+
+    @Benchmark
+    public List<Task> sortCopy() {
+        List<Task> sorted = new ArrayList<>(shuffled);
+        Collections.sort(sorted, TaskComparators.forOrder(order));
+        return sorted;
+    }
+}
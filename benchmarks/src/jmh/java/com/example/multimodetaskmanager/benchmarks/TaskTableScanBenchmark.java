@@ -0,0 +1,93 @@
+package com.example.multimodetaskmanager.benchmarks;
+
+import com.example.multimodetaskmanager.models.Priority;
+import com.example.multimodetaskmanager.models.SortOrder;
+import com.example.multimodetaskmanager.models.Task;
+import com.example.multimodetaskmanager.models.TaskTable;
+import com.example.multimodetaskmanager.utils.TaskComparators;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scans, counts and sorts over the columnar TaskTable versus the same work over List<Task>.
+ * The list is shuffled first so its Task objects are scattered the way a long-lived list's are.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TaskTableScanBenchmark {
+    @Param({"100", "10000", "1000000"})
+    public int size;
+
+    private List<Task> list;
+    private TaskTable table;
+    private int[] rows;
+
+    @Setup
+    public void setUp() {
+        list = TaskFixtures.shuffled(TaskFixtures.tasks(size));
+        table = TaskTable.from(list);
+        rows = new int[size];
+    }
+
+    @Benchmark
+    public int countPendingHighList() {
+        int count = 0;
+        for (int i = 0; i < list.size(); i++) {
+            Task task = list.get(i);
+            if (!task.isDone() && task.getPriorityLevel() == Priority.HIGH) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countPendingHighTable() {
+        int n = table.selectByPriority(Priority.HIGH, rows);
+        int count = 0;
+        for (int i = 0; i < n; i++) {
+            if (!table.isDone(rows[i])) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countOverdueList() {
+        long now = 1_700_000_000_000L + 45 * 86_400_000L;
+        int count = 0;
+        for (int i = 0; i < list.size(); i++) {
+            Task task = list.get(i);
+            if (!task.isDone() && task.getDueDate() != 0L && task.getDueDate() < now) count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    public int countOverdueTable() {
+        return table.countOverdue(1_700_000_000_000L + 45 * 86_400_000L);
+    }
+
+    @Benchmark
+    public List<Task> sortByDueDateList() {
+        List<Task> sorted = new ArrayList<>(list);
+        sorted.sort(TaskComparators.forOrder(SortOrder.DUE_DATE));
+        return sorted;
+    }
+
+    @Benchmark
+    public int[] sortByDueDateTable() {
+        int n = table.selectAll(rows);
+        table.sortRows(rows, n, SortOrder.DUE_DATE);
+        return rows;
+    }
+}
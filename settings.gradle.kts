@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "MultiModeTaskManager"
 include(":app")
+include(":benchmarks")